@@ -0,0 +1,474 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.mcsoxford.rss.RSSLoader.RSSFuture;
+
+/**
+ * Non-blocking HTTP client to retrieve and parse RSS 2.0 feeds. A single
+ * thread multiplexes all connections with a {@link Selector}. Every chunk of
+ * bytes received from the network is immediately tokenized and dispatched to
+ * the same SAX handler that {@link RSSParser} uses, so parsing overlaps with
+ * the transfer and thousands of concurrent downloads need neither a thread
+ * each nor a buffer for the entire response. Callers must call
+ * {@link #close()} to release all resources.
+ * <p>
+ * Only plain {@code http:} URIs are supported. Redirects are followed. Host
+ * names are resolved on the thread which calls {@link #load(String)}, and
+ * those of redirects on a separate resolver thread, so that the selector
+ * thread never blocks. The connect, read and total timeouts of the
+ * {@link RSSConfig} apply.
+ */
+public class AsyncRSSReader implements java.io.Closeable {
+
+  /**
+   * Human-readable name of the thread loading RSS feeds
+   */
+  private final static String DEFAULT_THREAD_NAME = "Non-blocking RSS feed reader";
+
+  /**
+   * Human-readable name of the thread resolving the hosts of redirects
+   */
+  private final static String RESOLVER_THREAD_NAME = "RSS feed redirect resolver";
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  private static final int MAX_REDIRECTS = 5;
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  /**
+   * Interval in milliseconds at which connections are checked for timeouts.
+   */
+  private static final long SWEEP_MILLIS = 100;
+
+  private final RSSConfig config;
+
+  private final Selector selector;
+
+  /**
+   * Exchanges which have been created by other threads and wait for
+   * registration with the selector.
+   */
+  private final Queue<Exchange> pending = new ConcurrentLinkedQueue<Exchange>();
+
+  /**
+   * Opens the connections of redirects, which resolves their host names.
+   */
+  private final ExecutorService resolver = Executors
+      .newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          final Thread thread = new Thread(runnable, RESOLVER_THREAD_NAME);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  /**
+   * Network reads of all connections share this buffer because they happen
+   * on the selector thread.
+   */
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  private volatile boolean closed;
+
+  /**
+   * Instantiate a non-blocking HTTP client and start its selector thread.
+   * 
+   * @param config RSS configuration
+   * @throws RSSFault if the selector cannot be opened
+   */
+  public AsyncRSSReader(RSSConfig config) {
+    this.config = config;
+    try {
+      selector = Selector.open();
+    } catch (IOException e) {
+      throw new RSSFault(e);
+    }
+
+    final Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        select();
+      }
+    }, DEFAULT_THREAD_NAME);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public AsyncRSSReader() {
+    this(new RSSConfig());
+  }
+
+  /**
+   * Loads the specified RSS feed URI asynchronously. The returned future
+   * completes with an {@link java.util.concurrent.ExecutionException} whose
+   * cause is an {@link RSSReaderException} if the HTTP status is not OK, or an
+   * {@link RSSFault} if an IO or parse error has occurred.
+   * 
+   * @param uri RSS 2.0 feed URI with the {@code http:} scheme
+   * @return Future representing the RSS feed, {@code null} if this reader has
+   *         been closed
+   */
+  public Future<RSSFeed> load(String uri) {
+    if (uri == null) {
+      throw new IllegalArgumentException("RSS feed URI must not be null.");
+    } else if (closed) {
+      return null;
+    }
+
+    final RSSFuture future = new RSSFuture(uri, RSSFuture.DEFAULT_PRIORITY);
+    future.status.set(RSSFuture.LOADING);
+    open(future, uri, System.nanoTime(), 0);
+    return future;
+  }
+
+  /**
+   * Opens a connection for the load and hands it to the selector thread.
+   */
+  void open(RSSFuture future, String location, long start, int redirects) {
+    final Exchange exchange;
+    try {
+      exchange = new Exchange(future, location, start, redirects);
+    } catch (RSSFault e) {
+      complete(future, null, e);
+      return;
+    }
+
+    pending.add(exchange);
+    if (closed && pending.remove(exchange)) {
+      // the selector thread may have drained the queue for the last time
+      exchange.fail(new RSSFault("RSS reader has been closed"));
+      return;
+    }
+    selector.wakeup();
+  }
+
+  /**
+   * Stops the selector thread and fails all incomplete loads.
+   */
+  public void close() {
+    closed = true;
+    selector.wakeup();
+  }
+
+  /**
+   * Selector loop which runs until this reader is closed.
+   */
+  void select() {
+    long sweep = System.nanoTime();
+    try {
+      while (!closed) {
+        Exchange exchange;
+        while ((exchange = pending.poll()) != null) {
+          exchange.register();
+        }
+
+        selector.select(SWEEP_MILLIS);
+
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          ((Exchange) key.attachment()).handle(key);
+        }
+
+        final long now = System.nanoTime();
+        if (now - sweep >= TimeUnit.MILLISECONDS.toNanos(SWEEP_MILLIS)) {
+          sweep = now;
+          for (SelectionKey key : selector.keys()) {
+            ((Exchange) key.attachment()).checkTimeout(now);
+          }
+        }
+      }
+    } catch (IOException e) {
+      // selector has failed, so all exchanges fail below
+    } finally {
+      // however the loop ended, later loads must not wait for this thread
+      closed = true;
+      final RSSFault fault = new RSSFault("RSS reader has been closed");
+      for (SelectionKey key : selector.keys()) {
+        ((Exchange) key.attachment()).fail(fault);
+      }
+      Exchange exchange;
+      while ((exchange = pending.poll()) != null) {
+        exchange.fail(fault);
+      }
+      resolver.shutdown();
+      Resources.closeQuietly(selector);
+    }
+  }
+
+  static void complete(RSSFuture future, RSSFeed feed, Exception cause) {
+    future.status.set(RSSFuture.LOADED);
+    future.set(feed, cause);
+  }
+
+  /**
+   * State of a single HTTP request and the incremental parse of its response.
+   */
+  private final class Exchange {
+
+    private final RSSFuture future;
+    private final URI uri;
+    private final long start;
+    private final int redirects;
+
+    private final SocketChannel channel;
+    private final ByteBuffer request;
+    private final HttpResponseDecoder response = new HttpResponseDecoder();
+    private final RSSHandler handler;
+    private final XmlTokenizer tokenizer;
+
+    private SelectionKey key;
+    private boolean connected;
+    private boolean checked;
+    private boolean done;
+    private long activity;
+
+    /**
+     * Opens a non-blocking connection to the host of the URI.
+     * 
+     * @throws RSSFault if the URI is not supported or the connection fails
+     */
+    Exchange(RSSFuture future, String location, long start, int redirects) {
+      this.future = future;
+      this.start = start;
+      this.redirects = redirects;
+      this.activity = System.nanoTime();
+      this.handler = new RSSHandler(config);
+      this.tokenizer = new XmlTokenizer(handler);
+
+      try {
+        uri = new URI(location);
+      } catch (URISyntaxException e) {
+        throw new RSSFault(e);
+      }
+
+      if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+        throw new RSSFault("Unsupported RSS feed URI: " + location);
+      }
+
+      final int port = uri.getPort() == -1 ? 80 : uri.getPort();
+      final InetSocketAddress address = new InetSocketAddress(uri.getHost(), port);
+      if (address.isUnresolved()) {
+        throw new RSSFault(new java.net.UnknownHostException(uri.getHost()));
+      }
+
+      final String path = uri.getRawPath() == null || uri.getRawPath().length() == 0 ? "/"
+          : uri.getRawPath();
+      final String query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+      request = ByteBuffer.wrap(("GET " + path + query + " HTTP/1.1\r\n"
+          + "Host: " + uri.getHost() + (uri.getPort() == -1 ? "" : ":" + port) + "\r\n"
+          + "Accept: application/rss+xml, application/xml, text/xml, */*\r\n"
+          + "Connection: close\r\n\r\n").getBytes(ASCII));
+
+      SocketChannel channel = null;
+      try {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        connected = channel.connect(address);
+      } catch (IOException e) {
+        Resources.closeQuietly(channel);
+        throw new RSSFault(e);
+      }
+      this.channel = channel;
+    }
+
+    /**
+     * Registers the channel with the selector. Must be called on the selector
+     * thread.
+     */
+    void register() {
+      try {
+        key = channel.register(selector, connected ? SelectionKey.OP_WRITE
+            : SelectionKey.OP_CONNECT, this);
+      } catch (IOException e) {
+        fail(e);
+      } catch (RuntimeException e) {
+        fail(new RSSFault(e));
+      }
+    }
+
+    /**
+     * Performs the IO operation for which the channel is ready.
+     */
+    void handle(SelectionKey key) {
+      try {
+        if (key.isConnectable() && channel.finishConnect()) {
+          connected = true;
+          activity = System.nanoTime();
+          key.interestOps(SelectionKey.OP_WRITE);
+        } else if (key.isWritable()) {
+          channel.write(request);
+          activity = System.nanoTime();
+          if (!request.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ);
+          }
+        } else if (key.isReadable()) {
+          read();
+        }
+      } catch (IOException e) {
+        fail(e);
+      } catch (RSSException e) {
+        fail(e);
+      } catch (RSSFault e) {
+        fail(e);
+      } catch (RuntimeException e) {
+        // e.g. a malformed Location header must only fail this exchange
+        fail(new RSSFault(e));
+      }
+    }
+
+    private void read() throws IOException, RSSException {
+      buffer.clear();
+      final int n = channel.read(buffer);
+      activity = System.nanoTime();
+      if (n == -1) {
+        response.endOfStream();
+        if (!checked) {
+          check();
+        }
+        finish();
+        return;
+      }
+
+      buffer.flip();
+      ByteBuffer body;
+      while ((body = response.next(buffer)) != null) {
+        if (!checked && !check()) {
+          return;
+        }
+        tokenizer.feed(body);
+      }
+
+      if (response.hasHeaders() && !checked && !check()) {
+        return;
+      }
+
+      if (response.isDone()) {
+        finish();
+      }
+    }
+
+    /**
+     * Checks the HTTP status once the headers have been received.
+     * 
+     * @return {@code false} if this exchange has been replaced by a redirect
+     */
+    private boolean check() throws RSSException {
+      checked = true;
+
+      final int status = response.status();
+      final String location = response.header("Location");
+      if ((status == HttpURLConnection.HTTP_MOVED_PERM
+          || status == HttpURLConnection.HTTP_MOVED_TEMP
+          || status == HttpURLConnection.HTTP_SEE_OTHER || status == 307 || status == 308)
+          && location != null && redirects < MAX_REDIRECTS) {
+        final String next = uri.resolve(location).toString();
+        done = true;
+        close();
+        try {
+          // host name resolution blocks, so it must not happen here
+          resolver.execute(new Runnable() {
+            @Override
+            public void run() {
+              open(future, next, start, redirects + 1);
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          complete(future, null, new RSSFault("RSS reader has been closed"));
+        }
+        return false;
+      } else if (status != HttpURLConnection.HTTP_OK) {
+        throw new RSSReaderException(status, response.reason());
+      }
+
+      return true;
+    }
+
+    private void finish() {
+      tokenizer.end();
+
+      final RSSFeed feed = handler.feed();
+      if (feed.getLink() == null) {
+        feed.setLink(android.net.Uri.parse(future.uri));
+      }
+
+      done = true;
+      close();
+      complete(future, feed, null);
+    }
+
+    void checkTimeout(long now) {
+      if (done) {
+        return;
+      }
+
+      final long connect = config.connectTimeoutMillis;
+      final long read = config.readTimeoutMillis;
+      final long total = config.totalTimeoutMillis;
+      if (!connected && connect != 0 && now - activity > TimeUnit.MILLISECONDS.toNanos(connect)
+          || connected && read != 0 && now - activity > TimeUnit.MILLISECONDS.toNanos(read)
+          || total != 0 && now - start > TimeUnit.MILLISECONDS.toNanos(total)) {
+        fail(new SocketTimeoutException("RSS feed loading timed out"));
+      }
+    }
+
+    void fail(Exception cause) {
+      if (done) {
+        return;
+      }
+
+      done = true;
+      close();
+      complete(future, null, cause instanceof IOException ? new RSSFault(cause) : cause);
+    }
+
+    private void close() {
+      if (key != null) {
+        key.cancel();
+      }
+      Resources.closeQuietly(channel);
+      handler.release();
+    }
+
+  }
+
+}
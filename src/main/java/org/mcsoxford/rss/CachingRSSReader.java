@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * RSS reader which serves fresh RSS feeds from an {@link RSSCache} instead of
+ * retrieving and parsing them again. An {@link RSSLoader} constructed with
+ * this reader looks up and stores RSS feeds in the same cache.
+ */
+public class CachingRSSReader extends RSSReader {
+
+  private final RSSCache cache;
+
+  /**
+   * Instantiate a caching client with the specified fetcher and parser.
+   * 
+   * @param cache thread-safe cache which may be shared with other readers
+   */
+  public CachingRSSReader(RSSFetcherSPI fetcher, RSSParserSPI parser, RSSCache cache) {
+    super(fetcher, parser);
+    this.cache = cache;
+  }
+
+  /**
+   * Instantiate a caching HTTP client.
+   * 
+   * @param cache thread-safe cache which may be shared with other readers
+   */
+  public CachingRSSReader(RSSConfig config, RSSCache cache) {
+    this(new HttpFetcher(config), new RSSParser(config), cache);
+  }
+
+  /**
+   * Returns the cached RSS feed if it is fresh. Otherwise, the RSS feed is
+   * loaded and cached.
+   * 
+   * @see RSSReader#load(String)
+   */
+  @Override
+  public RSSFeed load(String uri) throws RSSReaderException {
+    RSSFeed feed = cache.get(uri);
+    if (feed == null) {
+      feed = super.load(uri);
+      cache.put(uri, feed);
+    }
+
+    return feed;
+  }
+
+  /**
+   * Returns the cached RSS feed if it is fresh, so that {@link RSSLoader}
+   * does not download it.
+   */
+  @Override
+  RSSFeed cached(String uri) {
+    return cache.get(uri);
+  }
+
+  /**
+   * Caches an RSS feed which {@link RSSLoader} has downloaded and parsed.
+   */
+  @Override
+  void loaded(String uri, RSSFeed feed) {
+    cache.put(uri, feed);
+  }
+
+  /**
+   * Returns the cache of this reader.
+   */
+  public RSSCache getCache() {
+    return cache;
+  }
+
+}
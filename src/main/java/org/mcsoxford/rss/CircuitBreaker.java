@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * Internal thread-safe circuit breaker which fails fast while a host is
+ * unavailable. After the specified number of consecutive failures, the
+ * circuit opens and rejects requests until the open interval has elapsed.
+ * Then a single trial request is admitted: its success closes the circuit,
+ * its failure opens the circuit again.
+ */
+final class CircuitBreaker {
+
+  private final int threshold;
+  private final long openNanos;
+
+  /* Guarded by this */
+  private int failures;
+  private long openUntil;
+  private boolean trial;
+
+  /**
+   * @param threshold number of consecutive failures which open the circuit
+   * @param openMillis duration in milliseconds for which the circuit is open
+   */
+  CircuitBreaker(int threshold, long openMillis) {
+    this.threshold = threshold;
+    this.openNanos = openMillis * 1000000L;
+  }
+
+  /**
+   * Returns {@code true} if a request may be sent at the specified time.
+   * 
+   * @param now value of {@link System#nanoTime()}
+   */
+  synchronized boolean allow(long now) {
+    if (failures < threshold) {
+      return true;
+    } else if (trial || now - openUntil < 0) {
+      return false;
+    }
+
+    // half-open: admit one trial request
+    trial = true;
+    return true;
+  }
+
+  /**
+   * Records that the host has responded.
+   */
+  synchronized void success() {
+    failures = 0;
+    trial = false;
+  }
+
+  /**
+   * Records that the host has failed to respond at the specified time.
+   * 
+   * @param now value of {@link System#nanoTime()}
+   */
+  synchronized void failure(long now) {
+    trial = false;
+    if (++failures >= threshold) {
+      failures = threshold;
+      openUntil = now + openNanos;
+    }
+  }
+
+  /**
+   * Records that an admitted request has ended without an outcome, e.g.
+   * because the calling thread has been interrupted, so that the next
+   * request may be the trial.
+   */
+  synchronized void abort() {
+    trial = false;
+  }
+
+  /**
+   * Returns {@code true} if requests are currently rejected.
+   */
+  synchronized boolean isOpen(long now) {
+    return failures >= threshold && (trial || now - openUntil < 0);
+  }
+
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable column-oriented representation of an RSS feed with a large number
+ * of RSS items. Instead of one {@link RSSItem} with its own lists,
+ * {@link java.util.Date} and {@link android.net.Uri} objects per item, each
+ * field of all RSS items is stored in a single array: texts as packed UTF-8,
+ * dates as milliseconds since the epoch, and categories as integer ids into a
+ * shared symbol table.
+ * <p>
+ * RSS items are read through {@link Item} flyweights, which decode fields on
+ * demand. This class is thread-safe, but {@link Item} objects must not be
+ * shared between threads if they are repositioned.
+ */
+public final class ColumnarRSSFeed {
+
+  /**
+   * Date value of RSS items without a date.
+   */
+  public static final long NO_DATE = RSSBase.NO_DATE;
+
+  // channel
+  private final String title;
+  private final android.net.Uri link;
+  private final String description;
+  private final List<String> categories;
+  private final long pubDate;
+  private final long lastBuildDate;
+  private final int ttl;
+
+  // items
+  private final int size;
+  private final PackedStrings titles;
+  private final PackedStrings links;
+  private final PackedStrings descriptions;
+  private final PackedStrings contents;
+
+  /**
+   * Descriptions and contents which the parser has stored compressed keep
+   * their deflated bytes and are {@code null} in the packed columns. Either
+   * array is {@code null} if no item has a compressed field.
+   */
+  private final CompressedText[] compressedDescriptions;
+  private final CompressedText[] compressedContents;
+  private final long[] pubDates;
+  private final PackedStrings guids;
+
+  /**
+   * Bit i is set if the GUID of the i-th item is a permanent link.
+   */
+  private final BitSet permaLinks;
+  private final long[] fingerprints;
+  private final long[] simHashes;
+
+  /**
+   * Category and MIME type names indexed by id.
+   */
+  private final String[] symbols;
+
+  /**
+   * Category ids of the i-th item range from {@code categoryOffsets[i]}
+   * inclusive to {@code categoryOffsets[i + 1]} exclusive.
+   */
+  private final int[] categoryIds;
+  private final int[] categoryOffsets;
+
+  private final PackedStrings thumbnailUrls;
+  private final int[] thumbnailHeights;
+  private final int[] thumbnailWidths;
+  private final int[] thumbnailOffsets;
+
+  /**
+   * Enclosure URLs are {@code null} for items without an enclosure.
+   */
+  private final PackedStrings enclosureUrls;
+  private final int[] enclosureLengths;
+  private final int[] enclosureTypes;
+
+  private ColumnarRSSFeed(RSSFeed feed) {
+    title = feed.getTitle();
+    link = feed.getLink();
+    description = feed.getDescription();
+    categories = Collections.unmodifiableList(new ArrayList<String>(feed.getCategories()));
+    pubDate = feed.getPubDateMillis();
+    lastBuildDate = feed.getLastBuildDateMillis();
+    ttl = feed.getTTLMinutes();
+
+    final List<RSSItem> items = feed.getItems();
+    size = items.size();
+    titles = new PackedStrings(size);
+    links = new PackedStrings(size);
+    descriptions = new PackedStrings(size);
+    contents = new PackedStrings(size);
+    pubDates = new long[size];
+    guids = new PackedStrings(size);
+    permaLinks = new BitSet(size);
+    fingerprints = new long[size];
+    simHashes = new long[size];
+    categoryOffsets = new int[size + 1];
+    thumbnailOffsets = new int[size + 1];
+    thumbnailUrls = new PackedStrings(size);
+    enclosureUrls = new PackedStrings(size);
+    enclosureLengths = new int[size];
+    enclosureTypes = new int[size];
+
+    final Map<String, Integer> ids = new HashMap<String, Integer>();
+    final List<String> names = new ArrayList<String>();
+    int[] categoryIds = new int[size];
+    int categoryCount = 0;
+    int[] thumbnailHeights = new int[size];
+    int[] thumbnailWidths = new int[size];
+    int thumbnailCount = 0;
+    CompressedText[] compressedDescriptions = null;
+    CompressedText[] compressedContents = null;
+
+    for (int i = 0; i < size; i++) {
+      final RSSItem item = items.get(i);
+      titles.add(item.getTitle());
+      links.add(item.getLinkString());
+      final CompressedText compressedDescription = item.getCompressedDescription();
+      if (compressedDescription == null) {
+        descriptions.add(item.getDescription());
+      } else {
+        if (compressedDescriptions == null) {
+          compressedDescriptions = new CompressedText[size];
+        }
+        compressedDescriptions[i] = compressedDescription;
+        descriptions.add(null);
+      }
+      final CompressedText compressedContent = item.getCompressedContent();
+      if (compressedContent == null) {
+        contents.add(item.getContent());
+      } else {
+        if (compressedContents == null) {
+          compressedContents = new CompressedText[size];
+        }
+        compressedContents[i] = compressedContent;
+        contents.add(null);
+      }
+      pubDates[i] = item.getPubDateMillis();
+      guids.add(item.getGuid());
+      permaLinks.set(i, item.isPermaLink());
+      fingerprints[i] = item.getFingerprint();
+      simHashes[i] = item.getSimHash();
+
+      final List<String> itemCategories = item.getCategories();
+      if (categoryCount + itemCategories.size() > categoryIds.length) {
+        categoryIds = Arrays.copyOf(categoryIds,
+            Math.max(categoryCount + itemCategories.size(), 2 * categoryIds.length));
+      }
+      for (int j = 0; j < itemCategories.size(); j++) {
+        categoryIds[categoryCount++] = symbol(itemCategories.get(j), ids, names);
+      }
+      categoryOffsets[i + 1] = categoryCount;
+
+      final List<MediaThumbnail> thumbnails = item.getThumbnails();
+      if (thumbnailCount + thumbnails.size() > thumbnailHeights.length) {
+        final int capacity = Math.max(thumbnailCount + thumbnails.size(),
+            2 * thumbnailHeights.length);
+        thumbnailHeights = Arrays.copyOf(thumbnailHeights, capacity);
+        thumbnailWidths = Arrays.copyOf(thumbnailWidths, capacity);
+      }
+      for (int j = 0; j < thumbnails.size(); j++) {
+        final MediaThumbnail thumbnail = thumbnails.get(j);
+        thumbnailUrls.add(thumbnail.getUrlString());
+        thumbnailHeights[thumbnailCount] = thumbnail.getHeight();
+        thumbnailWidths[thumbnailCount++] = thumbnail.getWidth();
+      }
+      thumbnailOffsets[i + 1] = thumbnailCount;
+
+      final MediaEnclosure enclosure = item.getEnclosure();
+      if (enclosure == null) {
+        enclosureUrls.add(null);
+        enclosureTypes[i] = -1;
+      } else {
+        enclosureUrls.add(enclosure.getUrlString());
+        enclosureLengths[i] = enclosure.getLength();
+        enclosureTypes[i] = symbol(enclosure.getMimeType(), ids, names);
+      }
+    }
+
+    this.symbols = names.toArray(new String[names.size()]);
+    this.compressedDescriptions = compressedDescriptions;
+    this.compressedContents = compressedContents;
+    this.categoryIds = Arrays.copyOf(categoryIds, categoryCount);
+    this.thumbnailHeights = Arrays.copyOf(thumbnailHeights, thumbnailCount);
+    this.thumbnailWidths = Arrays.copyOf(thumbnailWidths, thumbnailCount);
+    titles.trim();
+    links.trim();
+    descriptions.trim();
+    contents.trim();
+    guids.trim();
+    thumbnailUrls.trim();
+    enclosureUrls.trim();
+  }
+
+  /**
+   * Returns the id of the specified name, which is assigned if it is new.
+   * The id of {@code null} is {@code -2}.
+   */
+  private static int symbol(String name, Map<String, Integer> ids, List<String> names) {
+    if (name == null) {
+      return -2;
+    }
+
+    Integer id = ids.get(name);
+    if (id == null) {
+      id = names.size();
+      ids.put(name, id);
+      names.add(name);
+    }
+
+    return id;
+  }
+
+  /**
+   * Copies the specified RSS feed into a columnar representation. The RSS
+   * feed can be discarded afterwards.
+   */
+  public static ColumnarRSSFeed of(RSSFeed feed) {
+    return new ColumnarRSSFeed(feed);
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public android.net.Uri getLink() {
+    return link;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Returns an unmodifiable list of the channel's categories.
+   */
+  public List<String> getCategories() {
+    return categories;
+  }
+
+  public java.util.Date getPubDate() {
+    return pubDate == NO_DATE ? null : new java.util.Date(pubDate);
+  }
+
+  public long getPubDateMillis() {
+    return pubDate;
+  }
+
+  public java.util.Date getLastBuildDate() {
+    return lastBuildDate == NO_DATE ? null : new java.util.Date(lastBuildDate);
+  }
+
+  public long getLastBuildDateMillis() {
+    return lastBuildDate;
+  }
+
+  public Integer getTTL() {
+    return ttl == RSSFeed.NO_TTL ? null : Integer.valueOf(ttl);
+  }
+
+  /**
+   * Returns the time to live in minutes, {@link RSSFeed#NO_TTL} if there is
+   * none.
+   */
+  public int getTTLMinutes() {
+    return ttl;
+  }
+
+  /**
+   * Returns the number of RSS items.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the publication date of the RSS item with the specified index in
+   * milliseconds since the epoch, {@link #NO_DATE} if it has no date. This
+   * reads the date column directly, which is useful to sort or merge items.
+   */
+  public long getPubDateMillis(int index) {
+    return pubDates[index];
+  }
+
+  /**
+   * Returns a flyweight of the RSS item with the specified index.
+   * 
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  public Item item(int index) {
+    return new Item().moveTo(index);
+  }
+
+  /**
+   * Estimates the number of bytes which this representation occupies on the
+   * heap, excluding the channel fields.
+   */
+  public long weight() {
+    long weight = titles.weight() + links.weight() + descriptions.weight()
+        + contents.weight() + guids.weight() + thumbnailUrls.weight()
+        + enclosureUrls.weight();
+    weight += permaLinks.size() / 8 + 8L * (pubDates.length + fingerprints.length
+        + simHashes.length) + 4L * (categoryIds.length + categoryOffsets.length
+        + thumbnailHeights.length + thumbnailWidths.length + thumbnailOffsets.length
+        + enclosureLengths.length + enclosureTypes.length);
+    for (String symbol : symbols) {
+      weight += 3 * 16 + 2L * symbol.length();
+    }
+
+    return weight + weigh(compressedDescriptions) + weigh(compressedContents);
+  }
+
+  private static long weigh(CompressedText[] texts) {
+    if (texts == null) {
+      return 0;
+    }
+
+    long weight = 4L * texts.length;
+    for (CompressedText text : texts) {
+      if (text != null) {
+        weight += 2 * 16 + text.weight();
+      }
+    }
+    return weight;
+  }
+
+  /**
+   * View of a single RSS item which decodes its fields from the columns. A
+   * flyweight can be moved to another RSS item so that all RSS items can be
+   * visited without allocating a view per item.
+   */
+  public final class Item {
+
+    private int index;
+
+    Item() {}
+
+    /**
+     * Moves this flyweight to the RSS item with the specified index.
+     * 
+     * @return this flyweight
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Item moveTo(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+
+      this.index = index;
+      return this;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public String getTitle() {
+      return titles.get(index);
+    }
+
+    public android.net.Uri getLink() {
+      final String link = links.get(index);
+      return link == null ? null : android.net.Uri.parse(link);
+    }
+
+    public String getDescription() {
+      if (compressedDescriptions != null && compressedDescriptions[index] != null) {
+        return compressedDescriptions[index].toString();
+      }
+      return descriptions.get(index);
+    }
+
+    public String getContent() {
+      if (compressedContents != null && compressedContents[index] != null) {
+        return compressedContents[index].toString();
+      }
+      return contents.get(index);
+    }
+
+    public java.util.Date getPubDate() {
+      return pubDates[index] == NO_DATE ? null : new java.util.Date(pubDates[index]);
+    }
+
+    public long getPubDateMillis() {
+      return pubDates[index];
+    }
+
+    public String getGuid() {
+      return guids.get(index);
+    }
+
+    public boolean isPermaLink() {
+      return permaLinks.get(index);
+    }
+
+    public long getFingerprint() {
+      return fingerprints[index];
+    }
+
+    public long getSimHash() {
+      return simHashes[index];
+    }
+
+    public int getCategoryCount() {
+      return categoryOffsets[index + 1] - categoryOffsets[index];
+    }
+
+    /**
+     * Returns the i-th category of this RSS item.
+     */
+    public String getCategory(int i) {
+      if (i < 0 || i >= getCategoryCount()) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + getCategoryCount());
+      }
+
+      return symbols[categoryIds[categoryOffsets[index] + i]];
+    }
+
+    /**
+     * Returns a new list of this RSS item's categories.
+     */
+    public List<String> getCategories() {
+      final List<String> categories = new ArrayList<String>(getCategoryCount());
+      for (int i = categoryOffsets[index]; i < categoryOffsets[index + 1]; i++) {
+        categories.add(symbols[categoryIds[i]]);
+      }
+
+      return categories;
+    }
+
+    /**
+     * Returns a new list of this RSS item's thumbnails.
+     */
+    public List<MediaThumbnail> getThumbnails() {
+      final int start = thumbnailOffsets[index];
+      final int end = thumbnailOffsets[index + 1];
+      final List<MediaThumbnail> thumbnails = new ArrayList<MediaThumbnail>(end - start);
+      for (int i = start; i < end; i++) {
+        thumbnails.add(new MediaThumbnail(android.net.Uri.parse(thumbnailUrls.get(i)),
+            thumbnailHeights[i], thumbnailWidths[i]));
+      }
+
+      return thumbnails;
+    }
+
+    /**
+     * Returns this RSS item's enclosure, {@code null} if it has none.
+     */
+    public MediaEnclosure getEnclosure() {
+      if (enclosureTypes[index] == -1) {
+        return null;
+      }
+
+      final int type = enclosureTypes[index];
+      return new MediaEnclosure(android.net.Uri.parse(enclosureUrls.get(index)),
+          enclosureLengths[index], type < 0 ? null : symbols[type]);
+    }
+
+  }
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.Arrays;
+
+/**
+ * Internal compressed set of non-negative integers. The integers are
+ * partitioned by their upper 16 bits into containers. A container with few
+ * elements is a sorted array of the lower 16 bits; a dense container is a
+ * bitmap of 2^16 bits. Sparse sets therefore cost about two bytes per
+ * element and dense sets about one bit per element. Only a single thread
+ * must modify a bitmap.
+ */
+final class CompressedBitmap {
+
+  /**
+   * Maximum number of elements of an array container. Beyond this, a bitmap
+   * container, which always occupies 8 KB, is smaller.
+   */
+  static final int MAX_ARRAY = 4096;
+
+  private int[] keys = new int[4];
+  private Container[] containers = new Container[4];
+  private int size;
+
+  /**
+   * Adds the specified element.
+   * 
+   * @return {@code true} if the element has not been present
+   */
+  boolean add(int x) {
+    final int key = x >>> 16;
+    int i = Arrays.binarySearch(keys, 0, size, key);
+    if (i < 0) {
+      i = -i - 1;
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, 2 * size);
+        containers = Arrays.copyOf(containers, 2 * size);
+      }
+      System.arraycopy(keys, i, keys, i + 1, size - i);
+      System.arraycopy(containers, i, containers, i + 1, size - i);
+      keys[i] = key;
+      containers[i] = new Container();
+      size++;
+    }
+
+    return containers[i].add((char) x);
+  }
+
+  /**
+   * Removes the specified element.
+   * 
+   * @return {@code true} if the element has been present
+   */
+  boolean remove(int x) {
+    final int i = Arrays.binarySearch(keys, 0, size, x >>> 16);
+    if (i < 0 || !containers[i].remove((char) x)) {
+      return false;
+    }
+
+    if (containers[i].cardinality == 0) {
+      System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+      System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+      containers[--size] = null;
+    }
+    return true;
+  }
+
+  boolean contains(int x) {
+    final int i = Arrays.binarySearch(keys, 0, size, x >>> 16);
+    return i >= 0 && containers[i].contains((char) x);
+  }
+
+  int cardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < size; i++) {
+      cardinality += containers[i].cardinality;
+    }
+
+    return cardinality;
+  }
+
+  /**
+   * Returns the intersection of this and the other bitmap.
+   */
+  CompressedBitmap and(CompressedBitmap other) {
+    final CompressedBitmap result = new CompressedBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        final Container container = containers[i++].and(other.containers[j++]);
+        if (container.cardinality > 0) {
+          result.append(keys[i - 1], container);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of elements of the intersection of this and the other
+   * bitmap without materializing the intersection.
+   */
+  int andCardinality(CompressedBitmap other) {
+    int cardinality = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        cardinality += containers[i++].andCardinality(other.containers[j++]);
+      }
+    }
+
+    return cardinality;
+  }
+
+  /**
+   * Returns the union of this and the other bitmap.
+   */
+  CompressedBitmap or(CompressedBitmap other) {
+    final CompressedBitmap result = new CompressedBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+        result.append(keys[i], containers[i++].copy());
+      } else if (i == size || keys[i] > other.keys[j]) {
+        result.append(other.keys[j], other.containers[j++].copy());
+      } else {
+        result.append(keys[i], containers[i++].or(other.containers[j++]));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the elements in ascending order.
+   */
+  int[] toArray() {
+    final int[] elements = new int[cardinality()];
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      n = containers[i].toArray(keys[i] << 16, elements, n);
+    }
+
+    return elements;
+  }
+
+  private void append(int key, Container container) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, 2 * size);
+      containers = Arrays.copyOf(containers, 2 * size);
+    }
+    keys[size] = key;
+    containers[size++] = container;
+  }
+
+  /**
+   * Set of the lower 16 bits of elements which share their upper bits.
+   * Exactly one of {@link #array} and {@link #bits} is not {@code null}.
+   */
+  private static final class Container {
+
+    char[] array;
+    long[] bits;
+    int cardinality;
+
+    Container() {
+      array = new char[4];
+    }
+
+    private Container(char[] array, long[] bits, int cardinality) {
+      this.array = array;
+      this.bits = bits;
+      this.cardinality = cardinality;
+    }
+
+    boolean add(char value) {
+      if (bits != null) {
+        final long mask = 1L << value;
+        if ((bits[value >>> 6] & mask) != 0) {
+          return false;
+        }
+        bits[value >>> 6] |= mask;
+        cardinality++;
+        return true;
+      }
+
+      int i = Arrays.binarySearch(array, 0, cardinality, value);
+      if (i >= 0) {
+        return false;
+      } else if (cardinality == MAX_ARRAY) {
+        bits = bits();
+        array = null;
+        return add(value);
+      }
+
+      i = -i - 1;
+      if (cardinality == array.length) {
+        array = Arrays.copyOf(array, Math.min(MAX_ARRAY, 2 * array.length));
+      }
+      System.arraycopy(array, i, array, i + 1, cardinality - i);
+      array[i] = value;
+      cardinality++;
+      return true;
+    }
+
+    boolean remove(char value) {
+      if (bits != null) {
+        final long mask = 1L << value;
+        if ((bits[value >>> 6] & mask) == 0) {
+          return false;
+        }
+        bits[value >>> 6] &= ~mask;
+        cardinality--;
+
+        // convert back with hysteresis to avoid flapping
+        if (cardinality <= MAX_ARRAY / 2) {
+          array = array(bits, cardinality);
+          bits = null;
+        }
+        return true;
+      }
+
+      final int i = Arrays.binarySearch(array, 0, cardinality, value);
+      if (i < 0) {
+        return false;
+      }
+      System.arraycopy(array, i + 1, array, i, cardinality - i - 1);
+      cardinality--;
+      return true;
+    }
+
+    boolean contains(char value) {
+      if (bits != null) {
+        return (bits[value >>> 6] & (1L << value)) != 0;
+      }
+
+      return Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+    }
+
+    Container and(Container other) {
+      if (bits != null && other.bits != null) {
+        final long[] result = new long[1024];
+        int cardinality = 0;
+        for (int i = 0; i < 1024; i++) {
+          result[i] = bits[i] & other.bits[i];
+          cardinality += Long.bitCount(result[i]);
+        }
+        return cardinality > MAX_ARRAY ? new Container(null, result, cardinality)
+            : new Container(array(result, cardinality), null, cardinality);
+      }
+
+      // iterate the array and probe the other container
+      final Container small = array != null ? this : other;
+      final Container large = small == this ? other : this;
+      final char[] result = new char[Math.max(1, small.cardinality)];
+      int n = 0;
+      for (int i = 0; i < small.cardinality; i++) {
+        if (large.contains(small.array[i])) {
+          result[n++] = small.array[i];
+        }
+      }
+      return new Container(result, null, n);
+    }
+
+    int andCardinality(Container other) {
+      if (bits != null && other.bits != null) {
+        int cardinality = 0;
+        for (int i = 0; i < 1024; i++) {
+          cardinality += Long.bitCount(bits[i] & other.bits[i]);
+        }
+        return cardinality;
+      }
+
+      final Container small = array != null ? this : other;
+      final Container large = small == this ? other : this;
+      int cardinality = 0;
+      for (int i = 0; i < small.cardinality; i++) {
+        if (large.contains(small.array[i])) {
+          cardinality++;
+        }
+      }
+      return cardinality;
+    }
+
+    Container or(Container other) {
+      if (array != null && other.array != null
+          && cardinality + other.cardinality <= MAX_ARRAY) {
+        // merge sorted arrays
+        final char[] result = new char[Math.max(1, cardinality + other.cardinality)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < cardinality || j < other.cardinality) {
+          if (j == other.cardinality || (i < cardinality && array[i] < other.array[j])) {
+            result[n++] = array[i++];
+          } else if (i == cardinality || array[i] > other.array[j]) {
+            result[n++] = other.array[j++];
+          } else {
+            result[n++] = array[i++];
+            j++;
+          }
+        }
+        return new Container(result, null, n);
+      }
+
+      final long[] result = bits();
+      final long[] merged = other.bits();
+      int cardinality = 0;
+      for (int i = 0; i < 1024; i++) {
+        result[i] |= merged[i];
+        cardinality += Long.bitCount(result[i]);
+      }
+      return cardinality > MAX_ARRAY ? new Container(null, result, cardinality)
+          : new Container(array(result, cardinality), null, cardinality);
+    }
+
+    Container copy() {
+      return new Container(array == null ? null : array.clone(),
+          bits == null ? null : bits.clone(), cardinality);
+    }
+
+    int toArray(int high, int[] elements, int n) {
+      if (array != null) {
+        for (int i = 0; i < cardinality; i++) {
+          elements[n++] = high | array[i];
+        }
+        return n;
+      }
+
+      for (int i = 0; i < 1024; i++) {
+        long word = bits[i];
+        while (word != 0) {
+          elements[n++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+      }
+      return n;
+    }
+
+    /**
+     * Returns a new bitmap of the elements.
+     */
+    private long[] bits() {
+      if (bits != null) {
+        return bits.clone();
+      }
+
+      final long[] result = new long[1024];
+      for (int i = 0; i < cardinality; i++) {
+        result[array[i] >>> 6] |= 1L << array[i];
+      }
+      return result;
+    }
+
+    private static char[] array(long[] bits, int cardinality) {
+      final char[] result = new char[Math.max(4, cardinality)];
+      int n = 0;
+      for (int i = 0; i < 1024; i++) {
+        long word = bits[i];
+        while (word != 0) {
+          result[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return result;
+    }
+
+  }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable text which is stored as deflated UTF-8 bytes. Large HTML
+ * descriptions and &lt;content:encoded&gt; bodies are mostly markup and
+ * compress well, so they occupy a fraction of the heap of a string with two
+ * bytes per character. The text is inflated whenever it is accessed unless
+ * it is found in the optional hot cache.
+ */
+final class CompressedText {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final byte[] bytes;
+
+  /**
+   * Number of UTF-8 bytes of the text.
+   */
+  private final int length;
+
+  /**
+   * Shared cache of recently inflated texts, {@code null} if disabled.
+   */
+  private final Cache cache;
+
+  private CompressedText(byte[] bytes, int length, Cache cache) {
+    this.bytes = bytes;
+    this.length = length;
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the number of bytes which this text occupies on the heap,
+   * excluding the object header.
+   */
+  int weight() {
+    return bytes.length;
+  }
+
+  /**
+   * Inflates the text.
+   */
+  @Override
+  public String toString() {
+    if (cache != null) {
+      final String text = cache.get(this);
+      if (text != null) {
+        return text;
+      }
+    }
+
+    final byte[] utf8 = new byte[length];
+    final Inflater inflater = new Inflater(/* nowrap */true);
+    try {
+      inflater.setInput(bytes);
+      int n = 0;
+      while (n < length) {
+        final int inflated = inflater.inflate(utf8, n, length - n);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new RSSFault("Compressed text is truncated");
+        }
+        n += inflated;
+      }
+    } catch (DataFormatException e) {
+      throw new RSSFault(e);
+    } finally {
+      inflater.end();
+    }
+
+    final String text = new String(utf8, UTF8);
+    if (cache != null) {
+      cache.put(this, text);
+    }
+    return text;
+  }
+
+  /**
+   * Compresses texts above a size threshold. Only a single thread must use a
+   * compressor, and {@link #end()} must be called to release its native
+   * memory.
+   */
+  static final class Compressor {
+
+    private final int threshold;
+    private final Cache cache;
+
+    private Deflater deflater;
+    private byte[] buffer;
+
+    /**
+     * Instantiate a compressor with the settings of the configuration.
+     */
+    Compressor(RSSConfig config) {
+      this.threshold = config.compressThreshold;
+      this.cache = config.textCache;
+    }
+
+    /**
+     * Returns the compressed text, {@code null} if the text is shorter than
+     * the threshold or if compression would not save memory.
+     */
+    CompressedText compress(String text) {
+      if (text == null || text.length() < threshold) {
+        return null;
+      }
+
+      if (deflater == null) {
+        deflater = new Deflater(Deflater.BEST_SPEED, /* nowrap */true);
+      } else {
+        deflater.reset();
+      }
+
+      final byte[] utf8 = text.getBytes(UTF8);
+      deflater.setInput(utf8);
+      deflater.finish();
+
+      // not worth it unless the text shrinks below the size of its chars
+      final int limit = 2 * text.length();
+      if (buffer == null || buffer.length < limit) {
+        buffer = new byte[limit];
+      }
+      int n = 0;
+      while (!deflater.finished() && n < limit) {
+        n += deflater.deflate(buffer, n, limit - n);
+      }
+      if (!deflater.finished()) {
+        return null;
+      }
+
+      final byte[] bytes = new byte[n];
+      System.arraycopy(buffer, 0, bytes, 0, n);
+      return new CompressedText(bytes, utf8.length, cache);
+    }
+
+    /**
+     * Releases the native memory of the deflater.
+     */
+    void end() {
+      if (deflater != null) {
+        deflater.end();
+        deflater = null;
+      }
+      buffer = null;
+    }
+
+  }
+
+  /**
+   * Thread-safe cache of the most recently inflated texts.
+   */
+  static final class Cache {
+
+    /* Guarded by this */
+    private final java.util.LinkedHashMap<CompressedText, String> texts;
+
+    Cache(final int maxEntries) {
+      texts = new java.util.LinkedHashMap<CompressedText, String>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<CompressedText, String> eldest) {
+          return size() > maxEntries;
+        }
+
+      };
+    }
+
+    synchronized String get(CompressedText key) {
+      return texts.get(key);
+    }
+
+    synchronized void put(CompressedText key, String text) {
+      texts.put(key, text);
+    }
+
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Internal input stream which counts the number of bytes read from the
+ * underlying stream and records when the first byte arrived. Only a single
+ * thread must use this stream.
+ */
+final class CountingInputStream extends FilterInputStream {
+
+  private long count;
+  private boolean started;
+  private long firstByteNanos;
+
+  CountingInputStream(InputStream in) {
+    super(in);
+  }
+
+  /**
+   * Returns the number of bytes which have been read or skipped so far.
+   */
+  long count() {
+    return count;
+  }
+
+  /**
+   * Returns {@code true} if at least one byte has been read or skipped.
+   */
+  boolean hasFirstByte() {
+    return started;
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} at which the first byte has been
+   * read. Only meaningful if {@link #hasFirstByte()}, since any value
+   * including zero is a valid {@code nanoTime}.
+   */
+  long firstByteNanos() {
+    return firstByteNanos;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final int b = in.read();
+    if (b != -1) {
+      counted(1);
+    }
+
+    return b;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    final int n = in.read(buffer, offset, length);
+    if (n > 0) {
+      counted(n);
+    }
+
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    final long skipped = in.skip(n);
+    if (skipped > 0) {
+      counted(skipped);
+    }
+    return skipped;
+  }
+
+  private void counted(long n) {
+    if (!started) {
+      firstByteNanos = System.nanoTime();
+      started = true;
+    }
+    count += n;
+  }
+
+  /**
+   * Marks are unsupported because they would distort the count.
+   */
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int limit) {}
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+}
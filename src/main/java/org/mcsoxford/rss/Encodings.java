@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Internal helper class for HTTP content codings.
+ */
+final class Encodings {
+
+  /**
+   * Value of the HTTP Accept-Encoding request header.
+   */
+  static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  /**
+   * Size of the buffers used to inflate compressed content.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /* Hide constructor */
+  private Encodings() {}
+
+  /**
+   * Wraps the stream so that reads return the decoded content. Decoding is
+   * performed incrementally as bytes are read, i.e. the body is never
+   * buffered in full. Unknown or absent content codings return the stream
+   * unchanged.
+   * 
+   * @param stream HTTP response body as received from the network
+   * @param encoding value of the Content-Encoding header, may be {@code null}
+   */
+  static InputStream decode(InputStream stream, String encoding)
+      throws IOException {
+    if (encoding == null) {
+      return stream;
+    }
+
+    encoding = encoding.trim();
+    if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+      return new GZIPInputStream(stream, BUFFER_SIZE);
+    } else if ("deflate".equalsIgnoreCase(encoding)) {
+      return inflate(stream);
+    }
+
+    return stream;
+  }
+
+  /**
+   * HTTP "deflate" is specified as a zlib stream, but some servers send raw
+   * DEFLATE data instead. The zlib header is detected by its checksum.
+   */
+  private static InputStream inflate(InputStream stream) throws IOException {
+    final PushbackInputStream pushback = new PushbackInputStream(stream, 2);
+    final byte[] header = new byte[2];
+
+    int n = 0;
+    while (n < header.length) {
+      final int r = pushback.read(header, n, header.length - n);
+      if (r == -1) {
+        break;
+      }
+      n += r;
+    }
+    pushback.unread(header, 0, n);
+
+    final int cmf = header[0] & 0xff;
+    final int flg = header[1] & 0xff;
+    final boolean zlib = n == 2 && (cmf & 0x0f) == 8
+        && ((cmf << 8) | flg) % 31 == 0;
+
+    final Inflater inflater = new Inflater(/* nowrap */!zlib);
+    return new InflaterInputStream(pushback, inflater, BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          // custom inflaters are not released by InflaterInputStream
+          inflater.end();
+        }
+      }
+    };
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Thread-safe RSS fetcher SPI implementation which reads RSS feeds from
+ * {@code file:} URIs. Files are memory-mapped with a {@link FileChannel} so
+ * that the parser reads the page cache directly without copying the file
+ * through intermediate buffers.
+ */
+public class FileFetcher implements RSSFetcherSPI {
+
+  /**
+   * Maps the file with the specified {@code file:} URI into memory.
+   * 
+   * @param uri absolute {@code file:} URI of an RSS 2.0 feed
+   * @return stream of the RSS feed file
+   * @throws RSSReaderException with status 404 if the file does not exist
+   * @throws RSSFault if the URI is invalid or an IO error has occurred
+   */
+  @Override
+  public InputStream fetch(String uri) throws RSSReaderException {
+    final File file;
+    try {
+      file = new File(new URI(uri));
+    } catch (URISyntaxException e) {
+      throw new RSSFault(e);
+    } catch (IllegalArgumentException e) {
+      throw new RSSFault(e);
+    }
+
+    FileInputStream stream = null;
+    try {
+      stream = new FileInputStream(file);
+      final FileChannel channel = stream.getChannel();
+
+      // the mapping remains valid after the channel has been closed
+      return new ByteBufferInputStream(channel.map(
+          FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (FileNotFoundException e) {
+      throw new RSSReaderException(HttpURLConnection.HTTP_NOT_FOUND, e);
+    } catch (IOException e) {
+      throw new RSSFault(e);
+    } finally {
+      Resources.closeQuietly(stream);
+    }
+  }
+
+}
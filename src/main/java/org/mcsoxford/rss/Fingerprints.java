@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * Internal helper class to compute 64-bit FNV-1a hashes of RSS content.
+ * Hashes are stable across processes, unlike {@link String#hashCode()} of
+ * combined fields, and every UTF-16 code unit is mixed in as one step.
+ */
+final class Fingerprints {
+
+  /* Hide constructor */
+  private Fingerprints() {}
+
+  /**
+   * Hash of the empty input.
+   */
+  static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long PRIME = 0x100000001b3L;
+
+  /**
+   * Marks the end of a field so that moving characters between adjacent
+   * fields changes the hash.
+   */
+  private static final char SEPARATOR = '\u0000';
+
+  /**
+   * Stands in for absent fields so that they differ from empty ones.
+   */
+  private static final char ABSENT = '\uffff';
+
+  static long update(long hash, char c) {
+    return (hash ^ c) * PRIME;
+  }
+
+  static long update(long hash, char[] chars, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      hash = (hash ^ chars[i]) * PRIME;
+    }
+
+    return hash;
+  }
+
+  /**
+   * Mixes a field, which may be {@code null}, followed by a separator.
+   */
+  static long update(long hash, CharSequence value) {
+    if (value == null) {
+      return update(update(hash, ABSENT), SEPARATOR);
+    }
+
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * PRIME;
+    }
+
+    return update(hash, SEPARATOR);
+  }
+
+  /**
+   * Finishes a field whose characters have been mixed into the hash.
+   */
+  static long end(long hash) {
+    return update(hash, SEPARATOR);
+  }
+
+  /**
+   * Returns the fingerprint of an RSS item with the specified text fields.
+   * 
+   * @see RSSItem#getFingerprint()
+   */
+  static long of(String title, String description, String content) {
+    return combine(update(OFFSET_BASIS, title), update(OFFSET_BASIS, description),
+        update(OFFSET_BASIS, content));
+  }
+
+  /**
+   * Combines the hashes of the title, description and content fields, which
+   * makes the fingerprint independent of the order of the XML elements. The
+   * result is never zero.
+   */
+  static long combine(long title, long description, long content) {
+    final long hash = update(update(update(OFFSET_BASIS, title), description), content);
+    return hash == 0 ? 1 : hash;
+  }
+
+  static long update(long hash, long value) {
+    for (int shift = 0; shift < 64; shift += 16) {
+      hash = (hash ^ ((value >>> shift) & 0xffff)) * PRIME;
+    }
+
+    return hash;
+  }
+
+  /**
+   * Scatters the bits of a hash. FNV-1a scatters poorly in the high bits, so
+   * hashes which index bit positions should be mixed first.
+   */
+  static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+}
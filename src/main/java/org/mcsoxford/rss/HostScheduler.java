@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Internal thread-safe bookkeeping of requests per host. Each host is
+ * allowed a maximum number of concurrent requests and a request rate which is
+ * enforced with a token bucket. Idle hosts whose token bucket has refilled
+ * are forgotten, because they behave exactly like hosts which have not been
+ * seen before, so the bookkeeping does not grow with the number of hosts
+ * ever requested.
+ */
+final class HostScheduler {
+
+  /**
+   * Returned by {@link #tryAcquire(String, long)} if the host must wait for
+   * a concurrent request to complete.
+   */
+  static final long UNTIL_RELEASE = Long.MAX_VALUE;
+
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  /**
+   * Minimum number of hosts before idle hosts are evicted.
+   */
+  private static final int MIN_SWEEP = 16;
+
+  private final int maxConcurrent;
+  private final double permitsPerNano;
+  private final int burst;
+
+  /* Guarded by this */
+  private final Map<String, Host> hosts = new HashMap<String, Host>();
+  private int sweepAt = MIN_SWEEP;
+
+  /**
+   * @param maxConcurrent maximum concurrent requests per host, zero if
+   *          unlimited
+   * @param permitsPerSecond sustained requests per second per host, zero if
+   *          unlimited
+   * @param burst maximum number of requests which may be sent in a burst
+   */
+  HostScheduler(int maxConcurrent, double permitsPerSecond, int burst) {
+    this.maxConcurrent = maxConcurrent;
+    this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+    this.burst = Math.max(1, burst);
+  }
+
+  /**
+   * Returns {@code true} if requests are neither capped nor rate-limited.
+   */
+  boolean isUnlimited() {
+    return maxConcurrent == 0 && permitsPerNano == 0;
+  }
+
+  /**
+   * Attempts to start a request to the specified host.
+   * 
+   * @param now value of {@link System#nanoTime()}
+   * @return zero if the request may start, otherwise the number of
+   *         nanoseconds to wait or {@link #UNTIL_RELEASE}
+   */
+  synchronized long tryAcquire(String host, long now) {
+    Host state = hosts.get(host);
+    if (state == null) {
+      if (hosts.size() >= sweepAt) {
+        evictIdle(now);
+      }
+      state = new Host(burst, now);
+      hosts.put(host, state);
+    }
+
+    if (maxConcurrent != 0 && state.active >= maxConcurrent) {
+      return UNTIL_RELEASE;
+    }
+
+    if (permitsPerNano != 0) {
+      state.tokens = Math.min(burst, state.tokens + (now - state.refilled) * permitsPerNano);
+      state.refilled = now;
+      if (state.tokens < 1) {
+        return Math.max(1, (long) Math.ceil((1 - state.tokens) / permitsPerNano));
+      }
+      state.tokens -= 1;
+    }
+
+    state.active++;
+    return 0;
+  }
+
+  /**
+   * Signals that a request to the specified host has completed.
+   */
+  synchronized void release(String host) {
+    final Host state = hosts.get(host);
+    if (state == null) {
+      return;
+    }
+
+    state.active--;
+    if (state.active == 0 && (permitsPerNano == 0 || isFull(state, System.nanoTime()))) {
+      // idle hosts with a full token bucket carry no state
+      hosts.remove(host);
+    }
+  }
+
+  /**
+   * Removes all idle hosts whose token bucket has refilled. Sweeps are
+   * spaced out by doubling the threshold, so their cost is amortized over
+   * the requests to new hosts.
+   */
+  private void evictIdle(long now) {
+    final Iterator<Host> i = hosts.values().iterator();
+    while (i.hasNext()) {
+      final Host state = i.next();
+      if (state.active == 0 && isFull(state, now)) {
+        i.remove();
+      }
+    }
+
+    sweepAt = Math.max(MIN_SWEEP, 2 * hosts.size());
+  }
+
+  private boolean isFull(Host state, long now) {
+    return state.tokens + (now - state.refilled) * permitsPerNano >= burst;
+  }
+
+  /**
+   * Returns the number of hosts whose state is retained.
+   */
+  synchronized int size() {
+    return hosts.size();
+  }
+
+  /**
+   * Returns the key which identifies the host of the specified URI. The key
+   * is the empty string if the URI has no host.
+   */
+  static String host(String uri) {
+    if (uri == null) {
+      return "";
+    }
+
+    try {
+      final String host = new java.net.URI(uri).getHost();
+      return host == null ? "" : host.toLowerCase(java.util.Locale.ENGLISH);
+    } catch (java.net.URISyntaxException e) {
+      return "";
+    }
+  }
+
+  private static final class Host {
+
+    int active;
+    double tokens;
+    long refilled;
+
+    Host(int tokens, long now) {
+      this.tokens = tokens;
+      this.refilled = now;
+    }
+
+  }
+
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Thread-safe disk cache of raw HTTP response bodies and their validators.
+ * {@link HttpFetcher} uses the cached {@code ETag} and {@code Last-Modified}
+ * headers to send conditional requests and replays the cached body if the
+ * server responds with 304 Not Modified.
+ * <p>
+ * Responses are appended to segment files in the cache directory. The index
+ * is kept in memory and is rebuilt by scanning the segments when the cache is
+ * opened, so cached responses survive a restart. Cache hits are read through
+ * memory-mapped files without copying. Once the segments exceed the size
+ * bound, the oldest segment is deleted together with all the responses it
+ * contains.
+ */
+public class HttpDiskCache implements java.io.Closeable {
+
+  /**
+   * First bytes of every record.
+   */
+  private static final int RECORD = 0x52535352; // "RSSR"
+
+  private static final String SUFFIX = ".seg";
+
+  /**
+   * Minimum size of a segment file in bytes.
+   */
+  private static final long MIN_SEGMENT_BYTES = 64 * 1024;
+
+  private final File directory;
+
+  private final long maxBytes;
+
+  private final long segmentBytes;
+
+  /**
+   * Segments in the order they were created, the last one is appended to.
+   */
+  private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+  private final Map<String, Entry> index = new HashMap<String, Entry>();
+
+  private long size;
+
+  private boolean closed;
+
+  /**
+   * Opens the cache in the specified directory, which is created if it does
+   * not exist, and rebuilds the index from the existing segment files.
+   * Incomplete records, e.g. after a crash, are truncated.
+   * 
+   * @param maxBytes approximate upper bound on the disk space of the cache
+   * @throws IllegalArgumentException if {@code maxBytes} is not positive
+   */
+  public HttpDiskCache(File directory, long maxBytes) throws IOException {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("Maximum cache size must be positive");
+    }
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create cache directory " + directory);
+    }
+
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.segmentBytes = Math.max(MIN_SEGMENT_BYTES, maxBytes / 4);
+
+    final File[] files = directory.listFiles();
+    final long[] ids = new long[files.length];
+    int n = 0;
+    for (File file : files) {
+      final String name = file.getName();
+      if (name.endsWith(SUFFIX)) {
+        try {
+          ids[n++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+          // not a segment
+        }
+      }
+    }
+
+    java.util.Arrays.sort(ids, 0, n);
+    for (int i = 0; i < n; i++) {
+      final Segment segment = new Segment(ids[i]);
+      segments.add(segment);
+      scan(segment);
+      size += segment.size;
+    }
+
+    evict();
+  }
+
+  /**
+   * Returns the number of bytes which the segment files occupy on disk.
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of cached responses.
+   */
+  public synchronized int entryCount() {
+    return index.size();
+  }
+
+  /**
+   * Returns the cached response for the specified URI, {@code null} if there
+   * is none.
+   */
+  synchronized Entry get(String uri) {
+    return closed ? null : index.get(uri);
+  }
+
+  /**
+   * Maps the cached response body into memory. The body is returned as it has
+   * been received, i.e. it still has to be decoded according to
+   * {@link Entry#encoding}.
+   * 
+   * @throws IOException if the response has been evicted
+   */
+  InputStream open(Entry entry) throws IOException {
+    final FileChannel channel;
+    synchronized (this) {
+      if (closed || !entry.segment.isOpen()) {
+        throw new IOException("Cached response has been evicted");
+      }
+      channel = entry.segment.file.getChannel();
+    }
+
+    return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY,
+        entry.offset, entry.length));
+  }
+
+  /**
+   * Wraps the response body so that it is stored in this cache once it has
+   * been read to the end. Bodies which are larger than a segment are not
+   * cached.
+   */
+  InputStream store(InputStream body, String uri, String etag,
+      String lastModified, long date, String encoding) {
+    return new Tee(body, uri, etag, lastModified, date, encoding);
+  }
+
+  /**
+   * Appends a response to the current segment and replaces any previous
+   * response with the same URI.
+   */
+  synchronized void put(String uri, String etag, String lastModified,
+      long date, String encoding, byte[] body, int length) throws IOException {
+    if (closed) {
+      return;
+    }
+
+    final CRC32 crc = new CRC32();
+    crc.update(body, 0, length);
+
+    final ByteArrayOutputStream header = new ByteArrayOutputStream(256);
+    final DataOutputStream out = new DataOutputStream(header);
+    out.writeInt(RECORD);
+    out.writeUTF(uri);
+    writeOptional(out, etag);
+    writeOptional(out, lastModified);
+    writeOptional(out, encoding);
+    out.writeLong(date);
+    out.writeInt(length);
+    out.writeInt((int) crc.getValue());
+    out.close();
+
+    Segment segment = segments.isEmpty() ? null : segments.getLast();
+    final long recordBytes = header.size() + length;
+    if (segment == null || (segment.size > 0 && segment.size + recordBytes > segmentBytes)) {
+      segment = new Segment(segments.isEmpty() ? 0 : segments.getLast().id + 1);
+      segments.add(segment);
+    }
+
+    final FileChannel channel = segment.file.getChannel();
+    final long offset = segment.size;
+    try {
+      write(channel, ByteBuffer.wrap(header.toByteArray()), offset);
+      write(channel, ByteBuffer.wrap(body, 0, length), offset + header.size());
+    } catch (IOException e) {
+      // discard the incomplete record
+      channel.truncate(offset);
+      throw e;
+    }
+
+    segment.size += recordBytes;
+    size += recordBytes;
+    index.put(uri, new Entry(segment, offset + header.size(), length, etag,
+        lastModified, date, encoding));
+    evict();
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer,
+      long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * Deletes the oldest segments until the cache is within its size bound.
+   * The segment which is being appended to is never deleted.
+   */
+  private void evict() {
+    while (size > maxBytes && segments.size() > 1) {
+      final Segment oldest = segments.removeFirst();
+      size -= oldest.size;
+
+      final Iterator<Entry> entries = index.values().iterator();
+      while (entries.hasNext()) {
+        if (entries.next().segment == oldest) {
+          entries.remove();
+        }
+      }
+
+      Resources.closeQuietly(oldest.file);
+      oldest.path.delete();
+    }
+  }
+
+  /**
+   * Adds the records of the specified segment to the index and truncates the
+   * segment after the last complete record.
+   */
+  private void scan(Segment segment) throws IOException {
+    final FileChannel channel = segment.file.getChannel();
+    final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+        channel.size());
+    final DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+
+    long offset = 0;
+    try {
+      while (buffer.hasRemaining()) {
+        if (in.readInt() != RECORD) {
+          break;
+        }
+
+        final String uri = in.readUTF();
+        final String etag = readOptional(in);
+        final String lastModified = readOptional(in);
+        final String encoding = readOptional(in);
+        final long date = in.readLong();
+        final int length = in.readInt();
+        final int checksum = in.readInt();
+        if (length < 0 || length > buffer.remaining()) {
+          break;
+        }
+
+        final int position = buffer.position();
+        final ByteBuffer body = buffer.duplicate();
+        body.limit(position + length);
+        final CRC32 crc = new CRC32();
+        while (body.hasRemaining()) {
+          crc.update(body.get());
+        }
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+
+        buffer.position(position + length);
+        offset = buffer.position();
+        index.put(uri, new Entry(segment, position, length, etag, lastModified,
+            date, encoding));
+      }
+    } catch (IOException e) {
+      // incomplete record
+    }
+
+    if (offset < channel.size()) {
+      channel.truncate(offset);
+    }
+    segment.size = offset;
+  }
+
+  private static void writeOptional(DataOutputStream out, String value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readOptional(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /**
+   * Closes the segment files. Subsequent lookups miss and responses are no
+   * longer stored.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    index.clear();
+    for (Segment segment : segments) {
+      Resources.closeQuietly(segment.file);
+    }
+  }
+
+  /**
+   * Append-only file of cached responses.
+   */
+  private final class Segment {
+
+    final long id;
+    final File path;
+    final RandomAccessFile file;
+    long size;
+
+    Segment(long id) throws IOException {
+      this.id = id;
+      this.path = new File(directory, String.format(Locale.ENGLISH, "%016d%s", id, SUFFIX));
+      this.file = new RandomAccessFile(path, "rw");
+    }
+
+    boolean isOpen() {
+      return file.getChannel().isOpen();
+    }
+
+  }
+
+  /**
+   * Location and validators of a cached response.
+   */
+  static final class Entry {
+
+    final Segment segment;
+    final long offset;
+    final int length;
+
+    /**
+     * Value of the {@code ETag} response header, {@code null} if absent.
+     */
+    final String etag;
+
+    /**
+     * Value of the {@code Last-Modified} response header, {@code null} if
+     * absent.
+     */
+    final String lastModified;
+
+    /**
+     * Value of the {@code Date} response header in milliseconds since the
+     * epoch, {@code 0} if absent.
+     */
+    final long date;
+
+    /**
+     * Content coding of the cached body, {@code null} if it is not encoded.
+     */
+    final String encoding;
+
+    Entry(Segment segment, long offset, int length, String etag,
+        String lastModified, long date, String encoding) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.date = date;
+      this.encoding = encoding;
+    }
+
+  }
+
+  /**
+   * Response body which copies the bytes that have been read and stores them
+   * once the end of the body has been reached.
+   */
+  private final class Tee extends FilterInputStream {
+
+    private final String uri;
+    private final String etag;
+    private final String lastModified;
+    private final long date;
+    private final String encoding;
+
+    private byte[] copy = new byte[8192];
+    private int length;
+
+    Tee(InputStream body, String uri, String etag, String lastModified,
+        long date, String encoding) {
+      super(body);
+      this.uri = uri;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.date = date;
+      this.encoding = encoding;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = in.read();
+      if (b == -1) {
+        commit();
+      } else if (reserve(1)) {
+        copy[length++] = (byte) b;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+      final int n = in.read(buffer, offset, count);
+      if (n == -1) {
+        commit();
+      } else if (reserve(n)) {
+        System.arraycopy(buffer, offset, copy, length, n);
+        length += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // skipped bytes have to be copied as well
+      final byte[] buffer = new byte[(int) Math.min(n, 4096)];
+      final int skipped = read(buffer, 0, buffer.length);
+      return Math.max(0, skipped);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Makes room for the specified number of bytes, gives up copying if the
+     * body is too large to be cached.
+     */
+    private boolean reserve(int n) {
+      if (copy == null) {
+        return false;
+      } else if (length + (long) n > segmentBytes) {
+        copy = null;
+        return false;
+      } else if (length + n > copy.length) {
+        copy = java.util.Arrays.copyOf(copy,
+            (int) Math.min(segmentBytes, Math.max(length + n, 2L * copy.length)));
+      }
+      return true;
+    }
+
+    private void commit() {
+      if (copy == null) {
+        return;
+      }
+
+      final byte[] body = copy;
+      copy = null;
+      try {
+        put(uri, etag, lastModified, date, encoding, body, length);
+      } catch (IOException e) {
+        // the response is simply not cached
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,599 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe RSS fetcher SPI implementation which retrieves RSS feeds with
+ * HTTP GET requests.
+ * <p>
+ * Connections are kept alive and reused by {@link HttpURLConnection}'s
+ * connection pool. To make this possible, unread response data is drained
+ * when the stream returned by {@link #fetch(String)} is closed. The number of
+ * concurrent connections to the same host can be limited with
+ * {@link RSSConfig#withMaxConnectionsPerHost(int)}.
+ * <p>
+ * Requests are bounded by the timeouts in {@link RSSConfig#withTimeouts(int,
+ * int, long)}. Transient failures are retried according to
+ * {@link RSSConfig#withRetries(int, long)} and hosts which keep failing are
+ * short-circuited according to {@link RSSConfig#withCircuitBreaker(int, long)}.
+ * <p>
+ * With an {@link HttpDiskCache}, responses which carry an {@code ETag} or
+ * {@code Last-Modified} header are cached and revalidated with conditional
+ * requests, so unchanged RSS feeds are not downloaded again.
+ */
+public class HttpFetcher implements RSSFetcherSPI {
+
+  /**
+   * Maximum number of unread response bytes which are drained so that the
+   * connection can be reused. Larger remainders close the connection.
+   */
+  private static final int MAX_DRAIN = 64 * 1024;
+
+  /**
+   * Upper bound on the exponent of the retry backoff.
+   */
+  private static final int MAX_BACKOFF_SHIFT = 16;
+
+  /**
+   * Source of the retry jitter. {@link Random} is thread-safe.
+   */
+  private static final Random JITTER = new Random();
+
+  private final RSSConfig config;
+
+  /**
+   * Cache of response bodies, {@code null} if responses are not cached.
+   */
+  private final HttpDiskCache cache;
+
+  /**
+   * Connection permits keyed by host name. Empty unless connections per host
+   * are limited.
+   */
+  private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<String, Semaphore>();
+
+  /**
+   * Circuit breakers keyed by host name. Empty unless circuit breakers are
+   * enabled.
+   */
+  private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+  /**
+   * Number of response body bytes received over the network.
+   */
+  private final AtomicLong compressedBytes = new AtomicLong();
+
+  /**
+   * Number of response body bytes after content decoding.
+   */
+  private final AtomicLong uncompressedBytes = new AtomicLong();
+
+  public HttpFetcher(RSSConfig config, HttpDiskCache cache) {
+    this.config = config;
+    this.cache = cache;
+  }
+
+  public HttpFetcher(RSSConfig config) {
+    this(config, null);
+  }
+
+  public HttpFetcher() {
+    this(new RSSConfig());
+  }
+
+  /**
+   * Send HTTP GET request to the specified URI. The request negotiates gzip
+   * or deflate compression and the returned stream decompresses the response
+   * while it is being read.
+   * <p>
+   * IO errors and HTTP status codes 408, 429 and 5xx are transient failures
+   * which are retried if configured. Other HTTP errors are never retried.
+   * 
+   * @param uri RSS 2.0 feed URI
+   * @return stream of the decoded HTTP response body
+   * @throws RSSReaderException if the HTTP response status is not OK or with
+   *           status 503 if the host's circuit breaker is open
+   * @throws RSSFault if an unrecoverable IO error has occurred or the request
+   *           has timed out
+   */
+  @Override
+  public InputStream fetch(String uri) throws RSSReaderException {
+    final URL url;
+    try {
+      url = new URL(uri);
+    } catch (IOException e) {
+      throw new RSSFault(e);
+    }
+
+    final long start = System.nanoTime();
+    final long deadline = config.totalTimeoutMillis == 0 ? 0 : start
+        + TimeUnit.MILLISECONDS.toNanos(config.totalTimeoutMillis);
+    final CircuitBreaker breaker = breaker(url.getHost());
+
+    for (int attempt = 0;; attempt++) {
+      if (breaker != null && !breaker.allow(System.nanoTime())) {
+        throw new RSSReaderException(HttpURLConnection.HTTP_UNAVAILABLE,
+            "Circuit breaker is open for host " + url.getHost());
+      }
+
+      RSSReaderException error = null;
+      RSSFault fault = null;
+      boolean settled = false;
+      try {
+        final InputStream response = request(url, deadline, true);
+        if (breaker != null) {
+          breaker.success();
+        }
+        settled = true;
+        return response;
+      } catch (RSSReaderException e) {
+        if (!isTransient(e.getStatus())) {
+          // the host is up, but the request is not going to succeed
+          if (breaker != null) {
+            breaker.success();
+          }
+          settled = true;
+          throw e;
+        }
+
+        error = e;
+        settled = true;
+      } catch (RSSFault e) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw e;
+        }
+
+        fault = e;
+        settled = true;
+      } finally {
+        // interrupts and unexpected errors must not hold on to the trial
+        if (breaker != null && !settled) {
+          breaker.abort();
+        }
+      }
+
+      if (breaker != null) {
+        breaker.failure(System.nanoTime());
+      }
+
+      if (attempt >= config.maxRetries || !backoff(attempt, deadline)) {
+        if (error != null) {
+          throw error;
+        }
+        throw fault;
+      }
+    }
+  }
+
+  /**
+   * Sends a single HTTP GET request. A conditional request replays the
+   * cached response body if the server reports that it has not been modified.
+   */
+  private InputStream request(URL url, long deadline, boolean conditional)
+      throws RSSReaderException {
+    final String uri = url.toString();
+    final HttpDiskCache.Entry cached = conditional && cache != null ? cache.get(uri) : null;
+
+    final URLConnection connection;
+    try {
+      connection = url.openConnection();
+    } catch (IOException e) {
+      throw new RSSFault(e);
+    }
+
+    if (!(connection instanceof HttpURLConnection)) {
+      throw new RSSFault("Unsupported RSS feed URI: " + url);
+    }
+
+    final HttpURLConnection conn = (HttpURLConnection) connection;
+    final Semaphore permit = acquire(url.getHost(), deadline);
+    Watchdog watchdog = null;
+    boolean ok = false;
+    try {
+      conn.setConnectTimeout(timeout(config.connectTimeoutMillis, deadline));
+      conn.setReadTimeout(timeout(config.readTimeoutMillis, deadline));
+      if (deadline != 0) {
+        watchdog = new Watchdog(conn, deadline);
+      }
+
+      // Send GET request to URI
+      conn.setRequestMethod("GET");
+      conn.setRequestProperty("Accept-Encoding", Encodings.ACCEPT_ENCODING);
+      if (cached != null && cached.etag != null) {
+        conn.setRequestProperty("If-None-Match", cached.etag);
+      }
+      if (cached != null && cached.lastModified != null) {
+        conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+      }
+      conn.connect();
+
+      // Check if server response is valid
+      if (cached != null
+          && conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        discard(conn.getInputStream());
+      } else if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        // consume error page so that the connection can be reused
+        discard(conn.getErrorStream());
+        throw new RSSReaderException(conn.getResponseCode(),
+            conn.getResponseMessage());
+      } else {
+        final InputStream response = new Response(body(conn, uri),
+            conn.getContentEncoding(), permit, watchdog);
+        ok = true;
+        return response;
+      }
+    } catch (IOException e) {
+      throw new RSSFault(watchdog == null ? e : watchdog.translate(e));
+    } finally {
+      if (!ok) {
+        if (watchdog != null) {
+          watchdog.cancel();
+        }
+        if (permit != null) {
+          permit.release();
+        }
+      }
+    }
+
+    // not modified, the connection has already been released
+    try {
+      return Encodings.decode(cache.open(cached), cached.encoding);
+    } catch (IOException e) {
+      // evicted in the meantime
+      return request(url, deadline, false);
+    }
+  }
+
+  /**
+   * Returns the response body, which is stored in the cache while it is
+   * being read if the response can be revalidated.
+   */
+  private InputStream body(HttpURLConnection conn, String uri)
+      throws IOException {
+    final InputStream body = conn.getInputStream();
+    final String etag = conn.getHeaderField("ETag");
+    final String lastModified = conn.getHeaderField("Last-Modified");
+    final String control = conn.getHeaderField("Cache-Control");
+    if (cache == null || (etag == null && lastModified == null)
+        || (control != null && control.toLowerCase().contains("no-store"))) {
+      return body;
+    }
+
+    return cache.store(body, uri, etag, lastModified, conn.getDate(),
+        conn.getContentEncoding());
+  }
+
+  /**
+   * Returns the total number of response body bytes which this fetcher has
+   * received over the network, i.e. before content decoding.
+   */
+  public long getCompressedBytes() {
+    return compressedBytes.get();
+  }
+
+  /**
+   * Returns the total number of response body bytes which have been read
+   * from this fetcher's streams, i.e. after gzip or deflate decoding.
+   */
+  public long getUncompressedBytes() {
+    return uncompressedBytes.get();
+  }
+
+  /**
+   * Returns {@code true} if requests to the specified host currently fail
+   * fast because its circuit breaker is open.
+   */
+  public boolean isCircuitOpen(String host) {
+    final CircuitBreaker breaker = breakers.get(host);
+    return breaker != null && breaker.isOpen(System.nanoTime());
+  }
+
+  /**
+   * Returns {@code true} if a request which failed with the specified HTTP
+   * status may succeed when it is repeated.
+   */
+  static boolean isTransient(int status) {
+    return status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429
+        || status >= 500;
+  }
+
+  /**
+   * Sleeps for a random delay with exponentially growing upper bound.
+   * 
+   * @return {@code false} if the delay would exceed the deadline
+   */
+  private boolean backoff(int attempt, long deadline) {
+    final long bound = config.backoffMillis << Math.min(attempt, MAX_BACKOFF_SHIFT);
+    final long delay = (long) (JITTER.nextDouble() * bound);
+    if (deadline != 0
+        && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) - deadline >= 0) {
+      return false;
+    }
+
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+      throw new RSSFault(e);
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the configured timeout, shortened to the time which remains
+   * until the deadline.
+   */
+  private static int timeout(int timeoutMillis, long deadline) {
+    if (deadline == 0) {
+      return timeoutMillis;
+    }
+
+    final long remaining = Math.max(1,
+        TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    if (timeoutMillis == 0 || remaining < timeoutMillis) {
+      return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    return timeoutMillis;
+  }
+
+  private CircuitBreaker breaker(String host) {
+    if (config.circuitBreakerThreshold == 0) {
+      return null;
+    }
+
+    CircuitBreaker breaker = breakers.get(host);
+    if (breaker == null) {
+      final CircuitBreaker created = new CircuitBreaker(
+          config.circuitBreakerThreshold, config.circuitBreakerMillis);
+      breaker = breakers.putIfAbsent(host, created);
+      if (breaker == null) {
+        breaker = created;
+      }
+    }
+
+    return breaker;
+  }
+
+  /**
+   * Waits for a connection permit of the specified host.
+   * 
+   * @return acquired permit, {@code null} if connections are unlimited
+   * @throws RSSFault if the deadline passes while waiting
+   */
+  private Semaphore acquire(String host, long deadline) {
+    if (config.maxConnectionsPerHost == 0) {
+      return null;
+    }
+
+    Semaphore permit = hosts.get(host);
+    if (permit == null) {
+      final Semaphore created = new Semaphore(config.maxConnectionsPerHost);
+      permit = hosts.putIfAbsent(host, created);
+      if (permit == null) {
+        permit = created;
+      }
+    }
+
+    try {
+      if (deadline == 0) {
+        permit.acquire();
+      } else if (!permit.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        throw new RSSFault(new SocketTimeoutException(
+            "Timed out waiting for a connection to " + host));
+      }
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+      throw new RSSFault(e);
+    }
+
+    return permit;
+  }
+
+  /**
+   * Reads and closes the stream, ignoring IO faults. Returns {@code true} if
+   * the end of the stream has been reached.
+   */
+  static boolean discard(InputStream stream) {
+    if (stream == null) {
+      return true;
+    }
+
+    try {
+      final byte[] buffer = new byte[4096];
+      int remaining = MAX_DRAIN;
+      int n;
+      while ((n = stream.read(buffer)) != -1) {
+        remaining -= n;
+        if (remaining < 0) {
+          return false;
+        }
+      }
+
+      return true;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      Resources.closeQuietly(stream);
+    }
+  }
+
+  /**
+   * Daemon thread which aborts requests that exceed the total timeout.
+   */
+  private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(
+      1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          final Thread thread = new Thread(runnable, "RSS request timeout");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  /**
+   * Disconnects an HTTP connection once its deadline has passed, which
+   * unblocks any thread that is waiting for the server.
+   */
+  private static final class Watchdog implements Runnable {
+
+    private final HttpURLConnection conn;
+    private final ScheduledFuture<?> future;
+    private volatile boolean expired;
+
+    Watchdog(HttpURLConnection conn, long deadline) {
+      this.conn = conn;
+      this.future = TIMER.schedule(this, deadline - System.nanoTime(),
+          TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void run() {
+      expired = true;
+      conn.disconnect();
+    }
+
+    void cancel() {
+      future.cancel(false);
+      TIMER.remove((Runnable) future);
+    }
+
+    /**
+     * Reports IO errors caused by a disconnect as timeouts.
+     */
+    IOException translate(IOException e) {
+      if (!expired || e instanceof SocketTimeoutException) {
+        return e;
+      }
+
+      final IOException timeout = new SocketTimeoutException("Total request timeout exceeded");
+      timeout.initCause(e);
+      return timeout;
+    }
+
+  }
+
+  /**
+   * HTTP response body which releases the connection when it is closed.
+   */
+  private final class Response extends FilterInputStream {
+
+    private final CountingInputStream compressed;
+    private final CountingInputStream uncompressed;
+    private final Semaphore permit;
+    private final Watchdog watchdog;
+    private boolean closed;
+
+    Response(InputStream body, String encoding, Semaphore permit,
+        Watchdog watchdog) throws IOException {
+      this(new CountingInputStream(body), encoding, permit, watchdog);
+    }
+
+    private Response(CountingInputStream compressed, String encoding,
+        Semaphore permit, Watchdog watchdog) throws IOException {
+      super(decode(compressed, encoding));
+      this.compressed = compressed;
+      this.uncompressed = (CountingInputStream) in;
+      this.permit = permit;
+      this.watchdog = watchdog;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return in.read();
+      } catch (IOException e) {
+        throw watchdog == null ? e : watchdog.translate(e);
+      }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      try {
+        return in.read(buffer, offset, length);
+      } catch (IOException e) {
+        throw watchdog == null ? e : watchdog.translate(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+
+      closed = true;
+      try {
+        // drain the raw response so HttpURLConnection can pool the connection
+        final byte[] buffer = new byte[4096];
+        int remaining = MAX_DRAIN;
+        int n;
+        while (remaining > 0 && (n = compressed.read(buffer)) != -1) {
+          remaining -= n;
+        }
+      } catch (IOException e) {
+        // connection is not reused
+      } finally {
+        try {
+          in.close();
+        } finally {
+          compressedBytes.addAndGet(compressed.count());
+          uncompressedBytes.addAndGet(uncompressed.count());
+
+          if (watchdog != null) {
+            watchdog.cancel();
+          }
+          if (permit != null) {
+            permit.release();
+          }
+        }
+      }
+    }
+
+  }
+
+  private static CountingInputStream decode(CountingInputStream compressed,
+      String encoding) throws IOException {
+    try {
+      return new CountingInputStream(Encodings.decode(compressed, encoding));
+    } catch (IOException e) {
+      Resources.closeQuietly(compressed);
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Internal incremental decoder of HTTP/1.1 responses. Bytes are pushed into
+ * the decoder as they arrive from a non-blocking channel, and slices of the
+ * message body are returned as soon as they are available. Fixed-length,
+ * chunked and close-delimited bodies are supported. Only a single thread must
+ * use this decoder.
+ */
+final class HttpResponseDecoder {
+
+  /**
+   * Maximum length of the status line, a header line or a chunk size line.
+   */
+  private static final int MAX_LINE = 8192;
+
+  private static final int STATUS_LINE = 0;
+  private static final int HEADERS = 1;
+  private static final int BODY = 2;
+  private static final int CHUNK_SIZE = 3;
+  private static final int CHUNK_DATA = 4;
+  private static final int CHUNK_END = 5;
+  private static final int TRAILERS = 6;
+  private static final int UNTIL_CLOSE = 7;
+  private static final int DONE = 8;
+
+  private int state = STATUS_LINE;
+
+  private final StringBuilder line = new StringBuilder(128);
+
+  private int status;
+  private String reason;
+
+  /**
+   * Header values keyed by lower-case names.
+   */
+  private final Map<String, String> headers = new HashMap<String, String>();
+
+  /**
+   * Remaining bytes of a fixed-length body or of the current chunk.
+   */
+  private long remaining;
+
+  /**
+   * Returns the next slice of the message body which is available in the
+   * buffer, {@code null} if more input is required or the message is
+   * complete. The returned slice shares the buffer's content.
+   * 
+   * @throws RSSFault if the response is malformed
+   */
+  ByteBuffer next(ByteBuffer in) {
+    while (in.hasRemaining()) {
+      switch (state) {
+      case STATUS_LINE:
+      case HEADERS:
+      case CHUNK_SIZE:
+      case CHUNK_END:
+      case TRAILERS:
+        if (readLine(in)) {
+          line();
+          line.setLength(0);
+        }
+        break;
+      case BODY:
+      case CHUNK_DATA:
+        final int n = (int) Math.min(remaining, in.remaining());
+        final ByteBuffer slice = slice(in, n);
+        remaining -= n;
+        if (remaining == 0) {
+          state = state == BODY ? DONE : CHUNK_END;
+        }
+        return slice;
+      case UNTIL_CLOSE:
+        return slice(in, in.remaining());
+      case DONE:
+        // ignore any trailing garbage
+        in.position(in.limit());
+        return null;
+      default:
+        throw new IllegalStateException();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Signals that the connection has been closed by the server.
+   * 
+   * @throws RSSFault if the response is incomplete
+   */
+  void endOfStream() {
+    if (state == UNTIL_CLOSE) {
+      state = DONE;
+    } else if (state != DONE) {
+      throw new RSSFault("HTTP response ended prematurely");
+    }
+  }
+
+  /**
+   * Returns {@code true} once the status line and all headers have been
+   * received.
+   */
+  boolean hasHeaders() {
+    return state != STATUS_LINE && state != HEADERS;
+  }
+
+  /**
+   * Returns {@code true} once the entire response has been received.
+   */
+  boolean isDone() {
+    return state == DONE;
+  }
+
+  int status() {
+    return status;
+  }
+
+  String reason() {
+    return reason;
+  }
+
+  /**
+   * Returns the value of the header with the case-insensitive name,
+   * {@code null} if absent.
+   */
+  String header(String name) {
+    return headers.get(name.toLowerCase(Locale.ENGLISH));
+  }
+
+  private static ByteBuffer slice(ByteBuffer in, int n) {
+    final ByteBuffer slice = in.slice();
+    slice.limit(n);
+    in.position(in.position() + n);
+    return slice;
+  }
+
+  /**
+   * Appends bytes to the current line.
+   * 
+   * @return {@code true} if the line is complete
+   */
+  private boolean readLine(ByteBuffer in) {
+    while (in.hasRemaining()) {
+      final char c = (char) (in.get() & 0xff);
+      if (c == '\n') {
+        final int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+          line.setLength(length - 1);
+        }
+        return true;
+      } else if (line.length() >= MAX_LINE) {
+        throw new RSSFault("HTTP response line is too long");
+      }
+
+      line.append(c);
+    }
+
+    return false;
+  }
+
+  /**
+   * Processes a complete line in the current state.
+   */
+  private void line() {
+    switch (state) {
+    case STATUS_LINE:
+      // HTTP-Version SP Status-Code SP Reason-Phrase
+      final String[] parts = line.toString().split(" ", 3);
+      if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+        throw new RSSFault("Malformed HTTP status line: " + line);
+      }
+      try {
+        status = Integer.parseInt(parts[1]);
+      } catch (NumberFormatException e) {
+        throw new RSSFault(e);
+      }
+      reason = parts.length == 3 ? parts[2] : "";
+      headers.clear();
+      state = HEADERS;
+      break;
+    case HEADERS:
+      if (line.length() == 0) {
+        body();
+      } else {
+        final int colon = line.indexOf(":");
+        if (colon > 0) {
+          headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH),
+              line.substring(colon + 1).trim());
+        }
+      }
+      break;
+    case CHUNK_SIZE:
+      int end = line.indexOf(";");
+      if (end == -1) {
+        end = line.length();
+      }
+      try {
+        remaining = Long.parseLong(line.substring(0, end).trim(), 16);
+      } catch (NumberFormatException e) {
+        throw new RSSFault(e);
+      }
+      if (remaining < 0) {
+        throw new RSSFault("Negative HTTP chunk size: " + line);
+      }
+      state = remaining == 0 ? TRAILERS : CHUNK_DATA;
+      break;
+    case CHUNK_END:
+      state = CHUNK_SIZE;
+      break;
+    case TRAILERS:
+      if (line.length() == 0) {
+        state = DONE;
+      }
+      break;
+    default:
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Determines how the message body is delimited.
+   */
+  private void body() {
+    final String encoding = header("Transfer-Encoding");
+    final String length = header("Content-Length");
+    if (status / 100 == 1) {
+      // interim response such as 100 Continue
+      state = STATUS_LINE;
+    } else if (status == 204 || status == 304) {
+      state = DONE;
+    } else if (encoding != null && encoding.toLowerCase(Locale.ENGLISH).contains("chunked")) {
+      state = CHUNK_SIZE;
+    } else if (length != null) {
+      try {
+        remaining = Long.parseLong(length);
+      } catch (NumberFormatException e) {
+        throw new RSSFault(e);
+      }
+      if (remaining < 0) {
+        throw new RSSFault("Negative HTTP Content-Length: " + length);
+      }
+      state = remaining == 0 ? DONE : BODY;
+    } else {
+      state = UNTIL_CLOSE;
+    }
+  }
+
+}
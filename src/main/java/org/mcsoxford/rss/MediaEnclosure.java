@@ -23,7 +23,12 @@ package org.mcsoxford.rss;
  */
 public final class MediaEnclosure {
 
-    private final android.net.Uri url;
+    private android.net.Uri url;
+
+    /**
+     * String representation of a deferred URL.
+     */
+    private final String rawUrl;
     private final int length;
     private final String mimeType;
 
@@ -31,7 +36,21 @@ public final class MediaEnclosure {
      * Returns the URL of the enclosure. The return value is never {@code null}.
      */
     public android.net.Uri getUrl() {
-        return url;
+        android.net.Uri uri = url;
+        if (uri == null) {
+            // benign race, the parsed URI is immutable
+            uri = android.net.Uri.parse(rawUrl);
+            url = uri;
+        }
+
+        return uri;
+    }
+
+    /**
+     * Returns the string representation of the URL without parsing it.
+     */
+    String getUrlString() {
+        return rawUrl == null ? url.toString() : rawUrl;
     }
 
     /**
@@ -54,6 +73,17 @@ public final class MediaEnclosure {
      */
     MediaEnclosure(android.net.Uri url, int length, String mimeType) {
         this.url = url;
+        this.rawUrl = null;
+        this.length = length;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * Internal constructor which defers parsing the URL until it is needed
+     */
+    MediaEnclosure(String url, int length, String mimeType) {
+        this.url = null;
+        this.rawUrl = url;
         this.length = length;
         this.mimeType = mimeType;
     }
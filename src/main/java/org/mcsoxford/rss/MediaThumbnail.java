@@ -24,7 +24,12 @@ package org.mcsoxford.rss;
  */
 public final class MediaThumbnail {
 
-  private final android.net.Uri url;
+  private android.net.Uri url;
+
+  /**
+   * String representation of a deferred URL.
+   */
+  private final String rawUrl;
   private final int height;
   private final int width;
 
@@ -33,7 +38,21 @@ public final class MediaThumbnail {
    * The return value is never {@code null}.
    */
   public android.net.Uri getUrl() {
-    return url;
+    android.net.Uri uri = url;
+    if (uri == null) {
+      // benign race, the parsed URI is immutable
+      uri = android.net.Uri.parse(rawUrl);
+      url = uri;
+    }
+
+    return uri;
+  }
+
+  /**
+   * Returns the string representation of the URL without parsing it.
+   */
+  String getUrlString() {
+    return rawUrl == null ? url.toString() : rawUrl;
   }
 
   /**
@@ -53,6 +72,15 @@ public final class MediaThumbnail {
   /* Internal constructor for RSSHandler */
   MediaThumbnail(android.net.Uri url, int height, int width) {
     this.url = url;
+    this.rawUrl = null;
+    this.height = height;
+    this.width = width;
+  }
+
+  /* Internal constructor which defers parsing the URL until it is needed */
+  MediaThumbnail(String url, int height, int width) {
+    this.url = null;
+    this.rawUrl = url;
     this.height = height;
     this.width = width;
   }
@@ -61,7 +89,7 @@ public final class MediaThumbnail {
    * Returns the thumbnail's URL as a string.
    */
   public String toString() {
-    return url.toString();
+    return getUrlString();
   }
 
   /**
@@ -69,7 +97,7 @@ public final class MediaThumbnail {
    */
   @Override
   public int hashCode() {
-    return url.hashCode();
+    return getUrl().hashCode();
   }
 
   /**
@@ -83,7 +111,7 @@ public final class MediaThumbnail {
       final MediaThumbnail other = (MediaThumbnail) (object);
 
       /* other is not null */
-      return url.equals(other.url);
+      return getUrl().equals(other.getUrl());
     } else {
       return false;
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe RSS fetcher SPI implementation which serves RSS feeds from
+ * memory. The URIs are arbitrary keys, so there is neither network latency
+ * nor nondeterminism, which makes this fetcher suitable for replays, load
+ * tests and benchmarks.
+ */
+public class MemoryFetcher implements RSSFetcherSPI {
+
+  private final ConcurrentMap<String, byte[]> feeds = new ConcurrentHashMap<String, byte[]>();
+
+  /**
+   * Store the raw RSS feed document under the specified URI. The array is
+   * not copied and must not be modified afterwards.
+   */
+  public void put(String uri, byte[] feed) {
+    if (uri == null) {
+      throw new IllegalArgumentException("RSS feed URI must not be null.");
+    } else if (feed == null) {
+      throw new IllegalArgumentException("RSS feed must not be null.");
+    }
+
+    feeds.put(uri, feed);
+  }
+
+  /**
+   * Removes the RSS feed document stored under the specified URI.
+   */
+  public void remove(String uri) {
+    feeds.remove(uri);
+  }
+
+  /**
+   * Returns a stream of the RSS feed stored under the specified URI.
+   * 
+   * @throws RSSReaderException with status 404 if no such feed is stored
+   */
+  @Override
+  public InputStream fetch(String uri) throws RSSReaderException {
+    final byte[] feed = feeds.get(uri);
+    if (feed == null) {
+      throw new RSSReaderException(HttpURLConnection.HTTP_NOT_FOUND,
+          "No RSS feed stored for " + uri);
+    }
+
+    return new ByteBufferInputStream(ByteBuffer.wrap(feed));
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Internal append-only list of strings which are stored back-to-back as
+ * UTF-8 in a single byte array. Compared with a list of {@link String}
+ * objects, this saves the per-string object headers and halves the storage
+ * of ASCII text. Only a single thread must append strings.
+ */
+final class PackedStrings {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private byte[] bytes;
+
+  /**
+   * Start of the i-th string in {@link #bytes}; the entry after the last
+   * string is the end of the used bytes.
+   */
+  private int[] offsets;
+
+  private final BitSet nulls = new BitSet();
+
+  private int size;
+
+  PackedStrings(int capacity) {
+    bytes = new byte[Math.max(16, capacity * 16)];
+    offsets = new int[capacity + 1];
+  }
+
+  /**
+   * Appends the specified string, which may be {@code null}.
+   */
+  void add(String value) {
+    if (size + 1 == offsets.length) {
+      offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+    }
+
+    int end = offsets[size];
+    if (value == null) {
+      nulls.set(size);
+    } else {
+      final byte[] encoded = value.getBytes(UTF8);
+      if (end + encoded.length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(end + encoded.length, 2 * bytes.length));
+      }
+      System.arraycopy(encoded, 0, bytes, end, encoded.length);
+      end += encoded.length;
+    }
+
+    offsets[++size] = end;
+  }
+
+  /**
+   * Decodes the string with the specified index.
+   */
+  String get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    } else if (nulls.get(index)) {
+      return null;
+    }
+
+    return new String(bytes, offsets[index], offsets[index + 1] - offsets[index], UTF8);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Releases unused capacity.
+   */
+  void trim() {
+    bytes = Arrays.copyOf(bytes, offsets[size]);
+    offsets = Arrays.copyOf(offsets, size + 1);
+  }
+
+  /**
+   * Estimates the number of bytes which this list occupies on the heap.
+   */
+  long weight() {
+    return 4 * 16 + bytes.length + 4L * offsets.length + nulls.size() / 8;
+  }
+
+}
@@ -0,0 +1,746 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Thread-safe embedded archive of RSS items which keeps the history of RSS
+ * feeds beyond the items of their latest version.
+ * <p>
+ * Every {@link #append(String, RSSFeed)} writes the new and changed items of
+ * a refresh as one batch to the end of a segmented log. Each RSS feed has an
+ * in-memory hash index on the GUID or link of its items and a time index on
+ * their publication dates, so that point lookups and range queries only read
+ * the matching items. Full segments are sealed and read through a memory
+ * mapping. Items of the segment which is being appended to are read with
+ * positional reads, so that appends never remap it. The indexes are rebuilt
+ * by scanning the segments when the archive is opened. Superseded versions of
+ * items are garbage which {@link #compact()} reclaims by copying the live
+ * items out of mostly dead segments.
+ */
+public class RSSArchive implements java.io.Closeable {
+
+  /**
+   * First bytes of every record.
+   */
+  private static final int RECORD = 0x52535341; // "RSSA"
+
+  /**
+   * Number of bytes of the record magic, payload length and checksum.
+   */
+  private static final int HEADER_BYTES = 12;
+
+  private static final String SUFFIX = ".log";
+
+  private static final long DEFAULT_SEGMENT_BYTES = 8L * 1024 * 1024;
+
+  /**
+   * Prefixes of the item keys, see {@link RSSFeedDiff#identity(RSSItem)}.
+   */
+  private static final String GUID_KEY = "G";
+  private static final String LINK_KEY = "L";
+
+  /**
+   * Orders entries of the time index by time and then by insertion.
+   */
+  private static final Comparator<Entry> BY_TIME = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry a, Entry b) {
+      if (a.time != b.time) {
+        return a.time < b.time ? -1 : 1;
+      }
+      return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+    }
+  };
+
+  private final File directory;
+
+  private final long segmentBytes;
+
+  /**
+   * Segments in the order they were created, the last one is appended to.
+   */
+  private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+  private final Map<String, Feed> feeds = new HashMap<String, Feed>();
+
+  /**
+   * Number of live items.
+   */
+  private int count;
+
+  private long size;
+
+  /**
+   * Insertion order of the entries, which breaks ties in the time index.
+   */
+  private long sequence;
+
+  private boolean closed;
+
+  /**
+   * Opens the archive in the specified directory with the default segment
+   * size.
+   * 
+   * @see #RSSArchive(File, long)
+   */
+  public RSSArchive(File directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_BYTES);
+  }
+
+  /**
+   * Opens the archive in the specified directory, which is created if it does
+   * not exist, and rebuilds the indexes from the existing segment files.
+   * Incomplete records, e.g. after a crash, are truncated.
+   * 
+   * @param segmentBytes size of a segment file after which a new segment is
+   *          started
+   * @throws IllegalArgumentException if {@code segmentBytes} is not positive
+   *           or exceeds 1 GB
+   */
+  public RSSArchive(File directory, long segmentBytes) throws IOException {
+    if (segmentBytes <= 0 || segmentBytes > (1 << 30)) {
+      throw new IllegalArgumentException("Segment size must be positive and at most 1 GB");
+    }
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create archive directory " + directory);
+    }
+
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+
+    final File[] files = directory.listFiles();
+    final long[] ids = new long[files.length];
+    int n = 0;
+    for (File file : files) {
+      final String name = file.getName();
+      if (name.endsWith(SUFFIX)) {
+        try {
+          ids[n++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+          // not a segment
+        }
+      }
+    }
+
+    java.util.Arrays.sort(ids, 0, n);
+    for (int i = 0; i < n; i++) {
+      final Segment segment = new Segment(ids[i]);
+      segments.add(segment);
+      scan(segment);
+      size += segment.size;
+      segment.sealed = i < n - 1;
+    }
+  }
+
+  /**
+   * Returns the number of archived items, excluding superseded versions.
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes which the segment files occupy on disk.
+   */
+  public synchronized long diskSize() {
+    return size;
+  }
+
+  /**
+   * Appends the new and changed items of the RSS feed with the specified URI
+   * as a single write. Items are identified by their GUID, or by their link
+   * if they have no GUID. Items without a publication date are archived
+   * under the time they have first been appended.
+   * 
+   * @return number of appended items
+   */
+  public synchronized int append(String uri, RSSFeed feed) throws IOException {
+    checkOpen();
+
+    final long now = System.currentTimeMillis();
+    final Feed archived = feeds.get(uri);
+    final ByteArrayOutputStream batch = new ByteArrayOutputStream(8192);
+    final ByteArrayOutputStream payload = new ByteArrayOutputStream(1024);
+    final List<Entry> pending = new ArrayList<Entry>();
+
+    final List<RSSItem> items = feed.getItems();
+    for (int i = 0; i < items.size(); i++) {
+      final RSSItem item = items.get(i);
+      final String key = RSSFeedDiff.identity(item);
+      final long hash = RSSFeedDiff.contentHash(item);
+      final Entry previous = archived == null ? null : archived.keys.get(key);
+      if (previous != null && previous.hash == hash) {
+        continue;
+      }
+
+      final long time;
+      if (item.getPubDateMillis() != RSSBase.NO_DATE) {
+        time = item.getPubDateMillis();
+      } else {
+        time = previous == null ? now : previous.time;
+      }
+
+      final int offset = batch.size();
+      payload.reset();
+      writeRecord(payload, uri, key, time, hash, item);
+      writeHeader(batch, payload);
+      payload.writeTo(batch);
+      pending.add(new Entry(null, null, offset, batch.size() - offset, key, time, hash, 0));
+    }
+
+    if (pending.isEmpty()) {
+      return 0;
+    }
+
+    final Segment segment = appendable(batch.size());
+    final long base = write(segment, batch.toByteArray());
+    final Feed target = feed(uri);
+    for (int i = 0; i < pending.size(); i++) {
+      final Entry entry = pending.get(i);
+      index(new Entry(target, segment, base + entry.offset, entry.length, entry.key,
+          entry.time, entry.hash, sequence++));
+    }
+
+    return pending.size();
+  }
+
+  /**
+   * Returns the latest version of the archived item of the specified RSS
+   * feed which has the specified GUID or, if there is none, link. Returns
+   * {@code null} if there is no such item.
+   */
+  public RSSItem get(String uri, String guidOrLink) throws IOException {
+    final ByteBuffer record;
+    synchronized (this) {
+      checkOpen();
+      final Feed feed = feeds.get(uri);
+      if (feed == null) {
+        return null;
+      }
+
+      final Entry guid = feed.keys.get(GUID_KEY + guidOrLink);
+      final Entry entry = guid == null ? feed.keys.get(LINK_KEY + guidOrLink) : guid;
+      if (entry == null) {
+        return null;
+      }
+      record = entry.segment.record(entry);
+    }
+
+    return read(record);
+  }
+
+  /**
+   * Returns the latest versions of the archived items of the specified RSS
+   * feed which have been published in the specified time range, most recent
+   * first. Only the matching items are read from disk.
+   * 
+   * @param fromMillis inclusive lower bound in milliseconds since the epoch
+   * @param toMillis exclusive upper bound in milliseconds since the epoch
+   */
+  public List<RSSItem> query(String uri, long fromMillis, long toMillis) throws IOException {
+    final List<ByteBuffer> records = new ArrayList<ByteBuffer>();
+    synchronized (this) {
+      checkOpen();
+      final Feed feed = feeds.get(uri);
+      if (feed == null || fromMillis >= toMillis) {
+        return Collections.emptyList();
+      }
+
+      final Entry from = new Entry(null, null, 0, 0, null, fromMillis, 0, Long.MIN_VALUE);
+      final Entry to = new Entry(null, null, 0, 0, null, toMillis, 0, Long.MIN_VALUE);
+      for (Entry entry : feed.times.subSet(from, true, to, false).descendingSet()) {
+        records.add(entry.segment.record(entry));
+      }
+    }
+
+    // decode outside of the lock, mappings stay valid after compaction
+    final List<RSSItem> items = new ArrayList<RSSItem>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      items.add(read(records.get(i)));
+    }
+    return items;
+  }
+
+  /**
+   * Copies the live items of every segment which consists mostly of
+   * superseded versions to the end of the log and deletes the segment. The
+   * segment which is being appended to is never compacted.
+   * 
+   * @return number of deleted segments
+   */
+  public synchronized int compact() throws IOException {
+    checkOpen();
+
+    final List<Segment> candidates = new ArrayList<Segment>();
+    for (Segment segment : segments) {
+      if (segment != segments.getLast() && 2 * segment.live < segment.size) {
+        candidates.add(segment);
+      }
+    }
+
+    for (Segment segment : candidates) {
+      relocate(segment);
+    }
+    return candidates.size();
+  }
+
+  private void relocate(Segment old) throws IOException {
+    final List<Entry> live = new ArrayList<Entry>();
+    for (Feed feed : feeds.values()) {
+      for (Entry entry : feed.keys.values()) {
+        if (entry.segment == old) {
+          live.add(entry);
+        }
+      }
+    }
+
+    if (!live.isEmpty()) {
+      Collections.sort(live, new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+          return a.offset < b.offset ? -1 : (a.offset == b.offset ? 0 : 1);
+        }
+      });
+
+      // copy the raw records of the sealed segment, which need not be decoded
+      final ByteBuffer buffer = old.map().duplicate();
+      final ByteArrayOutputStream batch = new ByteArrayOutputStream((int) old.live);
+      final byte[] record = new byte[8192];
+      for (Entry entry : live) {
+        buffer.position((int) entry.offset);
+        for (int n = entry.length; n > 0;) {
+          final int chunk = Math.min(n, record.length);
+          buffer.get(record, 0, chunk);
+          batch.write(record, 0, chunk);
+          n -= chunk;
+        }
+      }
+
+      final Segment segment = appendable(batch.size());
+      long offset = write(segment, batch.toByteArray());
+      for (Entry entry : live) {
+        final Entry moved = new Entry(entry.feed, segment, offset, entry.length, entry.key,
+            entry.time, entry.hash, entry.sequence);
+        entry.feed.keys.put(entry.key, moved);
+        entry.feed.times.remove(entry);
+        entry.feed.times.add(moved);
+        segment.live += entry.length;
+        offset += entry.length;
+      }
+    }
+
+    segments.remove(old);
+    size -= old.size;
+    Resources.closeQuietly(old.file);
+    old.path.delete();
+  }
+
+  /**
+   * Returns the segment which the specified number of bytes are appended to.
+   */
+  private Segment appendable(long bytes) throws IOException {
+    Segment segment = segments.isEmpty() ? null : segments.getLast();
+    if (segment == null || (segment.size > 0 && segment.size + bytes > segmentBytes)) {
+      if (segment != null) {
+        segment.sealed = true;
+      }
+      segment = new Segment(segment == null ? 0 : segment.id + 1);
+      segments.add(segment);
+    }
+    return segment;
+  }
+
+  /**
+   * Appends the bytes to the segment and returns their offset.
+   */
+  private long write(Segment segment, byte[] bytes) throws IOException {
+    final FileChannel channel = segment.file.getChannel();
+    final long offset = segment.size;
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    try {
+      long position = offset;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+    } catch (IOException e) {
+      // discard the incomplete batch
+      channel.truncate(offset);
+      throw e;
+    }
+
+    segment.size += bytes.length;
+    size += bytes.length;
+    return offset;
+  }
+
+  private Feed feed(String uri) {
+    Feed feed = feeds.get(uri);
+    if (feed == null) {
+      feed = new Feed();
+      feeds.put(uri, feed);
+    }
+    return feed;
+  }
+
+  /**
+   * Adds the entry to the indexes of its RSS feed and supersedes the
+   * previous version of the item.
+   */
+  private void index(Entry entry) {
+    final Entry previous = entry.feed.keys.put(entry.key, entry);
+    if (previous == null) {
+      count++;
+    } else {
+      entry.feed.times.remove(previous);
+      previous.segment.live -= previous.length;
+    }
+
+    entry.feed.times.add(entry);
+    entry.segment.live += entry.length;
+  }
+
+  /**
+   * Adds the records of the specified segment to the indexes and truncates
+   * the segment after the last complete record.
+   */
+  private void scan(Segment segment) throws IOException {
+    final FileChannel channel = segment.file.getChannel();
+    final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+    long offset = 0;
+    try {
+      while (buffer.remaining() >= HEADER_BYTES) {
+        if (buffer.getInt() != RECORD) {
+          break;
+        }
+
+        final int length = buffer.getInt();
+        final int checksum = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+          break;
+        }
+
+        final byte[] payload = new byte[length];
+        buffer.get(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        final String uri = readString(in);
+        final String key = readString(in);
+        final long time = in.readLong();
+        final long hash = in.readLong();
+        index(new Entry(feed(uri), segment, offset, HEADER_BYTES + length, key, time, hash,
+            sequence++));
+        offset = buffer.position();
+      }
+    } catch (IOException e) {
+      // incomplete record
+    }
+
+    if (offset < channel.size()) {
+      channel.truncate(offset);
+    }
+    segment.size = offset;
+  }
+
+  private static void writeHeader(ByteArrayOutputStream batch, ByteArrayOutputStream payload)
+      throws IOException {
+    final byte[] bytes = payload.toByteArray();
+    final CRC32 crc = new CRC32();
+    crc.update(bytes);
+
+    final DataOutputStream out = new DataOutputStream(batch);
+    out.writeInt(RECORD);
+    out.writeInt(bytes.length);
+    out.writeInt((int) crc.getValue());
+  }
+
+  private static void writeRecord(ByteArrayOutputStream payload, String uri, String key,
+      long time, long hash, RSSItem item) throws IOException {
+    final DataOutputStream out = new DataOutputStream(payload);
+    writeString(out, uri);
+    writeString(out, key);
+    out.writeLong(time);
+    out.writeLong(hash);
+
+    writeString(out, item.getTitle());
+    writeString(out, item.getLinkString());
+    writeString(out, item.getDescription());
+    writeString(out, item.getContent());
+    writeString(out, item.getGuid());
+    out.writeBoolean(item.isPermaLink());
+    out.writeLong(item.getFingerprint());
+    out.writeLong(item.getPubDateMillis());
+
+    final List<String> categories = item.getCategories();
+    out.writeInt(categories.size());
+    for (int i = 0; i < categories.size(); i++) {
+      writeString(out, categories.get(i));
+    }
+
+    final List<MediaThumbnail> thumbnails = item.getThumbnails();
+    out.writeInt(thumbnails.size());
+    for (int i = 0; i < thumbnails.size(); i++) {
+      final MediaThumbnail thumbnail = thumbnails.get(i);
+      writeString(out, thumbnail.getUrlString());
+      out.writeInt(thumbnail.getHeight());
+      out.writeInt(thumbnail.getWidth());
+    }
+
+    final MediaEnclosure enclosure = item.getEnclosure();
+    out.writeBoolean(enclosure != null);
+    if (enclosure != null) {
+      writeString(out, enclosure.getUrlString());
+      out.writeInt(enclosure.getLength());
+      writeString(out, enclosure.getMimeType());
+    }
+    out.flush();
+  }
+
+  /**
+   * Decodes the item from the remaining bytes of its record.
+   */
+  private static RSSItem read(ByteBuffer record) throws IOException {
+    record.position(record.position() + HEADER_BYTES);
+    final DataInputStream in = new DataInputStream(new ByteBufferInputStream(record));
+
+    // skip URI, key, time and hash
+    readString(in);
+    readString(in);
+    in.readLong();
+    in.readLong();
+
+    final String title = readString(in);
+    final String link = readString(in);
+    final String description = readString(in);
+    final String content = readString(in);
+    final String guid = readString(in);
+    final boolean permaLink = in.readBoolean();
+    final long fingerprint = in.readLong();
+    final long pubDate = in.readLong();
+
+    final int categories = in.readInt();
+    final RSSItem item = new RSSItem((byte) Math.min(categories, Byte.MAX_VALUE), (byte) 0);
+    item.setTitle(title);
+    item.setLink(link);
+    item.setDescription(description);
+    item.setContent(content);
+    item.setGuid(guid);
+    item.setPermaLink(permaLink);
+    item.setFingerprint(fingerprint);
+    item.setPubDateMillis(pubDate);
+    for (int i = 0; i < categories; i++) {
+      item.addCategory(readString(in));
+    }
+
+    final int thumbnails = in.readInt();
+    for (int i = 0; i < thumbnails; i++) {
+      final String url = readString(in);
+      final int height = in.readInt();
+      final int width = in.readInt();
+      item.addThumbnail(new MediaThumbnail(url, height, width));
+    }
+
+    if (in.readBoolean()) {
+      final String url = readString(in);
+      final int length = in.readInt();
+      item.setEnclosure(new MediaEnclosure(url, length, readString(in)));
+    }
+
+    return item;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+
+    final byte[] bytes = value.getBytes(RSSSnapshotWriter.UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, RSSSnapshotWriter.UTF8);
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("RSS archive has been closed");
+    }
+  }
+
+  /**
+   * Closes the segment files. Items which have been returned remain valid.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    feeds.clear();
+    for (Segment segment : segments) {
+      Resources.closeQuietly(segment.file);
+    }
+  }
+
+  /**
+   * Indexes of the archived items of an RSS feed.
+   */
+  private static final class Feed {
+
+    /**
+     * Latest version of every item keyed by its GUID or link.
+     */
+    final Map<String, Entry> keys = new HashMap<String, Entry>();
+
+    /**
+     * Latest version of every item ordered by time.
+     */
+    final TreeSet<Entry> times = new TreeSet<Entry>(BY_TIME);
+
+  }
+
+  /**
+   * Append-only log file of archived items.
+   */
+  private final class Segment {
+
+    final long id;
+    final File path;
+    final RandomAccessFile file;
+    long size;
+
+    /**
+     * Number of bytes of the latest versions of items.
+     */
+    long live;
+
+    /**
+     * Whether the segment is full, i.e. it is never appended to again.
+     */
+    boolean sealed;
+
+    private ByteBuffer mapped;
+
+    Segment(long id) throws IOException {
+      this.id = id;
+      this.path = new File(directory, String.format(Locale.ENGLISH, "%016d%s", id, SUFFIX));
+      this.file = new RandomAccessFile(path, "rw");
+    }
+
+    /**
+     * Maps the sealed segment into memory once.
+     */
+    ByteBuffer map() throws IOException {
+      if (mapped == null) {
+        mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      return mapped;
+    }
+
+    /**
+     * Returns a buffer whose remaining bytes are the record of the entry.
+     * Records of a sealed segment are views of its mapping, whereas records
+     * of the segment which is being appended to are read into the heap.
+     */
+    ByteBuffer record(Entry entry) throws IOException {
+      if (sealed) {
+        final ByteBuffer buffer = map().duplicate();
+        buffer.limit((int) (entry.offset + entry.length));
+        buffer.position((int) entry.offset);
+        return buffer;
+      }
+
+      final FileChannel channel = file.getChannel();
+      final ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+          throw new EOFException("Truncated RSS archive segment " + path);
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+  }
+
+  /**
+   * Location of the latest version of an archived item.
+   */
+  private static final class Entry {
+
+    final Feed feed;
+    final Segment segment;
+    final long offset;
+    final int length;
+    final String key;
+    final long time;
+    final long hash;
+    final long sequence;
+
+    Entry(Feed feed, Segment segment, long offset, int length, String key, long time,
+        long hash, long sequence) {
+      this.feed = feed;
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.key = key;
+      this.time = time;
+      this.hash = hash;
+      this.sequence = sequence;
+    }
+
+  }
+
+}
@@ -25,11 +25,24 @@ import java.util.ArrayList;
  */
 abstract class RSSBase {
 
+  /**
+   * Date value in milliseconds since the epoch which represents an absent
+   * date.
+   */
+  public static final long NO_DATE = Long.MIN_VALUE;
+
   private String title;
   private android.net.Uri link;
+
+  /**
+   * String representation of a deferred link, which is kept after it has
+   * been parsed so that racing readers never observe a missing link.
+   */
+  private String rawLink;
   private String description;
+  private CompressedText compressedDescription;
   private java.util.List<String> categories;
-  private java.util.Date pubdate;
+  private long pubdate = NO_DATE;
 
   /**
    * Specify initial capacity for the List which contains the category names.
@@ -43,12 +56,53 @@ abstract class RSSBase {
     return title;
   }
 
+  /**
+   * Returns the description. If the description is stored compressed, it is
+   * inflated on every call unless it is found in the hot cache.
+   *
+   * @see RSSConfig#withCompressedText(int, int)
+   */
   public String getDescription() {
+    if (compressedDescription != null) {
+      return compressedDescription.toString();
+    }
+
     return description;
   }
 
+  /**
+   * Returns the compressed description, {@code null} if the description is
+   * not stored compressed.
+   */
+  CompressedText getCompressedDescription() {
+    return compressedDescription;
+  }
+
+  /**
+   * Returns the link. If the link has been deferred, it is parsed on the
+   * first call.
+   */
   public android.net.Uri getLink() {
-    return link;
+    android.net.Uri uri = link;
+    if (uri == null && rawLink != null) {
+      // benign race, the parsed URI is immutable
+      uri = android.net.Uri.parse(rawLink);
+      link = uri;
+    }
+
+    return uri;
+  }
+
+  /**
+   * Returns the string representation of the link without parsing it,
+   * {@code null} if there is no link.
+   */
+  String getLinkString() {
+    if (rawLink != null) {
+      return rawLink;
+    }
+
+    return link == null ? null : link.toString();
   }
 
   public java.util.List<String> getCategories() {
@@ -59,7 +113,20 @@ abstract class RSSBase {
     return java.util.Collections.unmodifiableList(categories);
   }
 
+  /**
+   * Returns a new date object of the publication date, {@code null} if
+   * there is none.
+   */
   public java.util.Date getPubDate() {
+    return pubdate == NO_DATE ? null : new java.util.Date(pubdate);
+  }
+
+  /**
+   * Returns the publication date in milliseconds since the epoch,
+   * {@link #NO_DATE} if there is none. Unlike {@link #getPubDate()}, this
+   * does not allocate, so it should be preferred when sorting or merging.
+   */
+  public long getPubDateMillis() {
     return pubdate;
   }
 
@@ -69,10 +136,25 @@ abstract class RSSBase {
 
   void setLink(android.net.Uri link) {
     this.link = link;
+    this.rawLink = null;
+  }
+
+  /**
+   * Defers parsing the link until {@link #getLink()} is called.
+   */
+  void setLink(String link) {
+    this.link = null;
+    this.rawLink = link;
   }
 
   void setDescription(String description) {
     this.description = description;
+    this.compressedDescription = null;
+  }
+
+  void setDescription(CompressedText description) {
+    this.description = null;
+    this.compressedDescription = description;
   }
 
   void addCategory(String category) {
@@ -84,6 +166,10 @@ abstract class RSSBase {
   }
 
   void setPubDate(java.util.Date pubdate) {
+    this.pubdate = pubdate == null ? NO_DATE : pubdate.getTime();
+  }
+
+  void setPubDateMillis(long pubdate) {
     this.pubdate = pubdate;
   }
 
@@ -99,6 +185,7 @@ abstract class RSSBase {
    */
   @Override
   public int hashCode() {
+    final android.net.Uri link = getLink();
     if (link == null) {
       return 0;
     }
@@ -117,11 +204,12 @@ abstract class RSSBase {
       /* other is never null */
       final RSSBase other = (RSSBase) (object);
 
+      final android.net.Uri link = getLink();
       if (link == null) {
-        return other.link == null;
+        return other.getLink() == null;
       }
 
-      return link.equals(other.link);
+      return link.equals(other.getLink());
     } else {
       return false;
     }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe in-memory cache of parsed RSS feeds keyed by URI. A cached RSS
+ * feed is fresh for the number of minutes in its &lt;ttl&gt; element, or for
+ * the default time-to-live if the element is absent. When the estimated
+ * memory footprint of all cached RSS feeds exceeds the budget, the least
+ * recently used RSS feeds are evicted.
+ * 
+ * @see CachingRSSReader
+ */
+public class RSSCache {
+
+  /**
+   * Estimated number of bytes of an object header plus a reference to it.
+   */
+  private static final int OBJECT_BYTES = 16;
+
+  private final long maxBytes;
+  private final long defaultTtlNanos;
+
+  /* Guarded by this */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(
+      16, 0.75f, /* access order */true);
+  private long bytes;
+
+  /**
+   * Instantiate a cache with a memory budget.
+   * 
+   * @param maxBytes upper bound of the estimated memory footprint
+   * @param defaultTtlMillis time in milliseconds for which RSS feeds without
+   *          a &lt;ttl&gt; element are fresh
+   */
+  public RSSCache(long maxBytes, long defaultTtlMillis) {
+    if (maxBytes < 0 || defaultTtlMillis < 0) {
+      throw new IllegalArgumentException("Cache limits must not be negative.");
+    }
+
+    this.maxBytes = maxBytes;
+    this.defaultTtlNanos = TimeUnit.MILLISECONDS.toNanos(defaultTtlMillis);
+  }
+
+  /**
+   * Returns the cached RSS feed if it is fresh, {@code null} otherwise.
+   */
+  public synchronized RSSFeed get(String uri) {
+    final Entry entry = entries.get(uri);
+    if (entry == null) {
+      return null;
+    } else if (System.nanoTime() - entry.expires >= 0) {
+      remove(uri);
+      return null;
+    }
+
+    return entry.feed;
+  }
+
+  /**
+   * Caches the RSS feed and evicts least recently used RSS feeds until the
+   * memory budget is met. RSS feeds which are larger than the entire budget
+   * or which are not fresh are not cached.
+   */
+  public synchronized void put(String uri, RSSFeed feed) {
+    remove(uri);
+
+    final long ttl = feed.getTTLMinutes() == RSSFeed.NO_TTL ? defaultTtlNanos
+        : TimeUnit.MINUTES.toNanos(feed.getTTLMinutes());
+    final long weight = weigh(feed);
+    if (ttl <= 0 || weight > maxBytes) {
+      return;
+    }
+
+    entries.put(uri, new Entry(feed, weight, System.nanoTime() + ttl));
+    bytes += weight;
+
+    final Iterator<Entry> i = entries.values().iterator();
+    while (bytes > maxBytes && i.hasNext()) {
+      bytes -= i.next().weight;
+      i.remove();
+    }
+  }
+
+  /**
+   * Removes the RSS feed with the specified URI from the cache.
+   */
+  public synchronized void remove(String uri) {
+    final Entry entry = entries.remove(uri);
+    if (entry != null) {
+      bytes -= entry.weight;
+    }
+  }
+
+  /**
+   * Removes all RSS feeds from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Returns the number of cached RSS feeds, including stale ones which have
+   * not been evicted yet.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the estimated memory footprint of all cached RSS feeds in bytes.
+   */
+  public synchronized long weight() {
+    return bytes;
+  }
+
+  /**
+   * Estimates the number of bytes which the RSS feed occupies on the heap.
+   */
+  static long weigh(RSSFeed feed) {
+    long weight = weigh((RSSBase) feed);
+    for (RSSItem item : feed.getItems()) {
+      weight += weigh(item) + weigh(item.getGuid());
+      weight += item.getCompressedContent() == null ? weigh(item.getContent())
+          : OBJECT_BYTES + item.getCompressedContent().weight();
+      for (MediaThumbnail thumbnail : item.getThumbnails()) {
+        weight += OBJECT_BYTES + weigh(thumbnail.getUrlString());
+      }
+      if (item.getEnclosure() != null) {
+        weight += OBJECT_BYTES + weigh(item.getEnclosure().getUrlString())
+            + weigh(item.getEnclosure().getMimeType());
+      }
+    }
+
+    return weight;
+  }
+
+  private static long weigh(RSSBase base) {
+    long weight = 4 * OBJECT_BYTES + weigh(base.getTitle()) + weigh(base.getLinkString());
+    weight += base.getCompressedDescription() == null ? weigh(base.getDescription())
+        : OBJECT_BYTES + base.getCompressedDescription().weight();
+    final List<String> categories = base.getCategories();
+    for (int i = 0; i < categories.size(); i++) {
+      weight += weigh(categories.get(i));
+    }
+
+    return weight;
+  }
+
+  private static long weigh(Object value) {
+    if (value == null) {
+      return 0;
+    }
+
+    // String object, its char array and the array header
+    return 3 * OBJECT_BYTES + 2L * value.toString().length();
+  }
+
+  private static final class Entry {
+
+    final RSSFeed feed;
+    final long weight;
+    final long expires;
+
+    Entry(RSSFeed feed, long weight, long expires) {
+      this.feed = feed;
+      this.weight = weight;
+      this.expires = expires;
+    }
+
+  }
+
+}
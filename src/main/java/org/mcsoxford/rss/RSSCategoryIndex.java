@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe index of RSS items by category across all indexed RSS feeds.
+ * Categories are canonicalized by trimming, collapsing whitespace and
+ * ignoring case. Each category maps to a compressed bitmap of item ids, so
+ * facet filters are bitmap intersections or unions and facet counts are
+ * intersection cardinalities, which are computed without iterating the
+ * categories of individual items.
+ * <p>
+ * RSS feeds are indexed as they are loaded and replace the previously
+ * indexed version of the same RSS feed URI. Ids of removed items are reused.
+ */
+public class RSSCategoryIndex {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /* Guarded by lock */
+  private final Map<String, Category> categories = new HashMap<String, Category>();
+
+  /**
+   * Ids of all indexed items.
+   */
+  private final CompressedBitmap all = new CompressedBitmap();
+
+  /**
+   * Indexed items by id, {@code null} if the id is free.
+   */
+  private RSSItem[] items = new RSSItem[1024];
+  private int next;
+  private int[] free = new int[16];
+  private int freeCount;
+
+  /**
+   * Item ids of each indexed RSS feed keyed by URI.
+   */
+  private final Map<String, int[]> feeds = new HashMap<String, int[]>();
+
+  /**
+   * Indexes the items of the RSS feed with the specified URI, replacing
+   * items which have been indexed for the same URI before.
+   */
+  public void add(String uri, RSSFeed feed) {
+    lock.writeLock().lock();
+    try {
+      final int[] previous = feeds.remove(uri);
+      if (previous != null) {
+        delete(previous);
+      }
+
+      final List<RSSItem> feedItems = feed.getItems();
+      final int[] ids = new int[feedItems.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = index(feedItems.get(i));
+      }
+      feeds.put(uri, ids);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the items of the RSS feed with the specified URI.
+   */
+  public void remove(String uri) {
+    lock.writeLock().lock();
+    try {
+      final int[] ids = feeds.remove(uri);
+      if (ids != null) {
+        delete(ids);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of indexed items.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return all.cardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of items which have all the specified categories.
+   * Without categories, all items are counted.
+   */
+  public int count(String... selected) {
+    lock.readLock().lock();
+    try {
+      final CompressedBitmap selection = selectAll(selected);
+      return selection == null ? 0 : selection.cardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the items which have all the specified categories, in no
+   * particular order.
+   */
+  public List<RSSItem> getItemsWithAll(String... selected) {
+    lock.readLock().lock();
+    try {
+      return items(selectAll(selected));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the items which have any of the specified categories, in no
+   * particular order.
+   */
+  public List<RSSItem> getItemsWithAny(String... selected) {
+    lock.readLock().lock();
+    try {
+      CompressedBitmap selection = new CompressedBitmap();
+      for (String name : selected) {
+        final Category category = categories.get(canonical(name));
+        if (category != null) {
+          selection = selection.or(category.items);
+        }
+      }
+      return items(selection);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of items per category among the items which have all
+   * the specified categories, ordered by descending count. Categories without
+   * items in the selection are omitted. Category names are spelled as they
+   * have first been indexed.
+   */
+  public Map<String, Integer> getFacetCounts(String... selected) {
+    lock.readLock().lock();
+    try {
+      final CompressedBitmap selection = selectAll(selected);
+      final List<Map.Entry<String, Integer>> counts = new ArrayList<Map.Entry<String, Integer>>();
+      if (selection != null) {
+        for (Category category : categories.values()) {
+          final int count = selection == all ? category.items.cardinality()
+              : category.items.andCardinality(selection);
+          if (count > 0) {
+            counts.add(new java.util.AbstractMap.SimpleImmutableEntry<String, Integer>(
+                category.name, count));
+          }
+        }
+      }
+
+      Collections.sort(counts, BY_COUNT);
+      final Map<String, Integer> facets = new LinkedHashMap<String, Integer>();
+      for (Map.Entry<String, Integer> count : counts) {
+        facets.put(count.getKey(), count.getValue());
+      }
+      return Collections.unmodifiableMap(facets);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static final Comparator<Map.Entry<String, Integer>> BY_COUNT = new Comparator<Map.Entry<String, Integer>>() {
+    @Override
+    public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+      final int x = a.getValue();
+      final int y = b.getValue();
+      return x > y ? -1 : x < y ? 1 : a.getKey().compareTo(b.getKey());
+    }
+  };
+
+  /**
+   * Returns the canonical form of a category name, {@code null} if it is
+   * blank.
+   */
+  static String canonical(String name) {
+    if (name == null) {
+      return null;
+    }
+
+    final StringBuilder canonical = new StringBuilder(name.length());
+    boolean space = false;
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (Character.isWhitespace(c)) {
+        space = canonical.length() > 0;
+      } else {
+        if (space) {
+          canonical.append(' ');
+          space = false;
+        }
+        canonical.append(c);
+      }
+    }
+
+    return canonical.length() == 0 ? null : canonical.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Returns the items which have all the specified categories, {@code null}
+   * if there are none. Without categories, returns {@link #all} itself.
+   */
+  private CompressedBitmap selectAll(String[] selected) {
+    CompressedBitmap selection = all;
+    for (String name : selected) {
+      final Category category = categories.get(canonical(name));
+      if (category == null) {
+        return null;
+      }
+      selection = selection.and(category.items);
+    }
+
+    return selection;
+  }
+
+  private List<RSSItem> items(CompressedBitmap selection) {
+    if (selection == null) {
+      return Collections.emptyList();
+    }
+
+    final int[] ids = selection.toArray();
+    final RSSItem[] result = new RSSItem[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      result[i] = items[ids[i]];
+    }
+    return Collections.unmodifiableList(Arrays.asList(result));
+  }
+
+  private int index(RSSItem item) {
+    final int id;
+    if (freeCount > 0) {
+      id = free[--freeCount];
+    } else {
+      id = next++;
+      if (id == items.length) {
+        items = Arrays.copyOf(items, 2 * items.length);
+      }
+    }
+
+    items[id] = item;
+    all.add(id);
+
+    final List<String> names = item.getCategories();
+    for (int i = 0; i < names.size(); i++) {
+      final String canonical = canonical(names.get(i));
+      if (canonical == null) {
+        continue;
+      }
+
+      Category category = categories.get(canonical);
+      if (category == null) {
+        category = new Category(names.get(i).trim());
+        categories.put(canonical, category);
+      }
+      category.items.add(id);
+    }
+
+    return id;
+  }
+
+  private void delete(int[] ids) {
+    for (int id : ids) {
+      final RSSItem item = items[id];
+      final List<String> names = item.getCategories();
+      for (int i = 0; i < names.size(); i++) {
+        final String canonical = canonical(names.get(i));
+        final Category category = canonical == null ? null : categories.get(canonical);
+        if (category != null) {
+          category.items.remove(id);
+          if (category.items.cardinality() == 0) {
+            categories.remove(canonical);
+          }
+        }
+      }
+
+      items[id] = null;
+      all.remove(id);
+      if (freeCount == free.length) {
+        free = Arrays.copyOf(free, 2 * free.length);
+      }
+      free[freeCount++] = id;
+    }
+  }
+
+  private static final class Category {
+
+    /**
+     * Spelling of the category when it has first been indexed.
+     */
+    final String name;
+
+    final CompressedBitmap items = new CompressedBitmap();
+
+    Category(String name) {
+      this.name = name;
+    }
+
+  }
+
+}
@@ -21,13 +21,20 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Immutable data structure to configure the RSS parser and loader modules. On
- * large data sets, well-chosen configuration values can reduce memory
- * consumption and increase performance.
+ * Data structure to configure the RSS parser and loader modules. On large
+ * data sets, well-chosen configuration values can reduce memory consumption
+ * and increase performance.
+ * <p>
+ * A configuration is never changed once it has been published: every
+ * {@code with} method returns a modified copy, so configurations can be
+ * shared between threads. The URI cache, the cache of decompressed text and
+ * the filter of seen RSS items are the exception; they are thread-safe
+ * components whose state is shared by a configuration and all copies made
+ * from it, and they change as RSS feeds are parsed.
  *
  * @author Mr Horn
  */
-public final class RSSConfig {
+public final class RSSConfig implements Cloneable {
 
   /**
    * Average number of RSS item &lt;category&gt; elements which serves as the
@@ -47,6 +54,135 @@ public final class RSSConfig {
    */
   final List<DateParser> dateParsers;
 
+  /**
+   * Average number of RSS &lt;item&gt; elements which serves as the initial
+   * capacity of the List implementation.
+   */
+  int itemAvg = 10;
+
+  /**
+   * Whether the parser computes fingerprints of RSS items.
+   */
+  boolean fingerprints = false;
+
+  /**
+   * Whether the parser computes SimHash signatures of RSS items.
+   */
+  boolean simHashes = false;
+
+  /**
+   * Cache of parsed URIs which is shared by all copies of this
+   * configuration, or {@code null} if URIs are not cached.
+   */
+  UriCache uriCache = null;
+
+  /**
+   * Whether URIs are parsed on first access instead of while parsing.
+   */
+  boolean deferUris = false;
+
+  /**
+   * Minimum number of characters of a description or content which is
+   * stored compressed, or zero if texts are not compressed.
+   */
+  int compressThreshold = 0;
+
+  /**
+   * Cache of inflated texts which is shared by all copies of this
+   * configuration, or {@code null} if inflated texts are not cached.
+   */
+  CompressedText.Cache textCache = null;
+
+  /**
+   * Filter of RSS items which have already been seen, or {@code null} if
+   * all RSS items are parsed.
+   */
+  RSSSeenFilter seenFilter = null;
+
+  /**
+   * Maximum number of concurrent HTTP connections to the same host, or zero
+   * if the number of connections is unlimited.
+   */
+  int maxConnectionsPerHost = 0;
+
+  /**
+   * HTTP connect timeout in milliseconds, zero if infinite.
+   */
+  int connectTimeoutMillis = 15000;
+
+  /**
+   * HTTP read timeout in milliseconds, zero if infinite.
+   */
+  int readTimeoutMillis = 30000;
+
+  /**
+   * Timeout in milliseconds for an entire HTTP request including retries and
+   * reading the response body, zero if infinite.
+   */
+  long totalTimeoutMillis = 0;
+
+  /**
+   * Number of times a request is retried after a transient failure.
+   */
+  int maxRetries = 0;
+
+  /**
+   * Base delay in milliseconds of the exponential backoff between retries.
+   */
+  long backoffMillis = 500;
+
+  /**
+   * Number of consecutive failures after which requests to a host fail fast,
+   * zero if circuit breakers are disabled.
+   */
+  int circuitBreakerThreshold = 0;
+
+  /**
+   * Duration in milliseconds for which requests to a failed host fail fast.
+   */
+  long circuitBreakerMillis = 30000;
+
+  /**
+   * Number of threads which load RSS feeds in an {@link RSSLoader}.
+   */
+  int loaderThreads = 1;
+
+  /**
+   * Number of threads which parse downloaded RSS feeds in an
+   * {@link RSSLoader}.
+   */
+  int parserThreads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Maximum number of downloaded RSS feeds which wait to be parsed in an
+   * {@link RSSLoader}.
+   */
+  int parseQueueCapacity = 16;
+
+  /**
+   * Maximum number of bytes of an RSS feed downloaded by an
+   * {@link RSSLoader}, zero if unlimited.
+   */
+  int maxBodyBytes = 16 * 1024 * 1024;
+
+  /**
+   * Maximum number of RSS feeds loaded concurrently from the same host by an
+   * {@link RSSLoader}, zero if unlimited.
+   */
+  int maxLoadsPerHost = 0;
+
+  /**
+   * Sustained rate of RSS feed loads per second and host in an
+   * {@link RSSLoader}, zero if unlimited.
+   */
+  double loadsPerSecondPerHost = 0;
+
+  /**
+   * Number of RSS feed loads from the same host which an {@link RSSLoader}
+   * may start in a burst.
+   */
+  int loadBurstPerHost = 1;
+
   /**
    * Instantiate an RSS configuration with the specified parameters.
    *
@@ -71,5 +207,302 @@ public final class RSSConfig {
     this.dateParsers = Collections.unmodifiableList(Collections.<DateParser>singletonList(new Rfc822DateParser()));
   }
 
+  /**
+   * Returns a copy of this configuration with the specified average number of
+   * RSS &lt;item&gt; elements in a typical RSS feed. {@link RSSParser} learns
+   * the number of items of an RSS feed when it is parsed, so this value only
+   * matters for RSS feeds which are parsed for the first time.
+   *
+   * @param itemAvg initial capacity of the RSS item list
+   */
+  public RSSConfig withItemCapacity(int itemAvg) {
+    if (itemAvg < 0) {
+      throw new IllegalArgumentException("Item capacity must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.itemAvg = itemAvg;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which computes a 64-bit fingerprint
+   * of every RSS item's title, description and content while the text is
+   * being parsed. By default, fingerprints are not computed.
+   *
+   * @see RSSItem#getFingerprint()
+   */
+  public RSSConfig withFingerprints(boolean enabled) {
+    final RSSConfig config = copy();
+    config.fingerprints = enabled;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which computes a 64-bit SimHash
+   * signature of every RSS item's title and description while it is being
+   * parsed. By default, signatures are not computed.
+   *
+   * @see RSSItem#getSimHash()
+   */
+  public RSSConfig withSimHashes(boolean enabled) {
+    final RSSConfig config = copy();
+    config.simHashes = enabled;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which shares a bounded cache of
+   * parsed link, thumbnail and enclosure URIs across all RSS feeds parsed
+   * with it. URIs which repeat across refreshes are then parsed only once.
+   * By default, no URIs are cached.
+   *
+   * @param capacity maximum number of cached URIs, zero to disable the cache
+   */
+  public RSSConfig withUriCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("URI cache capacity must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.uriCache = capacity == 0 ? null : new UriCache(capacity);
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which stores the string of every
+   * link, thumbnail and enclosure URL and parses it only when
+   * {@code getLink()} or {@code getUrl()} is first called. This saves the
+   * parsing cost of URIs which are never accessed. By default, URIs are
+   * parsed eagerly.
+   */
+  public RSSConfig withDeferredUris(boolean enabled) {
+    final RSSConfig config = copy();
+    config.deferUris = enabled;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which stores descriptions and
+   * &lt;content:encoded&gt; bodies of at least the specified number of
+   * characters as deflated UTF-8 bytes. HTML bodies typically shrink several
+   * times, at the cost of inflating them in {@code getDescription()} and
+   * {@code getContent()}. Bodies which do not compress are kept as strings.
+   * By default, no texts are compressed.
+   *
+   * @param threshold minimum number of characters to compress a text, zero
+   *          to disable compression
+   * @param hotCacheSize number of recently inflated texts which are cached,
+   *          zero to disable the cache
+   */
+  public RSSConfig withCompressedText(int threshold, int hotCacheSize) {
+    if (threshold < 0 || hotCacheSize < 0) {
+      throw new IllegalArgumentException("Compression settings must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.compressThreshold = threshold;
+    config.textCache = threshold == 0 || hotCacheSize == 0 ? null : new CompressedText.Cache(
+        hotCacheSize);
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which skips RSS items which the
+   * specified filter reports as seen and records the RSS items of every
+   * completely parsed RSS feed in the filter. Parsed RSS feeds then only
+   * contain new RSS items. Once the
+   * &lt;guid&gt; of a seen RSS item has been parsed, its remaining elements
+   * are not materialized. By default, all RSS items are parsed.
+   *
+   * @param filter filter which is shared by all RSS feeds parsed with this
+   *          configuration, {@code null} to parse all RSS items
+   */
+  public RSSConfig withSeenFilter(RSSSeenFilter filter) {
+    final RSSConfig config = copy();
+    config.seenFilter = filter;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which limits the number of
+   * concurrent HTTP connections to the same host. Additional requests wait
+   * until a connection to the host is released.
+   *
+   * @param max maximum number of connections per host, zero if unlimited
+   */
+  public RSSConfig withMaxConnectionsPerHost(int max) {
+    if (max < 0) {
+      throw new IllegalArgumentException("Connection limit must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.maxConnectionsPerHost = max;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration with the specified HTTP timeouts.
+   * By default, connecting times out after 15 seconds and reading a response
+   * after 30 seconds of inactivity, but requests have no overall time limit.
+   *
+   * @param connectMillis connect timeout in milliseconds, zero if infinite
+   * @param readMillis timeout in milliseconds when waiting for data, zero if
+   *          infinite
+   * @param totalMillis timeout in milliseconds for the entire request
+   *          including retries and reading the response, zero if infinite
+   */
+  public RSSConfig withTimeouts(int connectMillis, int readMillis, long totalMillis) {
+    if (connectMillis < 0 || readMillis < 0 || totalMillis < 0) {
+      throw new IllegalArgumentException("Timeouts must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.connectTimeoutMillis = connectMillis;
+    config.readTimeoutMillis = readMillis;
+    config.totalTimeoutMillis = totalMillis;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which retries HTTP requests after
+   * transient failures such as IO errors or 5xx responses. The delay before
+   * the n-th retry is chosen uniformly at random between zero and
+   * {@code backoffMillis * 2^n} milliseconds. By default, requests are not
+   * retried.
+   *
+   * @param maxRetries maximum number of retries per request
+   * @param backoffMillis base delay of the exponential backoff
+   */
+  public RSSConfig withRetries(int maxRetries, long backoffMillis) {
+    if (maxRetries < 0 || backoffMillis < 0) {
+      throw new IllegalArgumentException("Retries must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.maxRetries = maxRetries;
+    config.backoffMillis = backoffMillis;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration with per-host circuit breakers.
+   * After {@code threshold} consecutive transient failures, requests to the
+   * host fail immediately for {@code openMillis} milliseconds. By default,
+   * circuit breakers are disabled.
+   *
+   * @param threshold number of consecutive failures, zero to disable
+   * @param openMillis duration in milliseconds for which requests fail fast
+   */
+  public RSSConfig withCircuitBreaker(int threshold, long openMillis) {
+    if (threshold < 0 || openMillis < 0) {
+      throw new IllegalArgumentException("Circuit breaker settings must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.circuitBreakerThreshold = threshold;
+    config.circuitBreakerMillis = openMillis;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration with the specified number of
+   * {@link RSSLoader} threads which download RSS feeds. Since these threads
+   * mostly wait for the network, they can outnumber the processors. By
+   * default, a loader uses a single thread.
+   *
+   * @param threads number of threads which load RSS feeds concurrently
+   */
+  public RSSConfig withLoaderThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Loader needs at least one thread.");
+    }
+
+    final RSSConfig config = copy();
+    config.loaderThreads = threads;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration with the specified parse stage of
+   * an {@link RSSLoader}. The loader threads only download RSS feeds and hand
+   * the raw bytes to the parser threads through a bounded queue, so that slow
+   * downloads do not hold up parsing and vice versa. Loader threads wait
+   * while the queue is full. Parsing is CPU-bound, so by default there is
+   * one parser thread per available processor, and up to 16 downloaded RSS
+   * feeds are queued. Idle parser threads block without using the CPU.
+   *
+   * @param threads number of threads which parse RSS feeds concurrently
+   * @param capacity maximum number of downloaded RSS feeds waiting to be
+   *          parsed
+   * @see #withLoaderThreads(int)
+   */
+  public RSSConfig withParserThreads(int threads, int capacity) {
+    if (threads < 1 || capacity < 1) {
+      throw new IllegalArgumentException("Parse stage needs at least one thread and slot.");
+    }
+
+    final RSSConfig config = copy();
+    config.parserThreads = threads;
+    config.parseQueueCapacity = capacity;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which limits the size of an RSS
+   * feed downloaded by an {@link RSSLoader}. Downloads are held in memory
+   * while they wait to be parsed, so a larger RSS feed fails with an
+   * {@link RSSFault} instead. By default, RSS feeds are limited to 16 MB.
+   *
+   * @param bytes maximum number of bytes of an RSS feed, zero if unlimited
+   * @see #withParserThreads(int, int)
+   */
+  public RSSConfig withMaxBodyBytes(int bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Maximum body size must not be negative.");
+    }
+
+    final RSSConfig config = copy();
+    config.maxBodyBytes = bytes;
+    return config;
+  }
+
+  /**
+   * Returns a copy of this configuration which limits how an
+   * {@link RSSLoader} loads RSS feeds from the same host. Loads from a host
+   * which has reached its limit are postponed while RSS feeds on other hosts
+   * are loaded. The rate is enforced with a token bucket per host. By
+   * default, hosts are unlimited.
+   *
+   * @param maxConcurrent maximum number of concurrent loads per host, zero
+   *          if unlimited
+   * @param perSecond sustained number of loads per second per host, zero if
+   *          unlimited
+   * @param burst number of loads per host which may start at once
+   */
+  public RSSConfig withHostLimits(int maxConcurrent, double perSecond, int burst) {
+    if (maxConcurrent < 0 || perSecond < 0 || burst < 1) {
+      throw new IllegalArgumentException("Invalid host limits.");
+    }
+
+    final RSSConfig config = copy();
+    config.maxLoadsPerHost = maxConcurrent;
+    config.loadsPerSecondPerHost = perSecond;
+    config.loadBurstPerHost = burst;
+    return config;
+  }
+
+  /**
+   * Non-final fields must only be assigned on the copy returned by this
+   * method before the copy is published.
+   */
+  private RSSConfig copy() {
+    try {
+      return (RSSConfig) super.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
 }
 
@@ -23,39 +23,88 @@ package org.mcsoxford.rss;
  */
 public class RSSFeed extends RSSBase {
 
-  private final java.util.List<RSSItem> items;
-	private java.util.Date lastBuildDate;
-	private Integer ttl;
+  /**
+   * Time to live value which represents an absent &lt;ttl&gt; element.
+   */
+  public static final int NO_TTL = -1;
 
-  RSSFeed() {
+  private final java.util.ArrayList<RSSItem> items;
+  private final java.util.List<RSSItem> view;
+	private long lastBuildDate = NO_DATE;
+	private int ttl = NO_TTL;
+
+  RSSFeed(int itemCapacity) {
     super(/* initial capacity for category names */ (byte) 3);
-    items = new java.util.LinkedList<RSSItem>();
+    items = new java.util.ArrayList<RSSItem>(itemCapacity);
+    view = java.util.Collections.unmodifiableList(items);
+  }
+
+  RSSFeed() {
+    this(/* initial capacity for RSS items */ 10);
   }
 
   /**
-   * Returns an unmodifiable list of RSS items.
+   * Returns an unmodifiable list of RSS items which supports fast random
+   * access.
    */
   public java.util.List<RSSItem> getItems() {
-    return java.util.Collections.unmodifiableList(items);
+    return view;
   }
 
   void addItem(RSSItem item) {
     items.add(item);
   }
 
+  void ensureItemCapacity(int capacity) {
+    items.ensureCapacity(capacity);
+  }
+
+  /**
+   * Releases unused capacity of the RSS item list.
+   */
+  void trimItems() {
+    items.trimToSize();
+  }
+
 	void setLastBuildDate(java.util.Date date) {
+		lastBuildDate = date == null ? NO_DATE : date.getTime();
+	}
+
+	void setLastBuildDateMillis(long date) {
 		lastBuildDate = date;
 	}
 
+	/**
+	 * Returns a new date object of the last build date, {@code null} if there
+	 * is none.
+	 */
 	public java.util.Date getLastBuildDate() {
+		return lastBuildDate == NO_DATE ? null : new java.util.Date(lastBuildDate);
+	}
+
+	/**
+	 * Returns the last build date in milliseconds since the epoch,
+	 * {@link #NO_DATE} if there is none.
+	 */
+	public long getLastBuildDateMillis() {
 		return lastBuildDate;
 	}
 
+	/**
+	 * Negative values are treated as absent.
+	 */
 	void setTTL(Integer value) {
-		ttl = value;
+		ttl = value == null || value < 0 ? NO_TTL : value;
 	}
 
 	public Integer getTTL() {
+		return ttl == NO_TTL ? null : Integer.valueOf(ttl);
+	}
+
+	/**
+	 * Returns the time to live in minutes, {@link #NO_TTL} if there is none.
+	 */
+	public int getTTLMinutes() {
 		return ttl;
 	}
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable difference between two versions of the same RSS feed, e.g. the
+ * previous and the latest load of an RSS feed URI. Items are matched by their
+ * identity, which is the item's GUID or, without a GUID, its link or title.
+ * Matched items are changed if any of their content differs.
+ * <p>
+ * A diff is computed in expected linear time with a hash table of the
+ * previous items, so that consumers can process only new and updated items
+ * instead of the entire RSS feed on every poll.
+ */
+public final class RSSFeedDiff {
+
+  private final List<RSSItem> added;
+  private final List<RSSItem> changed;
+  private final List<RSSItem> removed;
+
+  private RSSFeedDiff(List<RSSItem> added, List<RSSItem> changed, List<RSSItem> removed) {
+    this.added = Collections.unmodifiableList(added);
+    this.changed = Collections.unmodifiableList(changed);
+    this.removed = Collections.unmodifiableList(removed);
+  }
+
+  /**
+   * Compares the items of two versions of an RSS feed.
+   * 
+   * @param previous earlier version of the RSS feed, {@code null} if the
+   *          RSS feed is new
+   * @param current latest version of the RSS feed
+   */
+  public static RSSFeedDiff diff(RSSFeed previous, RSSFeed current) {
+    final List<RSSItem> before = previous == null ? Collections.<RSSItem> emptyList()
+        : previous.getItems();
+    final List<RSSItem> after = current.getItems();
+
+    final Map<String, RSSItem> unmatched = new HashMap<String, RSSItem>(
+        (int) (before.size() / 0.75f) + 1);
+    for (int i = 0; i < before.size(); i++) {
+      final RSSItem item = before.get(i);
+      final String identity = identity(item);
+      if (!unmatched.containsKey(identity)) {
+        unmatched.put(identity, item);
+      }
+    }
+
+    final List<RSSItem> added = new ArrayList<RSSItem>();
+    final List<RSSItem> changed = new ArrayList<RSSItem>();
+    for (int i = 0; i < after.size(); i++) {
+      final RSSItem item = after.get(i);
+      final RSSItem old = unmatched.remove(identity(item));
+      if (old == null) {
+        added.add(item);
+      } else if (contentHash(old) != contentHash(item)) {
+        changed.add(item);
+      }
+    }
+
+    // preserve the order of the previous RSS feed
+    final List<RSSItem> removed = new ArrayList<RSSItem>(unmatched.size());
+    for (int i = 0; i < before.size() && removed.size() < unmatched.size(); i++) {
+      final RSSItem item = before.get(i);
+      if (unmatched.get(identity(item)) == item) {
+        removed.add(item);
+      }
+    }
+
+    return new RSSFeedDiff(added, changed, removed);
+  }
+
+  /**
+   * Returns the items of the latest version which the previous version did
+   * not contain.
+   */
+  public List<RSSItem> getAdded() {
+    return added;
+  }
+
+  /**
+   * Returns the latest version of the items whose content has changed.
+   */
+  public List<RSSItem> getChanged() {
+    return changed;
+  }
+
+  /**
+   * Returns the items of the previous version which the latest version no
+   * longer contains.
+   */
+  public List<RSSItem> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Returns {@code true} if no items have been added, changed or removed.
+   */
+  public boolean isEmpty() {
+    return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+  }
+
+  /**
+   * Returns the key which identifies the same item across versions of an
+   * RSS feed.
+   */
+  static String identity(RSSItem item) {
+    if (item.getGuid() != null) {
+      return "G" + item.getGuid();
+    } else if (item.getLinkString() != null) {
+      return "L" + item.getLinkString();
+    }
+
+    return "T" + item.getTitle();
+  }
+
+  /**
+   * Returns a hash of all the content of the item.
+   */
+  static long contentHash(RSSItem item) {
+    long hash = Fingerprints.OFFSET_BASIS;
+    hash = Fingerprints.update(hash, item.getTitle());
+    hash = Fingerprints.update(hash, item.getDescription());
+    hash = Fingerprints.update(hash, item.getContent());
+    hash = Fingerprints.update(hash, item.getPubDateMillis());
+
+    final List<String> categories = item.getCategories();
+    for (int i = 0; i < categories.size(); i++) {
+      hash = Fingerprints.update(hash, categories.get(i));
+    }
+
+    final List<MediaThumbnail> thumbnails = item.getThumbnails();
+    for (int i = 0; i < thumbnails.size(); i++) {
+      final MediaThumbnail thumbnail = thumbnails.get(i);
+      hash = Fingerprints.update(hash, thumbnail.getUrlString());
+      hash = Fingerprints.update(hash, ((long) thumbnail.getHeight() << 32)
+          | (thumbnail.getWidth() & 0xffffffffL));
+    }
+
+    final MediaEnclosure enclosure = item.getEnclosure();
+    if (enclosure != null) {
+      hash = Fingerprints.update(hash, enclosure.getUrlString());
+      hash = Fingerprints.update(hash, enclosure.getLength());
+      hash = Fingerprints.update(hash, enclosure.getMimeType());
+    }
+
+    return hash;
+  }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * Thread-safe RSS fetcher service provider interface. Implementations retrieve
+ * the raw bytes of an RSS feed which are then handed to an
+ * {@link RSSParserSPI}.
+ */
+public interface RSSFetcherSPI {
+
+  /**
+   * Opens a stream to read the RSS feed with the specified URI. It is the
+   * responsibility of the caller to close the returned stream, which releases
+   * all resources associated with the request.
+   * 
+   * @param uri RSS 2.0 feed URI
+   * @return stream of the (decoded) RSS feed document
+   * @throws RSSReaderException if the RSS feed could not be retrieved because
+   *           of a protocol error such as an HTTP error status
+   * @throws RSSFault if an unrecoverable IO error has occurred
+   */
+  java.io.InputStream fetch(String uri) throws RSSReaderException;
+
+}
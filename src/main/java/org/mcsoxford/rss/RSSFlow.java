@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * Interfaces for publishing RSS items and RSS feeds to subscribers with
+ * backpressure. They have the same methods and contract as
+ * {@code java.util.concurrent.Flow} in Java 9 and Reactive Streams, which
+ * this library cannot depend on, so adapting them takes one delegating
+ * method per interface.
+ * <p>
+ * A publisher emits at most as many elements as a subscriber has requested.
+ * While the subscriber has no outstanding demand, the producing thread
+ * blocks, e.g. it stops reading the HTTP response of an RSS feed, so that no
+ * unbounded buffer builds up between the publisher and a slow subscriber.
+ * 
+ * @see RSSReader#publish(String, java.util.concurrent.Executor)
+ * @see RSSLoader#publish()
+ */
+public final class RSSFlow {
+
+  /* Hide constructor */
+  private RSSFlow() {}
+
+  /**
+   * Producer of elements which are received by subscribers.
+   */
+  public static interface Publisher<T> {
+
+    /**
+     * Adds the subscriber, which receives {@link Subscriber#onSubscribe}
+     * first and then elements on demand until it receives
+     * {@link Subscriber#onComplete()} or {@link Subscriber#onError}.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+
+  }
+
+  /**
+   * Receiver of elements. The methods are never called concurrently.
+   */
+  public static interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+
+  }
+
+  /**
+   * Link between a publisher and a subscriber.
+   */
+  public static interface Subscription {
+
+    /**
+     * Adds {@code n} elements to the demand of the subscriber.
+     * Non-positive values cancel the subscription with an
+     * {@link IllegalArgumentException}.
+     */
+    void request(long n);
+
+    /**
+     * Stops sending elements, possibly after some delay.
+     */
+    void cancel();
+
+  }
+
+  /**
+   * Signals the producer that its subscription has been cancelled.
+   */
+  static final class Cancelled extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    Cancelled() {
+      super("Subscription has been cancelled");
+    }
+
+  }
+
+  /**
+   * Subscription which runs a producer on one thread and blocks it while the
+   * subscriber has no outstanding demand.
+   */
+  abstract static class Emitter<T> implements Subscription, Runnable {
+
+    private final Subscriber<? super T> subscriber;
+
+    /* Guarded by this */
+    private long demand;
+    private boolean cancelled;
+    private Throwable failure;
+
+    Emitter(Subscriber<? super T> subscriber) {
+      if (subscriber == null) {
+        throw new NullPointerException("Subscriber must not be null.");
+      }
+
+      this.subscriber = subscriber;
+    }
+
+    /**
+     * Produces the elements with {@link #emit(Object)}.
+     */
+    abstract void produce() throws Exception;
+
+    @Override
+    public synchronized void request(long n) {
+      if (n <= 0) {
+        failure = new IllegalArgumentException("Requested " + n + " elements");
+        cancelled = true;
+      } else {
+        // saturate at effectively unbounded demand
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      notifyAll();
+    }
+
+    @Override
+    public synchronized void cancel() {
+      cancelled = true;
+      notifyAll();
+    }
+
+    synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Blocks until the subscriber has outstanding demand.
+     * 
+     * @throws Cancelled if the subscription has been cancelled
+     */
+    final synchronized void awaitDemand() {
+      try {
+        while (demand == 0 && !cancelled) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled = true;
+      }
+
+      if (cancelled) {
+        throw new Cancelled();
+      }
+    }
+
+    /**
+     * Sends the element to the subscriber once it has demand.
+     * 
+     * @throws Cancelled if the subscription has been cancelled
+     */
+    final void emit(T item) {
+      synchronized (this) {
+        awaitDemand();
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+      }
+
+      subscriber.onNext(item);
+    }
+
+    /**
+     * Runs the producer and sends the terminal signal.
+     */
+    @Override
+    public final void run() {
+      Exception error = null;
+      try {
+        produce();
+      } catch (Exception e) {
+        // includes the cancellation signal, which the parser may have wrapped
+        error = e;
+      }
+
+      final boolean wasCancelled;
+      final Throwable invalid;
+      synchronized (this) {
+        wasCancelled = cancelled;
+        invalid = failure;
+        cancelled = true;
+      }
+
+      if (wasCancelled) {
+        // no further signals unless the subscriber has violated the contract
+        if (invalid != null) {
+          subscriber.onError(invalid);
+        }
+      } else if (error != null) {
+        subscriber.onError(error);
+      } else {
+        subscriber.onComplete();
+      }
+    }
+
+    /**
+     * Sends the error instead of running the producer, e.g. if it cannot be
+     * scheduled.
+     */
+    final void fail(Throwable error) {
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        cancelled = true;
+      }
+
+      subscriber.onError(error);
+    }
+
+  }
+
+}
@@ -40,7 +40,7 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
    * Reference is never {@code null}. Visibility must be package-private to
    * ensure efficiency of inner classes.
    */
-  final RSSFeed feed = new RSSFeed();
+  final RSSFeed feed;
 
   /**
    * Reference is {@code null} unless started to parse &lt;item&gt; element.
@@ -101,10 +101,44 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
         feed.setTitle(title);
       } else {
         item.setTitle(title);
+        if (votes != null) {
+          SimHash.add(votes, title, SimHash.TITLE_WEIGHT);
+        }
       }
     }
   };
 
+  /**
+   * Setter for RSS &lt;guid&gt; elements inside an &lt;item&gt; element. The
+   * {@code isPermaLink} attribute is set when the element starts and the
+   * GUID when it ends.
+   */
+  private final class GuidSetter implements ContentSetter, AttributeSetter {
+
+    private static final String IS_PERMA_LINK = "isPermaLink";
+
+    @Override
+    public void set(org.xml.sax.Attributes attributes) {
+      if (item != null && attributes != null) {
+        final String permaLink = MediaAttributes.stringValue(attributes, IS_PERMA_LINK);
+        item.setPermaLink(!"false".equalsIgnoreCase(permaLink));
+      }
+    }
+
+    @Override
+    public void set(String guid) {
+      if (item != null) {
+        item.setGuid(guid.trim());
+        if (config.seenFilter != null && config.seenFilter.mightContain(item)) {
+          seen = true;
+        }
+      }
+    }
+
+  }
+
+  private final Setter SET_GUID = new GuidSetter();
+
   /**
    * Setter for RSS &lt;description&gt; elements inside a &lt;channel&gt; or an
    * &lt;item&gt; element. The title of the RSS feed is set only if
@@ -114,10 +148,16 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
   private final Setter SET_DESCRIPTION = new ContentSetter() {
     @Override
     public void set(String description) {
-      if (item == null) {
-        feed.setDescription(description);
+      final RSSBase base = item == null ? feed : item;
+      if (item != null && votes != null) {
+        SimHash.add(votes, description, SimHash.DESCRIPTION_WEIGHT);
+      }
+
+      final CompressedText compressed = compress(description);
+      if (compressed == null) {
+        base.setDescription(description);
       } else {
-        item.setDescription(description);
+        base.setDescription(compressed);
       }
     }
   };
@@ -130,7 +170,12 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
     @Override
     public void set(String content) {
       if (item != null) {
-        item.setContent(content);
+        final CompressedText compressed = compress(content);
+        if (compressed == null) {
+          item.setContent(content);
+        } else {
+          item.setContent(compressed);
+        }
       }
     }
   };
@@ -144,11 +189,11 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
   private final Setter SET_LINK = new ContentSetter() {
     @Override
     public void set(String link) {
-      final android.net.Uri uri = android.net.Uri.parse(link);
-      if (item == null) {
-        feed.setLink(uri);
+      final RSSBase base = item == null ? feed : item;
+      if (config.deferUris) {
+        base.setLink(link);
       } else {
-        item.setLink(uri);
+        base.setLink(UriCache.parse(config.uriCache, link));
       }
     }
   };
@@ -248,7 +293,12 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
         return;
       }
 
-      item.addThumbnail(new MediaThumbnail(android.net.Uri.parse(url), height, width));
+      if (config.deferUris) {
+        item.addThumbnail(new MediaThumbnail(url, height, width));
+      } else {
+        item.addThumbnail(new MediaThumbnail(UriCache.parse(config.uriCache, url), height,
+            width));
+      }
     }
 
   };
@@ -279,8 +329,13 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
 				return;
 			}
 
-			MediaEnclosure enclosure = new MediaEnclosure(
-					android.net.Uri.parse(url), length, mimeType);
+			final MediaEnclosure enclosure;
+			if (config.deferUris) {
+				enclosure = new MediaEnclosure(url, length, mimeType);
+			} else {
+				enclosure = new MediaEnclosure(
+						UriCache.parse(config.uriCache, url), length, mimeType);
+			}
 			item.setEnclosure(enclosure);
 		}
 	};
@@ -300,13 +355,78 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
    */
   private final RSSConfig config;
 
+  /**
+   * Compressor of large descriptions and contents, {@code null} unless
+   * enabled by the configuration.
+   */
+  private final CompressedText.Compressor compressor;
+
+  /**
+   * Initial capacity of the RSS item list.
+   */
+  private final int itemCapacity;
+
+  /**
+   * Whether the current item has already been seen, in which case its
+   * remaining elements are ignored. Visibility must be package-private to
+   * ensure efficiency of inner classes.
+   */
+  boolean seen;
+
+  /**
+   * Seen filter keys of the new items of this document, {@code null} unless
+   * a seen filter is configured. They are recorded in the seen filter only
+   * once the document has been parsed completely, so that the items of a
+   * malformed document are not lost when it is loaded again.
+   */
+  private final java.util.Set<Long> seenKeys;
+
+  /**
+   * SimHash votes of the current item's title and description, {@code null}
+   * unless signatures are enabled. Visibility must be package-private to
+   * ensure efficiency of inner classes.
+   */
+  final int[] votes;
+
+  /**
+   * Hash of the characters of the current text element, and hashes of the
+   * current item's title, description and content elements. Only maintained
+   * if fingerprints are enabled.
+   */
+  private long textHash;
+  private long titleHash;
+  private long descriptionHash;
+  private long contentHash;
+
+  /**
+   * Field hash of an absent element.
+   */
+  private static final long ABSENT_HASH = Fingerprints.update(Fingerprints.OFFSET_BASIS,
+      (CharSequence) null);
+
   /**
    * Instantiate a SAX handler which can parse a subset of RSS 2.0 feeds.
    * 
    * @param config configuration for the initial capacities of collections
    */
   RSSHandler(RSSConfig config) {
+    this(config, config.itemAvg);
+  }
+
+  /**
+   * Instantiate a SAX handler which expects the specified number of RSS items.
+   * 
+   * @param config configuration for the initial capacities of collections
+   * @param itemCapacity initial capacity of the RSS item list
+   */
+  RSSHandler(RSSConfig config, int itemCapacity) {
     this.config = config;
+    this.itemCapacity = itemCapacity;
+    this.feed = new RSSFeed(itemCapacity);
+    this.votes = config.simHashes ? new int[SimHash.BITS] : null;
+    this.seenKeys = config.seenFilter == null ? null : new java.util.HashSet<Long>();
+    this.compressor = config.compressThreshold == 0 ? null : new CompressedText.Compressor(
+        config);
 
     // initialize dispatchers to manage the state of the SAX handler
     setters = new java.util.HashMap<String, Setter>(/* 2^3 */16);
@@ -320,6 +440,7 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
     setters.put("lastBuildDate", SET_LAST_BUILE_DATE);
     setters.put("ttl", SET_TTL);
     setters.put("enclosure", SET_ENCLOSURE);
+    setters.put("guid", SET_GUID);
   }
 
   /**
@@ -329,6 +450,45 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
     return feed;
   }
 
+  /**
+   * Returns the compressed text, {@code null} if the text is not stored
+   * compressed. Visibility must be package-private to ensure efficiency of
+   * inner classes.
+   */
+  CompressedText compress(String text) {
+    return compressor == null ? null : compressor.compress(text);
+  }
+
+  /**
+   * Releases the unused capacity of the RSS item list if fewer RSS items
+   * have been parsed than expected, and records the new RSS items in the
+   * seen filter.
+   */
+  @Override
+  public void endDocument() {
+    if (feed.getItems().size() < itemCapacity) {
+      feed.trimItems();
+    }
+    if (seenKeys != null) {
+      for (Long key : seenKeys) {
+        config.seenFilter.add(key);
+      }
+      seenKeys.clear();
+    }
+  }
+
+  /**
+   * Releases the native memory of the compressor. SAX does not call
+   * {@link #endDocument()} if the document is malformed, so the owner of the
+   * handler must call this method once parsing has stopped for any reason.
+   * Calling it more than once has no effect.
+   */
+  void release() {
+    if (compressor != null) {
+      compressor.end();
+    }
+  }
+
   /**
    * Identify the appropriate dispatcher which should be used to store XML data
    * in a POJO. Unsupported RSS 2.0 elements are currently ignored.
@@ -341,12 +501,27 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
     if (setter == null) {
       if (RSS_ITEM.equals(qname)) {
         item = new RSSItem(config.categoryAvg, config.thumbnailAvg);
+        titleHash = descriptionHash = contentHash = ABSENT_HASH;
+        seen = false;
+        if (votes != null) {
+          java.util.Arrays.fill(votes, 0);
+        }
       }
-    } else if (setter instanceof AttributeSetter) {
+      return;
+    } else if (seen && item != null) {
+      // don't materialize the rest of an item which has already been seen
+      setter = null;
+      return;
+    }
+
+    if (setter instanceof AttributeSetter) {
       ((AttributeSetter) setter).set(attributes);
-    } else {
+    }
+
+    if (setter instanceof ContentSetter) {
       // Buffer supported RSS content data
       buffer = new StringBuilder();
+      textHash = Fingerprints.OFFSET_BASIS;
     }
   }
 
@@ -356,20 +531,61 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
       // set field of an RSS feed or RSS item
       ((ContentSetter) setter).set(buffer.toString());
 
+      if (config.fingerprints && item != null) {
+        if (setter == SET_TITLE) {
+          titleHash = Fingerprints.end(textHash);
+        } else if (setter == SET_DESCRIPTION) {
+          descriptionHash = Fingerprints.end(textHash);
+        } else if (setter == SET_CONTENT) {
+          contentHash = Fingerprints.end(textHash);
+        }
+      }
+
       // clear buffer
       buffer = null;
     } else if (RSS_ITEM.equals(qname)) {
-      feed.addItem(item);
+      if (config.seenFilter == null) {
+        addItem();
+      } else if (!seen) {
+        // the identity is only known at the end if the item has no GUID
+        final long key = RSSSeenFilter.key(item);
+        if (!config.seenFilter.mightContain(key) && seenKeys.add(key)) {
+          addItem();
+        }
+      }
 
       // (re)enter <channel> scope
       item = null;
     }
   }
 
+  private void addItem() {
+    if (config.fingerprints) {
+      item.setFingerprint(Fingerprints.combine(titleHash, descriptionHash, contentHash));
+    }
+    if (votes != null) {
+      item.setSimHash(SimHash.signature(votes));
+    }
+    emit(item);
+  }
+
+  /**
+   * Adds a completely parsed RSS item to the RSS feed. Subclasses may pass it
+   * on instead so that RSS items are not accumulated.
+   */
+  void emit(RSSItem item) {
+    feed.addItem(item);
+  }
+
   @Override
   public void characters(char ch[], int start, int length) {
     if (isBuffering()) {
       buffer.append(ch, start, length);
+
+      if (config.fingerprints) {
+        // hash while the characters are hot in the cache
+        textHash = Fingerprints.update(textHash, ch, start, length);
+      }
     }
   }
 
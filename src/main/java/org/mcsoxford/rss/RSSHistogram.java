@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Immutable snapshot of a histogram of non-negative values, e.g. latencies
+ * in nanoseconds or sizes in bytes. As in an HDR histogram, values are
+ * counted in logarithmic buckets which are each split into 32 linear
+ * sub-buckets, so that every percentile is accurate to within about 3% of
+ * its value at any magnitude while the histogram has a fixed size.
+ * 
+ * @see RSSMetrics
+ */
+public final class RSSHistogram {
+
+  /**
+   * Number of bits of precision below the highest set bit of a value.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets which cover all non-negative long values.
+   */
+  static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final long[] counts;
+  private final long count;
+  private final long total;
+  private final long min;
+  private final long max;
+
+  private RSSHistogram(long[] counts, long total, long min, long max) {
+    long count = 0;
+    for (int i = 0; i < counts.length; i++) {
+      count += counts[i];
+    }
+
+    this.counts = counts;
+    this.count = count;
+    this.total = total;
+    this.min = count == 0 ? 0 : min;
+    this.max = count == 0 ? 0 : max;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the sum of all recorded values.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the smallest recorded value, zero if the histogram is empty.
+   */
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * Returns the largest recorded value, zero if the histogram is empty.
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the mean of all recorded values, zero if the histogram is empty.
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  /**
+   * Returns the value below or at which the specified percentage of the
+   * recorded values lie, e.g. {@code getPercentile(99)} is the 99th
+   * percentile. The value is the upper end of its bucket but never larger
+   * than {@link #getMax()}.
+   * 
+   * @param percentile between 0 and 100
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+    } else if (count == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.max(min, Math.min(max, highest(i)));
+      }
+    }
+
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count + " min=" + min + " p50=" + getPercentile(50) + " p90="
+        + getPercentile(90) + " p99=" + getPercentile(99) + " max=" + max;
+  }
+
+  /**
+   * Returns the bucket which counts the specified value.
+   */
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    final int highest = 63 - Long.numberOfLeadingZeros(value);
+    final int shift = highest - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Returns the largest value which is counted in the specified bucket.
+   */
+  static long highest(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    final int shift = index / SUB_BUCKETS - 1;
+    final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + ((1L << shift) - 1);
+  }
+
+  /**
+   * Thread-safe recorder of values which can be read as snapshots. Recording
+   * is lock-free and does not allocate.
+   */
+  static final class Recorder {
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records the value; negative values, e.g. from a clock which is not
+     * monotonic, are recorded as zero.
+     */
+    void record(long value) {
+      final long v = Math.max(0, value);
+      counts.incrementAndGet(index(v));
+      total.addAndGet(v);
+
+      long current;
+      while (v < (current = min.get()) && !min.compareAndSet(current, v)) {
+        // retry
+      }
+      while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+        // retry
+      }
+    }
+
+    /**
+     * Returns a snapshot of the recorded values. Values which are recorded
+     * concurrently may be partially reflected in the snapshot.
+     */
+    RSSHistogram snapshot() {
+      final long[] copy = new long[BUCKETS];
+      for (int i = 0; i < copy.length; i++) {
+        copy[i] = counts.get(i);
+      }
+
+      return new RSSHistogram(copy, total.get(), min.get(), max.get());
+    }
+
+  }
+
+}
@@ -24,7 +24,12 @@ package org.mcsoxford.rss;
 public class RSSItem extends RSSBase {
   private final java.util.List<MediaThumbnail> thumbnails;
   private String content;
+  private CompressedText compressedContent;
 	private MediaEnclosure enclosure;
+  private String guid;
+  private boolean permaLink = true;
+  private long fingerprint;
+  private long simHash;
 
   /* Internal constructor for RSSHandler */
   RSSItem(byte categoryCapacity, byte thumbnailCapacity) {
@@ -46,16 +51,37 @@ public class RSSItem extends RSSBase {
   }
   
   /**
-   * Returns the value of the optional &lt;content:encoded&gt; tag
+   * Returns the value of the optional &lt;content:encoded&gt; tag. If the
+   * content is stored compressed, it is inflated on every call unless it is
+   * found in the hot cache.
    * @return string value of the element data
+   * @see RSSConfig#withCompressedText(int, int)
    */
   public String getContent() {
+    if (compressedContent != null) {
+      return compressedContent.toString();
+    }
+
     return content;
   }
 
+  /**
+   * Returns the compressed content, {@code null} if the content is not
+   * stored compressed.
+   */
+  CompressedText getCompressedContent() {
+    return compressedContent;
+  }
+
   /* Internal method for RSSHandler */
   void setContent(String content) {
     this.content = content;
+    this.compressedContent = null;
+  }
+
+  void setContent(CompressedText content) {
+    this.content = null;
+    this.compressedContent = content;
   }
 
 	public MediaEnclosure getEnclosure() {
@@ -66,4 +92,60 @@ public class RSSItem extends RSSBase {
 		this.enclosure = enclosure;
 	}
 
+  /**
+   * Returns the value of the optional &lt;guid&gt; element which uniquely
+   * identifies this item, {@code null} if it is absent.
+   */
+  public String getGuid() {
+    return guid;
+  }
+
+  void setGuid(String guid) {
+    this.guid = guid;
+  }
+
+  /**
+   * Returns {@code true} unless the &lt;guid&gt; element's
+   * {@code isPermaLink} attribute is {@code false}. If {@code true}, the
+   * GUID is a URL which points to the full item.
+   */
+  public boolean isPermaLink() {
+    return permaLink;
+  }
+
+  void setPermaLink(boolean permaLink) {
+    this.permaLink = permaLink;
+  }
+
+  /**
+   * Returns a 64-bit fingerprint of the title, description and content of
+   * this item, which serves as a cheap key for deduplication and change
+   * detection. The fingerprint is computed while parsing if it is enabled
+   * with {@link RSSConfig#withFingerprints(boolean)}, otherwise it is zero.
+   */
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  void setFingerprint(long fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Returns the 64-bit SimHash signature of the title and description of
+   * this item. Items whose signatures differ in few bits are near-duplicates,
+   * e.g. the same story syndicated with a slightly different title. The
+   * signature is computed while parsing if it is enabled with
+   * {@link RSSConfig#withSimHashes(boolean)}, otherwise it is zero.
+   *
+   * @see RSSNearDuplicates
+   */
+  public long getSimHash() {
+    return simHash;
+  }
+
+  void setSimHash(long simHash) {
+    this.simHash = simHash;
+  }
+
 }
@@ -15,7 +15,16 @@
  */
 package org.mcsoxford.rss;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -33,6 +42,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <li>{@link #fifo(int)}</li>
  * <li>{@link #priority()}</li>
  * <li>{@link #priority(int)}</li>
+ * <li>{@link #fifo(RSSReader)}</li>
+ * <li>{@link #priority(RSSReader)}</li>
+ * <li>{@link #fifo(RSSReader, RSSConfig)}</li>
+ * <li>{@link #priority(RSSReader, RSSConfig)}</li>
  * </ul>
  * 
  * Completed RSS feed loads can be retrieved with {@link RSSLoader#take()},
@@ -65,6 +78,17 @@ import java.util.concurrent.atomic.AtomicInteger;
  * </pre>
  *
  * </p>
+ * <p>
+ * Loading is pipelined: loader threads download RSS feeds and hand the raw
+ * bytes through a bounded queue to parser threads, one per available
+ * processor unless {@link RSSConfig#withParserThreads(int, int)} specifies
+ * otherwise. Slow downloads therefore do not hold up parsing, and parsing
+ * does not hold up downloads until the queue is full. Downloads larger than
+ * {@link RSSConfig#withMaxBodyBytes(int)} fail. The number of requests in every stage can be monitored with
+ * {@link #getDownloadQueueSize()}, {@link #getParseQueueSize()} and
+ * {@link #getLoadedQueueSize()}, and where the time of a load is spent with
+ * {@link #getMetrics()}.
+ * </p>
  * 
  * @author A. Horn
  */
@@ -75,11 +99,32 @@ public class RSSLoader {
    */
   private final static String DEFAULT_THREAD_NAME = "Asynchronous RSS feed loader";
 
+  /**
+   * Human-readable name of the threads parsing downloaded RSS feeds
+   */
+  private final static String PARSER_THREAD_NAME = "RSS feed parser";
+
+  /**
+   * Human-readable name of the threads publishing loaded RSS feeds
+   */
+  private final static String PUBLISHER_THREAD_NAME = "RSS feed publisher";
+
+  /**
+   * Maximum time in nanoseconds that a thread waits for new load requests
+   * while postponed loads are pending.
+   */
+  private final static long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
   /**
    * Arrange incoming load requests on this queue.
    */
   private final BlockingQueue<RSSFuture> in;
 
+  /**
+   * Downloaded RSS feeds wait on this bounded queue for a parser thread.
+   */
+  private final BlockingQueue<Download> parsing;
+
   /**
    * Once the an RSS feed has completed loading, place the result on this queue.
    */
@@ -90,13 +135,78 @@ public class RSSLoader {
    */
   private boolean stopped;
 
+  /**
+   * FIFO queues of the load requests which are postponed because their host
+   * has reached its limits, keyed by host. Guarded by itself, like the
+   * queues of hosts below and the number of postponed requests.
+   */
+  private final Map<String, Host> postponed = new HashMap<String, Host>();
+
+  /**
+   * Hosts with postponed requests which may be within their limits again.
+   */
+  private final Queue<Host> ready = new ArrayDeque<Host>();
+
+  /**
+   * Rate-limited hosts with postponed requests, by the time at which their
+   * next request may start.
+   */
+  private final Queue<Host> waiting = new PriorityQueue<Host>();
+
+  private int postponedCount;
+
+  /**
+   * Set once a thread has dequeued the sentinel; then only postponed load
+   * requests are completed.
+   */
+  private volatile boolean draining;
+
+  /**
+   * Concurrency and rate limits per host.
+   */
+  private final HostScheduler scheduler;
+
+  /**
+   * Reader whose metrics include the loads of this loader.
+   */
+  private final RSSReader reader;
+
+  /**
+   * Maximum number of bytes of a downloaded RSS feed, zero if unlimited.
+   */
+  private final int maxBodyBytes;
+
+  /**
+   * Number of threads downloading RSS feeds which have not exited yet. The
+   * last one to exit stops the parser threads.
+   */
+  private final AtomicInteger downloading;
+
+  /**
+   * Number of threads parsing RSS feeds.
+   */
+  private final int parserThreads;
+
+  /**
+   * Publisher threads which wait for a loaded RSS feed. They are
+   * interrupted once all loader and parser threads have exited. Guarded by
+   * itself.
+   */
+  private final Set<Thread> publishers = new HashSet<Thread>();
+
+  /**
+   * Number of threads downloading or parsing RSS feeds which have not exited
+   * yet.
+   */
+  private final CountDownLatch running;
+
   /**
    * Create an object which can load RSS feeds asynchronously in FIFO order.
    * 
    * @see #fifo(int)
    */
   public static RSSLoader fifo() {
-    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>());
+    return fifo(new RSSReader());
   }
 
   /**
@@ -106,7 +216,32 @@ public class RSSLoader {
    *          expected number of URIs to be loaded at a given time
    */
   public static RSSLoader fifo(int capacity) {
-    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity));
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity), new RSSReader(), new RSSConfig());
+  }
+
+  /**
+   * Create an object which loads RSS feeds asynchronously in FIFO order with
+   * the specified reader. For example, a reader with a {@link FileFetcher} or
+   * {@link MemoryFetcher} replays RSS feeds without any network access.
+   * 
+   * @param reader thread-safe reader which retrieves and parses RSS feeds
+   */
+  public static RSSLoader fifo(RSSReader reader) {
+    return fifo(reader, new RSSConfig());
+  }
+
+  /**
+   * Create an object which loads RSS feeds asynchronously in FIFO order with
+   * the specified reader. The number of threads and the limits per host are
+   * taken from the configuration.
+   * 
+   * @param reader thread-safe reader which retrieves and parses RSS feeds
+   * @param config configuration of the loader threads and host limits
+   * @see RSSConfig#withLoaderThreads(int)
+   * @see RSSConfig#withHostLimits(int, double, int)
+   */
+  public static RSSLoader fifo(RSSReader reader, RSSConfig config) {
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(), reader, config);
   }
 
   /**
@@ -115,7 +250,7 @@ public class RSSLoader {
    * @see #priority(int)
    */
   public static RSSLoader priority() {
-    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>());
+    return priority(new RSSReader());
   }
 
   /**
@@ -125,7 +260,31 @@ public class RSSLoader {
    *          expected number of URIs to be loaded at a given time
    */
   public static RSSLoader priority(int capacity) {
-    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(capacity));
+    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(capacity), new RSSReader(), new RSSConfig());
+  }
+
+  /**
+   * Create an object which loads RSS feeds asynchronously based on priority
+   * with the specified reader.
+   * 
+   * @param reader thread-safe reader which retrieves and parses RSS feeds
+   * @see #fifo(RSSReader)
+   */
+  public static RSSLoader priority(RSSReader reader) {
+    return priority(reader, new RSSConfig());
+  }
+
+  /**
+   * Create an object which loads RSS feeds asynchronously based on priority
+   * with the specified reader. The number of threads and the limits per host
+   * are taken from the configuration.
+   * 
+   * @param reader thread-safe reader which retrieves and parses RSS feeds
+   * @param config configuration of the loader threads and host limits
+   * @see #fifo(RSSReader, RSSConfig)
+   */
+  public static RSSLoader priority(RSSReader reader, RSSConfig config) {
+    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(), reader, config);
   }
 
   /**
@@ -135,12 +294,35 @@ public class RSSLoader {
    * @see LinkedBlockingQueue
    * @see PriorityBlockingQueue
    */
-  RSSLoader(BlockingQueue<RSSFuture> in) {
+  RSSLoader(BlockingQueue<RSSFuture> in, RSSReader reader, RSSConfig config) {
+    if (reader == null) {
+      throw new IllegalArgumentException("RSS reader must not be null.");
+    }
+
     this.in = in;
+    this.reader = reader;
+    this.maxBodyBytes = config.maxBodyBytes;
+    this.parsing = new ArrayBlockingQueue<Download>(config.parseQueueCapacity);
     this.out = new LinkedBlockingQueue<RSSFuture>();
+    this.scheduler = new HostScheduler(config.maxLoadsPerHost,
+        config.loadsPerSecondPerHost, config.loadBurstPerHost);
 
-    // start separate thread for loading of RSS feeds
-    new Thread(new Loader(new RSSReader()), DEFAULT_THREAD_NAME).start();
+    // start separate threads for downloading and parsing of RSS feeds
+    this.downloading = new AtomicInteger(config.loaderThreads);
+    this.parserThreads = config.parserThreads;
+    this.running = new CountDownLatch(config.loaderThreads + config.parserThreads);
+    final Loader loader = new Loader(reader);
+    for (int i = 0; i < config.loaderThreads; i++) {
+      final String name = config.loaderThreads == 1 ? DEFAULT_THREAD_NAME
+          : DEFAULT_THREAD_NAME + " #" + (i + 1);
+      new Thread(loader, name).start();
+    }
+    final Parser parser = new Parser(reader);
+    for (int i = 0; i < config.parserThreads; i++) {
+      final String name = config.parserThreads == 1 ? PARSER_THREAD_NAME
+          : PARSER_THREAD_NAME + " #" + (i + 1);
+      new Thread(parser, name).start();
+    }
   }
 
   /**
@@ -149,11 +331,45 @@ public class RSSLoader {
    */
   public boolean isLoading() {
     // order of conjuncts matters because of happens-before relationship
-    return !in.isEmpty() && !stopped;
+    return (!in.isEmpty() || hasPostponed()) && !stopped;
+  }
+
+  /**
+   * Returns the number of RSS feed URIs which wait to be downloaded,
+   * including those postponed because of host limits.
+   */
+  public int getDownloadQueueSize() {
+    synchronized (postponed) {
+      return in.size() + postponedCount;
+    }
+  }
+
+  /**
+   * Returns the number of downloaded RSS feeds which wait to be parsed.
+   */
+  public int getParseQueueSize() {
+    return parsing.size();
+  }
+
+  /**
+   * Returns the number of loaded RSS feeds which wait to be retrieved with
+   * {@link #take()} or {@link #poll()}.
+   */
+  public int getLoadedQueueSize() {
+    return out.size();
+  }
+
+  /**
+   * Returns a snapshot of the current queue sizes and of the metrics of all
+   * RSS feeds loaded with the reader of this loader.
+   */
+  public RSSMetrics getMetrics() {
+    return reader.metrics.snapshot(getDownloadQueueSize(), getParseQueueSize(),
+        getLoadedQueueSize());
   }
 
   /**
-   * Stop thread after finishing loading pending RSS feed URIs. If this loader
+   * Stop threads after finishing loading pending RSS feed URIs. If this loader
    * has been constructed with {@link #priority()} or {@link #priority(int)},
    * only RSS feed loads with priority strictly greater than seven (7) are going
    * to be completed.
@@ -279,7 +495,237 @@ public class RSSLoader {
   }
 
   /**
-   * Internal consumer of RSS feed URIs stored in the blocking queue.
+   * Returns a publisher of the successfully loaded RSS feeds. Every
+   * subscriber is served by its own daemon thread, which only dequeues a
+   * loaded RSS feed once the subscriber has demand. Subscribers, {@link #take()}
+   * and {@link #poll()} compete for the same loaded RSS feeds. Subscribers
+   * receive {@link RSSFlow.Subscriber#onComplete()} after {@link #stop()}
+   * once all pending RSS feeds have been loaded and delivered.
+   */
+  public RSSFlow.Publisher<RSSFeed> publish() {
+    return new RSSFlow.Publisher<RSSFeed>() {
+      @Override
+      public void subscribe(RSSFlow.Subscriber<? super RSSFeed> subscriber) {
+        final RSSFlow.Emitter<RSSFeed> emitter = new RSSFlow.Emitter<RSSFeed>(subscriber) {
+          @Override
+          void produce() throws InterruptedException, ExecutionException {
+            for (;;) {
+              awaitDemand();
+              final RSSFuture future = takeLoaded();
+              if (future == null) {
+                return;
+              }
+              // the result has been set before the future was enqueued
+              emit(future.get());
+            }
+          }
+        };
+
+        subscriber.onSubscribe(emitter);
+        final Thread thread = new Thread(emitter, PUBLISHER_THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+      }
+    };
+  }
+
+  /**
+   * Retrieves the next loaded RSS feed for a publisher thread, waiting if
+   * necessary.
+   * 
+   * @return {@code null} once all loader and parser threads have exited and
+   *         no loaded RSS feeds are left
+   */
+  private RSSFuture takeLoaded() throws InterruptedException {
+    final Thread thread = Thread.currentThread();
+    synchronized (publishers) {
+      if (running.getCount() == 0) {
+        return out.poll();
+      }
+      publishers.add(thread);
+    }
+
+    try {
+      return out.take();
+    } catch (InterruptedException e) {
+      if (running.getCount() != 0) {
+        throw e;
+      }
+      // woken up by the last thread to exit
+      return out.poll();
+    } finally {
+      synchronized (publishers) {
+        publishers.remove(thread);
+        if (running.getCount() == 0) {
+          // clear a wake-up which arrived after an RSS feed had been taken
+          Thread.interrupted();
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts down a loader or parser thread which exits. The last one wakes up
+   * the publisher threads, which then complete their subscribers.
+   */
+  private void exited() {
+    running.countDown();
+    if (running.getCount() == 0) {
+      synchronized (publishers) {
+        for (Thread publisher : publishers) {
+          publisher.interrupt();
+        }
+      }
+    }
+  }
+
+  private boolean hasPostponed() {
+    synchronized (postponed) {
+      return !postponed.isEmpty();
+    }
+  }
+
+  /**
+   * Returns the next load request whose host is within its limits, waiting
+   * if necessary. Requests to hosts which have reached their limits are
+   * postponed so that requests to other hosts can proceed.
+   * 
+   * @return {@code null} if the sentinel has been dequeued and all postponed
+   *         requests have been started
+   */
+  RSSFuture next() throws InterruptedException {
+    for (;;) {
+      long wait = HostScheduler.UNTIL_RELEASE;
+      synchronized (postponed) {
+        final long now = System.nanoTime();
+        final RSSFuture future = nextPostponed(now);
+        if (future != null) {
+          return future;
+        } else if (draining && postponed.isEmpty()) {
+          return null;
+        } else if (!waiting.isEmpty()) {
+          wait = Math.max(0, waiting.peek().until - now);
+        }
+      }
+
+      final RSSFuture future;
+      if (draining) {
+        // sentinel stays in the queue; only postponed requests remain
+        future = null;
+        TimeUnit.NANOSECONDS.sleep(Math.min(wait, MAX_IDLE_NANOS));
+      } else if (wait == HostScheduler.UNTIL_RELEASE && !hasPostponed()) {
+        future = in.take();
+      } else {
+        future = in.poll(Math.min(wait, MAX_IDLE_NANOS), TimeUnit.NANOSECONDS);
+      }
+
+      if (future == null) {
+        continue;
+      } else if (future == SENTINEL) {
+        // leave sentinel for the other threads
+        draining = true;
+        in.offer(SENTINEL);
+        continue;
+      } else if (scheduler.isUnlimited()) {
+        return future;
+      }
+
+      synchronized (postponed) {
+        Host host = postponed.get(future.host);
+        if (host == null) {
+          final long now = System.nanoTime();
+          final long delay = scheduler.tryAcquire(future.host, now);
+          if (delay == 0) {
+            return future;
+          }
+          host = new Host(future.host);
+          postponed.put(host.name, host);
+          postpone(host, delay, now);
+        }
+
+        // behind the earlier requests to the same host
+        host.futures.add(future);
+        postponedCount++;
+      }
+    }
+  }
+
+  /**
+   * Returns the first postponed load request of a host which is within its
+   * limits again, {@code null} if there is none. Only hosts which have been
+   * released or whose rate limit has expired are tried.
+   */
+  private RSSFuture nextPostponed(long now) {
+    while (!waiting.isEmpty() && waiting.peek().until - now <= 0) {
+      final Host host = waiting.poll();
+      host.state = Host.READY;
+      ready.add(host);
+    }
+
+    for (int n = ready.size(); n > 0; n--) {
+      final Host host = ready.poll();
+      RSSFuture future;
+      while ((future = host.futures.peek()) != null && future.status.get() != RSSFuture.READY) {
+        // cancelled while postponed
+        host.futures.poll();
+        postponedCount--;
+      }
+      if (future == null) {
+        postponed.remove(host.name);
+        continue;
+      }
+
+      final long delay = scheduler.tryAcquire(host.name, now);
+      if (delay != 0) {
+        postpone(host, delay, now);
+        continue;
+      }
+
+      host.futures.poll();
+      postponedCount--;
+      if (host.futures.isEmpty()) {
+        postponed.remove(host.name);
+      } else {
+        // the host may be below its limits for more than one request
+        ready.add(host);
+      }
+      return future;
+    }
+
+    return null;
+  }
+
+  /**
+   * Parks the host until it is released or until its rate limit expires.
+   */
+  private void postpone(Host host, long delay, long now) {
+    if (delay == HostScheduler.UNTIL_RELEASE) {
+      host.state = Host.PARKED;
+    } else {
+      host.state = Host.WAITING;
+      host.until = now + delay;
+      waiting.add(host);
+    }
+  }
+
+  /**
+   * Signals that a download from the host has completed, so that its next
+   * postponed load request may start.
+   */
+  private void release(String name) {
+    scheduler.release(name);
+    synchronized (postponed) {
+      final Host host = postponed.get(name);
+      if (host != null && host.state == Host.PARKED) {
+        host.state = Host.READY;
+        ready.add(host);
+      }
+    }
+  }
+
+  /**
+   * Internal consumer of RSS feed URIs stored in the blocking queue, which
+   * downloads RSS feeds for the parser threads.
    */
   class Loader implements Runnable {
 
@@ -290,47 +736,208 @@ public class RSSLoader {
     }
 
     /**
-     * Keep on loading RSS feeds by dequeuing incoming tasks until the sentinel
-     * is encountered.
+     * Keep on downloading RSS feeds by dequeuing incoming tasks until the
+     * sentinel is encountered.
      */
     @Override
     public void run() {
       try {
         RSSFuture future = null;
-        RSSFeed feed;
-        while ((future = in.take()) != SENTINEL) {
+        while ((future = next()) != null) {
 
           if (future.status.compareAndSet(RSSFuture.READY, RSSFuture.LOADING)) {
+            reader.metrics.queueTime.record(System.nanoTime() - future.created);
+            RSSFeed cached = null;
+            Download download = null;
             try {
-              // perform loading outside of locked region
-              feed = reader.load(future.uri);
-
-              // set successfully loaded RSS feed
-              future.set(feed, /* error */null);
-
-              // enable caller to consume the loaded RSS feed
-              out.add(future);
+              // perform downloading outside of locked region
+              cached = reader.cached(future.uri);
+              if (cached == null) {
+                download = new Download(future, reader.download(future.uri, maxBodyBytes));
+              }
             } catch (RSSException e) {
               // throw ExecutionException when calling RSSFuture::get()
-              future.set(/* feed */null, e);
+              fail(future, e);
             } catch (RSSFault e) {
               // throw ExecutionException when calling RSSFuture::get()
-              future.set(/* feed */null, e);
+              fail(future, e);
             } finally {
-              // RSSFuture::isDone() returns true even if an error occurred
-              future.status.compareAndSet(RSSFuture.LOADING, RSSFuture.LOADED);
+              // host is free for the next download while this one is parsed
+              if (!scheduler.isUnlimited()) {
+                release(future.host);
+              }
             }
+
+            if (cached != null) {
+              complete(future, cached);
+            } else if (download != null) {
+              try {
+                // wait while the parser threads are behind
+                parsing.put(download);
+              } catch (InterruptedException e) {
+                fail(future, e);
+                throw e;
+              }
+            }
+          } else if (!scheduler.isUnlimited()) {
+            release(future.host);
+          }
+
+        }
+      } catch (InterruptedException e) {
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+      } finally {
+        // enqueued downloads happen-before the end of parsing
+        if (downloading.decrementAndGet() == 0) {
+          endParsing();
+        }
+        exited();
+      }
+    }
+
+    /**
+     * Enqueues one end marker per parser thread behind the last download.
+     */
+    private void endParsing() {
+      boolean interrupted = false;
+      for (int i = 0; i < parserThreads;) {
+        try {
+          parsing.put(END);
+          i++;
+        } catch (InterruptedException e) {
+          // the parser threads must stop even if this thread is interrupted
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+  }
+
+  /**
+   * Internal consumer of downloaded RSS feeds, which parses them until it
+   * dequeues the end marker which the last loader thread enqueues.
+   */
+  class Parser implements Runnable {
+
+    private final RSSReader reader;
+
+    Parser(RSSReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (;;) {
+          final Download download = parsing.take();
+          if (download == END) {
+            return;
           }
 
+          final RSSFuture future = download.future;
+          reader.metrics.parseQueueTime.record(System.nanoTime() - download.created);
+          try {
+            final RSSFeed feed = reader.parse(future.uri, download.bytes);
+            reader.loaded(future.uri, feed);
+            complete(future, feed);
+          } catch (RuntimeException e) {
+            // also a faulty RSSParserSPI must not stop this thread, so throw
+            // ExecutionException when calling RSSFuture::get()
+            fail(future, e);
+          }
         }
       } catch (InterruptedException e) {
         // Restore the interrupted status
         Thread.currentThread().interrupt();
+      } finally {
+        exited();
       }
     }
 
   }
 
+  /**
+   * Completes the load request with the loaded RSS feed.
+   */
+  private void complete(RSSFuture future, RSSFeed feed) {
+    // mark the load done before set() wakes up callers of get()
+    future.status.compareAndSet(RSSFuture.LOADING, RSSFuture.LOADED);
+    future.set(feed, /* error */null);
+
+    // enable caller to consume the loaded RSS feed
+    out.add(future);
+  }
+
+  /**
+   * Completes the load request with an error. Like a successful load, the
+   * request is marked done before its result is set, so that a caller which
+   * wakes up in {@link RSSFuture#get()} always observes
+   * {@link RSSFuture#isDone()}.
+   */
+  private static void fail(RSSFuture future, Exception cause) {
+    // RSSFuture::isDone() returns true even if an error occurred
+    future.status.compareAndSet(RSSFuture.LOADING, RSSFuture.LOADED);
+    future.set(/* feed */null, cause);
+  }
+
+  /**
+   * Raw bytes of a downloaded RSS feed which waits to be parsed.
+   */
+  private static final class Download {
+
+    final RSSFuture future;
+    final byte[] bytes;
+    final long created = System.nanoTime();
+
+    Download(RSSFuture future, byte[] bytes) {
+      this.future = future;
+      this.bytes = bytes;
+    }
+
+  }
+
+  /**
+   * Postponed load requests to a host in FIFO order.
+   */
+  private static final class Host implements Comparable<Host> {
+
+    /** Waits in the queue of ready hosts */
+    static final int READY = 0;
+
+    /** Waits for a concurrent download from the host to complete */
+    static final int PARKED = 1;
+
+    /** Waits in the queue of rate-limited hosts */
+    static final int WAITING = 2;
+
+    final String name;
+    final Queue<RSSFuture> futures = new ArrayDeque<RSSFuture>();
+    int state;
+
+    /** Value of {@link System#nanoTime()} at which a request may start */
+    long until;
+
+    Host(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public int compareTo(Host other) {
+      final long difference = until - other.until;
+      return difference < 0 ? -1 : difference == 0 ? 0 : 1;
+    }
+
+  }
+
+  /**
+   * End marker which stops a thread that is parsing RSS feeds.
+   */
+  private final static Download END = new Download(null, null);
+
   /**
    * Internal sentinel to stop the thread that is loading RSS feeds.
    */
@@ -350,9 +957,15 @@ public class RSSLoader {
     /** RSS feed URI */
     final String uri;
 
+    /** Key of the RSS feed's host */
+    final String host;
+
     /** Larger integer gives higher priority */
     final int priority;
 
+    /** Time at which the RSS feed has been scheduled for loading */
+    final long created = System.nanoTime();
+
     AtomicInteger status;
 
     boolean waiting;
@@ -361,6 +974,7 @@ public class RSSLoader {
 
     RSSFuture(String uri, int priority) {
       this.uri = uri;
+      this.host = HostScheduler.host(uri);
       this.priority = priority;
       status = new AtomicInteger(READY);
     }
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable snapshot of how RSS feeds have been loaded by an
+ * {@link RSSReader} and an {@link RSSLoader}: how many requests wait in each
+ * stage, where the time of a load is spent, how large RSS feeds are, and why
+ * loads fail. Times are in nanoseconds.
+ * <p>
+ * When {@link RSSReader#load(String)} parses the HTTP response while it is
+ * being downloaded, the parse time includes reading the response after its
+ * first byte, and no download time is recorded. An {@link RSSLoader}
+ * downloads RSS feeds completely before they are parsed, so both times are
+ * recorded separately.
+ * 
+ * @see RSSReader#getMetrics()
+ * @see RSSLoader#getMetrics()
+ */
+public final class RSSMetrics {
+
+  private final int downloadQueueSize;
+  private final int parseQueueSize;
+  private final int loadedQueueSize;
+  private final RSSHistogram queueTime;
+  private final RSSHistogram parseQueueTime;
+  private final RSSHistogram firstByteTime;
+  private final RSSHistogram downloadTime;
+  private final RSSHistogram parseTime;
+  private final RSSHistogram bytes;
+  private final RSSHistogram items;
+  private final long successes;
+  private final long faults;
+  private final Map<Integer, Long> statuses;
+  private final long elapsedNanos;
+
+  private RSSMetrics(Recorder recorder, int downloadQueueSize, int parseQueueSize,
+      int loadedQueueSize) {
+    this.downloadQueueSize = downloadQueueSize;
+    this.parseQueueSize = parseQueueSize;
+    this.loadedQueueSize = loadedQueueSize;
+    this.queueTime = recorder.queueTime.snapshot();
+    this.parseQueueTime = recorder.parseQueueTime.snapshot();
+    this.firstByteTime = recorder.firstByteTime.snapshot();
+    this.downloadTime = recorder.downloadTime.snapshot();
+    this.parseTime = recorder.parseTime.snapshot();
+    this.bytes = recorder.bytes.snapshot();
+    this.items = recorder.items.snapshot();
+    this.successes = recorder.successes.get();
+    this.faults = recorder.faults.get();
+
+    final Map<Integer, Long> statuses = new TreeMap<Integer, Long>();
+    for (Map.Entry<Integer, AtomicLong> entry : recorder.statuses.entrySet()) {
+      statuses.put(entry.getKey(), entry.getValue().get());
+    }
+    this.statuses = Collections.unmodifiableMap(statuses);
+    this.elapsedNanos = System.nanoTime() - recorder.started;
+  }
+
+  /**
+   * Returns the number of RSS feed URIs which wait to be downloaded.
+   * 
+   * @see RSSLoader#getDownloadQueueSize()
+   */
+  public int getDownloadQueueSize() {
+    return downloadQueueSize;
+  }
+
+  /**
+   * Returns the number of downloaded RSS feeds which wait to be parsed.
+   * 
+   * @see RSSLoader#getParseQueueSize()
+   */
+  public int getParseQueueSize() {
+    return parseQueueSize;
+  }
+
+  /**
+   * Returns the number of loaded RSS feeds which wait to be retrieved.
+   * 
+   * @see RSSLoader#getLoadedQueueSize()
+   */
+  public int getLoadedQueueSize() {
+    return loadedQueueSize;
+  }
+
+  /**
+   * Returns the time between scheduling an RSS feed with an
+   * {@link RSSLoader} and the start of its download.
+   */
+  public RSSHistogram getQueueTime() {
+    return queueTime;
+  }
+
+  /**
+   * Returns the time for which downloaded RSS feeds wait for a parser
+   * thread of an {@link RSSLoader}.
+   */
+  public RSSHistogram getParseQueueTime() {
+    return parseQueueTime;
+  }
+
+  /**
+   * Returns the time between sending the request and receiving the first
+   * byte of the response.
+   */
+  public RSSHistogram getFirstByteTime() {
+    return firstByteTime;
+  }
+
+  /**
+   * Returns the time between sending the request and receiving the last
+   * byte of the response.
+   */
+  public RSSHistogram getDownloadTime() {
+    return downloadTime;
+  }
+
+  /**
+   * Returns the time spent parsing RSS feeds.
+   */
+  public RSSHistogram getParseTime() {
+    return parseTime;
+  }
+
+  /**
+   * Returns the number of bytes of the RSS feeds, after any content encoding
+   * has been decoded.
+   */
+  public RSSHistogram getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the number of RSS items of the RSS feeds.
+   */
+  public RSSHistogram getItems() {
+    return items;
+  }
+
+  /**
+   * Returns the number of RSS feeds which have been loaded successfully.
+   */
+  public long getSuccesses() {
+    return successes;
+  }
+
+  /**
+   * Returns the number of loads which failed with an
+   * {@link RSSReaderException}, keyed by its HTTP status.
+   */
+  public Map<Integer, Long> getHttpFailures() {
+    return statuses;
+  }
+
+  /**
+   * Returns the number of loads which failed with an {@link RSSFault}, e.g.
+   * an IO error or a malformed RSS feed.
+   */
+  public long getFaults() {
+    return faults;
+  }
+
+  /**
+   * Returns the number of failed loads.
+   */
+  public long getFailures() {
+    long failures = faults;
+    for (Long count : statuses.values()) {
+      failures += count;
+    }
+
+    return failures;
+  }
+
+  /**
+   * Returns the number of RSS feeds per second which have been loaded
+   * successfully since the metrics have been started.
+   */
+  public double getThroughput() {
+    return elapsedNanos <= 0 ? 0 : successes * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "queues=" + downloadQueueSize + "/" + parseQueueSize + "/" + loadedQueueSize
+        + " successes=" + successes + " httpFailures=" + statuses + " faults=" + faults
+        + " throughput=" + getThroughput() + "/s\nqueueTime: " + queueTime
+        + "\nparseQueueTime: " + parseQueueTime + "\nfirstByteTime: " + firstByteTime
+        + "\ndownloadTime: " + downloadTime + "\nparseTime: " + parseTime + "\nbytes: "
+        + bytes + "\nitems: " + items;
+  }
+
+  /**
+   * Thread-safe recorder of the metrics of an {@link RSSReader}, which is
+   * shared with the {@link RSSLoader} that uses the reader.
+   */
+  static final class Recorder {
+
+    final RSSHistogram.Recorder queueTime = new RSSHistogram.Recorder();
+    final RSSHistogram.Recorder parseQueueTime = new RSSHistogram.Recorder();
+    final RSSHistogram.Recorder firstByteTime = new RSSHistogram.Recorder();
+    final RSSHistogram.Recorder downloadTime = new RSSHistogram.Recorder();
+    final RSSHistogram.Recorder parseTime = new RSSHistogram.Recorder();
+    final RSSHistogram.Recorder bytes = new RSSHistogram.Recorder();
+    final RSSHistogram.Recorder items = new RSSHistogram.Recorder();
+
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong faults = new AtomicLong();
+    private final ConcurrentHashMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<Integer, AtomicLong>();
+    private final long started = System.nanoTime();
+
+    /**
+     * Records a successfully parsed RSS feed.
+     */
+    void succeeded(RSSFeed feed, long parseNanos) {
+      succeeded(feed.getItems().size(), parseNanos);
+    }
+
+    /**
+     * Records a successfully parsed RSS feed with the specified number of
+     * RSS items.
+     */
+    void succeeded(int itemCount, long parseNanos) {
+      parseTime.record(parseNanos);
+      items.record(itemCount);
+      successes.incrementAndGet();
+    }
+
+    /**
+     * Records a load which failed with an HTTP error.
+     */
+    void failed(RSSReaderException e) {
+      AtomicLong count = statuses.get(e.getStatus());
+      if (count == null) {
+        final AtomicLong created = new AtomicLong();
+        count = statuses.putIfAbsent(e.getStatus(), created);
+        if (count == null) {
+          count = created;
+        }
+      }
+      count.incrementAndGet();
+    }
+
+    /**
+     * Records a load which failed with an unrecoverable error.
+     */
+    void failed(RSSFault e) {
+      faults.incrementAndGet();
+    }
+
+    /**
+     * Records the times since the request and the size of a response which
+     * has been read.
+     * 
+     * @param downloaded {@code true} if the entire response has been read
+     */
+    void read(CountingInputStream response, long requestNanos, boolean downloaded) {
+      if (response.hasFirstByte()) {
+        firstByteTime.record(response.firstByteNanos() - requestNanos);
+      }
+      if (downloaded) {
+        downloadTime.record(System.nanoTime() - requestNanos);
+      }
+      bytes.record(response.count());
+    }
+
+    RSSMetrics snapshot(int downloadQueueSize, int parseQueueSize, int loadedQueueSize) {
+      return new RSSMetrics(this, downloadQueueSize, parseQueueSize, loadedQueueSize);
+    }
+
+  }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe index which clusters near-duplicate RSS items, e.g. a story
+ * which is syndicated by many RSS feeds with slightly different titles and
+ * links. Two items are near-duplicates if their SimHash signatures differ in
+ * at most the maximum distance of bits, and clusters are the transitive
+ * closure of this relation.
+ * <p>
+ * Signatures are split into {@value #BANDS} bands. By the pigeonhole
+ * principle, near-duplicates which differ in fewer than {@value #BANDS} bits
+ * agree on at least one band, and near-duplicates which differ in fewer than
+ * twice as many bits differ in at most one bit of some band. So only items in
+ * the same band bucket, or in the buckets one bit flip away, are compared.
+ * The index needs a constant number of bytes per item and never keeps a
+ * reference to an item.
+ * 
+ * @see RSSItem#getSimHash()
+ */
+public class RSSNearDuplicates {
+
+  /**
+   * Number of bands of a signature.
+   */
+  public static final int BANDS = 4;
+
+  private static final int BAND_BITS = SimHash.BITS / BANDS;
+
+  /**
+   * Default and largest maximum number of differing bits of near-duplicates.
+   * Changing a few words of a short title and description typically flips
+   * four to seven bits.
+   */
+  public static final int DEFAULT_MAX_DISTANCE = 2 * BANDS - 1;
+
+  /**
+   * Maximum number of chains per band.
+   */
+  private static final int MAX_BUCKETS = 1 << BAND_BITS;
+
+  private static final int NONE = -1;
+
+  private final int maxDistance;
+
+  /**
+   * Number of bits in which a band of a near-duplicate may differ.
+   */
+  private final int radius;
+
+  /* Guarded by this */
+  private long[] signatures = new long[16];
+  private int[] parents = new int[16];
+
+  /**
+   * First item of every bucket chain of every band.
+   */
+  private final int[][] heads = new int[BANDS][];
+
+  /**
+   * Next item in the bucket chain of every band.
+   */
+  private final int[][] next = new int[BANDS][];
+
+  private int size;
+
+  /**
+   * Instantiate an index with the default maximum distance.
+   */
+  public RSSNearDuplicates() {
+    this(DEFAULT_MAX_DISTANCE);
+  }
+
+  /**
+   * Instantiate an empty index.
+   * 
+   * @param maxDistance maximum number of differing signature bits of
+   *          near-duplicates, at most {@link #DEFAULT_MAX_DISTANCE}
+   */
+  public RSSNearDuplicates(int maxDistance) {
+    if (maxDistance < 0 || maxDistance > DEFAULT_MAX_DISTANCE) {
+      throw new IllegalArgumentException("Maximum distance must be between 0 and "
+          + DEFAULT_MAX_DISTANCE);
+    }
+
+    this.maxDistance = maxDistance;
+    this.radius = maxDistance / BANDS;
+    for (int band = 0; band < BANDS; band++) {
+      heads[band] = new int[16];
+      Arrays.fill(heads[band], NONE);
+      next[band] = new int[16];
+    }
+  }
+
+  /**
+   * Adds the item to the index. The signature is computed if the item has
+   * none, i.e. if it has not been parsed with
+   * {@link RSSConfig#withSimHashes(boolean)}.
+   * 
+   * @return number of the cluster of the item, which is the number of items
+   *         that had been added before the first item of the cluster
+   */
+  public synchronized int add(RSSItem item) {
+    final long signature = signature(item);
+    final int id = size;
+    if (id == signatures.length) {
+      grow();
+    }
+
+    signatures[id] = signature;
+    parents[id] = id;
+    size++;
+
+    if (signature != 0) {
+      if (size > heads[0].length && heads[0].length < MAX_BUCKETS) {
+        rehash(2 * heads[0].length);
+      }
+
+      for (int band = 0; band < BANDS; band++) {
+        final int bucket = bucket(signature, band);
+        for (int probe = bucket, bit = 0; probe != NONE; probe = neighbour(bucket, bit++)) {
+          for (int other = heads[band][probe]; other != NONE; other = next[band][other]) {
+            if (SimHash.distance(signature, signatures[other]) <= maxDistance) {
+              union(id, other);
+            }
+          }
+        }
+        next[band][id] = heads[band][bucket];
+        heads[band][bucket] = id;
+      }
+    }
+
+    return find(id);
+  }
+
+  /**
+   * Returns the cluster of a near-duplicate of the item without adding it,
+   * {@code -1} if the index contains no near-duplicate.
+   */
+  public synchronized int find(RSSItem item) {
+    final long signature = signature(item);
+    if (signature == 0) {
+      return NONE;
+    }
+
+    int cluster = NONE;
+    for (int band = 0; band < BANDS; band++) {
+      final int bucket = bucket(signature, band);
+      for (int probe = bucket, bit = 0; probe != NONE; probe = neighbour(bucket, bit++)) {
+        for (int other = heads[band][probe]; other != NONE; other = next[band][other]) {
+          if (SimHash.distance(signature, signatures[other]) <= maxDistance) {
+            final int root = find(other);
+            cluster = cluster == NONE ? root : Math.min(cluster, root);
+          }
+        }
+      }
+    }
+    return cluster;
+  }
+
+  /**
+   * Returns the current cluster of the item with the specified number.
+   * Clusters merge when an item is added which is a near-duplicate of items
+   * in different clusters.
+   * 
+   * @param id number of items which had been added before the item
+   */
+  public synchronized int getCluster(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No item " + id);
+    }
+
+    return find(id);
+  }
+
+  /**
+   * Returns the number of items in the index.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Clusters the near-duplicates among the specified items. Clusters are
+   * ordered by their first item, and the items of every cluster keep their
+   * order, e.g. newest first for the items of an {@link RSSTimeline}.
+   */
+  public static List<List<RSSItem>> cluster(List<RSSItem> items, int maxDistance) {
+    final RSSNearDuplicates index = new RSSNearDuplicates(maxDistance);
+    for (int i = 0; i < items.size(); i++) {
+      index.add(items.get(i));
+    }
+
+    final Map<Integer, List<RSSItem>> clusters = new LinkedHashMap<Integer, List<RSSItem>>();
+    for (int i = 0; i < items.size(); i++) {
+      final Integer root = index.getCluster(i);
+      List<RSSItem> cluster = clusters.get(root);
+      if (cluster == null) {
+        cluster = new ArrayList<RSSItem>(2);
+        clusters.put(root, cluster);
+      }
+      cluster.add(items.get(i));
+    }
+
+    return new ArrayList<List<RSSItem>>(clusters.values());
+  }
+
+  private static long signature(RSSItem item) {
+    return item.getSimHash() == 0 ? SimHash.of(item) : item.getSimHash();
+  }
+
+  private int bucket(long signature, int band) {
+    return (int) (signature >>> (band * BAND_BITS)) & (heads[band].length - 1);
+  }
+
+  /**
+   * Returns the bucket whose number differs from the specified bucket in the
+   * specified bit, {@code -1} if near-duplicates need not be searched in
+   * neighbouring buckets or if there are no more bits.
+   */
+  private int neighbour(int bucket, int bit) {
+    if (radius == 0 || 1 << bit >= heads[0].length) {
+      return NONE;
+    }
+    return bucket ^ (1 << bit);
+  }
+
+  /**
+   * Returns the root of the cluster and halves the path to it.
+   */
+  private int find(int id) {
+    while (parents[id] != id) {
+      parents[id] = parents[parents[id]];
+      id = parents[id];
+    }
+    return id;
+  }
+
+  /**
+   * Merges two clusters, the root with the lower number remains the root.
+   */
+  private void union(int a, int b) {
+    final int x = find(a);
+    final int y = find(b);
+    if (x < y) {
+      parents[y] = x;
+    } else if (y < x) {
+      parents[x] = y;
+    }
+  }
+
+  private void grow() {
+    final int capacity = 2 * signatures.length;
+    signatures = Arrays.copyOf(signatures, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    for (int band = 0; band < BANDS; band++) {
+      next[band] = Arrays.copyOf(next[band], capacity);
+    }
+  }
+
+  /**
+   * Rebuilds the bucket chains with the specified number of buckets.
+   */
+  private void rehash(int buckets) {
+    for (int band = 0; band < BANDS; band++) {
+      heads[band] = new int[buckets];
+      Arrays.fill(heads[band], NONE);
+      for (int id = 0; id < size - 1; id++) {
+        if (signatures[id] != 0) {
+          final int bucket = bucket(signatures[id], band);
+          next[band][id] = heads[band][bucket];
+          heads[band][bucket] = id;
+        }
+      }
+    }
+  }
+
+}
@@ -18,6 +18,9 @@ package org.mcsoxford.rss;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -34,8 +37,29 @@ import org.xml.sax.XMLReader;
  */
 public class RSSParser implements RSSParserSPI {
 
+  /**
+   * Upper bound on the number of RSS feeds whose item count is remembered.
+   */
+  private static final int MAX_ITEM_COUNTS = 256;
+
   private final RSSConfig config;
 
+  /**
+   * Number of RSS items of recently parsed RSS feeds keyed by URI, which is
+   * used to pre-size the item list when the same RSS feed is parsed again.
+   */
+  private final Map<String, Integer> itemCounts = Collections
+      .synchronizedMap(new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+          return size() > MAX_ITEM_COUNTS;
+        }
+
+      });
+
   public RSSParser(RSSConfig config) {
     this.config = config;
   }
@@ -50,6 +74,70 @@ public class RSSParser implements RSSParserSPI {
    */
   @Override
   public RSSFeed parse(InputStream feed) {
+    return parse(feed, config.itemAvg);
+  }
+
+  /**
+   * Parses input stream as the RSS feed with the specified URI. The RSS item
+   * list is pre-sized with the number of RSS items which the previous RSS
+   * feed with the same URI contained. {@link RSSReader} calls this method
+   * instead of {@link #parse(InputStream)}, so subclasses which customize
+   * parsing should override both.
+   * 
+   * @param feed RSS 2.0 feed input stream
+   * @param uri URI of the RSS feed, {@code null} if unknown
+   * @return in-memory representation of RSS feed
+   * @throws RSSFault if an unrecoverable parse error occurs
+   */
+  public RSSFeed parse(InputStream feed, String uri) {
+    if (uri == null) {
+      return parse(feed);
+    }
+
+    final Integer items = itemCounts.get(uri);
+    final RSSFeed parsed = parse(feed, items == null ? config.itemAvg : items);
+    itemCounts.put(uri, parsed.getItems().size());
+    return parsed;
+  }
+
+  /**
+   * Parses input stream as RSS feed which is expected to contain the
+   * specified number of RSS items.
+   * 
+   * @param itemCapacity initial capacity of the RSS item list
+   * @see #parse(InputStream)
+   */
+  RSSFeed parse(InputStream feed, int itemCapacity) {
+    return parse(feed, new RSSHandler(config, itemCapacity));
+  }
+
+  /**
+   * Parses input stream as RSS feed and emits every RSS item as soon as it
+   * has been parsed instead of adding it to the RSS feed. While the
+   * subscriber has no demand, the stream is not read. {@link RSSReader}
+   * calls this method for {@link RSSReader#publish publish}, including for
+   * subclasses, which therefore stream with the built-in SAX handler.
+   *
+   * @return number of emitted RSS items
+   * @throws RSSFault if an unrecoverable parse error occurs
+   */
+  int stream(InputStream feed, final RSSFlow.Emitter<? super RSSItem> emitter) {
+    final int[] emitted = new int[1];
+    parse(feed, new RSSHandler(config) {
+      @Override
+      void emit(RSSItem item) {
+        emitter.emit(item);
+        emitted[0]++;
+      }
+    });
+    return emitted[0];
+  }
+
+  /**
+   * Parses input stream as RSS feed with the specified SAX handler, which is
+   * released even if the RSS feed is malformed.
+   */
+  RSSFeed parse(InputStream feed, RSSHandler handler) {
     try {
       // Since SAXParserFactory implementations are not guaranteed to be
       // thread-safe, a new local object is instantiated.
@@ -61,13 +149,15 @@ public class RSSParser implements RSSParserSPI {
 
       final SAXParser parser = factory.newSAXParser();
 
-      return parse(parser, feed);
+      return parse(parser, feed, handler);
     } catch (ParserConfigurationException e) {
       throw new RSSFault(e);
     } catch (SAXException e) {
       throw new RSSFault(e);
     } catch (IOException e) {
       throw new RSSFault(e);
+    } finally {
+      handler.release();
     }
   }
 
@@ -77,7 +167,7 @@ public class RSSParser implements RSSParserSPI {
    * @return in-memory representation of an RSS feed
    * @throws IllegalArgumentException if either argument is {@code null}
    */
-  private RSSFeed parse(SAXParser parser, InputStream feed)
+  private RSSFeed parse(SAXParser parser, InputStream feed, RSSHandler handler)
       throws SAXException, IOException {
     if (parser == null) {
       throw new IllegalArgumentException("RSS parser must not be null.");
@@ -89,8 +179,6 @@ public class RSSParser implements RSSParserSPI {
     // See also http://www.w3.org/TR/REC-xml/#sec-guessing
     final InputSource source = new InputSource(feed);
     final XMLReader xmlreader = parser.getXMLReader();
-    final RSSHandler handler = new RSSHandler(config);
-
     xmlreader.setContentHandler(handler);
     xmlreader.parse(source);
 
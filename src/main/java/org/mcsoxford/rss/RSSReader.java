@@ -16,10 +16,7 @@
 
 package org.mcsoxford.rss;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 
 /**
  * HTTP client to retrieve and parse RSS 2.0 feeds. Callers must call
@@ -32,18 +29,40 @@ import java.net.URL;
  */
 public class RSSReader implements java.io.Closeable {
 
+    /**
+     * Thread-safe RSS fetcher SPI.
+     */
+    private final RSSFetcherSPI fetcher;
+
     /**
      * Thread-safe RSS parser SPI.
      */
     private final RSSParserSPI parser;
 
+    /**
+     * Metrics of all loads with this reader.
+     */
+    final RSSMetrics.Recorder metrics = new RSSMetrics.Recorder();
+
+    /**
+     * Instantiate a thread-safe client to retrieve RSS feeds with the
+     * specified fetcher and parser.
+     *
+     * @param fetcher thread-safe RSS fetcher SPI implementation
+     * @param parser thread-safe RSS parser SPI implementation
+     */
+    public RSSReader(RSSFetcherSPI fetcher, RSSParserSPI parser) {
+        this.fetcher = fetcher;
+        this.parser = parser;
+    }
+
     /**
      * Instantiate a thread-safe HTTP client to retrieve RSS feeds.
      *
      * @param parser thread-safe RSS parser SPI implementation
      */
     public RSSReader(RSSParserSPI parser) {
-        this.parser = parser;
+        this(new HttpFetcher(), parser);
     }
 
     /**
@@ -53,7 +72,19 @@ public class RSSReader implements java.io.Closeable {
      * @param config RSS configuration
      */
     public RSSReader(RSSConfig config) {
-        this(new RSSParser(config));
+        this(new HttpFetcher(config), new RSSParser(config));
+    }
+
+    /**
+     * Instantiate a thread-safe HTTP client to retrieve RSS feeds which
+     * revalidates previously downloaded RSS feeds in the specified disk cache
+     * instead of downloading them again.
+     *
+     * @param config RSS configuration
+     * @param cache disk cache of HTTP responses
+     */
+    public RSSReader(RSSConfig config, HttpDiskCache cache) {
+        this(new HttpFetcher(config, cache), new RSSParser(config));
     }
 
     /**
@@ -61,12 +92,13 @@ public class RSSReader implements java.io.Closeable {
      * Default RSS configuration capacity values are used.
      */
     public RSSReader() {
-        this(new RSSParser(new RSSConfig()));
+        this(new RSSConfig());
     }
 
     /**
-     * Send HTTP GET request and parse the XML response to construct an in-memory
-     * representation of an RSS 2.0 feed.
+     * Retrieve the RSS feed with the {@link RSSFetcherSPI} and parse the XML
+     * response to construct an in-memory representation of an RSS 2.0 feed.
+     * By default, an HTTP GET request is sent with {@link HttpFetcher}.
      *
      * @param uri RSS 2.0 feed URI
      * @return in-memory representation of downloaded RSS feed
@@ -75,36 +107,231 @@ public class RSSReader implements java.io.Closeable {
      * @throws RSSFault if an unrecoverable IO error has occurred
      */
     public RSSFeed load(String uri) throws RSSReaderException {
-        InputStream feedStream = null;
+        final long start = System.nanoTime();
+        final CountingInputStream feedStream = new CountingInputStream(fetch(uri));
         try {
-            URL url = new URL(uri);
-            // Send GET request to URI
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.connect();
-
-            // Check if server response is valid
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                throw new RSSReaderException(conn.getResponseCode(),
-                        conn.getResponseMessage());
-            }
+            final RSSFeed feed = parse(uri, feedStream);
+            metrics.succeeded(feed, System.nanoTime() - parseStart(feedStream, start));
+            return feed;
+        } catch (RSSFault e) {
+            metrics.failed(e);
+            throw e;
+        } finally {
+            metrics.read(feedStream, start, /* downloaded */false);
+            Resources.closeQuietly(feedStream);
+        }
+    }
+
+    /**
+     * Retrieve the RSS feed with the {@link RSSFetcherSPI} and read the
+     * entire response into memory without parsing it.
+     *
+     * @param maxBytes maximum size of the response, zero if unlimited
+     * @throws RSSReaderException if RSS feed could not be retrieved because of
+     *           HTTP error
+     * @throws RSSFault if an unrecoverable IO error has occurred or the
+     *           response exceeds {@code maxBytes}
+     * @see #parse(String, byte[])
+     */
+    byte[] download(String uri, int maxBytes) throws RSSReaderException {
+        final long start = System.nanoTime();
+        final CountingInputStream feedStream = new CountingInputStream(fetch(uri));
+        try {
+            final byte[] bytes = Resources.toByteArray(feedStream, maxBytes);
+            metrics.read(feedStream, start, /* downloaded */true);
+            return bytes;
+        } catch (java.io.IOException e) {
+            final RSSFault fault = new RSSFault(e);
+            metrics.failed(fault);
+            throw fault;
+        } catch (RSSFault e) {
+            metrics.failed(e);
+            throw e;
+        } finally {
+            Resources.closeQuietly(feedStream);
+        }
+    }
+
+    /**
+     * Parse an RSS feed which has been downloaded with
+     * {@link #download(String, int)}.
+     *
+     * @throws RSSFault if an unrecoverable parse error has occurred
+     */
+    RSSFeed parse(String uri, byte[] bytes) {
+        final long start = System.nanoTime();
+        try {
+            final RSSFeed feed = parse(uri, new java.io.ByteArrayInputStream(bytes));
+            metrics.succeeded(feed, System.nanoTime() - start);
+            return feed;
+        } catch (RSSFault e) {
+            metrics.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the RSS feed with the specified URI if it need not be
+     * downloaded, {@code null} otherwise. {@link RSSLoader} calls this
+     * method before it downloads an RSS feed. By default, nothing is cached.
+     *
+     * @see #loaded(String, RSSFeed)
+     */
+    RSSFeed cached(String uri) {
+        return null;
+    }
+
+    /**
+     * Called by {@link RSSLoader} once it has downloaded and parsed the RSS
+     * feed with the specified URI. By default, nothing happens.
+     *
+     * @see #cached(String)
+     */
+    void loaded(String uri, RSSFeed feed) {
+        // nothing is cached
+    }
+
+    /**
+     * Returns a snapshot of the metrics of all RSS feeds which have been
+     * loaded with this reader, including those loaded by an
+     * {@link RSSLoader} and those streamed by {@link #publish publish}. The
+     * parse time of a streamed RSS feed includes the time during which its
+     * subscriber had no demand.
+     */
+    public RSSMetrics getMetrics() {
+        return metrics.snapshot(0, 0, 0);
+    }
+
+    /**
+     * Retrieve the RSS feed and record the failure in the metrics.
+     */
+    private InputStream fetch(String uri) throws RSSReaderException {
+        try {
+            return fetcher.fetch(uri);
+        } catch (RSSReaderException e) {
+            metrics.failed(e);
+            throw e;
+        } catch (RSSFault e) {
+            metrics.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the time at which parsing of the response started, which is
+     * when its first byte has arrived, or the time of the request if the
+     * response is empty.
+     */
+    private static long parseStart(CountingInputStream feedStream, long requestNanos) {
+        return feedStream.hasFirstByte() ? feedStream.firstByteNanos() : requestNanos;
+    }
+
+    /**
+     * Parse the XML response of the RSS feed with the specified URI.
+     *
+     * @throws RSSFault if an unrecoverable parse error has occurred
+     */
+    private RSSFeed parse(String uri, InputStream feedStream) {
+        // the built-in parser pre-sizes the items from the previous load
+        final RSSFeed feed = parser instanceof RSSParser ? ((RSSParser) parser).parse(
+                feedStream, uri) : parser.parse(feedStream);
+
+        if (feed.getLink() == null) {
+            feed.setLink(android.net.Uri.parse(uri));
+        }
 
-            // Extract content stream from HTTP response
-            feedStream = conn.getInputStream();
-            RSSFeed feed = parser.parse(feedStream);
+        return feed;
+    }
+
+    /**
+     * Returns a publisher which loads the RSS feed for every subscriber on
+     * the specified executor and emits the RSS items as soon as they have
+     * been parsed. Errors are signalled with {@link RSSReaderException} or
+     * {@link RSSFault}.
+     * <p>
+     * Backpressure is only honoured if the parser is an {@link RSSParser}:
+     * while the subscriber has no demand, the HTTP response is not read any
+     * further, so RSS items are never accumulated. Other
+     * {@link RSSParserSPI} implementations have no streaming hook, so the
+     * whole RSS feed is parsed before its RSS items are emitted.
+     *
+     * @param uri RSS 2.0 feed URI
+     * @param executor runs one blocking task per subscriber
+     */
+    public RSSFlow.Publisher<RSSItem> publish(final String uri,
+            final java.util.concurrent.Executor executor) {
+        return new RSSFlow.Publisher<RSSItem>() {
+            @Override
+            public void subscribe(RSSFlow.Subscriber<? super RSSItem> subscriber) {
+                final RSSFlow.Emitter<RSSItem> emitter = new RSSFlow.Emitter<RSSItem>(
+                        subscriber) {
+                    @Override
+                    void produce() throws RSSReaderException {
+                        stream(uri, this);
+                    }
+                };
 
-            if (feed.getLink() == null) {
-                feed.setLink(android.net.Uri.parse(uri));
+                subscriber.onSubscribe(emitter);
+                try {
+                    executor.execute(emitter);
+                } catch (java.util.concurrent.RejectedExecutionException e) {
+                    emitter.fail(e);
+                }
             }
+        };
+    }
 
-            return feed;
-        } catch (IOException e) {
-            throw new RSSFault(e);
+    private void stream(String uri, RSSFlow.Emitter<RSSItem> emitter)
+            throws RSSReaderException {
+        final long start = System.nanoTime();
+        final CountingInputStream feedStream = new CountingInputStream(fetch(uri));
+        try {
+            final int items;
+            if (parser instanceof RSSParser) {
+                items = ((RSSParser) parser).stream(feedStream, emitter);
+            } else {
+                // other parsers can only be adapted after the fact
+                final java.util.List<RSSItem> parsed = parser.parse(feedStream).getItems();
+                for (RSSItem item : parsed) {
+                    emitter.emit(item);
+                }
+                items = parsed.size();
+            }
+            metrics.succeeded(items, System.nanoTime() - parseStart(feedStream, start));
+        } catch (RSSFault e) {
+            // a cancelled subscription is not a fault of the RSS feed
+            if (!emitter.isCancelled()) {
+                metrics.failed(e);
+            }
+            throw e;
         } finally {
+            metrics.read(feedStream, start, /* downloaded */false);
             Resources.closeQuietly(feedStream);
         }
     }
 
+    /**
+     * Returns the total number of response body bytes which this reader has
+     * received over the network, i.e. before content decoding. Only an
+     * {@link HttpFetcher} counts bytes; with other fetchers, zero is returned.
+     *
+     * @see HttpFetcher#getCompressedBytes()
+     */
+    public long getCompressedBytes() {
+        return fetcher instanceof HttpFetcher ? ((HttpFetcher) fetcher).getCompressedBytes() : 0;
+    }
+
+    /**
+     * Returns the total number of response body bytes which this reader has
+     * passed to the parser, i.e. after gzip or deflate decoding. Only an
+     * {@link HttpFetcher} counts bytes; with other fetchers, zero is returned.
+     *
+     * @see HttpFetcher#getUncompressedBytes()
+     */
+    public long getUncompressedBytes() {
+        return fetcher instanceof HttpFetcher ? ((HttpFetcher) fetcher).getUncompressedBytes() : 0;
+    }
+
     /**
      * Release all HTTP client resources.
      */
@@ -0,0 +1,503 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe in-memory full-text index of the title, description and
+ * categories of RSS items. RSS feeds are indexed as they are loaded and
+ * replace the previously indexed version of the same RSS feed URI.
+ * <p>
+ * Each term maps to a postings list of document ids which are delta-encoded
+ * as variable-length integers together with the weighted term frequency.
+ * Removed items are marked in a tombstone bitmap and their postings are
+ * purged once tombstones make up a quarter of the index. Queries are ranked
+ * by tf-idf with a document-at-a-time merge of the postings lists into a
+ * bounded heap whose entries are reused, so a query allocates memory
+ * proportional to the number of keywords and requested results only.
+ */
+public class RSSSearchIndex {
+
+  /**
+   * Term frequency weights of the indexed fields.
+   */
+  private static final int TITLE_WEIGHT = 3;
+  private static final int CATEGORY_WEIGHT = 2;
+  private static final int DESCRIPTION_WEIGHT = 1;
+
+  /**
+   * Minimum number of characters of an indexed term.
+   */
+  private static final int MIN_TERM_LENGTH = 2;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /* Guarded by lock */
+  private final Map<String, Postings> postings = new HashMap<String, Postings>();
+
+  /**
+   * Indexed items by document id, {@code null} if removed.
+   */
+  private RSSItem[] documents = new RSSItem[1024];
+  private int next;
+  private final BitSet tombstones = new BitSet();
+  private int removed;
+
+  /**
+   * Document ids of each indexed RSS feed keyed by URI.
+   */
+  private final Map<String, int[]> feeds = new LinkedHashMap<String, int[]>();
+
+  /**
+   * Indexes the items of the RSS feed with the specified URI, replacing
+   * items which have been indexed for the same URI before.
+   */
+  public void add(String uri, RSSFeed feed) {
+    lock.writeLock().lock();
+    try {
+      final int[] previous = feeds.remove(uri);
+      if (previous != null) {
+        delete(previous);
+      }
+
+      final List<RSSItem> items = feed.getItems();
+      final int[] ids = new int[items.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = index(items.get(i));
+      }
+      feeds.put(uri, ids);
+
+      compactIfNecessary();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the items of the RSS feed with the specified URI.
+   */
+  public void remove(String uri) {
+    lock.writeLock().lock();
+    try {
+      final int[] ids = feeds.remove(uri);
+      if (ids != null) {
+        delete(ids);
+        compactIfNecessary();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes items which have been published before the specified date.
+   * Items without a publication date are retained.
+   * 
+   * @param millis date in milliseconds since the epoch
+   */
+  public void removeOlderThan(long millis) {
+    lock.writeLock().lock();
+    try {
+      for (int id = 0; id < next; id++) {
+        final RSSItem item = documents[id];
+        if (item != null && item.getPubDateMillis() != RSSBase.NO_DATE
+            && item.getPubDateMillis() < millis) {
+          delete(id);
+        }
+      }
+
+      compactIfNecessary();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of indexed items.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return next - removed;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the items which contain any of the query's keywords, ordered by
+   * descending relevance. Keywords are matched case-insensitively.
+   * 
+   * @param query keywords separated by whitespace or punctuation
+   * @param limit maximum number of results
+   */
+  public List<RSSItem> search(String query, int limit) {
+    final List<String> terms = new ArrayList<String>();
+    tokenize(query, terms);
+    if (terms.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    lock.readLock().lock();
+    try {
+      final List<Cursor> cursors = new ArrayList<Cursor>(terms.size());
+      final int live = next - removed;
+      for (String term : new java.util.LinkedHashSet<String>(terms)) {
+        final Postings list = postings.get(term);
+        if (list != null && list.count > list.removed) {
+          final int frequency = list.count - list.removed;
+          cursors.add(new Cursor(list, (float) Math.log(1 + (double) live / frequency)));
+        }
+      }
+
+      // min-heap of the best results so far
+      final PriorityQueue<Hit> hits = new PriorityQueue<Hit>(limit + 1);
+      for (;;) {
+        int doc = Integer.MAX_VALUE;
+        for (int i = 0; i < cursors.size(); i++) {
+          doc = Math.min(doc, cursors.get(i).doc);
+        }
+        if (doc == Integer.MAX_VALUE) {
+          break;
+        }
+
+        float score = 0;
+        for (int i = 0; i < cursors.size(); i++) {
+          final Cursor cursor = cursors.get(i);
+          if (cursor.doc == doc) {
+            score += cursor.frequency * cursor.idf;
+            cursor.advance();
+          }
+        }
+
+        if (tombstones.get(doc)) {
+          continue;
+        }
+        if (hits.size() < limit) {
+          hits.add(new Hit(doc, score));
+        } else if (score >= hits.peek().score) {
+          // documents ascend, so the new hit wins a tie with the weakest one
+          final Hit weakest = hits.poll();
+          weakest.doc = doc;
+          weakest.score = score;
+          hits.add(weakest);
+        }
+      }
+
+      final RSSItem[] results = new RSSItem[hits.size()];
+      for (int i = results.length - 1; i >= 0; i--) {
+        results[i] = documents[hits.poll().doc];
+      }
+      return Arrays.asList(results);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the item's terms to the postings lists and returns its document id.
+   */
+  private int index(RSSItem item) {
+    final int id = next++;
+    if (id == documents.length) {
+      documents = Arrays.copyOf(documents, 2 * documents.length);
+    }
+    documents[id] = item;
+
+    for (Map.Entry<String, int[]> entry : frequencies(item).entrySet()) {
+      Postings list = postings.get(entry.getKey());
+      if (list == null) {
+        list = new Postings();
+        postings.put(entry.getKey(), list);
+      }
+      list.add(id, entry.getValue()[0]);
+    }
+
+    return id;
+  }
+
+  /**
+   * Returns the weighted frequencies of the item's terms.
+   */
+  private static Map<String, int[]> frequencies(RSSItem item) {
+    final Map<String, int[]> frequencies = new HashMap<String, int[]>();
+    count(item.getTitle(), TITLE_WEIGHT, frequencies);
+    count(item.getDescription(), DESCRIPTION_WEIGHT, frequencies);
+    final List<String> categories = item.getCategories();
+    for (int i = 0; i < categories.size(); i++) {
+      count(categories.get(i), CATEGORY_WEIGHT, frequencies);
+    }
+    return frequencies;
+  }
+
+  private static void count(String text, int weight, Map<String, int[]> frequencies) {
+    final List<String> terms = new ArrayList<String>();
+    tokenize(text, terms);
+    for (int i = 0; i < terms.size(); i++) {
+      final int[] frequency = frequencies.get(terms.get(i));
+      if (frequency == null) {
+        frequencies.put(terms.get(i), new int[] { weight });
+      } else {
+        frequency[0] += weight;
+      }
+    }
+  }
+
+  /**
+   * Splits the text into lower-case terms of letters and digits. Markup
+   * inside angle brackets is skipped because descriptions often contain
+   * HTML, but only if the opening bracket starts a tag, an end tag or a
+   * comment, so that text such as "a < b" is still indexed.
+   */
+  static void tokenize(String text, List<String> terms) {
+    if (text == null) {
+      return;
+    }
+
+    final StringBuilder term = new StringBuilder();
+    boolean markup = false;
+    for (int i = 0; i <= text.length(); i++) {
+      final char c = i < text.length() ? text.charAt(i) : ' ';
+      if (markup) {
+        markup = c != '>';
+      } else if (Character.isLetterOrDigit(c)) {
+        term.append(Character.toLowerCase(c));
+        continue;
+      } else if (c == '<' && i + 1 < text.length()) {
+        final char d = text.charAt(i + 1);
+        markup = Character.isLetter(d) || d == '/' || d == '!';
+      }
+
+      if (term.length() >= MIN_TERM_LENGTH) {
+        terms.add(term.toString());
+      }
+      term.setLength(0);
+    }
+  }
+
+  private void delete(int[] ids) {
+    for (int id : ids) {
+      delete(id);
+    }
+  }
+
+  private void delete(int id) {
+    if (documents[id] != null) {
+      // removed documents no longer count towards the document frequencies
+      for (String term : frequencies(documents[id]).keySet()) {
+        final Postings list = postings.get(term);
+        if (list != null) {
+          list.removed++;
+        }
+      }
+      documents[id] = null;
+      tombstones.set(id);
+      removed++;
+    }
+  }
+
+  /**
+   * Purges tombstones from the postings lists and renumbers the documents
+   * once a quarter of them has been removed.
+   */
+  private void compactIfNecessary() {
+    if (removed == 0 || removed < next / 4) {
+      return;
+    }
+
+    final int[] ids = new int[next];
+    int live = 0;
+    for (int id = 0; id < next; id++) {
+      if (documents[id] == null) {
+        ids[id] = -1;
+      } else {
+        ids[id] = live;
+        documents[live++] = documents[id];
+      }
+    }
+    Arrays.fill(documents, live, next, null);
+
+    final Iterator<Postings> lists = postings.values().iterator();
+    while (lists.hasNext()) {
+      final Postings list = lists.next();
+      list.renumber(ids);
+      if (list.count == 0) {
+        lists.remove();
+      }
+    }
+
+    for (Map.Entry<String, int[]> feed : feeds.entrySet()) {
+      final int[] feedIds = feed.getValue();
+      int n = 0;
+      for (int i = 0; i < feedIds.length; i++) {
+        if (ids[feedIds[i]] != -1) {
+          feedIds[n++] = ids[feedIds[i]];
+        }
+      }
+      if (n < feedIds.length) {
+        feed.setValue(Arrays.copyOf(feedIds, n));
+      }
+    }
+
+    next = live;
+    removed = 0;
+    tombstones.clear();
+  }
+
+  /**
+   * Postings list of a term: pairs of the delta to the previous document id
+   * and the weighted term frequency, both as variable-length integers.
+   */
+  private static final class Postings {
+
+    byte[] data = new byte[8];
+    int length;
+    int count;
+    int last = -1;
+
+    /**
+     * Number of tombstoned documents in the list.
+     */
+    int removed;
+
+    void add(int doc, int frequency) {
+      write(doc - last);
+      write(frequency);
+      last = doc;
+      count++;
+    }
+
+    private void write(int value) {
+      if (length + 5 > data.length) {
+        data = Arrays.copyOf(data, 2 * data.length);
+      }
+
+      while ((value & ~0x7f) != 0) {
+        data[length++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      data[length++] = (byte) value;
+    }
+
+    /**
+     * Rewrites the list with the new document ids and drops removed ones.
+     */
+    void renumber(int[] ids) {
+      final Cursor cursor = new Cursor(this, 0);
+      final Postings renumbered = new Postings();
+      while (cursor.doc != Integer.MAX_VALUE) {
+        if (ids[cursor.doc] != -1) {
+          renumbered.add(ids[cursor.doc], cursor.frequency);
+        }
+        cursor.advance();
+      }
+
+      data = Arrays.copyOf(renumbered.data, renumbered.length);
+      length = renumbered.length;
+      count = renumbered.count;
+      last = renumbered.last;
+      removed = 0;
+    }
+
+  }
+
+  /**
+   * Sequential reader of a postings list.
+   */
+  private static final class Cursor {
+
+    private final Postings list;
+    private final int length;
+    private int position;
+
+    final float idf;
+
+    /**
+     * Current document id, {@link Integer#MAX_VALUE} at the end of the list.
+     */
+    int doc = -1;
+    int frequency;
+
+    Cursor(Postings list, float idf) {
+      this.list = list;
+      this.length = list.length;
+      this.idf = idf;
+      advance();
+    }
+
+    void advance() {
+      if (position == length) {
+        doc = Integer.MAX_VALUE;
+        return;
+      }
+
+      doc += read();
+      frequency = read();
+    }
+
+    private int read() {
+      final byte[] data = list.data;
+      int value = 0;
+      for (int shift = 0;; shift += 7) {
+        final byte b = data[position++];
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Scored document, ordered by ascending score and then by ascending
+   * document id, so that more recently indexed items win ties.
+   */
+  private static final class Hit implements Comparable<Hit> {
+
+    int doc;
+    float score;
+
+    Hit(int doc, float score) {
+      this.doc = doc;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(Hit other) {
+      if (score != other.score) {
+        return score < other.score ? -1 : 1;
+      }
+
+      return doc < other.doc ? -1 : doc == other.doc ? 0 : 1;
+    }
+
+  }
+
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thread-safe scalable Bloom filter of the RSS items which have already been
+ * seen, keyed by item identity, i.e. the GUID or, if there is none, the link
+ * or title of an item. Unlike an exact set, memory grows by a bounded number
+ * of bits per item, about 20 at a false positive rate of 1%, regardless of
+ * the length of the identities.
+ * <p>
+ * The filter never forgets an item, but it may report an item as seen with
+ * a small probability although it is new. It starts with a single Bloom
+ * filter of the initial capacity. Whenever the current filter is full, a
+ * filter with twice the capacity and a tighter false positive rate is added,
+ * so that the compound false positive rate stays below the specified rate
+ * however many items are added.
+ * <p>
+ * When configured with {@link RSSConfig#withSeenFilter(RSSSeenFilter)}, the
+ * parser skips items which have already been seen and records the new items
+ * of every RSS feed which it has parsed completely. The items of a malformed
+ * RSS feed are not recorded, so they are returned again by a later load.
+ */
+public class RSSSeenFilter {
+
+  private static final int MAGIC = 0x52535346; // "RSSF"
+
+  private static final int VERSION = 1;
+
+  /**
+   * Ratio of the false positive rates of consecutive filters.
+   */
+  private static final double TIGHTENING = 0.8;
+
+  /**
+   * Bounds of a saved filter, so that a corrupt file cannot make
+   * {@link #readFrom(InputStream)} allocate or loop without limit. Stages
+   * stop growing at 2^36 items, and tightening the false positive rate of
+   * even the smallest rate adds no more than about a thousand hashes.
+   */
+  private static final int MAX_STAGES = 64;
+  private static final int MAX_HASHES = 1 << 11;
+  private static final int MAX_WORDS = 1 << 30;
+
+  private final int initialCapacity;
+
+  private final double falsePositiveRate;
+
+  /* Guarded by this */
+  private final List<Stage> stages = new ArrayList<Stage>();
+
+  private long count;
+
+  /**
+   * Instantiate an empty filter.
+   * 
+   * @param initialCapacity number of items of the first Bloom filter
+   * @param falsePositiveRate probability that a new item is reported as
+   *          seen, between 0 and 1 exclusive
+   */
+  public RSSSeenFilter(int initialCapacity, double falsePositiveRate) {
+    if (initialCapacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    } else if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("False positive rate must be between 0 and 1.");
+    }
+
+    this.initialCapacity = initialCapacity;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * Returns {@code true} if the item has probably been seen, {@code false}
+   * if it has definitely not been seen.
+   */
+  public boolean mightContain(RSSItem item) {
+    return mightContain(key(item));
+  }
+
+  /**
+   * Records the item as seen.
+   * 
+   * @return {@code true} if the item is new, {@code false} if it has
+   *         probably been seen before
+   */
+  public boolean add(RSSItem item) {
+    return add(key(item));
+  }
+
+  /**
+   * Returns the number of items which have been recorded as new.
+   */
+  public synchronized long size() {
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes of the bit arrays.
+   */
+  public synchronized long weight() {
+    long weight = 0;
+    for (int i = 0; i < stages.size(); i++) {
+      weight += 8L * stages.get(i).words.length;
+    }
+    return weight;
+  }
+
+  synchronized boolean mightContain(long key) {
+    for (int i = stages.size() - 1; i >= 0; i--) {
+      if (stages.get(i).contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  synchronized boolean add(long key) {
+    if (mightContain(key)) {
+      return false;
+    }
+
+    Stage stage = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+    if (stage == null || stage.count >= stage.capacity) {
+      final int n = stages.size();
+      final long capacity = Math.min((long) initialCapacity << Math.min(n, 32), 1L << 36);
+      stage = new Stage(capacity, falsePositiveRate * (1 - TIGHTENING)
+          * Math.pow(TIGHTENING, n));
+      stages.add(stage);
+    }
+
+    stage.add(key);
+    count++;
+    return true;
+  }
+
+  /**
+   * Returns the 64-bit key of the identity of the item, see
+   * {@link RSSFeedDiff#identity(RSSItem)}.
+   */
+  static long key(RSSItem item) {
+    long hash = Fingerprints.OFFSET_BASIS;
+    if (item.getGuid() != null) {
+      hash = Fingerprints.update(Fingerprints.update(hash, 'G'), item.getGuid());
+    } else if (item.getLinkString() != null) {
+      hash = Fingerprints.update(Fingerprints.update(hash, 'L'), item.getLinkString());
+    } else {
+      hash = Fingerprints.update(Fingerprints.update(hash, 'T'), item.getTitle());
+    }
+
+    return Fingerprints.mix(hash);
+  }
+
+  /**
+   * Writes the filter to the file. The file is replaced atomically, and
+   * only after the new filter has been synced to the storage device, so that
+   * a crash never leaves a partial filter behind.
+   */
+  public void save(File file) throws IOException {
+    final File temporary = new File(file.getPath() + ".tmp");
+    boolean saved = false;
+    try {
+      final FileOutputStream out = new FileOutputStream(temporary);
+      try {
+        writeTo(out);
+        out.getFD().sync();
+      } finally {
+        out.close();
+      }
+
+      if (!temporary.renameTo(file)) {
+        // renaming does not replace an existing file on every platform
+        file.delete();
+        if (!temporary.renameTo(file)) {
+          throw new IOException("Cannot replace " + file);
+        }
+      }
+      saved = true;
+    } finally {
+      if (!saved) {
+        temporary.delete();
+      }
+    }
+  }
+
+  /**
+   * Reads a filter which has been written with {@link #save(File)}.
+   * 
+   * @throws StreamCorruptedException if the file does not contain a filter
+   */
+  public static RSSSeenFilter load(File file) throws IOException {
+    final InputStream in = new FileInputStream(file);
+    try {
+      return readFrom(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes the filter to the stream, which is not closed.
+   */
+  public synchronized void writeTo(OutputStream stream) throws IOException {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 65536));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(initialCapacity);
+    out.writeDouble(falsePositiveRate);
+    out.writeLong(count);
+    out.writeInt(stages.size());
+    for (int i = 0; i < stages.size(); i++) {
+      final Stage stage = stages.get(i);
+      out.writeLong(stage.capacity);
+      out.writeLong(stage.count);
+      out.writeInt(stage.hashes);
+      out.writeInt(stage.words.length);
+      for (long word : stage.words) {
+        out.writeLong(word);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads a filter which has been written with
+   * {@link #writeTo(OutputStream)}.
+   * 
+   * @throws StreamCorruptedException if the stream does not contain a filter
+   */
+  public static RSSSeenFilter readFrom(InputStream stream) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 65536));
+    if (in.readInt() != MAGIC) {
+      throw new StreamCorruptedException("Not an RSS seen filter");
+    } else if (in.readInt() != VERSION) {
+      throw new StreamCorruptedException("Unsupported RSS seen filter version");
+    }
+
+    final int initialCapacity = in.readInt();
+    final double falsePositiveRate = in.readDouble();
+    final RSSSeenFilter filter;
+    try {
+      filter = new RSSSeenFilter(initialCapacity, falsePositiveRate);
+    } catch (IllegalArgumentException e) {
+      throw new StreamCorruptedException(e.getMessage());
+    }
+
+    filter.count = in.readLong();
+    final int stages = in.readInt();
+    if (filter.count < 0 || stages < 0 || stages > MAX_STAGES) {
+      throw new StreamCorruptedException("Malformed RSS seen filter");
+    }
+    for (int i = 0; i < stages; i++) {
+      final long capacity = in.readLong();
+      final long count = in.readLong();
+      final int hashes = in.readInt();
+      final int words = in.readInt();
+      if (capacity <= 0 || count < 0 || hashes <= 0 || hashes > MAX_HASHES || words <= 0
+          || words > MAX_WORDS) {
+        throw new StreamCorruptedException("Malformed RSS seen filter");
+      }
+
+      // grow the bit array as words are read, so that a truncated file fails
+      // before a large array is allocated
+      long[] bits = new long[Math.min(words, 8192)];
+      for (int j = 0; j < words; j++) {
+        if (j == bits.length) {
+          bits = Arrays.copyOf(bits, (int) Math.min(2L * j, words));
+        }
+        bits[j] = in.readLong();
+      }
+      filter.stages.add(new Stage(capacity, count, hashes, bits));
+    }
+
+    return filter;
+  }
+
+  /**
+   * Bloom filter with a fixed capacity and false positive rate.
+   */
+  private static final class Stage {
+
+    final long capacity;
+    final int hashes;
+    final long[] words;
+
+    private final long bits;
+
+    long count;
+
+    Stage(long capacity, double falsePositiveRate) {
+      // optimal number of bits m = -n ln p / (ln 2)^2
+      final double optimal = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+      final long words = Math.min(Math.max(1, (long) Math.ceil(optimal / 64)), MAX_WORDS);
+
+      this.capacity = capacity;
+      this.words = new long[(int) words];
+      this.bits = words * 64;
+
+      // optimal number of hash functions k = m/n ln 2
+      this.hashes = (int) Math.max(1, Math.round((double) bits / capacity * Math.log(2)));
+    }
+
+    Stage(long capacity, long count, int hashes, long[] words) {
+      this.capacity = capacity;
+      this.count = count;
+      this.hashes = hashes;
+      this.words = words;
+      this.bits = words.length * 64L;
+    }
+
+    boolean contains(long key) {
+      // Kirsch-Mitzenmacher double hashing
+      final long h1 = key;
+      final long h2 = (key >>> 32) | (key << 32) | 1;
+      for (int i = 0; i < hashes; i++) {
+        final long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+        if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void add(long key) {
+      final long h1 = key;
+      final long h2 = (key >>> 32) | (key << 32) | 1;
+      for (int i = 0; i < hashes; i++) {
+        final long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+        words[(int) (bit >>> 6)] |= 1L << bit;
+      }
+      count++;
+    }
+
+  }
+
+}
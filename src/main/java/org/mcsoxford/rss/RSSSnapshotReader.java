@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mcsoxford.rss.RSSSnapshotWriter.*;
+
+/**
+ * Reads RSS feeds from a binary snapshot which has been written by
+ * {@link RSSSnapshotWriter}. RSS feeds are restored one at a time, so a
+ * snapshot of thousands of RSS feeds can be streamed. Only a single thread
+ * must use this reader.
+ */
+public class RSSSnapshotReader implements java.io.Closeable {
+
+  /**
+   * Upper bound of the item list pre-size, so that a corrupt item count
+   * cannot allocate an arbitrarily large list before the snapshot ends.
+   */
+  private static final int MAX_ITEM_CAPACITY = 1024;
+
+  private final InputStream in;
+
+  private final RSSConfig config;
+
+  /**
+   * Compressor of large descriptions and contents, {@code null} unless
+   * enabled by the configuration.
+   */
+  private final CompressedText.Compressor compressor;
+
+  private final List<String> table = new ArrayList<String>();
+
+  /**
+   * Previous date in milliseconds since the epoch.
+   */
+  private long date;
+
+  private byte[] bytes = new byte[256];
+
+  private boolean end;
+
+  /**
+   * Format version of the snapshot.
+   */
+  private final int version;
+
+  /**
+   * Instantiate a reader and validate the snapshot header. The configuration
+   * determines the initial capacities of the restored collections and how
+   * URIs and large texts are stored.
+   * 
+   * @throws StreamCorruptedException if the stream is not a snapshot or the
+   *           snapshot version is not supported
+   */
+  public RSSSnapshotReader(InputStream in, RSSConfig config) throws IOException {
+    this.in = new BufferedInputStream(in, 8192);
+    this.config = config;
+    this.compressor = config.compressThreshold == 0 ? null : new CompressedText.Compressor(
+        config);
+
+    if (readInt() != MAGIC) {
+      throw new StreamCorruptedException("Not an RSS snapshot");
+    }
+
+    final long version = readVarint();
+    if (version < 1 || version > VERSION) {
+      throw new StreamCorruptedException("Unsupported RSS snapshot version " + version);
+    }
+    this.version = (int) version;
+  }
+
+  public RSSSnapshotReader(InputStream in) throws IOException {
+    this(in, new RSSConfig());
+  }
+
+  /**
+   * Returns the next RSS feed in the snapshot, {@code null} at the end of the
+   * snapshot.
+   * 
+   * @throws StreamCorruptedException if the snapshot is malformed
+   * @throws EOFException if the snapshot has been truncated
+   */
+  public RSSFeed read() throws IOException {
+    if (end) {
+      return null;
+    }
+
+    final int tag = readByte();
+    if (tag == END) {
+      end = true;
+      return null;
+    } else if (tag != FEED) {
+      throw new StreamCorruptedException("Unknown RSS snapshot record " + tag);
+    }
+
+    final RSSFeed feed = new RSSFeed();
+    readBase(feed);
+    feed.setLastBuildDateMillis(readDate());
+    feed.setTTL((int) readVarint() - 1);
+
+    // a corrupt count must not allocate more than a bounded pre-size
+    final int items = readLength();
+    feed.ensureItemCapacity(Math.min(items, MAX_ITEM_CAPACITY));
+    for (int i = 0; i < items; i++) {
+      feed.addItem(readItem());
+    }
+
+    return feed;
+  }
+
+  private RSSItem readItem() throws IOException {
+    final RSSItem item = new RSSItem(config.categoryAvg, config.thumbnailAvg);
+    readBase(item);
+    final String content = readString();
+    final CompressedText compressed = compressor == null ? null : compressor.compress(content);
+    if (compressed == null) {
+      item.setContent(content);
+    } else {
+      item.setContent(compressed);
+    }
+
+    if (version >= 2) {
+      item.setGuid(readString());
+      item.setPermaLink(readByte() != 0);
+      item.setFingerprint(((long) readInt() << 32) | (readInt() & 0xffffffffL));
+    }
+
+    final int thumbnails = readLength();
+    for (int i = 0; i < thumbnails; i++) {
+      final String url = readString();
+      final int height = (int) unzigzag(readVarint());
+      final int width = (int) unzigzag(readVarint());
+      item.addThumbnail(config.deferUris ? new MediaThumbnail(url, height, width)
+          : new MediaThumbnail(UriCache.parse(config.uriCache, url), height, width));
+    }
+
+    if (readByte() != 0) {
+      final String url = readString();
+      final int length = (int) unzigzag(readVarint());
+      final String mimeType = readString();
+      item.setEnclosure(config.deferUris ? new MediaEnclosure(url, length, mimeType)
+          : new MediaEnclosure(UriCache.parse(config.uriCache, url), length, mimeType));
+    }
+
+    return item;
+  }
+
+  private void readBase(RSSBase base) throws IOException {
+    base.setTitle(readString());
+    final String link = readString();
+    if (link == null || config.deferUris) {
+      base.setLink(link);
+    } else {
+      base.setLink(UriCache.parse(config.uriCache, link));
+    }
+    final String description = readString();
+    final CompressedText compressed = compressor == null ? null : compressor
+        .compress(description);
+    if (compressed == null) {
+      base.setDescription(description);
+    } else {
+      base.setDescription(compressed);
+    }
+    base.setPubDateMillis(readDate());
+
+    final int categories = readLength();
+    for (int i = 0; i < categories; i++) {
+      base.addCategory(readString());
+    }
+  }
+
+  private long readDate() throws IOException {
+    final long value = readVarint();
+    if (value == 0) {
+      return RSSBase.NO_DATE;
+    }
+
+    date += unzigzag(value - 1);
+    return date;
+  }
+
+  private String readString() throws IOException {
+    final long reference = readVarint();
+    if (reference == NULL_STRING) {
+      return null;
+    } else if (reference >= STRING_REFERENCE) {
+      final long index = reference - STRING_REFERENCE;
+      if (index >= table.size()) {
+        throw new StreamCorruptedException("Invalid RSS snapshot string reference");
+      }
+      return table.get((int) index);
+    }
+
+    final int length = readLength();
+    readFully(length);
+
+    final String value = new String(bytes, 0, length, UTF8);
+    if (reference == TABLE_STRING) {
+      table.add(value);
+    }
+
+    return value;
+  }
+
+  /**
+   * Reads the specified number of bytes into the buffer, which grows with
+   * the bytes actually read, so that a corrupt length fails with an
+   * {@link EOFException} instead of a huge allocation.
+   */
+  private void readFully(int length) throws IOException {
+    int offset = 0;
+    while (offset < length) {
+      if (offset == bytes.length) {
+        bytes = java.util.Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+      }
+      final int n = in.read(bytes, offset, Math.min(length, bytes.length) - offset);
+      if (n == -1) {
+        throw new EOFException();
+      }
+      offset += n;
+    }
+  }
+
+  private int readByte() throws IOException {
+    final int b = in.read();
+    if (b == -1) {
+      throw new EOFException();
+    }
+
+    return b;
+  }
+
+  private int readInt() throws IOException {
+    return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+  }
+
+  private int readLength() throws IOException {
+    final long length = readVarint();
+    if (length > Integer.MAX_VALUE) {
+      throw new StreamCorruptedException("Invalid RSS snapshot length");
+    }
+
+    return (int) length;
+  }
+
+  private long readVarint() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = readByte();
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+
+    throw new StreamCorruptedException("Malformed RSS snapshot varint");
+  }
+
+  static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (compressor != null) {
+      compressor.end();
+    }
+    in.close();
+  }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes RSS feeds in a compact binary snapshot format which can be restored
+ * with {@link RSSSnapshotReader} much faster than re-parsing XML. Any number
+ * of RSS feeds can be streamed into the same snapshot. Only a single thread
+ * must use this writer.
+ * <p>
+ * Integers are written as variable-length quantities and dates as deltas to
+ * the previous date in the stream. Short strings such as categories and MIME
+ * types are written once and referenced by their index in a string table
+ * which spans the entire snapshot.
+ */
+public class RSSSnapshotWriter implements java.io.Closeable, java.io.Flushable {
+
+  /**
+   * First bytes of every snapshot.
+   */
+  static final int MAGIC = 0x52535353; // "RSSS"
+
+  /**
+   * Version of the snapshot format which this writer produces.
+   */
+  static final int VERSION = 2;
+
+  static final int END = 0;
+  static final int FEED = 1;
+
+  /**
+   * String references: null, inline literal, literal which is appended to
+   * the string table, or an index into the string table offset by this
+   * constant.
+   */
+  static final int NULL_STRING = 0;
+  static final int INLINE_STRING = 1;
+  static final int TABLE_STRING = 2;
+  static final int STRING_REFERENCE = 3;
+
+  /**
+   * Longer strings are rarely repeated and are therefore not added to the
+   * string table.
+   */
+  static final int MAX_TABLE_STRING = 128;
+
+  /**
+   * Upper bound on the number of entries in the string table.
+   */
+  static final int MAX_TABLE_SIZE = 1 << 16;
+
+  static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final OutputStream out;
+
+  private final Map<String, Integer> table = new HashMap<String, Integer>();
+
+  /**
+   * Previous date in milliseconds since the epoch.
+   */
+  private long date;
+
+  private boolean closed;
+
+  /**
+   * Instantiate a writer and write the snapshot header.
+   */
+  public RSSSnapshotWriter(OutputStream out) throws IOException {
+    this.out = new BufferedOutputStream(out, 8192);
+    writeInt(MAGIC);
+    writeVarint(VERSION);
+  }
+
+  /**
+   * Appends the RSS feed and all of its items to the snapshot.
+   */
+  public void write(RSSFeed feed) throws IOException {
+    if (closed) {
+      throw new IOException("Snapshot writer has been closed");
+    }
+
+    out.write(FEED);
+    writeBase(feed);
+    writeDate(feed.getLastBuildDateMillis());
+    writeVarint(feed.getTTLMinutes() + 1L);
+
+    final List<RSSItem> items = feed.getItems();
+    writeVarint(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      writeItem(items.get(i));
+    }
+  }
+
+  private void writeItem(RSSItem item) throws IOException {
+    writeBase(item);
+    writeString(item.getContent());
+
+    // since version 2
+    writeString(item.getGuid());
+    out.write(item.isPermaLink() ? 1 : 0);
+    writeLong(item.getFingerprint());
+
+    final List<MediaThumbnail> thumbnails = item.getThumbnails();
+    writeVarint(thumbnails.size());
+    for (int i = 0; i < thumbnails.size(); i++) {
+      final MediaThumbnail thumbnail = thumbnails.get(i);
+      writeString(thumbnail.getUrlString());
+      writeVarint(zigzag(thumbnail.getHeight()));
+      writeVarint(zigzag(thumbnail.getWidth()));
+    }
+
+    final MediaEnclosure enclosure = item.getEnclosure();
+    if (enclosure == null) {
+      out.write(0);
+    } else {
+      out.write(1);
+      writeString(enclosure.getUrlString());
+      writeVarint(zigzag(enclosure.getLength()));
+      writeString(enclosure.getMimeType());
+    }
+  }
+
+  private void writeBase(RSSBase base) throws IOException {
+    writeString(base.getTitle());
+    writeString(base.getLinkString());
+    writeString(base.getDescription());
+    writeDate(base.getPubDateMillis());
+
+    final List<String> categories = base.getCategories();
+    writeVarint(categories.size());
+    for (int i = 0; i < categories.size(); i++) {
+      writeString(categories.get(i));
+    }
+  }
+
+  private void writeDate(long millis) throws IOException {
+    if (millis == RSSBase.NO_DATE) {
+      writeVarint(0);
+      return;
+    }
+
+    writeVarint(zigzag(millis - date) + 1);
+    date = millis;
+  }
+
+  private void writeString(String value) throws IOException {
+    if (value == null) {
+      writeVarint(NULL_STRING);
+      return;
+    }
+
+    final boolean short_ = value.length() <= MAX_TABLE_STRING;
+    if (short_) {
+      final Integer index = table.get(value);
+      if (index != null) {
+        writeVarint(STRING_REFERENCE + index);
+        return;
+      }
+    }
+
+    if (short_ && table.size() < MAX_TABLE_SIZE) {
+      table.put(value, table.size());
+      writeVarint(TABLE_STRING);
+    } else {
+      writeVarint(INLINE_STRING);
+    }
+
+    final byte[] bytes = value.getBytes(UTF8);
+    writeVarint(bytes.length);
+    out.write(bytes);
+  }
+
+  private void writeInt(int value) throws IOException {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+
+  private void writeLong(long value) throws IOException {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void writeVarint(long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.write((int) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * Writes the end marker and closes the underlying stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    try {
+      out.write(END);
+      out.flush();
+    } finally {
+      out.close();
+    }
+  }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Thread-safe "river of news" which merges the RSS items of many RSS feeds
+ * into a single timeline, newest first. Only the most recent items up to the
+ * capacity of the timeline are retained, and an item which appears in several
+ * RSS feeds, as identified by its GUID, link or title, is retained once.
+ * <p>
+ * When an RSS feed is refreshed, its items are merged into the existing
+ * timeline in time linear in the capacity instead of re-sorting all items.
+ * Only if the refresh frees room for items which had been left out of the
+ * timeline, the timeline is rebuilt with a k-way heap merge of all RSS feeds.
+ * Items without a publication date are ordered last.
+ */
+public class RSSTimeline {
+
+  /**
+   * Orders entries by descending publication date.
+   */
+  private static final Comparator<Entry> NEWEST_FIRST = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry a, Entry b) {
+      final long x = a.item.getPubDateMillis();
+      final long y = b.item.getPubDateMillis();
+      return x > y ? -1 : x == y ? 0 : 1;
+    }
+  };
+
+  private final int capacity;
+
+  /**
+   * Newest items of each RSS feed ordered by {@link #NEWEST_FIRST}, keyed by
+   * RSS feed URI.
+   */
+  private final Map<String, Entry[]> sources = new HashMap<String, Entry[]>();
+
+  /**
+   * Merged items ordered by {@link #NEWEST_FIRST}.
+   */
+  private List<Entry> timeline = new ArrayList<Entry>();
+
+  /**
+   * {@code true} if items have been left out of the timeline because of its
+   * capacity. None of them is newer than the {@link #cutoff} date.
+   */
+  private boolean truncated;
+  private long cutoff;
+
+  /**
+   * Identities of items which have been left out of the timeline because
+   * they are duplicates.
+   */
+  private Set<String> suppressed = new HashSet<String>();
+
+  /**
+   * Instantiate an empty timeline.
+   * 
+   * @param capacity maximum number of items in the timeline
+   */
+  public RSSTimeline(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Timeline capacity must be positive.");
+    }
+
+    this.capacity = capacity;
+  }
+
+  /**
+   * Merges the specified RSS feeds into a list of at most {@code limit} items,
+   * newest first, without duplicates.
+   */
+  public static List<RSSItem> merge(Collection<RSSFeed> feeds, int limit) {
+    final RSSTimeline timeline = new RSSTimeline(limit);
+    int i = 0;
+    for (RSSFeed feed : feeds) {
+      timeline.sources.put(String.valueOf(i++), timeline.newest(feed));
+    }
+    timeline.rebuild();
+
+    return timeline.getItems();
+  }
+
+  /**
+   * Replaces the items of the RSS feed with the specified URI.
+   */
+  public synchronized void update(String uri, RSSFeed feed) {
+    final Entry[] latest = newest(feed);
+    final Entry[] previous = sources.put(uri, latest);
+
+    boolean revive = false;
+    if (previous != null && previous.length > 0) {
+      final List<Entry> retained = new ArrayList<Entry>(timeline.size());
+      for (Entry entry : timeline) {
+        if (entry.source != previous) {
+          retained.add(entry);
+        } else if (suppressed.contains(entry.identity)) {
+          // a duplicate in another RSS feed may take the item's place
+          revive = true;
+        }
+      }
+      timeline = retained;
+    }
+
+    timeline = merge(timeline, latest);
+    if (revive || suppressed.size() > 4 * capacity || truncated
+        && (timeline.size() < capacity || isOlder(timeline.get(timeline.size() - 1), cutoff))) {
+      // items which have been left out may belong to the timeline now
+      rebuild();
+    }
+  }
+
+  /**
+   * Updates the timeline with an RSS feed which has been loaded by an
+   * {@link RSSLoader}, e.g. as returned by {@link RSSLoader#take()}.
+   * 
+   * @throws ExecutionException if the RSS feed could not be loaded
+   */
+  public void update(Future<RSSFeed> future) throws InterruptedException,
+      ExecutionException {
+    final RSSFeed feed = future.get();
+    if (future instanceof RSSLoader.RSSFuture) {
+      update(((RSSLoader.RSSFuture) future).uri, feed);
+    } else {
+      update(String.valueOf(feed.getLink()), feed);
+    }
+  }
+
+  /**
+   * Removes the items of the RSS feed with the specified URI.
+   */
+  public synchronized void remove(String uri) {
+    if (sources.remove(uri) != null) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Returns a snapshot of the timeline, newest first.
+   */
+  public synchronized List<RSSItem> getItems() {
+    final List<RSSItem> items = new ArrayList<RSSItem>(timeline.size());
+    for (Entry entry : timeline) {
+      items.add(entry.item);
+    }
+
+    return Collections.unmodifiableList(items);
+  }
+
+  /**
+   * Returns the items of the timeline, newest first, clustered with the
+   * default maximum distance of near-duplicates. Every cluster is a story
+   * which appears in several RSS feeds with slightly different titles or
+   * links, and its first item is the newest one.
+   *
+   * @see RSSNearDuplicates#cluster(List, int)
+   */
+  public List<List<RSSItem>> getClusters() {
+    return RSSNearDuplicates.cluster(getItems(), RSSNearDuplicates.DEFAULT_MAX_DISTANCE);
+  }
+
+  /**
+   * Returns the number of items in the timeline.
+   */
+  public synchronized int size() {
+    return timeline.size();
+  }
+
+  /**
+   * Returns the newest items of the RSS feed, which are the only ones that
+   * can be part of the timeline.
+   */
+  private Entry[] newest(RSSFeed feed) {
+    final List<RSSItem> items = feed.getItems();
+    final Entry[] entries = new Entry[items.size()];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = new Entry(items.get(i), entries);
+    }
+
+    // stable sort keeps the RSS feed's order of items with the same date
+    Arrays.sort(entries, NEWEST_FIRST);
+    if (entries.length <= capacity) {
+      return entries;
+    }
+
+    // entries refer to the source array, so copy them
+    final Entry[] newest = new Entry[capacity];
+    for (int i = 0; i < capacity; i++) {
+      newest[i] = new Entry(entries[i].item, entries[i].identity, newest);
+    }
+    return newest;
+  }
+
+  /**
+   * Merges two ordered lists of entries in linear time.
+   */
+  private List<Entry> merge(List<Entry> current, Entry[] latest) {
+    final List<Entry> merged = new ArrayList<Entry>(Math.min(capacity,
+        current.size() + latest.length));
+    final Set<String> identities = new HashSet<String>();
+
+    int i = 0;
+    int j = 0;
+    while (i < current.size() || j < latest.length) {
+      final Entry next;
+      if (j == latest.length
+          || (i < current.size() && NEWEST_FIRST.compare(current.get(i), latest[j]) <= 0)) {
+        next = current.get(i++);
+      } else {
+        next = latest[j++];
+      }
+
+      if (merged.size() == capacity) {
+        truncate(next);
+        break;
+      } else if (identities.add(next.identity)) {
+        merged.add(next);
+      } else {
+        suppressed.add(next.identity);
+      }
+    }
+
+    return merged;
+  }
+
+  /**
+   * Rebuilds the timeline with a k-way merge of all RSS feeds.
+   */
+  private void rebuild() {
+    final PriorityQueue<Cursor> heap = new PriorityQueue<Cursor>(Math.max(1, sources.size()));
+    for (Entry[] entries : sources.values()) {
+      if (entries.length > 0) {
+        heap.add(new Cursor(entries));
+      }
+    }
+
+    final List<Entry> merged = new ArrayList<Entry>(Math.min(capacity, 1024));
+    final Set<String> identities = new HashSet<String>();
+    truncated = false;
+    suppressed = new HashSet<String>();
+    while (!heap.isEmpty()) {
+      final Cursor cursor = heap.poll();
+      final Entry next = cursor.entries[cursor.position++];
+      if (merged.size() == capacity) {
+        truncate(next);
+        break;
+      } else if (identities.add(next.identity)) {
+        merged.add(next);
+      } else {
+        suppressed.add(next.identity);
+      }
+
+      if (cursor.position < cursor.entries.length) {
+        heap.add(cursor);
+      }
+    }
+
+    timeline = merged;
+  }
+
+  /**
+   * Records that the specified entry and all older ones have been left out
+   * of the timeline.
+   */
+  private void truncate(Entry newest) {
+    final long date = newest.item.getPubDateMillis();
+    if (!truncated || date > cutoff) {
+      cutoff = date;
+    }
+    truncated = true;
+  }
+
+  private static boolean isOlder(Entry entry, long date) {
+    return entry.item.getPubDateMillis() < date;
+  }
+
+  /**
+   * Item of the timeline together with its identity and its RSS feed.
+   */
+  private static final class Entry {
+
+    final RSSItem item;
+    final String identity;
+
+    /**
+     * Newest items of the RSS feed which contains this item.
+     */
+    final Entry[] source;
+
+    Entry(RSSItem item, Entry[] source) {
+      this(item, RSSFeedDiff.identity(item), source);
+    }
+
+    Entry(RSSItem item, String identity, Entry[] source) {
+      this.item = item;
+      this.identity = identity;
+      this.source = source;
+    }
+
+  }
+
+  /**
+   * Position in the newest items of an RSS feed during a k-way merge.
+   */
+  private static final class Cursor implements Comparable<Cursor> {
+
+    final Entry[] entries;
+    int position;
+
+    Cursor(Entry[] entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      return NEWEST_FIRST.compare(entries[position], other.entries[other.position]);
+    }
+
+  }
+
+}
@@ -46,5 +46,26 @@ final class Resources {
     return null;
   }
 
+  /**
+   * Reads the remainder of the stream into a byte array without closing it.
+   * 
+   * @param maxBytes maximum number of bytes to read, zero if unlimited
+   * @throws RSSFault if the stream has more than {@code maxBytes} bytes
+   */
+  static byte[] toByteArray(java.io.InputStream stream, int maxBytes)
+      throws java.io.IOException {
+    final java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream(8192);
+    final byte[] buffer = new byte[8192];
+    int n;
+    while ((n = stream.read(buffer)) != -1) {
+      if (maxBytes != 0 && n > maxBytes - bytes.size()) {
+        throw new RSSFault("RSS feed exceeds " + maxBytes + " bytes");
+      }
+      bytes.write(buffer, 0, n);
+    }
+
+    return bytes.toByteArray();
+  }
+
 }
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe RSS fetcher SPI implementation which delegates to other
+ * fetchers based on the URI scheme. By default, {@code http:} and
+ * {@code https:} URIs are retrieved with {@link HttpFetcher} and
+ * {@code file:} URIs with {@link FileFetcher}.
+ */
+public class SchemeFetcher implements RSSFetcherSPI {
+
+  private final ConcurrentMap<String, RSSFetcherSPI> fetchers = new ConcurrentHashMap<String, RSSFetcherSPI>();
+
+  /**
+   * Instantiate a fetcher for {@code http:}, {@code https:} and
+   * {@code file:} URIs.
+   * 
+   * @param config configuration of the HTTP fetcher
+   */
+  public SchemeFetcher(RSSConfig config) {
+    final HttpFetcher http = new HttpFetcher(config);
+    register("http", http);
+    register("https", http);
+    register("file", new FileFetcher());
+  }
+
+  public SchemeFetcher() {
+    this(new RSSConfig());
+  }
+
+  /**
+   * Use the specified fetcher for all URIs with the specified scheme. Any
+   * previously registered fetcher for the scheme is replaced.
+   * 
+   * @param scheme case-insensitive URI scheme such as {@code "mem"}
+   */
+  public void register(String scheme, RSSFetcherSPI fetcher) {
+    if (scheme == null) {
+      throw new IllegalArgumentException("URI scheme must not be null.");
+    } else if (fetcher == null) {
+      throw new IllegalArgumentException("RSS fetcher must not be null.");
+    }
+
+    fetchers.put(scheme.toLowerCase(Locale.ENGLISH), fetcher);
+  }
+
+  /**
+   * Fetches the RSS feed with the fetcher registered for the URI scheme.
+   * 
+   * @throws RSSFault if no fetcher is registered for the URI scheme
+   */
+  @Override
+  public InputStream fetch(String uri) throws RSSReaderException {
+    final int colon = uri.indexOf(':');
+    final RSSFetcherSPI fetcher = colon == -1 ? null : fetchers.get(uri
+        .substring(0, colon).toLowerCase(Locale.ENGLISH));
+    if (fetcher == null) {
+      throw new RSSFault("Unsupported RSS feed URI: " + uri);
+    }
+
+    return fetcher.fetch(uri);
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Internal helper class to compute 64-bit SimHash signatures of the title
+ * and description of RSS items. Every word and every pair of adjacent words
+ * is a feature whose hash votes on each bit of the signature, so texts which
+ * share most of their words have signatures with a small Hamming distance.
+ */
+final class SimHash {
+
+  /* Hide constructor */
+  private SimHash() {}
+
+  static final int BITS = 64;
+
+  /**
+   * Votes of title words, which are more telling than description words.
+   */
+  static final int TITLE_WEIGHT = 2;
+
+  static final int DESCRIPTION_WEIGHT = 1;
+
+  private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+  /**
+   * Adds the votes of the features of the text, which may contain markup,
+   * to the specified array of {@link #BITS} votes.
+   */
+  static void add(int[] votes, String text, int weight) {
+    final List<String> words = new ArrayList<String>();
+    RSSSearchIndex.tokenize(text, words);
+
+    long previous = 0;
+    for (int i = 0; i < words.size(); i++) {
+      final long word = Fingerprints.update(Fingerprints.OFFSET_BASIS, words.get(i));
+      vote(votes, Fingerprints.mix(word), weight);
+      if (i > 0) {
+        vote(votes, Fingerprints.mix(previous * GOLDEN + word), weight);
+      }
+      previous = word;
+    }
+  }
+
+  private static void vote(int[] votes, long feature, int weight) {
+    for (int bit = 0; bit < BITS; bit++) {
+      if ((feature & (1L << bit)) != 0) {
+        votes[bit] += weight;
+      } else {
+        votes[bit] -= weight;
+      }
+    }
+  }
+
+  /**
+   * Returns the signature of the votes, zero if there were no votes.
+   */
+  static long signature(int[] votes) {
+    long signature = 0;
+    boolean voted = false;
+    for (int bit = 0; bit < BITS; bit++) {
+      if (votes[bit] > 0) {
+        signature |= 1L << bit;
+      }
+      voted |= votes[bit] != 0;
+    }
+
+    // zero means there is no signature
+    return voted && signature == 0 ? 1 : signature;
+  }
+
+  /**
+   * Returns the signature of the title and description of the item.
+   */
+  static long of(RSSItem item) {
+    final int[] votes = new int[BITS];
+    add(votes, item.getTitle(), TITLE_WEIGHT);
+    add(votes, item.getDescription(), DESCRIPTION_WEIGHT);
+    return signature(votes);
+  }
+
+  /**
+   * Returns the number of bits in which the signatures differ.
+   */
+  static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+
+}
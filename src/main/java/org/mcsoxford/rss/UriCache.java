@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * Thread-safe bounded cache of parsed URIs keyed by their string
+ * representation. Links, thumbnail and enclosure URLs often repeat across
+ * refreshes of the same RSS feeds, so the parser can reuse the immutable
+ * {@link android.net.Uri} instead of parsing it again.
+ * <p>
+ * The cache is direct-mapped: a URI string hashes to exactly one slot and a
+ * miss overwrites the slot. A lookup therefore costs one string hash and at
+ * most one string comparison, never blocks and allocates only on a miss.
+ */
+final class UriCache {
+
+  private final Entry[] entries;
+  private final int mask;
+
+  /**
+   * Instantiate a cache which holds at most the specified number of URIs,
+   * rounded up to the next power of two.
+   */
+  UriCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("URI cache capacity must be positive.");
+    }
+
+    int slots = Integer.highestOneBit(capacity);
+    if (slots < capacity) {
+      slots <<= 1;
+    }
+    entries = new Entry[slots];
+    mask = slots - 1;
+  }
+
+  /**
+   * Returns the URI which has the specified string representation, either
+   * from the cache or parsed anew.
+   */
+  android.net.Uri get(String uri) {
+    final int hash = uri.hashCode();
+    final int index = (hash ^ (hash >>> 16)) & mask;
+
+    // entries are immutable, so a racy read sees either a complete entry or null
+    final Entry entry = entries[index];
+    if (entry != null && entry.hash == hash && entry.key.equals(uri)) {
+      return entry.uri;
+    }
+
+    final android.net.Uri parsed = android.net.Uri.parse(uri);
+    entries[index] = new Entry(hash, uri, parsed);
+    return parsed;
+  }
+
+  /**
+   * Returns the maximum number of cached URIs.
+   */
+  int capacity() {
+    return entries.length;
+  }
+
+  /**
+   * Parses the URI with the specified cache unless it is {@code null}.
+   */
+  static android.net.Uri parse(UriCache cache, String uri) {
+    return cache == null ? android.net.Uri.parse(uri) : cache.get(uri);
+  }
+
+  private static final class Entry {
+
+    final int hash;
+    final String key;
+    final android.net.Uri uri;
+
+    Entry(int hash, String key, android.net.Uri uri) {
+      this.hash = hash;
+      this.key = key;
+      this.uri = uri;
+    }
+
+  }
+
+}
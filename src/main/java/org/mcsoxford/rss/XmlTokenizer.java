@@ -0,0 +1,626 @@
+/*
+ * Copyright (C) 2026 The android-rss contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Internal incremental XML tokenizer which never blocks. Bytes are pushed
+ * into the tokenizer as they arrive and every complete token is immediately
+ * reported to an {@link RSSHandler}, exactly like a SAX parser without
+ * namespace processing would. Only a single thread must use this tokenizer.
+ * <p>
+ * The tokenizer is lenient: it understands elements, attributes, character
+ * and CDATA sections, comments, processing instructions and the predefined
+ * and numeric character references, but it does not validate the document.
+ * DTDs are skipped and unknown entity references are passed through.
+ */
+final class XmlTokenizer {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * Maximum number of bytes which are inspected to detect the encoding.
+   */
+  private static final int MAX_PROLOG = 1024;
+
+  /**
+   * Maximum length of an entity reference such as {@code &#x10FFFF;}.
+   */
+  private static final int MAX_ENTITY = 32;
+
+  private static final int TEXT = 0;
+  private static final int ENTITY = 1;
+  private static final int MARKUP = 2;
+  private static final int TAG = 3;
+  private static final int COMMENT = 4;
+  private static final int CDATA = 5;
+  private static final int PI = 6;
+  private static final int DECL = 7;
+
+  private final RSSHandler handler;
+
+  /**
+   * Reused for every start tag because the handler consumes attributes
+   * immediately.
+   */
+  private final AttributesImpl attributes = new AttributesImpl();
+
+  /**
+   * {@code null} until the encoding has been detected.
+   */
+  private CharsetDecoder decoder;
+
+  /**
+   * Bytes which are inspected to detect the encoding.
+   */
+  private ByteBuffer prolog = ByteBuffer.allocate(MAX_PROLOG);
+
+  /**
+   * Trailing bytes of an incomplete multi-byte character.
+   */
+  private final ByteBuffer carry = ByteBuffer.allocate(16);
+
+  private final CharBuffer chars = CharBuffer.allocate(8192);
+
+  /**
+   * Character data which has not yet been reported to the handler.
+   */
+  private final char[] text = new char[4096];
+  private int textLength;
+
+  /**
+   * Characters of the current markup or entity reference.
+   */
+  private final StringBuilder markup = new StringBuilder(64);
+
+  private int state = TEXT;
+
+  /**
+   * State which depends on the current markup: the quote character inside a
+   * tag, the number of consecutive dashes in a comment, brackets in CDATA or
+   * the nesting depth of a DTD.
+   */
+  private int count;
+  private char quote;
+
+  /**
+   * Previous character was a carriage return, so a line feed is dropped.
+   */
+  private boolean carriageReturn;
+
+  XmlTokenizer(RSSHandler handler) {
+    this.handler = handler;
+  }
+
+  /**
+   * Tokenizes the remaining bytes of the buffer.
+   * 
+   * @throws RSSFault if the document is malformed
+   */
+  void feed(ByteBuffer bytes) {
+    if (decoder == null) {
+      while (bytes.hasRemaining() && prolog.hasRemaining()) {
+        prolog.put(bytes.get());
+      }
+      if (!detect(false)) {
+        return;
+      }
+    }
+
+    decode(bytes, false);
+  }
+
+  /**
+   * Signals the end of the document.
+   */
+  void end() {
+    if (decoder == null) {
+      detect(true);
+    }
+
+    decode(ByteBuffer.allocate(0), true);
+    flushText();
+    handler.endDocument();
+  }
+
+  /**
+   * Detects the character encoding based on the byte order mark or the
+   * encoding declaration. UTF-8 is assumed if neither is present.
+   * 
+   * @param eof {@code true} if no more bytes are going to arrive
+   * @return {@code true} if the encoding has been detected
+   */
+  private boolean detect(boolean eof) {
+    final byte[] b = prolog.array();
+    final int n = prolog.position();
+    if (n < 4 && !eof) {
+      return false;
+    }
+
+    Charset charset = UTF8;
+    int skip = 0;
+    if (n >= 3 && (b[0] & 0xff) == 0xef && (b[1] & 0xff) == 0xbb && (b[2] & 0xff) == 0xbf) {
+      skip = 3;
+    } else if (n >= 2 && ((b[0] & 0xff) == 0xfe && (b[1] & 0xff) == 0xff
+        || (b[0] & 0xff) == 0xff && (b[1] & 0xff) == 0xfe)) {
+      // decoder consumes the byte order mark
+      charset = Charset.forName("UTF-16");
+    } else if (n >= 5 && b[0] == '<' && b[1] == '?' && b[2] == 'x' && b[3] == 'm' && b[4] == 'l') {
+      int end = -1;
+      for (int i = 5; i + 1 < n; i++) {
+        if (b[i] == '?' && b[i + 1] == '>') {
+          end = i;
+          break;
+        }
+      }
+
+      if (end == -1 && !eof && prolog.hasRemaining()) {
+        // wait for the end of the XML declaration
+        return false;
+      }
+
+      final String declaration = new String(b, 0, end == -1 ? n : end, Charset.forName("ISO-8859-1"));
+      final String encoding = attribute(declaration, "encoding");
+      if (encoding != null) {
+        try {
+          charset = Charset.forName(encoding.trim());
+        } catch (IllegalArgumentException e) {
+          // unsupported encodings fall back to UTF-8
+        }
+      }
+    }
+
+    decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    final ByteBuffer bytes = ByteBuffer.wrap(b, skip, n - skip);
+    prolog = null;
+    decode(bytes, false);
+    return true;
+  }
+
+  private void decode(ByteBuffer bytes, boolean eof) {
+    ByteBuffer source = bytes;
+    if (carry.position() > 0) {
+      carry.flip();
+      source = ByteBuffer.allocate(carry.remaining() + bytes.remaining());
+      source.put(carry).put(bytes).flip();
+      carry.clear();
+    }
+
+    CoderResult result;
+    do {
+      result = decoder.decode(source, chars, eof);
+      tokenize();
+    } while (result.isOverflow());
+
+    if (eof) {
+      while (decoder.flush(chars).isOverflow()) {
+        tokenize();
+      }
+      tokenize();
+    } else if (source.hasRemaining()) {
+      // incomplete multi-byte character
+      carry.put(source);
+    }
+
+    // keep buffered character data small
+    if (!eof && state == TEXT) {
+      flushText();
+    }
+  }
+
+  /**
+   * Tokenizes the decoded characters and clears the character buffer.
+   */
+  private void tokenize() {
+    final char[] array = chars.array();
+    final int length = chars.position();
+    for (int i = 0; i < length; i++) {
+      char c = array[i];
+
+      // end-of-line handling, see http://www.w3.org/TR/REC-xml/#sec-line-ends
+      if (c == '\r') {
+        carriageReturn = true;
+        c = '\n';
+      } else if (c == '\n' && carriageReturn) {
+        carriageReturn = false;
+        continue;
+      } else {
+        carriageReturn = false;
+      }
+
+      switch (state) {
+      case TEXT:
+        text(c);
+        break;
+      case ENTITY:
+        if (c == ';') {
+          appendEntity(markup);
+          state = TEXT;
+        } else if (markup.length() < MAX_ENTITY && c != '<' && c != '&'
+            && !Character.isWhitespace(c)) {
+          markup.append(c);
+        } else {
+          // not an entity reference
+          append('&');
+          append(markup);
+          state = TEXT;
+          text(c);
+        }
+        break;
+      case MARKUP:
+        markup(c);
+        break;
+      case TAG:
+        if (quote != 0) {
+          if (c == quote) {
+            quote = 0;
+          }
+          markup.append(c);
+        } else if (c == '"' || c == '\'') {
+          quote = c;
+          markup.append(c);
+        } else if (c == '>') {
+          tag(markup);
+          state = TEXT;
+        } else {
+          markup.append(c);
+        }
+        break;
+      case COMMENT:
+        if (c == '-') {
+          count++;
+        } else if (c == '>' && count >= 2) {
+          state = TEXT;
+        } else {
+          count = 0;
+        }
+        break;
+      case CDATA:
+        if (c == ']') {
+          count++;
+        } else if (c == '>' && count >= 2) {
+          for (int j = 2; j < count; j++) {
+            append(']');
+          }
+          flushText();
+          state = TEXT;
+        } else {
+          for (int j = 0; j < count; j++) {
+            append(']');
+          }
+          count = 0;
+          append(c);
+        }
+        break;
+      case PI:
+        if (c == '>' && count == 1) {
+          state = TEXT;
+        } else {
+          count = c == '?' ? 1 : 0;
+        }
+        break;
+      case DECL:
+        declaration(c);
+        break;
+      default:
+        throw new IllegalStateException();
+      }
+    }
+
+    chars.clear();
+  }
+
+  /**
+   * Handles a character outside of markup.
+   */
+  private void text(char c) {
+    if (c == '<') {
+      flushText();
+      markup.setLength(0);
+      state = MARKUP;
+    } else if (c == '&') {
+      markup.setLength(0);
+      state = ENTITY;
+    } else {
+      append(c);
+    }
+  }
+
+  /**
+   * Decides the kind of markup based on the first characters after '&lt;'.
+   */
+  private void markup(char c) {
+    if (markup.length() == 0) {
+      if (c == '?') {
+        count = 0;
+        state = PI;
+      } else if (c == '!') {
+        markup.append(c);
+      } else {
+        quote = 0;
+        markup.append(c);
+        state = TAG;
+      }
+      return;
+    }
+
+    markup.append(c);
+    if (equals(markup, "!--")) {
+      count = 0;
+      state = COMMENT;
+    } else if (equals(markup, "![CDATA[")) {
+      count = 0;
+      state = CDATA;
+    } else if (!startsWith("!--", markup) && !startsWith("![CDATA[", markup)) {
+      // document type declaration
+      count = 0;
+      quote = 0;
+      state = DECL;
+      for (int i = 1; i < markup.length() && state == DECL; i++) {
+        declaration(markup.charAt(i));
+      }
+    }
+  }
+
+  private void declaration(char c) {
+    if (quote != 0) {
+      if (c == quote) {
+        quote = 0;
+      }
+    } else if (c == '"' || c == '\'') {
+      quote = c;
+    } else if (c == '[') {
+      count++;
+    } else if (c == ']') {
+      count--;
+    } else if (c == '>' && count <= 0) {
+      state = TEXT;
+    }
+  }
+
+  /**
+   * Reports a start or end tag to the handler.
+   */
+  private void tag(CharSequence tag) {
+    int end = tag.length();
+    while (end > 0 && Character.isWhitespace(tag.charAt(end - 1))) {
+      end--;
+    }
+
+    if (end > 0 && tag.charAt(0) == '/') {
+      final String name = tag.subSequence(1, end).toString().trim();
+      handler.endElement("", "", name);
+      return;
+    }
+
+    final boolean empty = end > 0 && tag.charAt(end - 1) == '/';
+    if (empty) {
+      end--;
+    }
+
+    int i = 0;
+    while (i < end && !Character.isWhitespace(tag.charAt(i))) {
+      i++;
+    }
+    final String name = tag.subSequence(0, i).toString();
+    if (name.length() == 0) {
+      throw new RSSFault("Malformed XML tag: <" + tag + ">");
+    }
+
+    attributes.clear();
+    while (i < end) {
+      // attribute name
+      while (i < end && Character.isWhitespace(tag.charAt(i))) {
+        i++;
+      }
+      final int nameStart = i;
+      while (i < end && tag.charAt(i) != '=' && !Character.isWhitespace(tag.charAt(i))) {
+        i++;
+      }
+      final String attribute = tag.subSequence(nameStart, i).toString();
+
+      // equals sign
+      while (i < end && Character.isWhitespace(tag.charAt(i))) {
+        i++;
+      }
+      if (i >= end || tag.charAt(i) != '=') {
+        // attribute without value is not well-formed and therefore ignored
+        continue;
+      }
+      i++;
+      while (i < end && Character.isWhitespace(tag.charAt(i))) {
+        i++;
+      }
+
+      // quoted value
+      if (i >= end || (tag.charAt(i) != '"' && tag.charAt(i) != '\'')) {
+        throw new RSSFault("Malformed XML attribute in <" + name + ">");
+      }
+      final char delimiter = tag.charAt(i++);
+      final int valueStart = i;
+      while (i < end && tag.charAt(i) != delimiter) {
+        i++;
+      }
+      final String value = unescape(tag.subSequence(valueStart, i));
+      i++;
+
+      attributes.addAttribute("", "", attribute, "CDATA", value);
+    }
+
+    handler.startElement("", "", name, attributes);
+    if (empty) {
+      handler.endElement("", "", name);
+    }
+  }
+
+  private void append(char c) {
+    if (textLength == text.length) {
+      flushText();
+    }
+    text[textLength++] = c;
+  }
+
+  private void append(CharSequence s) {
+    for (int i = 0; i < s.length(); i++) {
+      append(s.charAt(i));
+    }
+  }
+
+  private void flushText() {
+    if (textLength > 0) {
+      handler.characters(text, 0, textLength);
+      textLength = 0;
+    }
+  }
+
+  /**
+   * Appends the replacement text of an entity reference without the
+   * enclosing '&amp;' and ';' characters.
+   */
+  private void appendEntity(CharSequence entity) {
+    final String replacement = entity(entity);
+    if (replacement == null) {
+      append('&');
+      append(entity);
+      append(';');
+    } else {
+      append(replacement);
+    }
+  }
+
+  /**
+   * Returns the replacement text of the predefined or numeric entity
+   * reference, {@code null} if the entity is unknown.
+   */
+  static String entity(CharSequence entity) {
+    final String name = entity.toString();
+    if ("amp".equals(name)) {
+      return "&";
+    } else if ("lt".equals(name)) {
+      return "<";
+    } else if ("gt".equals(name)) {
+      return ">";
+    } else if ("quot".equals(name)) {
+      return "\"";
+    } else if ("apos".equals(name)) {
+      return "'";
+    } else if (name.length() > 1 && name.charAt(0) == '#') {
+      try {
+        final int codePoint;
+        if (name.charAt(1) == 'x' || name.charAt(1) == 'X') {
+          codePoint = Integer.parseInt(name.substring(2), 16);
+        } else {
+          codePoint = Integer.parseInt(name.substring(1));
+        }
+        return new String(Character.toChars(codePoint));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Replaces entity references in an attribute value.
+   */
+  static String unescape(CharSequence value) {
+    final StringBuilder builder = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '&') {
+        int end = i + 1;
+        while (end < value.length() && value.charAt(end) != ';' && end - i <= MAX_ENTITY) {
+          end++;
+        }
+        if (end < value.length() && value.charAt(end) == ';') {
+          final String replacement = entity(value.subSequence(i + 1, end));
+          if (replacement != null) {
+            builder.append(replacement);
+            i = end;
+            continue;
+          }
+        }
+      }
+      builder.append(c);
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * Returns the value of a pseudo-attribute in the XML declaration.
+   */
+  private static String attribute(String declaration, String name) {
+    final int i = declaration.indexOf(name);
+    if (i == -1) {
+      return null;
+    }
+
+    int start = declaration.indexOf('=', i + name.length());
+    if (start == -1) {
+      return null;
+    }
+    start++;
+    while (start < declaration.length() && Character.isWhitespace(declaration.charAt(start))) {
+      start++;
+    }
+    if (start >= declaration.length()) {
+      return null;
+    }
+
+    final char delimiter = declaration.charAt(start);
+    final int end = declaration.indexOf(delimiter, start + 1);
+    if ((delimiter != '"' && delimiter != '\'') || end == -1) {
+      return null;
+    }
+
+    return declaration.substring(start + 1, end);
+  }
+
+  private static boolean equals(CharSequence a, String b) {
+    return a.length() == b.length() && startsWith(b, a);
+  }
+
+  /**
+   * Returns {@code true} if the string starts with the prefix.
+   */
+  private static boolean startsWith(String s, CharSequence prefix) {
+    if (prefix.length() > s.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length(); i++) {
+      if (s.charAt(i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+}
@@ -0,0 +1,267 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of the non-blocking RSS reader and its incremental XML
+ * tokenizer.
+ * 
+ * @author Mr Horn
+ */
+public class AsyncRSSReaderTest {
+
+  private FeedServer server;
+
+  private byte[] fixture;
+
+  /**
+   * Class under test
+   */
+  private AsyncRSSReader reader;
+
+  @Before
+  public void setup() throws IOException {
+    server = new FeedServer();
+    fixture = FeedServer.fixture();
+    reader = new AsyncRSSReader(new RSSConfig().withTimeouts(1000, 500, 0));
+  }
+
+  @After
+  public void teardown() {
+    reader.close();
+    server.stop();
+  }
+
+  @Test
+  public void tokenizeByteByByte() {
+    final RSSHandler handler = new RSSHandler(new RSSConfig());
+    final XmlTokenizer tokenizer = new XmlTokenizer(handler);
+    for (byte b : fixture) {
+      tokenizer.feed(ByteBuffer.wrap(new byte[] { b }));
+    }
+    tokenizer.end();
+
+    assertSameFeed(new RSSParser(new RSSConfig()).parse(new ByteArrayInputStream(fixture)),
+        handler.feed());
+  }
+
+  @Test
+  public void tokenizeEntities() throws Exception {
+    final String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\r\n"
+        + "<!DOCTYPE rss [<!ENTITY foo \"bar\">]><rss><channel>"
+        + "<title>a &amp; b &lt;&#65;&#x42;&gt; &unknown; café</title>"
+        + "<!-- <title>ignored</title> --><item><media:thumbnail url=\"http://example.com/?a=1&amp;b=2\"/>"
+        + "<description><![CDATA[<b>x]]]]></description></item></channel></rss>";
+    final RSSHandler handler = new RSSHandler(new RSSConfig());
+    final XmlTokenizer tokenizer = new XmlTokenizer(handler);
+    tokenizer.feed(ByteBuffer.wrap(xml.getBytes("ISO-8859-1")));
+    tokenizer.end();
+
+    final RSSFeed feed = handler.feed();
+    assertEquals("a & b <AB> &unknown; café", feed.getTitle());
+    final RSSItem item = feed.getItems().get(0);
+    assertEquals("http://example.com/?a=1&b=2", item.getThumbnails().get(0).getUrl().toString());
+    assertEquals("<b>x]]", item.getDescription());
+  }
+
+  @Test
+  public void load() throws Exception {
+    server.serve("/feed", 200, fixture, null);
+    final RSSFeed feed = reader.load(server.uri("/feed")).get(5, TimeUnit.SECONDS);
+    assertSameFeed(new RSSParser(new RSSConfig()).parse(new ByteArrayInputStream(fixture)), feed);
+  }
+
+  @Test
+  public void loadChunked() throws Exception {
+    server.serve("/chunked", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        final OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < fixture.length; i += 100) {
+          out.write(fixture, i, Math.min(100, fixture.length - i));
+          out.flush();
+        }
+        out.close();
+      }
+    });
+
+    final RSSFeed feed = reader.load(server.uri("/chunked")).get(5, TimeUnit.SECONDS);
+    assertEquals("Example Channel", feed.getTitle());
+    assertEquals(2, feed.getItems().size());
+  }
+
+  @Test
+  public void loadMany() throws Exception {
+    server.serve("/feed", 200, fixture, null);
+    final List<Future<RSSFeed>> futures = new ArrayList<Future<RSSFeed>>();
+    for (int i = 0; i < 50; i++) {
+      futures.add(reader.load(server.uri("/feed")));
+    }
+    for (Future<RSSFeed> future : futures) {
+      assertEquals(2, future.get(10, TimeUnit.SECONDS).getItems().size());
+    }
+  }
+
+  @Test
+  public void redirect() throws Exception {
+    server.serve("/feed", 200, fixture, null);
+    server.serve("/moved", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Location", "/feed");
+        exchange.sendResponseHeaders(301, -1);
+        exchange.close();
+      }
+    });
+
+    final RSSFeed feed = reader.load(server.uri("/moved")).get(5, TimeUnit.SECONDS);
+    assertEquals("Example Channel", feed.getTitle());
+  }
+
+  @Test
+  public void malformedRedirect() throws Exception {
+    server.serve("/feed", 200, fixture, null);
+    server.serve("/moved", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Location", "http://example.com/a b");
+        exchange.sendResponseHeaders(301, -1);
+        exchange.close();
+      }
+    });
+
+    try {
+      reader.load(server.uri("/moved")).get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RSSFault);
+    }
+
+    // only the exchange has failed, not the selector thread
+    assertEquals(2, reader.load(server.uri("/feed")).get(5, TimeUnit.SECONDS).getItems().size());
+  }
+
+  @Test
+  public void negativeLengths() throws Exception {
+    final String[] responses = { "HTTP/1.1 200 OK\r\nContent-Length: -5\r\n\r\n",
+        "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n-5\r\n" };
+    for (String response : responses) {
+      try {
+        new HttpResponseDecoder().next(ByteBuffer.wrap(response.getBytes("US-ASCII")));
+        fail("Expected RSSFault");
+      } catch (RSSFault e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void closeWhileLoading() throws Exception {
+    server.serve("/feed", 200, fixture, null);
+    final List<Future<RSSFeed>> futures = new ArrayList<Future<RSSFeed>>();
+    final Thread loader = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 200; i++) {
+          final Future<RSSFeed> future = reader.load(server.uri("/feed"));
+          if (future != null) {
+            synchronized (futures) {
+              futures.add(future);
+            }
+          }
+        }
+      }
+    };
+    loader.start();
+    Thread.sleep(5);
+    reader.close();
+    loader.join();
+
+    // every accepted load completes, either with the RSS feed or a fault
+    synchronized (futures) {
+      for (Future<RSSFeed> future : futures) {
+        try {
+          assertNotNull(future.get(5, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+          assertTrue(e.getCause() instanceof RSSFault);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void notFound() throws Exception {
+    server.serve("/missing", 404, "Not Found".getBytes("UTF-8"), null);
+    try {
+      reader.load(server.uri("/missing")).get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertEquals(404, ((RSSReaderException) e.getCause()).getStatus());
+    }
+  }
+
+  @Test
+  public void readTimeout() throws Exception {
+    server.serve("/hung", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          Thread.sleep(1500);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        exchange.close();
+      }
+    });
+
+    try {
+      reader.load(server.uri("/hung")).get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RSSFault);
+    }
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void unsupportedScheme() throws Exception {
+    reader.load("https://example.com/rss.xml").get(5, TimeUnit.SECONDS);
+  }
+
+  private static void assertSameFeed(RSSFeed expected, RSSFeed actual) {
+    assertEquals(expected.getTitle(), actual.getTitle());
+    assertEquals(expected.getLink(), actual.getLink());
+    assertEquals(expected.getDescription(), actual.getDescription());
+    assertEquals(expected.getLastBuildDate(), actual.getLastBuildDate());
+    assertEquals(expected.getItems().size(), actual.getItems().size());
+    for (int i = 0; i < expected.getItems().size(); i++) {
+      final RSSItem a = expected.getItems().get(i);
+      final RSSItem b = actual.getItems().get(i);
+      assertEquals(a.getTitle(), b.getTitle());
+      assertEquals(a.getLink(), b.getLink());
+      assertEquals(a.getDescription(), b.getDescription());
+      assertEquals(a.getContent(), b.getContent());
+      assertEquals(a.getPubDate(), b.getPubDate());
+      assertEquals(a.getCategories(), b.getCategories());
+      assertEquals(a.getThumbnails(), b.getThumbnails());
+    }
+  }
+
+}
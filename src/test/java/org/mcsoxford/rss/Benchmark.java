@@ -0,0 +1,112 @@
+package org.mcsoxford.rss;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal harness for the timed benchmarks of this package. Benchmarks are
+ * main classes rather than unit tests so that the regular build stays fast.
+ * Run one after {@code mvn test-compile} with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes org.mcsoxford.rss.HttpFetcherBenchmark
+ * </pre>
+ * 
+ * Every operation is timed individually, so the reported percentiles include
+ * the overhead of {@link System#nanoTime()}, which is negligible for
+ * operations of more than a microsecond. Cheaper operations are timed in
+ * batches with {@link #batch(String, int, int, Task)}.
+ * 
+ * @author Mr Horn
+ */
+final class Benchmark {
+
+  /* Hide constructor */
+  private Benchmark() {}
+
+  /**
+   * Timed operation.
+   */
+  interface Task {
+
+    /**
+     * Performs the i-th operation.
+     */
+    void run(int i) throws Exception;
+
+  }
+
+  /**
+   * Runs the operation {@code warmup} times untimed, then {@code iterations}
+   * times timed, and prints the operations per second and the latency
+   * percentiles.
+   */
+  static RSSHistogram time(String name, int warmup, int iterations, Task task)
+      throws Exception {
+    for (int i = 0; i < warmup; i++) {
+      task.run(i);
+    }
+
+    final RSSHistogram.Recorder recorder = new RSSHistogram.Recorder();
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      final long before = System.nanoTime();
+      task.run(i);
+      recorder.record(System.nanoTime() - before);
+    }
+    final long elapsed = System.nanoTime() - start;
+
+    final RSSHistogram histogram = recorder.snapshot();
+    print(name, iterations, elapsed, histogram);
+    return histogram;
+  }
+
+  /**
+   * Runs {@code operations} operations in a single timed batch after a
+   * warm-up batch and prints the mean time per operation.
+   * 
+   * @return mean time per operation in nanoseconds
+   */
+  static double batch(String name, int rounds, int operations, Task task) throws Exception {
+    for (int i = 0; i < operations; i++) {
+      task.run(i);
+    }
+
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < rounds; round++) {
+      final long start = System.nanoTime();
+      for (int i = 0; i < operations; i++) {
+        task.run(i);
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+
+    final double mean = (double) best / operations;
+    System.out.println(String.format(Locale.US, "%-44s %12.1f ns/op (best of %d x %d)",
+        name, mean, rounds, operations));
+    return mean;
+  }
+
+  /**
+   * Prints throughput and latency percentiles of timed operations.
+   */
+  static void print(String name, int operations, long elapsedNanos, RSSHistogram histogram) {
+    System.out.println(String.format(Locale.US,
+        "%-44s %10.0f ops/s  p50 %s  p99 %s  max %s", name, operations * 1e9 / elapsedNanos,
+        format(histogram.getPercentile(50)), format(histogram.getPercentile(99)),
+        format(histogram.getMax())));
+  }
+
+  /**
+   * Formats a duration in nanoseconds with a readable unit.
+   */
+  static String format(long nanos) {
+    if (nanos < TimeUnit.MICROSECONDS.toNanos(10)) {
+      return nanos + "ns";
+    } else if (nanos < TimeUnit.MILLISECONDS.toNanos(10)) {
+      return String.format(Locale.US, "%.1fus", nanos / 1e3);
+    }
+    return String.format(Locale.US, "%.1fms", nanos / 1e6);
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.mcsoxford.rss;
+
+import java.util.Date;
+
+/**
+ * Benchmark of the heap retained by an RSS feed with 50k items, once as an
+ * {@link RSSFeed} and once as a {@link ColumnarRSSFeed}, with plain and with
+ * compressed descriptions. Heap usage is measured after garbage collection.
+ *
+ * @author Mr Horn
+ * @see Benchmark
+ */
+public class ColumnarRSSFeedBenchmark {
+
+  private static final int ITEMS = 50000;
+
+  /**
+   * Keeps the measured feed reachable.
+   */
+  static Object sink;
+
+  public static void main(String[] args) throws Exception {
+    measure("plain descriptions", 0);
+    measure("compressed descriptions", 256);
+  }
+
+  private static void measure(String name, int threshold) throws Exception {
+    final long baseline = usedHeap();
+
+    RSSFeed feed = feed(threshold);
+    final long objects = usedHeap() - baseline;
+
+    ColumnarRSSFeed columns = ColumnarRSSFeed.of(feed);
+    feed = null;
+    final long columnar = usedHeap() - baseline;
+    sink = columns;
+
+    System.out.println(String.format("%-40s %8d KiB", "RSSFeed, " + name, objects >> 10));
+    System.out.println(String.format("%-40s %8d KiB (weight %d KiB)", "ColumnarRSSFeed, " + name,
+        columnar >> 10, columns.weight() >> 10));
+    columns = null;
+    sink = null;
+  }
+
+  private static RSSFeed feed(int threshold) {
+    final CompressedText.Compressor compressor = threshold == 0 ? null
+        : new CompressedText.Compressor(new RSSConfig().withCompressedText(threshold, 0));
+    final RSSFeed feed = new RSSFeed();
+    feed.ensureItemCapacity(ITEMS);
+    for (int i = 0; i < ITEMS; i++) {
+      final RSSItem item = new RSSItem((byte) 2, (byte) 0);
+      item.setTitle("Item " + i);
+      item.setLink(android.net.Uri.parse("http://example.com/news/" + i));
+      item.setGuid("urn:example:news:" + i);
+      item.setPubDate(new Date(1262304000000L + 60000L * i));
+      item.addCategory("Category " + (i % 20));
+      item.addCategory("Section " + (i % 7));
+
+      final String description = description(i);
+      if (compressor == null) {
+        item.setDescription(description);
+      } else {
+        item.setDescription(compressor.compress(description));
+      }
+      feed.addItem(item);
+    }
+    if (compressor != null) {
+      compressor.end();
+    }
+    return feed;
+  }
+
+  private static String description(int i) {
+    final StringBuilder description = new StringBuilder();
+    description.append("<p>Story ").append(i).append(": ");
+    for (int j = 0; j < 8; j++) {
+      description.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit ")
+          .append(i * 31 + j).append(". ");
+    }
+    return description.append("</p>").toString();
+  }
+
+  private static long usedHeap() throws InterruptedException {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
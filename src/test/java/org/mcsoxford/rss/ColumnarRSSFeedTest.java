@@ -0,0 +1,126 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the columnar representation of RSS feeds.
+ * 
+ * @author Mr Horn
+ */
+public class ColumnarRSSFeedTest {
+
+  @Test
+  public void of() throws Exception {
+    final RSSFeed feed = new RSSParser(new RSSConfig()).parse(new ByteArrayInputStream(
+        FeedServer.fixture()));
+    feed.getItems().get(1).setEnclosure(new MediaEnclosure(
+        android.net.Uri.parse("http://example.com/a.mp3"), 42, "audio/mpeg"));
+    feed.getItems().get(1).setGuid("urn:example:1");
+    feed.getItems().get(1).setPermaLink(false);
+    feed.getItems().get(1).setFingerprint(0x0123456789abcdefL);
+    feed.getItems().get(1).setSimHash(-1L);
+
+    final ColumnarRSSFeed columns = ColumnarRSSFeed.of(feed);
+    assertEquals(feed.getTitle(), columns.getTitle());
+    assertEquals(feed.getLink(), columns.getLink());
+    assertEquals(feed.getItems().size(), columns.size());
+
+    final ColumnarRSSFeed.Item item = columns.item(0);
+    for (int i = 0; i < columns.size(); i++) {
+      final RSSItem expected = feed.getItems().get(i);
+      assertSame(item, item.moveTo(i));
+      assertEquals(expected.getTitle(), item.getTitle());
+      assertEquals(expected.getLink(), item.getLink());
+      assertEquals(expected.getDescription(), item.getDescription());
+      assertEquals(expected.getContent(), item.getContent());
+      assertEquals(expected.getPubDate(), item.getPubDate());
+      assertEquals(expected.getGuid(), item.getGuid());
+      assertEquals(expected.isPermaLink(), item.isPermaLink());
+      assertEquals(expected.getFingerprint(), item.getFingerprint());
+      assertEquals(expected.getSimHash(), item.getSimHash());
+      assertEquals(expected.getCategories(), item.getCategories());
+      assertEquals(expected.getCategories().size(), item.getCategoryCount());
+      assertEquals(expected.getThumbnails().size(), item.getThumbnails().size());
+      for (int j = 0; j < expected.getThumbnails().size(); j++) {
+        assertEquals(expected.getThumbnails().get(j).getUrl(), item.getThumbnails().get(j).getUrl());
+        assertEquals(expected.getThumbnails().get(j).getWidth(), item.getThumbnails().get(j).getWidth());
+      }
+    }
+
+    assertNull(item.moveTo(0).getEnclosure());
+    assertEquals("audio/mpeg", item.moveTo(1).getEnclosure().getMimeType());
+    assertEquals(42, item.getEnclosure().getLength());
+  }
+
+  @Test
+  public void compact() {
+    final RSSFeed feed = new RSSFeed();
+    for (int i = 0; i < 50000; i++) {
+      final RSSItem item = new RSSItem((byte) 1, (byte) 0);
+      item.setTitle("Item " + i);
+      item.setLink(android.net.Uri.parse("http://example.com/" + i));
+      item.setPubDate(new Date(1000L * i));
+      item.addCategory("Category " + (i % 10));
+      feed.addItem(item);
+    }
+
+    final ColumnarRSSFeed columns = ColumnarRSSFeed.of(feed);
+    assertEquals(50000, columns.size());
+    final ColumnarRSSFeed.Item item = columns.item(0);
+    for (int i = 0; i < columns.size(); i++) {
+      item.moveTo(i);
+      assertEquals("Item " + i, item.getTitle());
+      assertEquals(feed.getItems().get(i).getLink(), item.getLink());
+      assertEquals(1000L * i, columns.getPubDateMillis(i));
+      assertEquals(1, item.getCategoryCount());
+
+      // category names are stored once and shared by all items
+      assertSame(columns.item(i % 10).getCategory(0), item.getCategory(0));
+    }
+  }
+
+  @Test
+  public void compressed() {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      text.append("The quick brown fox jumps over the lazy dog. ");
+    }
+
+    final CompressedText.Compressor compressor = new CompressedText.Compressor(
+        new RSSConfig().withCompressedText(1024, 4));
+    final RSSFeed feed = new RSSFeed();
+    for (int i = 0; i < 100; i++) {
+      final RSSItem item = new RSSItem((byte) 0, (byte) 0);
+      item.setDescription(compressor.compress(text + " " + i));
+      if (i % 2 == 0) {
+        item.setContent(compressor.compress(i + " " + text));
+      } else {
+        item.setContent("Short " + i);
+      }
+      feed.addItem(item);
+    }
+    compressor.end();
+
+    final ColumnarRSSFeed columns = ColumnarRSSFeed.of(feed);
+    final ColumnarRSSFeed.Item item = columns.item(0);
+    for (int i = 0; i < columns.size(); i++) {
+      item.moveTo(i);
+      assertEquals(text + " " + i, item.getDescription());
+      assertEquals(i % 2 == 0 ? i + " " + text : "Short " + i, item.getContent());
+    }
+
+    // the deflated bytes are kept rather than the UTF-8 of the texts
+    assertTrue(columns.weight() < 150L * text.length());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void outOfRange() {
+    ColumnarRSSFeed.of(new RSSFeed()).item(0);
+  }
+
+}
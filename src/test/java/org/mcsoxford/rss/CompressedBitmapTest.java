@@ -0,0 +1,82 @@
+package org.mcsoxford.rss;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the compressed bitmap against a reference set.
+ * 
+ * @author Mr Horn
+ */
+public class CompressedBitmapTest {
+
+  private static void assertSame(TreeSet<Integer> expected, CompressedBitmap actual) {
+    assertEquals(expected.size(), actual.cardinality());
+
+    final int[] elements = actual.toArray();
+    int i = 0;
+    for (int element : expected) {
+      assertEquals(element, elements[i++]);
+    }
+  }
+
+  /**
+   * Fills a set with elements from the specified range which is small enough
+   * to create bitmap containers.
+   */
+  private static CompressedBitmap fill(Random random, TreeSet<Integer> reference, int n,
+      int range) {
+    final CompressedBitmap bitmap = new CompressedBitmap();
+    for (int i = 0; i < n; i++) {
+      final int x = random.nextInt(range);
+      assertEquals(reference.add(x), bitmap.add(x));
+    }
+    return bitmap;
+  }
+
+  @Test
+  public void addRemove() {
+    final Random random = new Random(7);
+    final TreeSet<Integer> reference = new TreeSet<Integer>();
+    final CompressedBitmap bitmap = fill(random, reference, 20000, 200000);
+    assertSame(reference, bitmap);
+
+    for (int i = 0; i < 30000; i++) {
+      final int x = random.nextInt(200000);
+      assertEquals(reference.remove(x), bitmap.remove(x));
+      assertEquals(reference.contains(x + 1), bitmap.contains(x + 1));
+    }
+    assertSame(reference, bitmap);
+  }
+
+  @Test
+  public void andOr() {
+    final Random random = new Random(11);
+    for (int[] sizes : new int[][] { { 100, 100 }, { 9000, 100 }, { 9000, 12000 } }) {
+      final TreeSet<Integer> a = new TreeSet<Integer>();
+      final TreeSet<Integer> b = new TreeSet<Integer>();
+      final CompressedBitmap x = fill(random, a, sizes[0], 140000);
+      final CompressedBitmap y = fill(random, b, sizes[1], 140000);
+
+      final TreeSet<Integer> intersection = new TreeSet<Integer>(a);
+      intersection.retainAll(b);
+      assertSame(intersection, x.and(y));
+      assertSame(intersection, y.and(x));
+      assertEquals(intersection.size(), x.andCardinality(y));
+
+      final TreeSet<Integer> union = new TreeSet<Integer>(a);
+      union.addAll(b);
+      assertSame(union, x.or(y));
+      assertSame(union, y.or(x));
+
+      // operands are not modified
+      assertSame(a, x);
+      assertSame(b, y);
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server which serves RSS feed fixtures to integration tests.
+ * 
+ * @author Mr Horn
+ */
+class FeedServer {
+
+  private final HttpServer server;
+
+  /**
+   * Request headers in the order the requests were received.
+   */
+  final List<Headers> requests = new CopyOnWriteArrayList<Headers>();
+
+  /**
+   * Client ports in the order the requests were received.
+   */
+  final List<Integer> ports = new CopyOnWriteArrayList<Integer>();
+
+  FeedServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.start();
+  }
+
+  /**
+   * Returns the absolute URI of the specified path on this server.
+   */
+  String uri(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  /**
+   * Serve the body at the specified path. The body is compressed with the
+   * specified content coding unless it is {@code null}.
+   */
+  void serve(String path, final int status, final byte[] body,
+      final String encoding) throws IOException {
+    final byte[] content = encode(body, encoding);
+    server.createContext(path, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        requests.add(exchange.getRequestHeaders());
+        ports.add(exchange.getRemoteAddress().getPort());
+
+        drain(exchange.getRequestBody());
+        if (encoding != null) {
+          exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/rss+xml");
+        exchange.sendResponseHeaders(status, content.length == 0 ? -1 : content.length);
+
+        final OutputStream out = exchange.getResponseBody();
+        out.write(content);
+        out.close();
+      }
+    });
+  }
+
+  /**
+   * Serve a custom handler at the specified path.
+   */
+  void serve(String path, HttpHandler handler) {
+    server.createContext(path, handler);
+  }
+
+  void stop() {
+    server.stop(0);
+  }
+
+  /**
+   * Returns the {@code rssfeed.xml} test fixture.
+   */
+  static byte[] fixture() throws IOException {
+    final InputStream stream = FeedServer.class.getClassLoader()
+        .getResourceAsStream("rssfeed.xml");
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int n;
+      while ((n = stream.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      stream.close();
+    }
+  }
+
+  static void drain(InputStream stream) throws IOException {
+    final byte[] buffer = new byte[4096];
+    while (stream.read(buffer) != -1) {
+      // discard
+    }
+    stream.close();
+  }
+
+  static byte[] encode(byte[] body, String encoding) throws IOException {
+    if (encoding == null) {
+      return body;
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final OutputStream out;
+    if ("gzip".equals(encoding)) {
+      out = new GZIPOutputStream(bytes);
+    } else if ("deflate".equals(encoding)) {
+      out = new DeflaterOutputStream(bytes);
+    } else {
+      throw new IllegalArgumentException(encoding);
+    }
+
+    out.write(body);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+}
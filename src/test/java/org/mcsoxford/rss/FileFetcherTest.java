@@ -0,0 +1,67 @@
+package org.mcsoxford.rss;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@code file:} RSS fetcher.
+ * 
+ * @author Mr Horn
+ */
+public class FileFetcherTest {
+
+  /**
+   * Class under test
+   */
+  private RSSReader reader;
+
+  @Before
+  public void setup() {
+    reader = new RSSReader(new FileFetcher(), new RSSParser(new RSSConfig()));
+  }
+
+  @Test
+  public void load() throws Exception {
+    final String uri = getClass().getClassLoader().getResource("rssfeed.xml")
+        .toURI().toString();
+    final RSSFeed feed = reader.load(uri);
+
+    assertEquals("Example Channel", feed.getTitle());
+    assertEquals(2, feed.getItems().size());
+  }
+
+  @Test
+  public void notFound() throws Exception {
+    final File missing = new File("does-not-exist.xml").getAbsoluteFile();
+    try {
+      reader.load(missing.toURI().toString());
+      fail("Expected RSSReaderException");
+    } catch (RSSReaderException e) {
+      assertEquals(404, e.getStatus());
+    }
+  }
+
+  @Test(expected = RSSFault.class)
+  public void httpUri() throws Exception {
+    reader.load("http://example.com/rss.xml");
+  }
+
+  @Test
+  public void scheme() throws Exception {
+    final MemoryFetcher memory = new MemoryFetcher();
+    memory.put("mem:feed", FeedServer.fixture());
+
+    final SchemeFetcher fetcher = new SchemeFetcher();
+    fetcher.register("MEM", memory);
+
+    final RSSReader reader = new RSSReader(fetcher, new RSSParser(new RSSConfig()));
+    assertEquals("Example Channel", reader.load("mem:feed").getTitle());
+    assertEquals("Example Channel", reader.load(getClass().getClassLoader()
+        .getResource("rssfeed.xml").toURI().toString()).getTitle());
+  }
+
+}
@@ -0,0 +1,139 @@
+package org.mcsoxford.rss;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of the disk cache of HTTP responses.
+ * 
+ * @author Mr Horn
+ */
+public class HttpDiskCacheTest {
+
+  private static final String ETAG = "\"v1\"";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private FeedServer server;
+
+  private byte[] body;
+
+  /**
+   * Number of responses with a body.
+   */
+  private final AtomicInteger downloads = new AtomicInteger();
+
+  @Before
+  public void setup() throws IOException {
+    server = new FeedServer();
+    body = FeedServer.encode(FeedServer.fixture(), "gzip");
+    server.serve("/feed", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        server.requests.add(exchange.getRequestHeaders());
+        FeedServer.drain(exchange.getRequestBody());
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+
+        downloads.incrementAndGet();
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, body.length);
+        final OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+  }
+
+  @After
+  public void teardown() {
+    server.stop();
+  }
+
+  @Test
+  public void revalidate() throws Exception {
+    final HttpDiskCache cache = new HttpDiskCache(folder.getRoot(), 1 << 20);
+    final RSSReader reader = new RSSReader(new RSSConfig(), cache);
+    final RSSFeed feed = reader.load(server.uri("/feed"));
+    assertEquals(1, cache.entryCount());
+
+    final RSSFeed cached = reader.load(server.uri("/feed"));
+    assertEquals(1, downloads.get());
+    assertEquals(ETAG, server.requests.get(1).getFirst("If-None-Match"));
+    assertEquals(feed.getTitle(), cached.getTitle());
+    assertEquals(feed.getItems().size(), cached.getItems().size());
+    cache.close();
+  }
+
+  @Test
+  public void restart() throws Exception {
+    HttpDiskCache cache = new HttpDiskCache(folder.getRoot(), 1 << 20);
+    new RSSReader(new RSSConfig(), cache).load(server.uri("/feed"));
+    cache.close();
+
+    cache = new HttpDiskCache(folder.getRoot(), 1 << 20);
+    assertEquals(1, cache.entryCount());
+    final RSSFeed feed = new RSSReader(new RSSConfig(), cache).load(server.uri("/feed"));
+    assertEquals(1, downloads.get());
+    assertFalse(feed.getItems().isEmpty());
+    cache.close();
+  }
+
+  @Test
+  public void truncatedRecord() throws Exception {
+    HttpDiskCache cache = new HttpDiskCache(folder.getRoot(), 1 << 20);
+    cache.put("http://example.com/a", ETAG, null, 0, null, body, body.length);
+    cache.put("http://example.com/b", ETAG, null, 0, null, body, body.length);
+    final long size = cache.size();
+    cache.close();
+
+    // simulate a crash in the middle of the last record
+    final File segment = folder.getRoot().listFiles()[0];
+    final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    file.setLength(size - 10);
+    file.close();
+
+    cache = new HttpDiskCache(folder.getRoot(), 1 << 20);
+    assertEquals(1, cache.entryCount());
+    assertNotNull(cache.get("http://example.com/a"));
+    assertNull(cache.get("http://example.com/b"));
+    assertEquals(size / 2, cache.size());
+    cache.close();
+  }
+
+  @Test
+  public void evict() throws Exception {
+    final long maxBytes = 256 * 1024;
+    final byte[] large = new byte[20000];
+    final HttpDiskCache cache = new HttpDiskCache(folder.getRoot(), maxBytes);
+    for (int i = 0; i < 100; i++) {
+      cache.put("http://example.com/" + i, ETAG, null, 0, null, large, large.length);
+      assertTrue(cache.size() <= maxBytes + 64 * 1024);
+    }
+
+    assertNull(cache.get("http://example.com/0"));
+    assertNotNull(cache.get("http://example.com/99"));
+    assertTrue(folder.getRoot().listFiles().length <= 5);
+    cache.close();
+  }
+
+}
@@ -0,0 +1,61 @@
+package org.mcsoxford.rss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Benchmark of loading an RSS feed from a local HTTP server, once with a
+ * fresh connection per request as before the fetcher SPI and once with the
+ * kept-alive connections of {@link HttpFetcher}.
+ * 
+ * @author Mr Horn
+ * @see Benchmark
+ */
+public class HttpFetcherBenchmark {
+
+  private static final int WARMUP = 500;
+  private static final int REQUESTS = 5000;
+
+  public static void main(String[] args) throws Exception {
+    // like production servers, write small responses without Nagle's delay
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    final FeedServer server = new FeedServer();
+    try {
+      server.serve("/feed", 200, FeedServer.fixture(), "gzip");
+      final String uri = server.uri("/feed");
+
+      final RSSReader fresh = new RSSReader(new RSSFetcherSPI() {
+        @Override
+        public InputStream fetch(String uri) throws RSSReaderException {
+          try {
+            final HttpURLConnection conn = (HttpURLConnection) new URL(uri).openConnection();
+            conn.setRequestProperty("Connection", "close");
+            conn.setRequestProperty("Accept-Encoding", Encodings.ACCEPT_ENCODING);
+            return Encodings.decode(conn.getInputStream(), conn.getContentEncoding());
+          } catch (IOException e) {
+            throw new RSSFault(e);
+          }
+        }
+      }, new RSSParser(new RSSConfig()));
+      load("fresh connection per request", fresh, uri);
+
+      final RSSReader pooled = new RSSReader(new HttpFetcher(), new RSSParser(new RSSConfig()));
+      load("HttpFetcher keep-alive", pooled, uri);
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static void load(String name, final RSSReader reader, final String uri)
+      throws Exception {
+    Benchmark.time(name, WARMUP, REQUESTS, new Benchmark.Task() {
+      @Override
+      public void run(int i) throws Exception {
+        reader.load(uri);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,285 @@
+package org.mcsoxford.rss;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of the HTTP fetcher against a local HTTP server.
+ * 
+ * @author Mr Horn
+ */
+public class HttpFetcherTest {
+
+  private FeedServer server;
+
+  private byte[] fixture;
+
+  @Before
+  public void setup() throws IOException {
+    server = new FeedServer();
+    fixture = FeedServer.fixture();
+  }
+
+  @After
+  public void teardown() {
+    server.stop();
+  }
+
+  @Test
+  public void gzip() throws Exception {
+    assertEncoding("gzip");
+  }
+
+  @Test
+  public void deflate() throws Exception {
+    assertEncoding("deflate");
+  }
+
+  @Test
+  public void identity() throws Exception {
+    assertEncoding(null);
+  }
+
+  private void assertEncoding(String encoding) throws Exception {
+    final HttpFetcher fetcher = new HttpFetcher();
+    final RSSReader reader = new RSSReader(fetcher, new RSSParser(new RSSConfig()));
+    server.serve("/feed", 200, fixture, encoding);
+
+    final RSSFeed feed = reader.load(server.uri("/feed"));
+    assertEquals("Example Channel", feed.getTitle());
+    assertEquals(2, feed.getItems().size());
+    assertEquals("gzip, deflate",
+        server.requests.get(0).getFirst("Accept-Encoding"));
+
+    // the SAX parser stops at the end of the document element
+    assertTrue(fetcher.getUncompressedBytes() > 0);
+    assertTrue(fetcher.getUncompressedBytes() <= fixture.length);
+
+    final long compressed = FeedServer.encode(fixture, encoding).length;
+    assertEquals(compressed, fetcher.getCompressedBytes());
+    if (encoding != null) {
+      assertTrue(fetcher.getCompressedBytes() < fetcher.getUncompressedBytes());
+    }
+
+    // the reader reports the counters of its fetcher
+    assertEquals(fetcher.getCompressedBytes(), reader.getCompressedBytes());
+    assertEquals(fetcher.getUncompressedBytes(), reader.getUncompressedBytes());
+  }
+
+  @Test
+  public void notFound() throws Exception {
+    server.serve("/missing", 404, "Not Found".getBytes("UTF-8"), null);
+    try {
+      new HttpFetcher().fetch(server.uri("/missing"));
+      fail("Expected RSSReaderException");
+    } catch (RSSReaderException e) {
+      assertEquals(404, e.getStatus());
+    }
+  }
+
+  @Test
+  public void reuseConnection() throws Exception {
+    server.serve("/feed", 200, fixture, "gzip");
+    server.serve("/missing", 404, "Not Found".getBytes("UTF-8"), null);
+
+    final RSSReader reader = new RSSReader();
+    reader.load(server.uri("/feed"));
+    try {
+      reader.load(server.uri("/missing"));
+    } catch (RSSReaderException expected) {}
+    reader.load(server.uri("/feed"));
+
+    assertEquals(3, server.ports.size());
+    assertEquals(server.ports.get(0), server.ports.get(1));
+    assertEquals(server.ports.get(0), server.ports.get(2));
+  }
+
+  @Test
+  public void maxConnectionsPerHost() throws Exception {
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger();
+    server.serve("/slow", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        final int n = active.incrementAndGet();
+        synchronized (peak) {
+          peak.set(Math.max(peak.get(), n));
+        }
+        try {
+          Thread.sleep(50);
+          exchange.sendResponseHeaders(200, fixture.length);
+          exchange.getResponseBody().write(fixture);
+          exchange.close();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          active.decrementAndGet();
+        }
+      }
+    });
+
+    final RSSReader reader = new RSSReader(new RSSConfig().withMaxConnectionsPerHost(2));
+    final List<Runnable> runnables = new ArrayList<Runnable>();
+    for (int i = 0; i < 6; i++) {
+      runnables.add(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            reader.load(server.uri("/slow"));
+          } catch (RSSReaderException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+    }
+
+    RSSReaderTest.assertConcurrent("Per-host limit", runnables, 30);
+    assertTrue(peak.get() <= 2);
+    assertTrue(peak.get() > 0);
+  }
+
+  @Test
+  public void readTimeout() throws Exception {
+    server.serve("/hung", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        pause(1000);
+        exchange.close();
+      }
+    });
+
+    final HttpFetcher fetcher = new HttpFetcher(new RSSConfig().withTimeouts(1000, 100, 0));
+    try {
+      fetcher.fetch(server.uri("/hung"));
+      fail("Expected RSSFault");
+    } catch (RSSFault e) {
+      assertTrue(e.getCause() instanceof SocketTimeoutException);
+    }
+  }
+
+  @Test
+  public void totalTimeout() throws Exception {
+    server.serve("/trickle", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, fixture.length);
+        final OutputStream out = exchange.getResponseBody();
+        try {
+          for (byte b : fixture) {
+            out.write(b);
+            out.flush();
+            pause(50);
+          }
+        } catch (IOException expected) {
+          // client has disconnected
+        }
+        exchange.close();
+      }
+    });
+
+    final RSSReader reader = new RSSReader(new HttpFetcher(
+        new RSSConfig().withTimeouts(1000, 1000, 300)), new RSSParser(new RSSConfig()));
+    final long start = System.currentTimeMillis();
+    try {
+      reader.load(server.uri("/trickle"));
+      fail("Expected RSSFault");
+    } catch (RSSFault e) {
+      assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+  }
+
+  @Test
+  public void retry() throws Exception {
+    final AtomicInteger requests = new AtomicInteger();
+    server.serve("/flaky", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        if (requests.incrementAndGet() < 3) {
+          exchange.sendResponseHeaders(503, -1);
+        } else {
+          exchange.sendResponseHeaders(200, fixture.length);
+          exchange.getResponseBody().write(fixture);
+        }
+        exchange.close();
+      }
+    });
+
+    final RSSReader reader = new RSSReader(new RSSConfig().withRetries(3, 10));
+    assertEquals("Example Channel", reader.load(server.uri("/flaky")).getTitle());
+    assertEquals(3, requests.get());
+  }
+
+  @Test
+  public void noRetryOnClientError() throws Exception {
+    server.serve("/missing", 404, "Not Found".getBytes("UTF-8"), null);
+
+    final HttpFetcher fetcher = new HttpFetcher(new RSSConfig().withRetries(3, 10));
+    try {
+      fetcher.fetch(server.uri("/missing"));
+      fail("Expected RSSReaderException");
+    } catch (RSSReaderException e) {
+      assertEquals(404, e.getStatus());
+    }
+    assertEquals(1, server.requests.size());
+  }
+
+  @Test
+  public void circuitBreaker() throws Exception {
+    server.serve("/down", 500, new byte[0], null);
+
+    final HttpFetcher fetcher = new HttpFetcher(new RSSConfig().withCircuitBreaker(2, 60000));
+    for (int i = 0; i < 3; i++) {
+      try {
+        fetcher.fetch(server.uri("/down"));
+        fail("Expected RSSReaderException");
+      } catch (RSSReaderException e) {
+        assertEquals(i < 2 ? 500 : 503, e.getStatus());
+      }
+    }
+
+    // third request failed fast
+    assertEquals(2, server.requests.size());
+    assertTrue(fetcher.isCircuitOpen("127.0.0.1"));
+  }
+
+  @Test
+  public void circuitBreakerTrial() {
+    final CircuitBreaker breaker = new CircuitBreaker(1, 10);
+    final long now = System.nanoTime();
+    breaker.failure(now);
+    assertFalse(breaker.allow(now));
+
+    // half-open: a single trial request is admitted
+    final long later = now + 20000000L;
+    assertTrue(breaker.allow(later));
+    assertFalse(breaker.allow(later));
+
+    // an aborted trial admits the next request as the trial
+    breaker.abort();
+    assertTrue(breaker.allow(later));
+    breaker.success();
+    assertFalse(breaker.isOpen(later));
+  }
+
+  private static void pause(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
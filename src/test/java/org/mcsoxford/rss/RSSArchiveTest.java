@@ -0,0 +1,171 @@
+package org.mcsoxford.rss;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the on-disk archive of RSS items.
+ * 
+ * @author Mr Horn
+ */
+public class RSSArchiveTest {
+
+  private static final long DAY = 24 * 60 * 60 * 1000L;
+
+  private static final String URI = "http://example.com/feed";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Class under test
+   */
+  private RSSArchive archive;
+
+  private File directory;
+
+  @Before
+  public void setup() throws Exception {
+    directory = folder.newFolder("archive");
+    archive = new RSSArchive(directory, 4096);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    archive.close();
+  }
+
+  private static RSSItem item(String guid, String title, long pubDate) {
+    final RSSItem item = new RSSItem((byte) 1, (byte) 1);
+    item.setGuid(guid);
+    item.setTitle(title);
+    item.setLink("http://example.com/" + guid);
+    item.setDescription("Description of " + title);
+    item.setPubDateMillis(pubDate);
+    item.addCategory("News");
+    item.addThumbnail(new MediaThumbnail("http://example.com/" + guid + ".jpg", 10, 20));
+    return item;
+  }
+
+  private static RSSFeed feed(RSSItem... items) {
+    final RSSFeed feed = new RSSFeed();
+    for (RSSItem item : items) {
+      feed.addItem(item);
+    }
+    return feed;
+  }
+
+  @Test
+  public void appendAndGet() throws Exception {
+    final RSSItem item = item("a", "First", 10 * DAY);
+    assertEquals(1, archive.append(URI, feed(item)));
+
+    // unchanged items are not appended again
+    assertEquals(0, archive.append(URI, feed(item("a", "First", 10 * DAY))));
+    assertEquals(1, archive.size());
+
+    final RSSItem archived = archive.get(URI, "a");
+    assertEquals("First", archived.getTitle());
+    assertEquals(item.getLink(), archived.getLink());
+    assertEquals("Description of First", archived.getDescription());
+    assertEquals(10 * DAY, archived.getPubDateMillis());
+    assertEquals(item.getCategories(), archived.getCategories());
+    assertEquals(item.getThumbnails(), archived.getThumbnails());
+    assertEquals(RSSFeedDiff.contentHash(item), RSSFeedDiff.contentHash(archived));
+
+    // lookup by link if there is no GUID
+    final RSSItem linked = item("b", "Linked", 11 * DAY);
+    linked.setGuid(null);
+    archive.append(URI, feed(linked));
+    assertEquals("Linked", archive.get(URI, "http://example.com/b").getTitle());
+    assertNull(archive.get(URI, "missing"));
+    assertNull(archive.get("http://example.com/other", "a"));
+  }
+
+  @Test
+  public void query() throws Exception {
+    for (int day = 0; day < 30; day++) {
+      archive.append(URI, feed(item("d" + day, "Day " + day, day * DAY)));
+    }
+    archive.append("http://example.com/other", feed(item("x", "Other", 25 * DAY)));
+
+    final List<RSSItem> week = archive.query(URI, 23 * DAY, 30 * DAY);
+    assertEquals(7, week.size());
+    assertEquals("Day 29", week.get(0).getTitle());
+    assertEquals("Day 23", week.get(6).getTitle());
+    assertTrue(archive.query(URI, 40 * DAY, 50 * DAY).isEmpty());
+
+    // a changed item moves in the time index
+    archive.append(URI, feed(item("d0", "Day 0 updated", 28 * DAY)));
+    assertEquals(30, archive.query(URI, 0, 30 * DAY).size());
+    assertEquals("Day 0 updated", archive.query(URI, 28 * DAY, 29 * DAY).get(0).getTitle());
+  }
+
+  @Test
+  public void readWhileAppending() throws Exception {
+    // items are read from the segment which is being appended to, then from
+    // the same segment once it has been sealed
+    for (int i = 0; i < 40; i++) {
+      archive.append(URI, feed(item("i" + i, "Item " + i, i * DAY)));
+      for (int j = 0; j <= i; j++) {
+        assertEquals("Item " + j, archive.get(URI, "i" + j).getTitle());
+      }
+    }
+    assertTrue(archive.diskSize() > 2 * 4096);
+    assertEquals(40, archive.query(URI, 0, 40 * DAY).size());
+  }
+
+  @Test
+  public void restart() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      archive.append(URI, feed(item("a", "Version " + i, DAY), item("b" + i, "B", i * DAY)));
+    }
+    final long size = archive.diskSize();
+    archive.close();
+
+    // torn write at the end of the last segment
+    final File[] files = directory.listFiles();
+    java.util.Arrays.sort(files);
+    final RandomAccessFile last = new RandomAccessFile(files[files.length - 1], "rw");
+    last.seek(last.length());
+    last.write(new byte[] { 0x52, 0x53, 0x53, 0x41, 0, 0, 1 });
+    last.close();
+
+    archive = new RSSArchive(directory, 4096);
+    assertEquals(21, archive.size());
+    assertEquals(size, archive.diskSize());
+    assertEquals("Version 19", archive.get(URI, "a").getTitle());
+    assertEquals(2, archive.query(URI, DAY, 2 * DAY).size());
+  }
+
+  @Test
+  public void compact() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      archive.append(URI, feed(item("a", "Version " + i, DAY), item("b", "Version " + i, 2 * DAY)));
+    }
+    archive.append(URI, feed(item("c", "Stable", 3 * DAY)));
+    final long size = archive.diskSize();
+
+    assertTrue(archive.compact() > 0);
+    assertTrue(archive.diskSize() < size / 4);
+    assertEquals(3, archive.size());
+    assertEquals("Version 99", archive.get(URI, "a").getTitle());
+    assertEquals(3, archive.query(URI, 0, 4 * DAY).size());
+
+    archive.close();
+    archive = new RSSArchive(directory, 4096);
+    assertEquals(3, archive.size());
+    assertEquals("Version 99", archive.get(URI, "b").getTitle());
+    assertEquals("Stable", archive.get(URI, "c").getTitle());
+  }
+
+}
@@ -69,4 +69,22 @@ public class RSSBaseTest {
     assertTrue(base.equals(other));
   }
 
+  @Test
+  public void pubDate() {
+    assertNull(base.getPubDate());
+    assertEquals(RSSBase.NO_DATE, base.getPubDateMillis());
+
+    final java.util.Date date = new java.util.Date(1289118134000L);
+    base.setPubDate(date);
+    assertEquals(1289118134000L, base.getPubDateMillis());
+    assertEquals(date, base.getPubDate());
+
+    // defensive copy
+    base.getPubDate().setTime(0);
+    assertEquals(date, base.getPubDate());
+
+    base.setPubDate(null);
+    assertEquals(RSSBase.NO_DATE, base.getPubDateMillis());
+  }
+
 }
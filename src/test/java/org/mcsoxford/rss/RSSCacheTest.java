@@ -0,0 +1,105 @@
+package org.mcsoxford.rss;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the in-memory cache of RSS feeds.
+ * 
+ * @author Mr Horn
+ */
+public class RSSCacheTest {
+
+  private MemoryFetcher fetcher;
+
+  @Before
+  public void setup() throws Exception {
+    fetcher = new MemoryFetcher();
+    fetcher.put("mem:a", FeedServer.fixture());
+    fetcher.put("mem:b", FeedServer.fixture());
+  }
+
+  private CachingRSSReader reader(RSSCache cache) {
+    return new CachingRSSReader(fetcher, new RSSParser(new RSSConfig()), cache);
+  }
+
+  @Test
+  public void hit() throws Exception {
+    final CachingRSSReader reader = reader(new RSSCache(1 << 20, 60000));
+    final RSSFeed feed = reader.load("mem:a");
+
+    fetcher.remove("mem:a");
+    assertSame(feed, reader.load("mem:a"));
+    assertEquals(1, reader.getCache().size());
+    assertEquals(RSSCache.weigh(feed), reader.getCache().weight());
+  }
+
+  @Test
+  public void loader() throws Exception {
+    final CachingRSSReader reader = reader(new RSSCache(1 << 20, 60000));
+    final RSSLoader loader = RSSLoader.fifo(reader);
+    try {
+      final RSSFeed feed = loader.load("mem:a").get(5, TimeUnit.SECONDS);
+      assertEquals(1, reader.getCache().size());
+
+      // the second load is served from the cache without being downloaded
+      fetcher.remove("mem:a");
+      assertSame(feed, loader.load("mem:a").get(5, TimeUnit.SECONDS));
+      assertEquals(1, reader.getMetrics().getSuccesses());
+    } finally {
+      loader.stop();
+    }
+  }
+
+  @Test
+  public void expire() throws Exception {
+    final CachingRSSReader reader = reader(new RSSCache(1 << 20, 20));
+    final RSSFeed feed = reader.load("mem:a");
+    Thread.sleep(40);
+    assertNotSame(feed, reader.load("mem:a"));
+  }
+
+  @Test
+  public void ttlElement() throws Exception {
+    final RSSCache cache = new RSSCache(1 << 20, 0);
+    final RSSFeed feed = new RSSFeed();
+    cache.put("mem:a", feed);
+    assertNull(cache.get("mem:a"));
+
+    feed.setTTL(5);
+    cache.put("mem:a", feed);
+    assertSame(feed, cache.get("mem:a"));
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() throws Exception {
+    final RSSFeed probe = new RSSParser(new RSSConfig()).parse(
+        new java.io.ByteArrayInputStream(FeedServer.fixture()));
+    final long weight = RSSCache.weigh(probe);
+
+    final RSSCache cache = new RSSCache(weight * 2, 60000);
+    final CachingRSSReader reader = reader(cache);
+    final RSSFeed a = reader.load("mem:a");
+    reader.load("mem:b");
+    assertSame(a, reader.load("mem:a"));
+
+    // "b" is least recently used
+    cache.put("mem:c", probe);
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get("mem:a"));
+    assertNull(cache.get("mem:b"));
+    assertTrue(cache.weight() <= weight * 2);
+  }
+
+  @Test
+  public void tooLarge() {
+    final RSSCache cache = new RSSCache(10, 60000);
+    cache.put("mem:a", new RSSFeed());
+    assertEquals(0, cache.size());
+  }
+
+}
@@ -0,0 +1,101 @@
+package org.mcsoxford.rss;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the category facet index.
+ * 
+ * @author Mr Horn
+ */
+public class RSSCategoryIndexTest {
+
+  /**
+   * Class under test
+   */
+  private RSSCategoryIndex index;
+
+  private RSSItem a;
+  private RSSItem b;
+  private RSSItem c;
+
+  @Before
+  public void setup() {
+    index = new RSSCategoryIndex();
+    a = item("A", "News", "Sport");
+    b = item("B", "  news ", "Politics");
+    c = item("C", "Sport");
+    index.add("feed", feed(a, b, c));
+  }
+
+  private static RSSItem item(String title, String... categories) {
+    final RSSItem item = new RSSItem((byte) 2, (byte) 0);
+    item.setTitle(title);
+    for (String category : categories) {
+      item.addCategory(category);
+    }
+    return item;
+  }
+
+  private static RSSFeed feed(RSSItem... items) {
+    final RSSFeed feed = new RSSFeed();
+    for (RSSItem item : items) {
+      feed.addItem(item);
+    }
+    return feed;
+  }
+
+  @Test
+  public void canonical() {
+    assertEquals("daily news", RSSCategoryIndex.canonical("  Daily \t News "));
+    assertNull(RSSCategoryIndex.canonical(" "));
+  }
+
+  @Test
+  public void facetCounts() {
+    final Map<String, Integer> counts = index.getFacetCounts();
+    assertEquals(Arrays.asList("News", "Sport", "Politics"),
+        Arrays.asList(counts.keySet().toArray()));
+    assertEquals(Integer.valueOf(2), counts.get("News"));
+
+    final Map<String, Integer> drillDown = index.getFacetCounts("NEWS");
+    assertEquals(Integer.valueOf(2), drillDown.get("News"));
+    assertEquals(Integer.valueOf(1), drillDown.get("Sport"));
+    assertEquals(Integer.valueOf(1), drillDown.get("Politics"));
+
+    assertTrue(index.getFacetCounts("unknown").isEmpty());
+  }
+
+  @Test
+  public void filter() {
+    assertEquals(3, index.count());
+    assertEquals(1, index.count("news", "sport"));
+    assertEquals(Arrays.asList(a), index.getItemsWithAll("news", "sport"));
+    assertEquals(new HashSet<RSSItem>(Arrays.asList(a, b, c)),
+        new HashSet<RSSItem>(index.getItemsWithAny("politics", "sport", "news")));
+    assertTrue(index.getItemsWithAll("news", "unknown").isEmpty());
+  }
+
+  @Test
+  public void replace() {
+    final RSSItem d = item("D", "Weather");
+    index.add("feed", feed(d));
+    index.add("other", feed(item("E", "Sport")));
+
+    assertEquals(2, index.size());
+    assertEquals(0, index.count("news"));
+    assertEquals(Arrays.asList(d), index.getItemsWithAll("weather"));
+    assertFalse(index.getFacetCounts().containsKey("News"));
+
+    index.remove("other");
+    assertEquals(1, index.size());
+    assertEquals(0, index.count("sport"));
+  }
+
+}
@@ -0,0 +1,63 @@
+package org.mcsoxford.rss;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Benchmark of indexed access and iteration over the items of an RSS feed
+ * with 10k items, once with the array-backed item list of {@link RSSFeed}
+ * and once with the linked list which it replaced.
+ * 
+ * @author Mr Horn
+ * @see Benchmark
+ */
+public class RSSFeedBenchmark {
+
+  private static final int ITEMS = 10000;
+
+  /**
+   * Defeats dead code elimination.
+   */
+  static int sink;
+
+  public static void main(String[] args) throws Exception {
+    final RSSFeed feed = new RSSFeed();
+    feed.ensureItemCapacity(ITEMS);
+    for (int i = 0; i < ITEMS; i++) {
+      final RSSItem item = new RSSItem((byte) 0, (byte) 0);
+      item.setTitle("Item " + i);
+      feed.addItem(item);
+    }
+    final List<RSSItem> array = feed.getItems();
+    final List<RSSItem> linked = new LinkedList<RSSItem>(array);
+
+    indexed("ArrayList get(i) over 10k items", array, 200);
+    indexed("LinkedList get(i) over 10k items", linked, 10);
+    iterate("ArrayList iteration over 10k items", array);
+    iterate("LinkedList iteration over 10k items", linked);
+  }
+
+  private static void indexed(String name, final List<RSSItem> items, int iterations)
+      throws Exception {
+    Benchmark.time(name, iterations / 2, iterations, new Benchmark.Task() {
+      @Override
+      public void run(int n) {
+        for (int i = 0; i < items.size(); i++) {
+          sink += items.get(i).getTitle().length();
+        }
+      }
+    });
+  }
+
+  private static void iterate(String name, final List<RSSItem> items) throws Exception {
+    Benchmark.time(name, 200, 1000, new Benchmark.Task() {
+      @Override
+      public void run(int n) {
+        for (RSSItem item : items) {
+          sink += item.getTitle().length();
+        }
+      }
+    });
+  }
+
+}
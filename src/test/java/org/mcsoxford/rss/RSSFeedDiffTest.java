@@ -0,0 +1,93 @@
+package org.mcsoxford.rss;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the difference between two versions of an RSS feed.
+ * 
+ * @author Mr Horn
+ */
+public class RSSFeedDiffTest {
+
+  private static RSSItem item(String link, String title) {
+    final RSSItem item = new RSSItem((byte) 0, (byte) 0);
+    item.setLink(link == null ? null : android.net.Uri.parse(link));
+    item.setTitle(title);
+    return item;
+  }
+
+  private static RSSFeed feed(RSSItem... items) {
+    final RSSFeed feed = new RSSFeed();
+    for (RSSItem item : items) {
+      feed.addItem(item);
+    }
+    return feed;
+  }
+
+  @Test
+  public void diff() {
+    final RSSItem a = item("http://example.com/a", "A");
+    final RSSItem b = item("http://example.com/b", "B");
+    final RSSItem c = item("http://example.com/c", "C");
+    final RSSItem b2 = item("http://example.com/b", "B, updated");
+    final RSSItem c2 = item("http://example.com/c", "C");
+    final RSSItem d = item("http://example.com/d", "D");
+
+    final RSSFeedDiff diff = RSSFeedDiff.diff(feed(a, b, c), feed(d, b2, c2));
+    assertEquals(1, diff.getAdded().size());
+    assertSame(d, diff.getAdded().get(0));
+    assertEquals(1, diff.getChanged().size());
+    assertSame(b2, diff.getChanged().get(0));
+    assertEquals(1, diff.getRemoved().size());
+    assertSame(a, diff.getRemoved().get(0));
+    assertFalse(diff.isEmpty());
+  }
+
+  @Test
+  public void unchanged() {
+    final RSSItem a = item("http://example.com/a", "A");
+    a.setPubDate(new java.util.Date(1000));
+    a.addCategory("news");
+    final RSSItem a2 = item("http://example.com/a", "A");
+    a2.setPubDate(new java.util.Date(1000));
+    a2.addCategory("news");
+
+    assertTrue(RSSFeedDiff.diff(feed(a), feed(a2)).isEmpty());
+
+    a2.addCategory("more news");
+    assertEquals(1, RSSFeedDiff.diff(feed(a), feed(a2)).getChanged().size());
+  }
+
+  @Test
+  public void withoutLink() {
+    final RSSFeedDiff diff = RSSFeedDiff.diff(feed(item(null, "A")), feed(item(null, "A"),
+        item(null, "B")));
+    assertEquals(1, diff.getAdded().size());
+    assertEquals("B", diff.getAdded().get(0).getTitle());
+    assertTrue(diff.getChanged().isEmpty());
+    assertTrue(diff.getRemoved().isEmpty());
+  }
+
+  @Test
+  public void guid() {
+    final RSSItem a = item("http://example.com/a", "A");
+    a.setGuid("1");
+    final RSSItem a2 = item("http://example.com/a-moved", "A");
+    a2.setGuid("1");
+
+    final RSSFeedDiff diff = RSSFeedDiff.diff(feed(a), feed(a2));
+    assertTrue(diff.getAdded().isEmpty());
+    assertTrue(diff.getRemoved().isEmpty());
+    assertTrue(diff.getChanged().isEmpty());
+  }
+
+  @Test
+  public void firstLoad() {
+    final RSSFeedDiff diff = RSSFeedDiff.diff(null, feed(item("http://example.com/a", "A")));
+    assertEquals(1, diff.getAdded().size());
+    assertTrue(diff.getRemoved().isEmpty());
+  }
+
+}
@@ -0,0 +1,217 @@
+package org.mcsoxford.rss;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for publishing RSS items and RSS feeds with backpressure.
+ * 
+ * @author Mr Horn
+ */
+public class RSSFlowTest {
+
+  private static final int ITEMS = 2000;
+
+  private static final String COMPLETE = "complete";
+
+  private ExecutorService executor;
+
+  private MemoryFetcher fetcher;
+
+  /**
+   * Number of bytes which the parser has read.
+   */
+  private final AtomicLong read = new AtomicLong();
+
+  private byte[] large;
+
+  @Before
+  public void setup() throws Exception {
+    executor = Executors.newCachedThreadPool();
+    fetcher = new MemoryFetcher();
+
+    final StringBuilder xml = new StringBuilder("<rss><channel><title>Large</title>");
+    for (int i = 0; i < ITEMS; i++) {
+      xml.append("<item><title>Item ").append(i).append("</title><description>")
+          .append("Lorem ipsum dolor sit amet, consectetur adipiscing elit ").append(i)
+          .append("</description></item>");
+    }
+    large = xml.append("</channel></rss>").toString().getBytes("UTF-8");
+    fetcher.put("mem:large", large);
+    fetcher.put("mem:feed", FeedServer.fixture());
+  }
+
+  @After
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Fetcher which counts the bytes that have been read.
+   */
+  private RSSReader reader() {
+    return new RSSReader(new RSSFetcherSPI() {
+      @Override
+      public InputStream fetch(String uri) throws RSSReaderException {
+        return new FilterInputStream(fetcher.fetch(uri)) {
+          @Override
+          public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+              read.incrementAndGet();
+            }
+            return b;
+          }
+
+          @Override
+          public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int n = super.read(buffer, offset, length);
+            if (n > 0) {
+              read.addAndGet(n);
+            }
+            return n;
+          }
+        };
+      }
+    }, new RSSParser(new RSSConfig()));
+  }
+
+  /**
+   * Subscriber which records all signals.
+   */
+  static final class Recorder<T> implements RSSFlow.Subscriber<T> {
+
+    final BlockingQueue<Object> signals = new LinkedBlockingQueue<Object>();
+    volatile RSSFlow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(RSSFlow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      signals.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      signals.add(COMPLETE);
+    }
+
+    Object next() throws InterruptedException {
+      final Object signal = signals.poll(5, TimeUnit.SECONDS);
+      assertNotNull("Timed out", signal);
+      return signal;
+    }
+
+  }
+
+  @Test
+  public void backpressure() throws Exception {
+    final Recorder<RSSItem> subscriber = new Recorder<RSSItem>();
+    reader().publish("mem:large", executor).subscribe(subscriber);
+    assertNotNull(subscriber.subscription);
+
+    subscriber.subscription.request(1);
+    assertEquals("Item 0", ((RSSItem) subscriber.next()).getTitle());
+
+    // the parser stops reading while there is no demand
+    Thread.sleep(100);
+    assertNull(subscriber.signals.poll());
+    assertTrue(read.get() < large.length / 2);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    for (int i = 1; i < ITEMS; i++) {
+      assertEquals("Item " + i, ((RSSItem) subscriber.next()).getTitle());
+    }
+    assertEquals(COMPLETE, subscriber.next());
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    final Recorder<RSSItem> subscriber = new Recorder<RSSItem>();
+    reader().publish("mem:large", executor).subscribe(subscriber);
+    subscriber.subscription.request(2);
+    subscriber.next();
+    subscriber.next();
+    subscriber.subscription.cancel();
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(subscriber.signals.isEmpty());
+  }
+
+  @Test
+  public void errors() throws Exception {
+    final Recorder<RSSItem> invalid = new Recorder<RSSItem>();
+    reader().publish("mem:feed", executor).subscribe(invalid);
+    invalid.subscription.request(0);
+    assertTrue(invalid.next() instanceof IllegalArgumentException);
+
+    final Recorder<RSSItem> missing = new Recorder<RSSItem>();
+    reader().publish("mem:missing", executor).subscribe(missing);
+    missing.subscription.request(1);
+    assertTrue(missing.next() instanceof RSSReaderException);
+  }
+
+  @Test
+  public void loader() throws Exception {
+    final RSSLoader loader = RSSLoader.fifo(reader());
+    for (int i = 0; i < 3; i++) {
+      loader.load("mem:feed");
+    }
+    loader.stop();
+
+    final Recorder<RSSFeed> subscriber = new Recorder<RSSFeed>();
+    loader.publish().subscribe(subscriber);
+    subscriber.subscription.request(2);
+    assertEquals("Example Channel", ((RSSFeed) subscriber.next()).getTitle());
+    assertEquals("Example Channel", ((RSSFeed) subscriber.next()).getTitle());
+    Thread.sleep(100);
+    assertNull(subscriber.signals.poll());
+
+    subscriber.subscription.request(10);
+    assertEquals("Example Channel", ((RSSFeed) subscriber.next()).getTitle());
+    assertEquals(COMPLETE, subscriber.next());
+  }
+
+  @Test
+  public void loaderStoppedWhileWaiting() throws Exception {
+    final RSSLoader loader = RSSLoader.fifo(reader());
+    final Recorder<RSSFeed> subscriber = new Recorder<RSSFeed>();
+    loader.publish().subscribe(subscriber);
+    subscriber.subscription.request(10);
+
+    // the publisher waits for loaded RSS feeds until the loader stops
+    loader.load("mem:feed");
+    assertEquals("Example Channel", ((RSSFeed) subscriber.next()).getTitle());
+    Thread.sleep(100);
+    assertNull(subscriber.signals.poll());
+
+    loader.load("mem:feed");
+    loader.stop();
+    assertEquals("Example Channel", ((RSSFeed) subscriber.next()).getTitle());
+    assertEquals(COMPLETE, subscriber.next());
+  }
+
+}
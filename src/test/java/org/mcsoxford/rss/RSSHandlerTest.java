@@ -150,4 +150,75 @@ public class RSSHandlerTest {
     assertEquals("123", items.next().getTitle());
     assertFalse(items.hasNext());
   }
+  @Test
+  public void guid() {
+    final org.xml.sax.helpers.AttributesImpl attributes = new org.xml.sax.helpers.AttributesImpl();
+    attributes.addAttribute("", "isPermaLink", "isPermaLink", "CDATA", "false");
+
+    handler.startElement(null, null, "item", null);
+    handler.startElement(null, null, "guid", attributes);
+    assertTrue(handler.isBuffering());
+    handler.characters(" tag:example.com,2010:1 ".toCharArray(), 0, 24);
+    handler.endElement(null, null, "guid");
+    handler.endElement(null, null, "item");
+
+    final RSSItem item = handler.feed().getItems().get(0);
+    assertEquals("tag:example.com,2010:1", item.getGuid());
+    assertFalse(item.isPermaLink());
+    assertEquals(0, item.getFingerprint());
+  }
+
+  @Test
+  public void fingerprint() {
+    handler = new RSSHandler(new RSSConfig().withFingerprints(true));
+    handler.startElement(null, null, "item", null);
+    handler.startElement(null, null, "description", null);
+    handler.characters("abcdef".toCharArray(), 0, 3);
+    handler.characters("abcdef".toCharArray(), 3, 3);
+    handler.endElement(null, null, "description");
+    handler.startElement(null, null, "title", null);
+    handler.characters("xyz".toCharArray(), 0, 3);
+    handler.endElement(null, null, "title");
+    handler.endElement(null, null, "item");
+
+    final RSSItem item = handler.feed().getItems().get(0);
+    assertTrue(item.isPermaLink());
+    assertEquals(Fingerprints.of("xyz", "abcdef", null), item.getFingerprint());
+    assertFalse(Fingerprints.of("xyz", "abcdef", "") == item.getFingerprint());
+    assertFalse(Fingerprints.of("xyzabc", "def", null) == item.getFingerprint());
+  }
+
+  @Test
+  public void compressedText() {
+    final StringBuilder html = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      html.append("<p class=\"body\">Paragraph ").append(i).append(" of the \u00e9t\u00e9 story</p>\n");
+    }
+    final String content = html.toString();
+    final RSSConfig config = new RSSConfig().withCompressedText(1024, 4);
+    handler = new RSSHandler(config);
+
+    handler.startElement(null, null, "item", null);
+    handler.startElement(null, null, "description", null);
+    handler.characters("short".toCharArray(), 0, 5);
+    handler.endElement(null, null, "description");
+    handler.startElement(null, null, "content:encoded", null);
+    handler.characters(content.toCharArray(), 0, content.length());
+    handler.endElement(null, null, "content:encoded");
+    handler.endElement(null, null, "item");
+    handler.endDocument();
+    handler.release();
+
+    final RSSItem item = handler.feed().getItems().get(0);
+    assertNull(item.getCompressedDescription());
+    assertEquals("short", item.getDescription());
+    assertNotNull(item.getCompressedContent());
+    assertTrue(item.getCompressedContent().weight() * 5 < 2 * content.length());
+    assertEquals(content, item.getContent());
+
+    // hot cache returns the same string
+    assertSame(item.getContent(), item.getContent());
+    assertTrue(RSSCache.weigh(handler.feed()) < content.length());
+  }
+
 }
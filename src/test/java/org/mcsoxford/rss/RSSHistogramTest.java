@@ -0,0 +1,88 @@
+package org.mcsoxford.rss;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the log-linear histogram of metrics.
+ * 
+ * @author Mr Horn
+ */
+public class RSSHistogramTest {
+
+  @Test
+  public void buckets() {
+    assertEquals(0, RSSHistogram.index(0));
+    assertEquals(RSSHistogram.BUCKETS - 1, RSSHistogram.index(Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, RSSHistogram.highest(RSSHistogram.BUCKETS - 1));
+
+    // buckets are contiguous and every value lies in its bucket
+    for (int i = 1; i < RSSHistogram.BUCKETS; i++) {
+      final long lowest = RSSHistogram.highest(i - 1) + 1;
+      assertEquals(i, RSSHistogram.index(lowest));
+      assertEquals(i, RSSHistogram.index(RSSHistogram.highest(i)));
+    }
+  }
+
+  @Test
+  public void empty() {
+    final RSSHistogram histogram = new RSSHistogram.Recorder().snapshot();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMin());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(99));
+    assertEquals(0, histogram.getMean(), 0);
+  }
+
+  @Test
+  public void percentiles() {
+    final RSSHistogram.Recorder recorder = new RSSHistogram.Recorder();
+    for (int i = 1; i <= 100000; i++) {
+      recorder.record(i * 1000L);
+    }
+    recorder.record(-5);
+
+    final RSSHistogram histogram = recorder.snapshot();
+    assertEquals(100001, histogram.getCount());
+    assertEquals(0, histogram.getMin());
+    assertEquals(100000000L, histogram.getMax());
+    assertEquals(5000050000L * 1000, histogram.getTotal());
+    for (double p : new double[] { 1, 50, 90, 99, 99.9 }) {
+      final double expected = p / 100 * 100000 * 1000;
+      final long actual = histogram.getPercentile(p);
+      assertTrue(p + ": " + actual, Math.abs(actual - expected) <= expected * 0.04);
+    }
+    assertEquals(histogram.getMax(), histogram.getPercentile(100));
+  }
+
+  @Test
+  public void concurrent() throws Exception {
+    final RSSHistogram.Recorder recorder = new RSSHistogram.Recorder();
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      final long seed = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          final Random random = new Random(seed);
+          for (int j = 0; j < 10000; j++) {
+            recorder.record(random.nextInt(1000000));
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    final RSSHistogram histogram = recorder.snapshot();
+    assertEquals(40000, histogram.getCount());
+    assertTrue(histogram.getMax() < 1000000);
+    assertTrue(histogram.getPercentile(50) > 450000 && histogram.getPercentile(50) < 550000);
+  }
+
+}
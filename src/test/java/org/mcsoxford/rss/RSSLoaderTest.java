@@ -0,0 +1,385 @@
+package org.mcsoxford.rss;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the asynchronous RSS loader. RSS feeds are served from
+ * memory so that no network access is required.
+ * 
+ * @author Mr Horn
+ */
+public class RSSLoaderTest {
+
+  private MemoryFetcher fetcher;
+
+  /**
+   * Class under test
+   */
+  private RSSLoader loader;
+
+  @Before
+  public void setup() throws Exception {
+    fetcher = new MemoryFetcher();
+    fetcher.put("mem:feed", FeedServer.fixture());
+    loader = RSSLoader.fifo(new RSSReader(fetcher, new RSSParser(new RSSConfig())));
+  }
+
+  @After
+  public void teardown() {
+    loader.stop();
+  }
+
+  @Test
+  public void load() throws Exception {
+    final Future<RSSFeed> future = loader.load("mem:feed");
+    assertNotNull(future);
+
+    final Future<RSSFeed> done = loader.poll(5, TimeUnit.SECONDS);
+    assertSame(future, done);
+    assertEquals("Example Channel", done.get().getTitle());
+    assertEquals(android.net.Uri.parse("http://example.com/"), done.get().getLink());
+  }
+
+  @Test
+  public void loadMany() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      assertNotNull(loader.load("mem:feed"));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      final Future<RSSFeed> done = loader.poll(5, TimeUnit.SECONDS);
+      assertNotNull(done);
+      assertEquals(2, done.get().getItems().size());
+    }
+  }
+
+  @Test
+  public void notFound() throws Exception {
+    final Future<RSSFeed> future = loader.load("mem:missing");
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RSSReaderException);
+      assertEquals(404, ((RSSReaderException) e.getCause()).getStatus());
+    }
+  }
+
+  @Test
+  public void stop() {
+    loader.stop();
+    assertNull(loader.load("mem:feed"));
+  }
+
+  @Test
+  public void hostLimits() throws Exception {
+    final ConcurrencyFetcher slow = new ConcurrencyFetcher(fetcher);
+    final String[] hosts = { "a", "a", "a", "a", "a", "a", "b", "c", "b", "c" };
+    for (int i = 0; i < hosts.length; i++) {
+      fetcher.put("http://" + hosts[i] + ".example.com/" + i, FeedServer.fixture());
+    }
+
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(slow, new RSSParser(new RSSConfig())),
+        new RSSConfig().withLoaderThreads(3).withHostLimits(1, 0, 1));
+    try {
+      for (int i = 0; i < hosts.length; i++) {
+        loader.load("http://" + hosts[i] + ".example.com/" + i);
+      }
+      for (int i = 0; i < hosts.length; i++) {
+        assertNotNull(loader.poll(5, TimeUnit.SECONDS).get());
+      }
+    } finally {
+      loader.stop();
+    }
+
+    for (String host : new String[] { "a.example.com", "b.example.com", "c.example.com" }) {
+      assertEquals(1, slow.peak(host));
+    }
+    // loads on other hosts proceed while host "a" is busy
+    assertTrue(slow.peak > 1);
+  }
+
+  @Test
+  public void hostOrder() throws Exception {
+    final ConcurrencyFetcher slow = new ConcurrencyFetcher(fetcher);
+    for (int i = 0; i < 20; i++) {
+      fetcher.put("http://" + (i % 4 == 0 ? "b" : "a") + ".example.com/" + i,
+          FeedServer.fixture());
+    }
+
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(slow, new RSSParser(new RSSConfig())),
+        new RSSConfig().withLoaderThreads(4).withParserThreads(1, 16).withHostLimits(1, 0, 1));
+    try {
+      for (int i = 0; i < 20; i++) {
+        loader.load("http://" + (i % 4 == 0 ? "b" : "a") + ".example.com/" + i);
+      }
+
+      // postponed requests to a host start in the order they were made
+      int previousA = -1;
+      int previousB = -1;
+      for (int i = 0; i < 20; i++) {
+        final RSSLoader.RSSFuture future = (RSSLoader.RSSFuture) loader.poll(5, TimeUnit.SECONDS);
+        final int n = Integer.parseInt(future.uri.substring(future.uri.lastIndexOf('/') + 1));
+        if (future.host.startsWith("a")) {
+          assertTrue(n > previousA);
+          previousA = n;
+        } else {
+          assertTrue(n > previousB);
+          previousB = n;
+        }
+      }
+      assertEquals(0, loader.getDownloadQueueSize());
+    } finally {
+      loader.stop();
+    }
+
+    assertEquals(1, slow.peak("a.example.com"));
+    assertEquals(1, slow.peak("b.example.com"));
+  }
+
+  @Test
+  public void hostRate() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      fetcher.put("http://a.example.com/" + i, FeedServer.fixture());
+    }
+
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(fetcher, new RSSParser(new RSSConfig())),
+        new RSSConfig().withHostLimits(0, 20, 1));
+    try {
+      final long start = System.nanoTime();
+      for (int i = 0; i < 5; i++) {
+        loader.load("http://a.example.com/" + i);
+      }
+      for (int i = 0; i < 5; i++) {
+        assertNotNull(loader.poll(5, TimeUnit.SECONDS).get());
+      }
+
+      // first load uses the burst, the other four wait 50ms each
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+    } finally {
+      loader.stop();
+    }
+  }
+
+  @Test
+  public void idleHostsEvicted() {
+    final HostScheduler scheduler = new HostScheduler(0, 10, 1);
+    long now = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(0, scheduler.tryAcquire("host" + i, now));
+      scheduler.release("host" + i);
+      now += 1000000L;
+    }
+
+    // buckets refill within 100ms, so only the recent hosts are retained
+    assertTrue(scheduler.size() < 300);
+
+    // a retained host keeps its empty bucket
+    assertEquals(0, scheduler.tryAcquire("busy", now));
+    assertTrue(scheduler.tryAcquire("busy", now) > 0);
+  }
+
+  @Test
+  public void faultyParser() throws Exception {
+    final RSSParserSPI faulty = new RSSParserSPI() {
+      private boolean failed;
+
+      @Override
+      public synchronized RSSFeed parse(InputStream feed) {
+        if (!failed) {
+          failed = true;
+          throw new IllegalStateException("faulty");
+        }
+        return new RSSParser(new RSSConfig()).parse(feed);
+      }
+    };
+
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(fetcher, faulty));
+    try {
+      final Future<RSSFeed> failed = loader.load("mem:feed");
+      final Future<RSSFeed> loaded = loader.load("mem:feed");
+      try {
+        failed.get(5, TimeUnit.SECONDS);
+        fail("Expected ExecutionException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+
+      // the parser thread keeps running
+      assertEquals(2, loaded.get(5, TimeUnit.SECONDS).getItems().size());
+    } finally {
+      loader.stop();
+    }
+  }
+
+  @Test
+  public void maxBodyBytes() throws Exception {
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(fetcher, new RSSParser(
+        new RSSConfig())), new RSSConfig().withMaxBodyBytes(100));
+    try {
+      final Future<RSSFeed> future = loader.load("mem:feed");
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        fail("Expected ExecutionException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RSSFault);
+      }
+    } finally {
+      loader.stop();
+    }
+  }
+
+  @Test
+  public void idleThreads() throws Exception {
+    final List<Thread> others = parsers();
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(fetcher, new RSSParser(new RSSConfig())),
+        new RSSConfig().withLoaderThreads(2).withParserThreads(3, 2));
+    final List<Thread> started = parsers();
+    started.removeAll(others);
+    assertEquals(3, started.size());
+
+    // idle parser threads block rather than poll
+    Thread.sleep(100);
+    for (Thread parser : started) {
+      assertEquals(Thread.State.WAITING, parser.getState());
+    }
+
+    loader.stop();
+    for (Thread parser : started) {
+      parser.join(5000);
+      assertFalse(parser.isAlive());
+    }
+  }
+
+  private static List<Thread> parsers() {
+    final List<Thread> parsers = new ArrayList<Thread>();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("RSS feed parser")) {
+        parsers.add(thread);
+      }
+    }
+    return parsers;
+  }
+
+  @Test
+  public void pipeline() throws Exception {
+    final CountDownLatch parse = new CountDownLatch(1);
+    final RSSParserSPI blocking = new RSSParserSPI() {
+      @Override
+      public RSSFeed parse(InputStream feed) {
+        try {
+          parse.await();
+        } catch (InterruptedException e) {
+          throw new RSSFault(e);
+        }
+        return new RSSParser(new RSSConfig()).parse(feed);
+      }
+    };
+
+    final RSSLoader loader = RSSLoader.fifo(new RSSReader(fetcher, blocking),
+        new RSSConfig().withLoaderThreads(2).withParserThreads(1, 2));
+    try {
+      for (int i = 0; i < 8; i++) {
+        loader.load("mem:feed");
+      }
+
+      // downloads continue while the parser is busy until the queue is full:
+      // one feed is being parsed, two are queued and both loader threads wait
+      // with a downloaded feed, so three remain to be downloaded
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while ((loader.getParseQueueSize() != 2 || loader.getDownloadQueueSize() != 3)
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, loader.getParseQueueSize());
+      assertEquals(3, loader.getDownloadQueueSize());
+
+      // the stages stay put while the parser is busy
+      Thread.sleep(100);
+      assertEquals(2, loader.getParseQueueSize());
+      assertEquals(3, loader.getDownloadQueueSize());
+      assertEquals(0, loader.getLoadedQueueSize());
+
+      parse.countDown();
+      for (int i = 0; i < 8; i++) {
+        assertEquals(2, loader.poll(5, TimeUnit.SECONDS).get().getItems().size());
+      }
+      assertEquals(0, loader.getDownloadQueueSize());
+      assertEquals(0, loader.getParseQueueSize());
+    } finally {
+      parse.countDown();
+      loader.stop();
+    }
+  }
+
+  @Test
+  public void malformed() throws Exception {
+    fetcher.put("mem:malformed", "<rss><channel><item>".getBytes("UTF-8"));
+    final Future<RSSFeed> future = loader.load("mem:malformed");
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RSSFault);
+    }
+    assertTrue(future.isDone());
+  }
+
+  /**
+   * Fetcher which records the peak number of concurrent fetches per host.
+   */
+  static class ConcurrencyFetcher implements RSSFetcherSPI {
+
+    private final RSSFetcherSPI fetcher;
+    private final Map<String, Integer> active = new HashMap<String, Integer>();
+    private final Map<String, Integer> peaks = new HashMap<String, Integer>();
+    private int total;
+    int peak;
+
+    ConcurrencyFetcher(RSSFetcherSPI fetcher) {
+      this.fetcher = fetcher;
+    }
+
+    synchronized int peak(String host) {
+      return peaks.get(host);
+    }
+
+    @Override
+    public InputStream fetch(String uri) throws RSSReaderException {
+      final String host = HostScheduler.host(uri);
+      synchronized (this) {
+        final int n = (active.containsKey(host) ? active.get(host) : 0) + 1;
+        active.put(host, n);
+        peaks.put(host, Math.max(n, peaks.containsKey(host) ? peaks.get(host) : 0));
+        peak = Math.max(peak, ++total);
+      }
+      try {
+        Thread.sleep(30);
+        return fetcher.fetch(uri);
+      } catch (InterruptedException e) {
+        throw new RSSFault(e);
+      } finally {
+        synchronized (this) {
+          active.put(host, active.get(host) - 1);
+          total--;
+        }
+      }
+    }
+
+  }
+
+}
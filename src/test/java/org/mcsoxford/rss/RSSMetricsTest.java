@@ -0,0 +1,144 @@
+package org.mcsoxford.rss;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the metrics of RSS readers and loaders. RSS feeds are
+ * served from memory so that no network access is required.
+ * 
+ * @author Mr Horn
+ */
+public class RSSMetricsTest {
+
+  private MemoryFetcher fetcher;
+
+  private RSSReader reader;
+
+  private byte[] fixture;
+
+  @Before
+  public void setup() throws Exception {
+    fixture = FeedServer.fixture();
+    fetcher = new MemoryFetcher();
+    fetcher.put("mem:feed", fixture);
+    fetcher.put("mem:malformed", "<rss><channel><item>".getBytes("UTF-8"));
+    reader = new RSSReader(fetcher, new RSSParser(new RSSConfig()));
+  }
+
+  @Test
+  public void reader() throws Exception {
+    reader.load("mem:feed");
+    try {
+      reader.load("mem:missing");
+      fail("Expected RSSReaderException");
+    } catch (RSSReaderException e) {
+      // expected
+    }
+    try {
+      reader.load("mem:malformed");
+      fail("Expected RSSFault");
+    } catch (RSSFault e) {
+      // expected
+    }
+
+    final RSSMetrics metrics = reader.getMetrics();
+    assertEquals(1, metrics.getSuccesses());
+    assertEquals(Collections.singletonMap(404, 1L), metrics.getHttpFailures());
+    assertEquals(1, metrics.getFaults());
+    assertEquals(2, metrics.getFailures());
+    assertEquals(fixture.length, metrics.getBytes().getMax());
+    assertEquals(2, metrics.getItems().getMax());
+    assertEquals(1, metrics.getParseTime().getCount());
+    assertEquals(2, metrics.getFirstByteTime().getCount());
+
+    // streaming loads are not split into download and parse times
+    assertEquals(0, metrics.getDownloadTime().getCount());
+    assertEquals(0, metrics.getQueueTime().getCount());
+    assertTrue(metrics.getThroughput() > 0);
+  }
+
+  @Test
+  public void publish() throws Exception {
+    final java.util.concurrent.Executor direct = new java.util.concurrent.Executor() {
+      @Override
+      public void execute(Runnable task) {
+        task.run();
+      }
+    };
+    final java.util.List<Object> signals = new java.util.ArrayList<Object>();
+    final RSSFlow.Subscriber<RSSItem> subscriber = new RSSFlow.Subscriber<RSSItem>() {
+      @Override
+      public void onSubscribe(RSSFlow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(RSSItem item) {
+        signals.add(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        signals.add(throwable);
+      }
+
+      @Override
+      public void onComplete() {}
+    };
+
+    reader.publish("mem:feed", direct).subscribe(subscriber);
+    reader.publish("mem:malformed", direct).subscribe(subscriber);
+    assertEquals(3, signals.size());
+    assertTrue(signals.get(2) instanceof RSSFault);
+
+    final RSSMetrics metrics = reader.getMetrics();
+    assertEquals(1, metrics.getSuccesses());
+    assertEquals(1, metrics.getFaults());
+    assertEquals(2, metrics.getItems().getMax());
+    assertEquals(1, metrics.getParseTime().getCount());
+    assertEquals(2, metrics.getFirstByteTime().getCount());
+    assertEquals(fixture.length, metrics.getBytes().getMax());
+  }
+
+  @Test
+  public void loader() throws Exception {
+    final RSSLoader loader = RSSLoader.fifo(reader, new RSSConfig().withParserThreads(2, 4));
+    try {
+      for (int i = 0; i < 10; i++) {
+        loader.load("mem:feed");
+      }
+      loader.load("mem:missing").cancel(false);
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (loader.getLoadedQueueSize() < 10 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+
+      RSSMetrics metrics = loader.getMetrics();
+      assertEquals(10, metrics.getLoadedQueueSize());
+      assertEquals(0, metrics.getDownloadQueueSize());
+      assertEquals(0, metrics.getParseQueueSize());
+      assertEquals(10, metrics.getSuccesses());
+      assertEquals(0, metrics.getFailures());
+      assertEquals(10, metrics.getQueueTime().getCount());
+      assertEquals(10, metrics.getParseQueueTime().getCount());
+      assertEquals(10, metrics.getDownloadTime().getCount());
+      assertEquals(10, metrics.getParseTime().getCount());
+      assertEquals(10L * fixture.length, metrics.getBytes().getTotal());
+      assertEquals(20, metrics.getItems().getTotal());
+
+      loader.load("mem:missing").get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (java.util.concurrent.ExecutionException e) {
+      assertEquals(Collections.singletonMap(404, 1L), loader.getMetrics().getHttpFailures());
+    } finally {
+      loader.stop();
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimHash signatures and the near-duplicate index.
+ * 
+ * @author Mr Horn
+ */
+public class RSSNearDuplicatesTest {
+
+  private static final String STORY = "<p>Thousands of residents were evacuated from the coast on "
+      + "Tuesday as the storm brought heavy rain and winds of up to 120 miles per hour. "
+      + "Officials said shelters had been opened in schools and churches across the region, "
+      + "and that power had been cut to more than 200,000 homes.</p>";
+
+  private static RSSItem item(String title, String description) {
+    final RSSItem item = new RSSItem((byte) 0, (byte) 0);
+    item.setTitle(title);
+    item.setDescription(description);
+    return item;
+  }
+
+  @Test
+  public void signature() {
+    final long a = SimHash.of(item("Storm forces thousands to flee the coast", STORY));
+    final long b = SimHash.of(item("Storm forces thousands to flee coast", STORY
+        .replace("<p>", "<p class=\"lead\">") + " (Reuters)"));
+    final long c = SimHash.of(item("Parliament passes budget", "<p>The budget was passed "
+        + "by a narrow margin after a late night debate on taxes and spending.</p>"));
+
+    assertTrue(SimHash.distance(a, b) <= RSSNearDuplicates.DEFAULT_MAX_DISTANCE);
+    assertTrue(SimHash.distance(a, c) > 10);
+    assertEquals(0, SimHash.of(item(null, null)));
+  }
+
+  @Test
+  public void parse() {
+    final RSSHandler handler = new RSSHandler(new RSSConfig().withSimHashes(true));
+    handler.startElement(null, null, "item", null);
+    handler.startElement(null, null, "title", null);
+    handler.characters("Storm hits the coast".toCharArray(), 0, 20);
+    handler.endElement(null, null, "title");
+    handler.startElement(null, null, "description", null);
+    handler.characters(STORY.toCharArray(), 0, STORY.length());
+    handler.endElement(null, null, "description");
+    handler.endElement(null, null, "item");
+
+    final RSSItem item = handler.feed().getItems().get(0);
+    assertEquals(SimHash.of(item("Storm hits the coast", STORY)), item.getSimHash());
+  }
+
+  @Test
+  public void cluster() {
+    final RSSItem a = item("Storm forces thousands to flee the coast", STORY);
+    final RSSItem b = item("Parliament passes budget", "After a long debate.");
+    final RSSItem c = item("Storm forces thousands to flee the coast", STORY + " (AP)");
+    final RSSItem d = item(null, null);
+
+    final List<List<RSSItem>> clusters = RSSNearDuplicates.cluster(Arrays.asList(a, b, c, d),
+        RSSNearDuplicates.DEFAULT_MAX_DISTANCE);
+    assertEquals(3, clusters.size());
+    assertEquals(Arrays.asList(a, c), clusters.get(0));
+    assertEquals(Arrays.asList(b), clusters.get(1));
+    assertEquals(Arrays.asList(d), clusters.get(2));
+  }
+
+  @Test
+  public void bands() {
+    // random signatures with planted near-duplicates across many rehashes
+    final Random random = new Random(3);
+    final RSSNearDuplicates index = new RSSNearDuplicates();
+    final List<Long> signatures = new ArrayList<Long>();
+    for (int i = 0; i < 20000; i++) {
+      final RSSItem item = item(null, null);
+      long signature = random.nextLong() | 1;
+      if (i % 10 == 9) {
+        // flip up to seven bits of an earlier signature
+        signature = signatures.get(i - 5);
+        for (int flip = 0; flip < 7; flip++) {
+          signature ^= 1L << (1 + random.nextInt(63));
+        }
+        signature |= 1;
+      }
+      signatures.add(signature);
+      item.setSimHash(signature);
+
+      final int cluster = index.add(item);
+      if (i % 10 == 9) {
+        assertTrue(SimHash.distance(signature, signatures.get(i - 5)) <= 7);
+        assertEquals(index.getCluster(i - 5), cluster);
+      }
+    }
+
+    assertEquals(20000, index.size());
+    final RSSItem probe = item(null, null);
+    probe.setSimHash(signatures.get(1234) ^ 0x0101010101010100L);
+    assertEquals(index.getCluster(1234), index.find(probe));
+    probe.setSimHash(signatures.get(1234) ^ 0x0303030303030300L);
+    assertEquals(-1, index.find(probe));
+
+    // exact bands only
+    final RSSNearDuplicates exact = new RSSNearDuplicates(3);
+    final RSSItem first = item(null, null);
+    first.setSimHash(0x0f0f0f0f0f0f0f0fL);
+    exact.add(first);
+    probe.setSimHash(0x0f0f0f0f0f0f0f0fL ^ 0x0001000100010000L);
+    assertEquals(0, exact.find(probe));
+    probe.setSimHash(0x0f0f0f0f0f0f0f0fL ^ 0x0001000100010001L);
+    assertEquals(-1, exact.find(probe));
+  }
+
+}
@@ -3,9 +3,11 @@ package org.mcsoxford.rss;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import android.net.Uri;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
+import java.util.List;
 import java.util.TimeZone;
 
 import org.junit.Before;
@@ -83,11 +85,112 @@ public class RSSParserTest {
     assertFalse(items.hasNext());
   }
 
+  @Test
+  public void itemCapacity() throws Exception {
+    try {
+      final RSSFeed feed = parser.parse(stream, 1);
+      assertTrue(feed.getItems() instanceof java.util.RandomAccess);
+      assertEquals(2, feed.getItems().size());
+      assertEquals("News for October", feed.getItems().get(1).getTitle());
+    } finally {
+      Resources.closeQuietly(stream);
+    }
+  }
+
+  @Test
+  public void uriCache() throws Exception {
+    final RSSConfig config = new RSSConfig().withUriCache(64);
+    final RSSFeed first = new RSSParser(config).parse(stream);
+    final RSSFeed second = parse(new RSSParser(config), "rssfeed.xml");
+
+    // URIs which repeat across refreshes are the same instances
+    assertSame(first.getLink(), second.getLink());
+    assertSame(first.getItems().get(0).getThumbnails().get(1).getUrl(), second.getItems()
+        .get(0).getThumbnails().get(1).getUrl());
+
+    final UriCache cache = new UriCache(1);
+    final Uri a = cache.get("http://example.com/a");
+    assertSame(a, cache.get("http://example.com/a"));
+    cache.get("http://example.com/b");
+    assertEquals(a, cache.get("http://example.com/a"));
+    assertEquals(4, new UriCache(3).capacity());
+  }
+
+  @Test
+  public void deferredUris() throws Exception {
+    final RSSFeed feed = parse(new RSSParser(new RSSConfig().withDeferredUris(true)),
+        "rssfeed.xml");
+    final RSSItem item = feed.getItems().get(0);
+    assertEquals("http://example.com/2010/11/07", item.getLinkString());
+    assertEquals(Uri.parse("http://example.com/2010/11/07"), item.getLink());
+    assertSame(item.getLink(), item.getLink());
+    assertEquals(Uri.parse("http://example.com/"), feed.getLink());
+    assertEquals("http://example.com/media/images/12/jpg/_7_2.jpg",
+        item.getThumbnails().get(0).toString());
+    assertEquals(Uri.parse("http://example.com/media/images/12/jpg/_7_2.jpg"),
+        item.getThumbnails().get(0).getUrl());
+    assertEquals(parse(stream).getItems(), feed.getItems());
+  }
+
+  @Test
+  public void learnedItemCapacity() throws Exception {
+    final List<Integer> capacities = new ArrayList<Integer>();
+    final RSSParser subclass = new RSSParser(new RSSConfig()) {
+      @Override
+      RSSFeed parse(InputStream feed, int itemCapacity) {
+        capacities.add(itemCapacity);
+        return super.parse(feed, itemCapacity);
+      }
+    };
+    final MemoryFetcher fetcher = new MemoryFetcher();
+    fetcher.put("mem:feed", FeedServer.fixture());
+
+    // subclasses of the built-in parser learn the item count, too
+    final RSSReader reader = new RSSReader(fetcher, subclass);
+    reader.load("mem:feed");
+    reader.load("mem:feed");
+    assertEquals(10, (int) capacities.get(0));
+    assertEquals(2, (int) capacities.get(1));
+  }
+
+  @Test
+  public void releaseMalformed() {
+    final boolean[] released = new boolean[1];
+    final RSSHandler handler = new RSSHandler(new RSSConfig().withCompressedText(16, 4)) {
+      @Override
+      void release() {
+        released[0] = true;
+        super.release();
+      }
+    };
+
+    final byte[] truncated = ("<rss><channel><item><description>A description long "
+        + "enough to compress</description>").getBytes();
+    try {
+      parser.parse(new java.io.ByteArrayInputStream(truncated), handler);
+      fail("Expected RSSFault");
+    } catch (RSSFault e) {
+      assertTrue(released[0]);
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void parseStreamNullArgument() throws Exception {
     parse(null);
   }
 
+  /**
+   * Helper method to parse an RSS feed resource with the specified parser.
+   */
+  private RSSFeed parse(RSSParser parser, String resource) {
+    final InputStream stream = getClass().getClassLoader().getResourceAsStream(resource);
+    try {
+      return parser.parse(stream);
+    } finally {
+      Resources.closeQuietly(stream);
+    }
+  }
+
   /**
    * Helper method to parse an RSS feed and closes the input stream.
    */
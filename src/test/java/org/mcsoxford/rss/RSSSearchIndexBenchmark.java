@@ -0,0 +1,84 @@
+package org.mcsoxford.rss;
+
+import java.util.Random;
+
+/**
+ * Benchmark of ranked keyword queries against an {@link RSSSearchIndex} of
+ * 1M items in 1000 RSS feeds. Titles and descriptions are drawn from a
+ * vocabulary with a Zipf-like distribution, so the queries cover rare,
+ * medium and common terms. Run with {@code -Xmx2g}.
+ * 
+ * @author Mr Horn
+ * @see Benchmark
+ */
+public class RSSSearchIndexBenchmark {
+
+  private static final int FEEDS = 1000;
+  private static final int ITEMS = 1000;
+  private static final int WORDS = 20000;
+
+  /**
+   * Defeats dead code elimination.
+   */
+  static int sink;
+
+  public static void main(String[] args) throws Exception {
+    final String[] words = new String[WORDS];
+    for (int i = 0; i < WORDS; i++) {
+      words[i] = "w" + Integer.toString(i, 36);
+    }
+
+    final Random random = new Random(42);
+    final RSSSearchIndex index = new RSSSearchIndex();
+    final long start = System.nanoTime();
+    for (int f = 0; f < FEEDS; f++) {
+      final RSSFeed feed = new RSSFeed();
+      feed.ensureItemCapacity(ITEMS);
+      for (int i = 0; i < ITEMS; i++) {
+        final RSSItem item = new RSSItem((byte) 1, (byte) 0);
+        item.setTitle(text(words, random, 6));
+        item.setDescription(text(words, random, 20));
+        item.addCategory(words[zipf(random)]);
+        feed.addItem(item);
+      }
+      index.add("http://example.com/" + f, feed);
+    }
+    System.out.printf("indexed %d items in %.1fs%n", index.size(),
+        (System.nanoTime() - start) / 1e9);
+
+    // rank 19999 occurs in ~130 items, rank 200 in ~13k and rank 0 in ~860k
+    query(index, "rare term", words[WORDS - 1]);
+    query(index, "medium term", words[200]);
+    query(index, "common term", words[0]);
+    query(index, "rare and medium terms", words[WORDS - 1] + " " + words[200]);
+    query(index, "two common terms", words[0] + " " + words[1]);
+  }
+
+  private static void query(final RSSSearchIndex index, String name, final String query)
+      throws Exception {
+    Benchmark.time("search " + name + ", top 10 of 1M items", 200, 2000,
+        new Benchmark.Task() {
+          @Override
+          public void run(int i) {
+            sink += index.search(query, 10).size();
+          }
+        });
+  }
+
+  private static String text(String[] words, Random random, int length) {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append(words[zipf(random)]).append(' ');
+    }
+    return text.toString();
+  }
+
+  /**
+   * Returns a rank whose probability is roughly inversely proportional to the
+   * rank itself.
+   */
+  private static int zipf(Random random) {
+    return (int) Math.pow(WORDS + 1, random.nextDouble()) - 1;
+  }
+
+}
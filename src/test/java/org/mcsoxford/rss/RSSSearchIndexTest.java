@@ -0,0 +1,156 @@
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the full-text index of RSS items.
+ * 
+ * @author Mr Horn
+ */
+public class RSSSearchIndexTest {
+
+  /**
+   * Class under test
+   */
+  private RSSSearchIndex index;
+
+  @Before
+  public void setup() {
+    index = new RSSSearchIndex();
+  }
+
+  private static RSSItem item(String title, String description, long date) {
+    final RSSItem item = new RSSItem((byte) 1, (byte) 0);
+    item.setTitle(title);
+    item.setDescription(description);
+    item.setPubDateMillis(date);
+    return item;
+  }
+
+  private static RSSFeed feed(RSSItem... items) {
+    final RSSFeed feed = new RSSFeed();
+    for (RSSItem item : items) {
+      feed.addItem(item);
+    }
+    return feed;
+  }
+
+  private static List<String> titles(List<RSSItem> items) {
+    final List<String> titles = new ArrayList<String>();
+    for (RSSItem item : items) {
+      titles.add(item.getTitle());
+    }
+    return titles;
+  }
+
+  @Test
+  public void tokenize() {
+    final List<String> terms = new ArrayList<String>();
+    RSSSearchIndex.tokenize("Apple <b class=\"x\">pie</b>, a WE'RE-2010", terms);
+    assertEquals(Arrays.asList("apple", "pie", "we", "re", "2010"), terms);
+
+    // a bracket which does not start a tag is not markup
+    terms.clear();
+    RSSSearchIndex.tokenize("1<2 and 3 < 42 <!-- no --> </i>end<", terms);
+    assertEquals(Arrays.asList("and", "42", "end"), terms);
+  }
+
+  @Test
+  public void rank() {
+    final RSSItem title = item("Apple harvest", "Fruit news", 1);
+    final RSSItem description = item("Fruit news", "An apple a day", 2);
+    final RSSItem category = item("Orchards", "Trees", 3);
+    category.addCategory("Apple");
+    index.add("a", feed(title, description, category, item("Pears", "Other fruit", 4)));
+
+    assertEquals(Arrays.asList("Apple harvest", "Orchards", "Fruit news"),
+        titles(index.search("APPLE", 10)));
+    assertEquals(Arrays.asList("Apple harvest"), titles(index.search("apple", 1)));
+
+    // more matching keywords rank higher
+    assertEquals("Fruit news", index.search("an apple a day", 10).get(0).getTitle());
+    assertTrue(index.search("banana", 10).isEmpty());
+    assertTrue(index.search("  ", 10).isEmpty());
+  }
+
+  @Test
+  public void replace() {
+    index.add("a", feed(item("Apple", null, 1), item("Banana", null, 2)));
+    index.add("b", feed(item("Apple pie", null, 3)));
+    index.add("a", feed(item("Cherry", null, 4)));
+
+    assertEquals(Arrays.asList("Apple pie"), titles(index.search("apple", 10)));
+    assertEquals(2, index.size());
+
+    index.remove("b");
+    assertTrue(index.search("apple", 10).isEmpty());
+    assertEquals(Arrays.asList("Cherry"), titles(index.search("cherry", 10)));
+  }
+
+  @Test
+  public void removeOlderThan() {
+    index.add("a", feed(item("Old news", null, 1), item("New news", null, 2),
+        item("Undated news", null, RSSBase.NO_DATE)));
+    index.removeOlderThan(2);
+
+    assertEquals(2, index.size());
+    assertEquals(2, index.search("news", 10).size());
+    assertTrue(index.search("old", 10).isEmpty());
+  }
+
+  @Test
+  public void removedFrequencies() {
+    index.add("a", feed(item("Apple", null, 1), item("Apple", null, 2), item("Apple", null, 3)));
+    index.add("b", feed(item("Apple", "x", 4), item("Pie", "y", 5), item("Pie", "z", 6)));
+    final RSSItem[] others = new RSSItem[8];
+    for (int i = 0; i < others.length; i++) {
+      others[i] = item("Other", null, 7 + i);
+    }
+    index.add("c", feed(others));
+
+    // once the other apples are removed, "apple" is rarer than "pie"
+    index.remove("a");
+    final List<RSSItem> results = index.search("apple pie", 10);
+    assertEquals(Arrays.asList("Apple", "Pie", "Pie"), titles(results));
+    assertEquals(Arrays.asList("x", "z", "y"), Arrays.asList(results.get(0).getDescription(),
+        results.get(1).getDescription(), results.get(2).getDescription()));
+  }
+
+  @Test
+  public void limit() {
+    final List<RSSItem> items = new ArrayList<RSSItem>();
+    for (int i = 0; i < 50; i++) {
+      items.add(item(i % 5 == 0 ? "Apple apple " + i : "Apple " + i, null, i));
+    }
+    index.add("a", feed(items.toArray(new RSSItem[items.size()])));
+
+    // ties are won by the most recently indexed items
+    assertEquals(Arrays.asList("Apple apple 45", "Apple apple 40", "Apple apple 35"),
+        titles(index.search("apple", 3)));
+    assertEquals(Arrays.asList("Apple apple 0", "Apple 49", "Apple 48"),
+        titles(index.search("apple", 12)).subList(9, 12));
+  }
+
+  @Test
+  public void compact() {
+    for (int round = 0; round < 20; round++) {
+      final List<RSSItem> items = new ArrayList<RSSItem>();
+      for (int i = 0; i < 100; i++) {
+        items.add(item("Item " + round + " number" + i, "Round " + round, i));
+      }
+      index.add("a", feed(items.toArray(new RSSItem[items.size()])));
+    }
+
+    assertEquals(100, index.size());
+    assertEquals(100, index.search("round 19", 1000).size());
+    assertTrue(index.search("number7", 10).get(0).getTitle().startsWith("Item 19"));
+  }
+
+}
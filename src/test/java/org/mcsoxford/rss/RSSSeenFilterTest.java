@@ -0,0 +1,222 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Bloom filter of seen RSS items.
+ * 
+ * @author Mr Horn
+ */
+public class RSSSeenFilterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static RSSItem item(String guid) {
+    final RSSItem item = new RSSItem((byte) 0, (byte) 0);
+    item.setGuid(guid);
+    return item;
+  }
+
+  @Test
+  public void falsePositiveRate() {
+    final RSSSeenFilter filter = new RSSSeenFilter(1000, 0.01);
+    int added = 0;
+    for (int i = 0; i < 50000; i++) {
+      if (filter.add(item("seen-" + i))) {
+        added++;
+      }
+    }
+    // new items are only rejected if they are false positives
+    assertTrue(added > 49500);
+    assertEquals(added, filter.size());
+
+    // no false negatives
+    for (int i = 0; i < 50000; i++) {
+      assertTrue(filter.mightContain(item("seen-" + i)));
+      assertFalse(filter.add(item("seen-" + i)));
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 50000; i++) {
+      if (filter.mightContain(item("new-" + i))) {
+        falsePositives++;
+      }
+    }
+    assertTrue("False positives: " + falsePositives, falsePositives < 500);
+
+    // bounded number of bits per item
+    assertTrue(filter.weight() < 50000 * 3);
+  }
+
+  @Test
+  public void identity() {
+    final RSSSeenFilter filter = new RSSSeenFilter(100, 0.01);
+    final RSSItem linked = new RSSItem((byte) 0, (byte) 0);
+    linked.setLink("http://example.com/a");
+    filter.add(linked);
+
+    assertFalse(filter.mightContain(item("http://example.com/a")));
+    final RSSItem other = new RSSItem((byte) 0, (byte) 0);
+    other.setLink("http://example.com/a");
+    assertTrue(filter.mightContain(other));
+  }
+
+  @Test
+  public void saveAndLoad() throws Exception {
+    final RSSSeenFilter filter = new RSSSeenFilter(10, 0.01);
+    for (int i = 0; i < 100; i++) {
+      filter.add(item("item-" + i));
+    }
+
+    final File file = new File(folder.getRoot(), "seen.bloom");
+    filter.save(file);
+    filter.save(file);
+    final RSSSeenFilter loaded = RSSSeenFilter.load(file);
+    assertEquals(filter.size(), loaded.size());
+    assertEquals(filter.weight(), loaded.weight());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(loaded.mightContain(item("item-" + i)));
+    }
+    assertTrue(loaded.add(item("item-100")));
+  }
+
+  @Test
+  public void saveFailure() throws Exception {
+    final File directory = folder.newFolder("seen.bloom");
+    new File(directory, "other").createNewFile();
+    try {
+      new RSSSeenFilter(10, 0.01).save(directory);
+      fail("Expected IOException");
+    } catch (IOException e) {
+      // cannot replace a directory
+    }
+    assertFalse(new File(folder.getRoot(), "seen.bloom.tmp").exists());
+  }
+
+  private static byte[] header(int stages, long capacity, int hashes, int words)
+      throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0x52535346);
+    out.writeInt(1);
+    out.writeInt(10);
+    out.writeDouble(0.01);
+    out.writeLong(0);
+    out.writeInt(stages);
+    out.writeLong(capacity);
+    out.writeLong(0);
+    out.writeInt(hashes);
+    out.writeInt(words);
+    out.writeLong(-1L);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void corrupt() throws Exception {
+    final byte[][] corrupt = { header(Integer.MAX_VALUE, 10, 3, 1), header(-1, 10, 3, 1),
+        header(1, 0, 3, 1), header(1, 10, Integer.MAX_VALUE, 1),
+        header(1, 10, 3, Integer.MAX_VALUE) };
+    for (byte[] bytes : corrupt) {
+      try {
+        RSSSeenFilter.readFrom(new ByteArrayInputStream(bytes));
+        fail("Expected StreamCorruptedException");
+      } catch (StreamCorruptedException e) {
+        // malformed
+      }
+    }
+
+    // a truncated bit array fails without allocating the declared size
+    try {
+      RSSSeenFilter.readFrom(new ByteArrayInputStream(header(1, 10, 3, 1 << 30)));
+      fail("Expected EOFException");
+    } catch (EOFException e) {
+      // truncated
+    }
+    assertEquals(8, RSSSeenFilter.readFrom(new ByteArrayInputStream(header(1, 10, 3, 1)))
+        .weight());
+  }
+
+  @Test
+  public void parse() throws Exception {
+    final RSSSeenFilter filter = new RSSSeenFilter(100, 0.001);
+    final RSSParser parser = new RSSParser(new RSSConfig().withSeenFilter(filter));
+    assertEquals(2, parse(parser).getItems().size());
+    assertEquals(2, filter.size());
+    assertTrue(parse(parser).getItems().isEmpty());
+
+    // items with a seen GUID are skipped as soon as the GUID is known
+    final RSSHandler handler = new RSSHandler(new RSSConfig().withSeenFilter(filter));
+    filter.add(item("known"));
+    handler.startElement(null, null, "item", null);
+    handler.startElement(null, null, "guid", null);
+    handler.characters("known".toCharArray(), 0, 5);
+    handler.endElement(null, null, "guid");
+    handler.startElement(null, null, "description", null);
+    assertFalse(handler.isBuffering());
+    handler.endElement(null, null, "description");
+    handler.endElement(null, null, "item");
+    assertTrue(handler.feed().getItems().isEmpty());
+  }
+
+  @Test
+  public void truncated() throws Exception {
+    final RSSSeenFilter filter = new RSSSeenFilter(100, 0.001);
+    final RSSParser parser = new RSSParser(new RSSConfig().withSeenFilter(filter));
+    final byte[] feed = FeedServer.fixture();
+    try {
+      parser.parse(new ByteArrayInputStream(Arrays.copyOf(feed, feed.length - 20)));
+      fail("Expected RSSFault");
+    } catch (RSSFault e) {
+      // truncated
+    }
+
+    // the items of the truncated feed have not been recorded as seen
+    assertEquals(0, filter.size());
+    assertEquals(2, parser.parse(new ByteArrayInputStream(feed)).getItems().size());
+    assertEquals(2, filter.size());
+    assertTrue(parser.parse(new ByteArrayInputStream(feed)).getItems().isEmpty());
+  }
+
+  @Test
+  public void duplicates() {
+    final RSSSeenFilter filter = new RSSSeenFilter(100, 0.001);
+    final RSSHandler handler = new RSSHandler(new RSSConfig().withSeenFilter(filter));
+    for (int i = 0; i < 2; i++) {
+      handler.startElement(null, null, "item", null);
+      handler.startElement(null, null, "guid", null);
+      handler.characters("twice".toCharArray(), 0, 5);
+      handler.endElement(null, null, "guid");
+      handler.endElement(null, null, "item");
+    }
+    handler.endDocument();
+
+    // an item which occurs twice in a document is only added once
+    assertEquals(1, handler.feed().getItems().size());
+    assertEquals(1, filter.size());
+  }
+
+  private RSSFeed parse(RSSParser parser) {
+    final InputStream stream = getClass().getClassLoader().getResourceAsStream("rssfeed.xml");
+    try {
+      return parser.parse(stream);
+    } finally {
+      Resources.closeQuietly(stream);
+    }
+  }
+
+}
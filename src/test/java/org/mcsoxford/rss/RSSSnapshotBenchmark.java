@@ -0,0 +1,86 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Benchmark of restoring many RSS feeds at startup, once by parsing their
+ * XML again and once from a binary snapshot.
+ * 
+ * @author Mr Horn
+ * @see Benchmark
+ */
+public class RSSSnapshotBenchmark {
+
+  private static final int FEEDS = 1000;
+  private static final int ITEMS = 20;
+
+  public static void main(String[] args) throws Exception {
+    final byte[][] xml = new byte[FEEDS][];
+    final RSSFeed[] feeds = new RSSFeed[FEEDS];
+    final RSSParser parser = new RSSParser(new RSSConfig());
+    long xmlBytes = 0;
+    for (int i = 0; i < FEEDS; i++) {
+      xml[i] = feed(i);
+      xmlBytes += xml[i].length;
+      feeds[i] = parser.parse(new ByteArrayInputStream(xml[i]));
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final RSSSnapshotWriter writer = new RSSSnapshotWriter(out);
+    for (RSSFeed feed : feeds) {
+      writer.write(feed);
+    }
+    writer.close();
+    final byte[] snapshot = out.toByteArray();
+    System.out.println(FEEDS + " feeds of " + ITEMS + " items: " + xmlBytes
+        + " bytes of XML, " + snapshot.length + " bytes of snapshot");
+
+    Benchmark.time("re-parse XML of " + FEEDS + " feeds", 5, 20, new Benchmark.Task() {
+      @Override
+      public void run(int n) throws Exception {
+        for (int i = 0; i < FEEDS; i++) {
+          parser.parse(new ByteArrayInputStream(xml[i]));
+        }
+      }
+    });
+
+    Benchmark.time("read snapshot of " + FEEDS + " feeds", 5, 20, new Benchmark.Task() {
+      @Override
+      public void run(int n) throws Exception {
+        final RSSSnapshotReader reader = new RSSSnapshotReader(new ByteArrayInputStream(
+            snapshot));
+        while (reader.read() != null) {
+          // restore all
+        }
+        reader.close();
+      }
+    });
+  }
+
+  /**
+   * Returns the XML of a synthetic RSS feed.
+   */
+  static byte[] feed(int feed) throws Exception {
+    final StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rss version=\"2.0\" ")
+        .append("xmlns:media=\"http://search.yahoo.com/mrss/\"><channel>")
+        .append("<title>Feed ").append(feed).append("</title>")
+        .append("<link>http://example.com/feeds/").append(feed).append("</link>")
+        .append("<description>Synthetic feed ").append(feed).append("</description>")
+        .append("<lastBuildDate>Mon, 06 Sep 2010 16:45:00 +0000</lastBuildDate>");
+    for (int i = 0; i < ITEMS; i++) {
+      xml.append("<item><title>Story ").append(i).append(" of feed ").append(feed)
+          .append("</title><link>http://example.com/feeds/").append(feed).append("/")
+          .append(i).append("</link><description>Lorem ipsum dolor sit amet, ")
+          .append("consectetur adipiscing elit, sed do eiusmod tempor incididunt ")
+          .append(i).append("</description><category>news</category>")
+          .append("<category>world</category>")
+          .append("<pubDate>Mon, 06 Sep 2010 16:").append(10 + i)
+          .append(":00 +0000</pubDate><media:thumbnail url=\"http://example.com/t/")
+          .append(i).append(".jpg\" height=\"75\" width=\"100\"/></item>");
+    }
+    return xml.append("</channel></rss>").toString().getBytes("UTF-8");
+  }
+
+}
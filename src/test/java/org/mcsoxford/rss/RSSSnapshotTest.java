@@ -0,0 +1,162 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.StreamCorruptedException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the binary snapshot format of RSS feeds.
+ * 
+ * @author Mr Horn
+ */
+public class RSSSnapshotTest {
+
+  private RSSFeed feed;
+
+  @Before
+  public void setup() throws Exception {
+    feed = new RSSParser(new RSSConfig()).parse(new ByteArrayInputStream(FeedServer.fixture()));
+    feed.setTTL(60);
+    feed.getItems().get(0).setEnclosure(new MediaEnclosure(
+        android.net.Uri.parse("http://example.com/a.mp3"), 12345, "audio/mpeg"));
+    feed.getItems().get(1).setGuid("tag:example.com,2010:2");
+    feed.getItems().get(1).setPermaLink(false);
+    feed.getItems().get(1).setFingerprint(-42L);
+  }
+
+  private static byte[] write(RSSFeed... feeds) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final RSSSnapshotWriter writer = new RSSSnapshotWriter(out);
+    for (RSSFeed feed : feeds) {
+      writer.write(feed);
+    }
+    writer.close();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    final RSSSnapshotReader reader = new RSSSnapshotReader(new ByteArrayInputStream(write(feed,
+        feed)));
+
+    for (int i = 0; i < 2; i++) {
+      final RSSFeed copy = reader.read();
+      assertNotNull(copy);
+      assertBaseEquals(feed, copy);
+      assertEquals(feed.getLastBuildDate(), copy.getLastBuildDate());
+      assertEquals(feed.getTTL(), copy.getTTL());
+      assertEquals(feed.getItems().size(), copy.getItems().size());
+
+      for (int j = 0; j < feed.getItems().size(); j++) {
+        assertItemEquals(feed.getItems().get(j), copy.getItems().get(j));
+      }
+    }
+
+    assertNull(reader.read());
+    assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  public void compact() throws Exception {
+    assertTrue(write(feed).length < FeedServer.fixture().length);
+
+    // repeated strings are written once
+    final int one = write(feed).length;
+    final int two = write(feed, feed).length;
+    assertTrue(two - one < one / 2);
+  }
+
+  @Test
+  public void empty() throws Exception {
+    final RSSFeed copy = new RSSSnapshotReader(new ByteArrayInputStream(write(new RSSFeed())))
+        .read();
+    assertNull(copy.getTitle());
+    assertNull(copy.getLink());
+    assertNull(copy.getPubDate());
+    assertNull(copy.getTTL());
+    assertTrue(copy.getItems().isEmpty());
+  }
+
+  @Test(expected = StreamCorruptedException.class)
+  public void notSnapshot() throws Exception {
+    new RSSSnapshotReader(new ByteArrayInputStream(FeedServer.fixture()));
+  }
+
+  @Test(expected = EOFException.class)
+  public void truncated() throws Exception {
+    final byte[] snapshot = write(feed);
+    final byte[] truncated = new byte[snapshot.length / 2];
+    System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+    new RSSSnapshotReader(new ByteArrayInputStream(truncated)).read();
+  }
+
+  @Test
+  public void corruptLengths() throws Exception {
+    final byte[] maxVarint = { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 };
+    final byte[] header = { 0x52, 0x53, 0x53, 0x53, 2, RSSSnapshotWriter.FEED };
+
+    // huge item count after an empty channel
+    final ByteArrayOutputStream items = new ByteArrayOutputStream();
+    items.write(header);
+    items.write(new byte[] { 0, 0, 0, 0, 0, 0, 0 });
+    items.write(maxVarint);
+
+    // huge length of an inline title
+    final ByteArrayOutputStream title = new ByteArrayOutputStream();
+    title.write(header);
+    title.write(RSSSnapshotWriter.INLINE_STRING);
+    title.write(maxVarint);
+    title.write(new byte[100]);
+
+    for (ByteArrayOutputStream snapshot : new ByteArrayOutputStream[] { items, title }) {
+      try {
+        new RSSSnapshotReader(new ByteArrayInputStream(snapshot.toByteArray())).read();
+        fail("Expected EOFException");
+      } catch (EOFException e) {
+        // no allocation proportional to the corrupt length
+      }
+    }
+  }
+
+  private static void assertBaseEquals(RSSBase expected, RSSBase actual) {
+    assertEquals(expected.getTitle(), actual.getTitle());
+    assertEquals(expected.getLink(), actual.getLink());
+    assertEquals(expected.getDescription(), actual.getDescription());
+    assertEquals(expected.getPubDate(), actual.getPubDate());
+    assertEquals(expected.getCategories(), actual.getCategories());
+  }
+
+  private static void assertItemEquals(RSSItem expected, RSSItem actual) {
+    assertBaseEquals(expected, actual);
+    assertEquals(expected.getContent(), actual.getContent());
+    assertEquals(expected.getGuid(), actual.getGuid());
+    assertEquals(expected.isPermaLink(), actual.isPermaLink());
+    assertEquals(expected.getFingerprint(), actual.getFingerprint());
+
+    final List<MediaThumbnail> thumbnails = expected.getThumbnails();
+    assertEquals(thumbnails.size(), actual.getThumbnails().size());
+    for (int i = 0; i < thumbnails.size(); i++) {
+      final MediaThumbnail thumbnail = actual.getThumbnails().get(i);
+      assertEquals(thumbnails.get(i).getUrl(), thumbnail.getUrl());
+      assertEquals(thumbnails.get(i).getHeight(), thumbnail.getHeight());
+      assertEquals(thumbnails.get(i).getWidth(), thumbnail.getWidth());
+    }
+
+    if (expected.getEnclosure() == null) {
+      assertNull(actual.getEnclosure());
+    } else {
+      assertEquals(expected.getEnclosure().getUrl(), actual.getEnclosure().getUrl());
+      assertEquals(expected.getEnclosure().getLength(), actual.getEnclosure().getLength());
+      assertEquals(expected.getEnclosure().getMimeType(), actual.getEnclosure().getMimeType());
+    }
+  }
+
+}
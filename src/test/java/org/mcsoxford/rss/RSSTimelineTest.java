@@ -0,0 +1,108 @@
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the merged timeline of RSS feeds.
+ * 
+ * @author Mr Horn
+ */
+public class RSSTimelineTest {
+
+  private static RSSItem item(int id, long date) {
+    final RSSItem item = new RSSItem((byte) 0, (byte) 0);
+    item.setGuid(String.valueOf(id));
+    item.setTitle("Item " + id);
+    item.setPubDateMillis(date);
+    return item;
+  }
+
+  private static RSSFeed feed(RSSItem... items) {
+    final RSSFeed feed = new RSSFeed();
+    for (RSSItem item : items) {
+      feed.addItem(item);
+    }
+    return feed;
+  }
+
+  private static List<String> guids(List<RSSItem> items) {
+    final List<String> guids = new ArrayList<String>();
+    for (RSSItem item : items) {
+      guids.add(item.getGuid());
+    }
+    return guids;
+  }
+
+  @Test
+  public void merge() {
+    final RSSFeed a = feed(item(1, 100), item(2, 300), item(3, RSSBase.NO_DATE));
+    final RSSFeed b = feed(item(4, 200), item(2, 300), item(5, 400));
+
+    assertEquals(Arrays.asList("5", "2", "4", "1", "3"),
+        guids(RSSTimeline.merge(Arrays.asList(a, b), 10)));
+    assertEquals(Arrays.asList("5", "2"), guids(RSSTimeline.merge(Arrays.asList(a, b), 2)));
+  }
+
+  @Test
+  public void update() {
+    final RSSTimeline timeline = new RSSTimeline(3);
+    timeline.update("a", feed(item(1, 100), item(2, 200)));
+    timeline.update("b", feed(item(3, 300), item(4, 50)));
+    assertEquals(Arrays.asList("3", "2", "1"), guids(timeline.getItems()));
+
+    // refresh frees room for an item which has been left out
+    timeline.update("a", feed(item(1, 100)));
+    assertEquals(Arrays.asList("3", "1", "4"), guids(timeline.getItems()));
+
+    timeline.remove("b");
+    assertEquals(Arrays.asList("1"), guids(timeline.getItems()));
+  }
+
+  @Test
+  public void duplicate() {
+    final RSSTimeline timeline = new RSSTimeline(10);
+    timeline.update("a", feed(item(1, 100)));
+    timeline.update("b", feed(item(1, 100), item(2, 200)));
+    assertEquals(Arrays.asList("2", "1"), guids(timeline.getItems()));
+
+    // the copy in "b" remains
+    timeline.update("a", feed());
+    assertEquals(Arrays.asList("2", "1"), guids(timeline.getItems()));
+  }
+
+  @Test
+  public void incrementalEqualsRebuild() {
+    final Random random = new Random(42);
+    final RSSItem[] pool = new RSSItem[200];
+    for (int i = 0; i < pool.length; i++) {
+      pool[i] = item(i, 1000 + i * 10);
+    }
+
+    final RSSTimeline timeline = new RSSTimeline(20);
+    final Map<String, RSSFeed> feeds = new HashMap<String, RSSFeed>();
+    for (int round = 0; round < 500; round++) {
+      final List<RSSItem> items = new ArrayList<RSSItem>();
+      final int n = random.nextInt(15);
+      for (int i = 0; i < n; i++) {
+        items.add(pool[random.nextInt(pool.length)]);
+      }
+
+      final String uri = "feed" + random.nextInt(6);
+      final RSSFeed feed = feed(items.toArray(new RSSItem[items.size()]));
+      feeds.put(uri, feed);
+      timeline.update(uri, feed);
+
+      assertEquals(guids(RSSTimeline.merge(feeds.values(), 20)), guids(timeline.getItems()));
+    }
+  }
+
+}
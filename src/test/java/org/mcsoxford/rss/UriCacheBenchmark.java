@@ -0,0 +1,117 @@
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Benchmark of the per-value cost of building links, thumbnail and
+ * enclosure URIs, once parsed anew, once through a {@link UriCache} and once
+ * deferred. Lookups copy the URI string first because the parser hands
+ * every value over as a new string whose hash code is not yet cached.
+ * <p>
+ * The test classpath holds a stub of {@link android.net.Uri}, so a parse is
+ * one small allocation. The numbers are therefore a lower bound for
+ * {@code Uri.parse} on a device but an exact measure of the cache overhead.
+ * 
+ * @author Mr Horn
+ * @see Benchmark
+ */
+public class UriCacheBenchmark {
+
+  private static final int OPERATIONS = 1000000;
+  private static final int FEEDS = 100;
+
+  /**
+   * Defeats dead code elimination.
+   */
+  static int sink;
+
+  public static void main(String[] args) throws Exception {
+    final char[][] uris = new char[100000][];
+    for (int i = 0; i < uris.length; i++) {
+      uris[i] = ("http://images.example.com/thumbnails/2010/09/" + i + "/story.jpg")
+          .toCharArray();
+    }
+
+    // 1000 distinct URIs rarely collide in 65536 slots, 100k do not fit 256
+    lookup("copy string only (baseline)", uris, 1000, new Lookup() {
+      public Object get(String uri) {
+        return uri;
+      }
+    });
+    lookup("Uri.parse", uris, 1000, new Lookup() {
+      public Object get(String uri) {
+        return android.net.Uri.parse(uri);
+      }
+    });
+    final UriCache large = new UriCache(65536);
+    lookup("UriCache hit", uris, 1000, new Lookup() {
+      public Object get(String uri) {
+        return large.get(uri);
+      }
+    });
+    final UriCache small = new UriCache(256);
+    lookup("UriCache miss", uris, uris.length, new Lookup() {
+      public Object get(String uri) {
+        return small.get(uri);
+      }
+    });
+
+    final byte[][] xml = new byte[FEEDS][];
+    for (int i = 0; i < FEEDS; i++) {
+      xml[i] = RSSSnapshotBenchmark.feed(i);
+    }
+    // the first round warms up the parser for all configurations
+    for (int round = 0; round < 2; round++) {
+      parse("parse items, Uri.parse", xml, new RSSConfig());
+      parse("parse items, UriCache", xml, new RSSConfig().withUriCache(4096));
+      parse("parse items, deferred", xml, new RSSConfig().withDeferredUris(true));
+    }
+  }
+
+  private interface Lookup {
+    Object get(String uri);
+  }
+
+  private static void lookup(String name, final char[][] uris, final int distinct,
+      final Lookup lookup) throws Exception {
+    final long before = allocatedBytes();
+    Benchmark.batch(name, 5, OPERATIONS, new Benchmark.Task() {
+      @Override
+      public void run(int i) {
+        sink += lookup.get(new String(uris[i % distinct])).hashCode();
+      }
+    });
+    printAllocation(before, 6L * OPERATIONS);
+  }
+
+  private static void parse(String name, final byte[][] xml, RSSConfig config)
+      throws Exception {
+    final RSSParser parser = new RSSParser(config);
+    final int items = 20;
+    final long before = allocatedBytes();
+    final double nanos = Benchmark.batch(name + " (per feed)", 5, 200, new Benchmark.Task() {
+      @Override
+      public void run(int i) throws Exception {
+        sink += parser.parse(new ByteArrayInputStream(xml[i % xml.length])).getItems().size();
+      }
+    });
+    System.out.println(String.format(java.util.Locale.US, "%-44s %12.1f ns/item", "",
+        nanos / items));
+    printAllocation(before, 6L * 200 * items);
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Prints the bytes allocated per operation since the specified count.
+   */
+  private static void printAllocation(long before, long operations) {
+    System.out.println(String.format(java.util.Locale.US, "%-44s %12.1f B/op", "",
+        (double) (allocatedBytes() - before) / operations));
+  }
+
+}